@@ -39,4 +39,16 @@ public interface IOutputVector {
      * Values MUST be recorded increasing timestamp order.
      */
     boolean record(Number time, double value);
+
+    /**
+     * Record a value with the given time stamp into the output vector. This is
+     * the same as record(Number, double); implementations override it to avoid
+     * boxing the time stamp when the simulator represents simulation time as
+     * double.
+     *
+     * Values MUST be recorded increasing timestamp order.
+     */
+    default boolean record(double time, double value) {
+        return record((Number)time, value);
+    }
 }
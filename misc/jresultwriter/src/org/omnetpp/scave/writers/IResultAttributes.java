@@ -137,6 +137,13 @@ public interface IResultAttributes {
      */
     static final String ATTR_MAX = "max";
 
+    /**
+     * Vector attribute: how the vector was derived from the recorded values,
+     * e.g. by a filter that averages them over time intervals. See
+     * FilteringOutputVectorManager.
+     */
+    static final String ATTR_RECORDINGMODE = "recordingmode";
+
     // values for ATTR_TYPE
     static final String TYPE_INT = "int";
     static final String TYPE_DOUBLE = "double";
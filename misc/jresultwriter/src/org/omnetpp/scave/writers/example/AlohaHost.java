@@ -34,10 +34,10 @@ public class AlohaHost extends Component {
         radioStateVector.record(0); //"idle"
 
         startTxEvent = new Event() {
-            void execute() { startTransmission(); }
+            protected void execute() { startTransmission(); }
         };
         endTxEvent = new Event() {
-            void execute() { endTransmission(); }
+            protected void execute() { endTransmission(); }
         };
 
         schedule(exponential(interarrivalTime), startTxEvent);
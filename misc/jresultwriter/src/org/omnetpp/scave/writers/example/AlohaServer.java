@@ -2,6 +2,7 @@ package org.omnetpp.scave.writers.example;
 
 import org.omnetpp.scave.writers.IOutputVector;
 import org.omnetpp.scave.writers.IResultManager;
+import org.omnetpp.scave.writers.impl.AutoRangingHistogram;
 
 public class AlohaServer extends Component {
     // state variables
@@ -14,6 +15,7 @@ public class AlohaServer extends Component {
     double totalReceiveTime = 0; // non-collision
     double totalCollisionTime = 0;
     IOutputVector numCurrentTransmissionsVector;
+    AutoRangingHistogram collisionLengthHistogram = new AutoRangingHistogram();
 
     public AlohaServer(String name, SimulationManager sim, Component parent) {
         super(name, sim, parent);
@@ -36,8 +38,10 @@ public class AlohaServer extends Component {
         numCurrentTransmissions--;
         numCurrentTransmissionsVector.record(numCurrentTransmissions);
         if (numCurrentTransmissions == 0) {
-            if (collision)
+            if (collision) {
                 totalCollisionTime += now() - rxStartTime;
+                collisionLengthHistogram.collect(now() - rxStartTime);
+            }
             else
                 totalReceiveTime += now() - rxStartTime;
             collision = false;
@@ -51,5 +55,6 @@ public class AlohaServer extends Component {
         recordScalar("totalReceiveTime", totalReceiveTime, "s");
         recordScalar("channelBusy", 100 * (totalReceiveTime+totalCollisionTime) / now(), "%");
         recordScalar("utilization", 100 * totalReceiveTime / now(), "%");
+        recordStatistic("collisionLength", collisionLengthHistogram, "s");
     }
 }
@@ -5,6 +5,7 @@ import java.util.Map;
 
 import org.omnetpp.scave.writers.IOutputScalarManager;
 import org.omnetpp.scave.writers.IOutputVector;
+import org.omnetpp.scave.writers.IStatisticalSummary;
 
 public class Component {
     private SimulationManager sim;
@@ -23,12 +24,19 @@ public class Component {
     }
 
     public void schedule(double time, Event e) {
-        e.time = time;
-        sim.fes.add(e);
+        sim.scheduleAt(SimulationManager.toTicks(time), e);
+    }
+
+    public void reschedule(double time, Event e) {
+        sim.rescheduleAt(SimulationManager.toTicks(time), e);
+    }
+
+    public boolean cancel(Event e) {
+        return sim.cancel(e);
     }
 
     public double now() {
-        return sim.now;
+        return sim.getSimTime();
     }
 
     protected void recordSummaryResults() {
@@ -49,6 +57,13 @@ public class Component {
         sim.scalarManager.recordScalar(getFullPath(), name, value, attributes);
     }
 
+    public void recordStatistic(String name, IStatisticalSummary statistic, String unit) {
+        Map<String,String> attributes = new HashMap<String, String>();
+        if (unit != null)
+            attributes.put(IOutputScalarManager.ATTR_UNIT, unit);
+        sim.scalarManager.recordStatistic(getFullPath(), name, statistic, attributes);
+    }
+
     public IOutputVector createOutputVector(String name) {
         return createOutputVector(name, null);
     }
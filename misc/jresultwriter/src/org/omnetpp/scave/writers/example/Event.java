@@ -1,11 +1,30 @@
 package org.omnetpp.scave.writers.example;
 
-public abstract class Event implements Comparable<Event> {
-    public double time;
+/**
+ * An event that can be scheduled in an EventQueue. Times are integers, in
+ * units of the simulation time resolution (see SimulationManager); events
+ * with equal times are executed in the order they were scheduled.
+ *
+ * Event objects are meant to be reused: an event can be rescheduled as soon
+ * as it has been executed or cancelled. Events obtained from an EventPool are
+ * returned to the pool after execution, unless they have been rescheduled.
+ */
+public abstract class Event {
+    long time;
+    long sequence;     // insertion order, for FIFO tie-breaking
+    int heapIndex = -1; // position in the event queue, or -1 if not scheduled
+    EventPool<?> pool;
 
-    public int compareTo(Event e) {
-        return time==e.time ? 0 : time<e.time ? -1 : 1;
+    /**
+     * Returns the time the event is (or was last) scheduled for.
+     */
+    public long getTime() {
+        return time;
     }
 
-    abstract void execute();
+    public boolean isScheduled() {
+        return heapIndex >= 0;
+    }
+
+    protected abstract void execute();
 }
@@ -0,0 +1,50 @@
+package org.omnetpp.scave.writers.example;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * A free list of reusable events, so that scheduling "fire and forget" events
+ * does not allocate. Events obtained from the pool are returned to it by the
+ * simulation kernel after they have been executed, unless they were
+ * rescheduled during execution; cancelled events should be released
+ * explicitly.
+ */
+public class EventPool<T extends Event> {
+    private final Supplier<T> factory;
+    private Event[] free = new Event[16];
+    private int numFree = 0;
+
+    public EventPool(Supplier<T> factory) {
+        this.factory = factory;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T obtain() {
+        if (numFree == 0) {
+            T event = factory.get();
+            event.pool = this;
+            return event;
+        }
+        Event event = free[--numFree];
+        free[numFree] = null;
+        return (T)event;
+    }
+
+    public void release(Event event) {
+        if (event.pool != this)
+            throw new IllegalArgumentException("Event does not belong to this pool");
+        if (event.isScheduled())
+            throw new IllegalStateException("Cannot release a scheduled event");
+        if (numFree == free.length)
+            free = Arrays.copyOf(free, 2 * numFree);
+        free[numFree++] = event;
+    }
+
+    /**
+     * Returns the number of events currently available for reuse.
+     */
+    public int getNumFree() {
+        return numFree;
+    }
+}
@@ -0,0 +1,156 @@
+package org.omnetpp.scave.writers.example;
+
+import java.util.Arrays;
+
+/**
+ * The future events set: an indexed 4-ary min-heap of events, ordered by
+ * time, then by insertion order. Every event stores its position in the
+ * heap, so cancelling and rescheduling are O(log n) like insertion and
+ * removal, and the queue itself does not allocate per event. A 4-ary heap
+ * is shallower than a binary one, and since the keys of the children of a node
+ * are adjacent in memory, it is more cache friendly for large queues.
+ */
+public class EventQueue {
+    // the heap; the keys of heap[i] are also stored in times[i] and sequences[i],
+    // so that comparisons do not need to dereference the events
+    private Event[] heap = new Event[64];
+    private long[] times = new long[64];
+    private long[] sequences = new long[64];
+    private int size = 0;
+    private long insertCount = 0;
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the first event without removing it, or null if the queue is empty.
+     */
+    public Event peekFirst() {
+        return size == 0 ? null : heap[0];
+    }
+
+    /**
+     * Schedules the event for the given time. The event must not be scheduled already.
+     */
+    public void insert(Event event, long time) {
+        if (event.heapIndex >= 0)
+            throw new IllegalStateException("Event is already scheduled");
+        event.time = time;
+        event.sequence = insertCount++;
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, 2 * size);
+            times = Arrays.copyOf(times, 2 * size);
+            sequences = Arrays.copyOf(sequences, 2 * size);
+        }
+        siftUp(size++, event, time, event.sequence);
+    }
+
+    /**
+     * Removes and returns the first event, or returns null if the queue is empty.
+     */
+    public Event removeFirst() {
+        if (size == 0)
+            return null;
+        Event first = heap[0];
+        removeAt(0);
+        return first;
+    }
+
+    /**
+     * Removes the event from the queue. Returns false if it was not scheduled.
+     */
+    public boolean remove(Event event) {
+        int i = event.heapIndex;
+        if (i < 0)
+            return false;
+        if (i >= size || heap[i] != event)
+            throw new IllegalArgumentException("Event is scheduled in another queue");
+        removeAt(i);
+        return true;
+    }
+
+    /**
+     * Moves a scheduled or unscheduled event to the given time. It is placed
+     * after the events already scheduled for the same time.
+     */
+    public void reschedule(Event event, long time) {
+        remove(event);
+        insert(event, time);
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            heap[i].heapIndex = -1;
+            heap[i] = null;
+        }
+        size = 0;
+    }
+
+    private void removeAt(int i) {
+        heap[i].heapIndex = -1;
+        int last = --size;
+        Event lastEvent = heap[last];
+        long time = times[last], sequence = sequences[last];
+        heap[last] = null;
+        if (i != last) {
+            int parent = (i - 1) >> 2;
+            if (i > 0 && before(time, sequence, times[parent], sequences[parent]))
+                siftUp(i, lastEvent, time, sequence);
+            else
+                siftDown(i, lastEvent, time, sequence);
+        }
+    }
+
+    private static boolean before(long time1, long sequence1, long time2, long sequence2) {
+        return time1 < time2 || (time1 == time2 && sequence1 < sequence2);
+    }
+
+    private void move(int from, int to) {
+        Event event = heap[from];
+        heap[to] = event;
+        times[to] = times[from];
+        sequences[to] = sequences[from];
+        event.heapIndex = to;
+    }
+
+    private void place(int i, Event event, long time, long sequence) {
+        heap[i] = event;
+        times[i] = time;
+        sequences[i] = sequence;
+        event.heapIndex = i;
+    }
+
+    private void siftUp(int i, Event event, long time, long sequence) {
+        while (i > 0) {
+            int parent = (i - 1) >> 2;
+            if (!before(time, sequence, times[parent], sequences[parent]))
+                break;
+            move(parent, i);
+            i = parent;
+        }
+        place(i, event, time, sequence);
+    }
+
+    private void siftDown(int i, Event event, long time, long sequence) {
+        while (true) {
+            int firstChild = 4 * i + 1;
+            if (firstChild >= size)
+                break;
+            int minChild = firstChild;
+            int lastChild = Math.min(firstChild + 3, size - 1);
+            for (int c = firstChild + 1; c <= lastChild; c++)
+                if (before(times[c], sequences[c], times[minChild], sequences[minChild]))
+                    minChild = c;
+            if (!before(times[minChild], sequences[minChild], time, sequence))
+                break;
+            move(minChild, i);
+            i = minChild;
+        }
+        place(i, event, time, sequence);
+    }
+}
@@ -9,6 +9,8 @@ import java.util.Random;
 
 import org.omnetpp.scave.writers.IResultManager;
 import org.omnetpp.scave.writers.impl.FileOutputScalarManager;
+import org.omnetpp.scave.writers.impl.SqliteOutputScalarManager;
+import org.omnetpp.scave.writers.impl.SqliteOutputVectorManager;
 
 public class Main {
     static final long[] GOOD_SEEDS = new long[]{634,3424,744,2525,852}; // completely made-up numbers
@@ -21,17 +23,29 @@ public class Main {
         int runNumber = 0;
         for (int numHosts : new int[]{10, 15, 20})
             for (double interarrivalTime : new double[]{1, 2, 3, 4, 5, 7, 9})
-                for (int trial=0; trial<2; trial++)
+                for (int trial=0; trial<2; trial++) {
+                    System.out.println("Run #" + runNumber+ ": numHosts="+numHosts + ", interarrivalTime=" + interarrivalTime + "; trial #"+trial);
                     simulateAloha(runNumber++, numHosts, interarrivalTime, trial);
+                }
 //*/
     }
 
     public static void simulateAloha(int runNumber, int numHosts, double interarrivalTime, int trial) {
-        System.out.println("Run #" + runNumber+ ": numHosts="+numHosts + ", interarrivalTime=" + interarrivalTime + "; trial #"+trial);
+        simulateAloha(runNumber, numHosts, interarrivalTime, trial, false);
+    }
 
+    /**
+     * Runs the Aloha model; results are written into aloha-&lt;runNumber&gt;.sca/.vec,
+     * in the SQLite result file format if sqlite is true (requires an SQLite
+     * JDBC driver on the classpath).
+     */
+    public static void simulateAloha(int runNumber, int numHosts, double interarrivalTime, int trial, boolean sqlite) {
         String runID = FileOutputScalarManager.generateRunID("aloha-"+runNumber);
         Map<String, String> runAttributes = makeRunAttributes(runNumber, numHosts, interarrivalTime, trial);
-        SimulationManager sim = new SimulationManager(runID, runAttributes, "./aloha-"+runNumber);
+        String fileNameBase = "./aloha-"+runNumber;
+        SimulationManager sim = sqlite ?
+                new SimulationManager(runID, runAttributes, new SqliteOutputScalarManager(fileNameBase+".sca"), new SqliteOutputVectorManager(fileNameBase+".vec")) :
+                new SimulationManager(runID, runAttributes, fileNameBase);
 
         double packetDuration = 0.1;
 
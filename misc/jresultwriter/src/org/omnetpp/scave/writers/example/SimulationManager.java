@@ -3,7 +3,6 @@ package org.omnetpp.scave.writers.example;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.PriorityQueue;
 
 import org.omnetpp.scave.writers.IOutputScalarManager;
 import org.omnetpp.scave.writers.IOutputVectorManager;
@@ -11,31 +10,112 @@ import org.omnetpp.scave.writers.ISimulationTimeProvider;
 import org.omnetpp.scave.writers.impl.FileOutputScalarManager;
 import org.omnetpp.scave.writers.impl.FileOutputVectorManager;
 
+/**
+ * The simulation kernel of the example. Simulation time is an integer number
+ * of ticks (picoseconds), so it does not lose precision as it grows, and
+ * events scheduled for the same time are executed in FIFO order.
+ */
 public class SimulationManager {
-    double now = 0.0;
-    PriorityQueue<Event> fes = new PriorityQueue<Event>();
+    public static final double TICKS_PER_SECOND = 1e12;
+
+    long now = 0;
+    long eventNumber = 0;
+    EventQueue fes = new EventQueue();
     List<Component> components = new ArrayList<Component>();
 
     IOutputScalarManager scalarManager;
     IOutputVectorManager vectorManager;
 
     public SimulationManager(String runID, Map<String,String> runAttributes, String resultFilenameBase) {
-        scalarManager = new FileOutputScalarManager(resultFilenameBase+".sca");
-        vectorManager = new FileOutputVectorManager(resultFilenameBase+".vec");
+        this(runID, runAttributes, new FileOutputScalarManager(resultFilenameBase+".sca"), createFileVectorManager(resultFilenameBase+".vec"));
+    }
+
+    public SimulationManager(String runID, Map<String,String> runAttributes, IOutputScalarManager scalarManager, IOutputVectorManager vectorManager) {
+        this.scalarManager = scalarManager;
+        this.vectorManager = vectorManager;
         vectorManager.setSimtimeProvider(new ISimulationTimeProvider() {
-            public long getEventNumber() { return 0; /*not counted*/ }
-            public Number getSimulationTime() { return now; }
+            public long getEventNumber() { return eventNumber; }
+            public Number getSimulationTime() { return getSimTime(); }
         });
         scalarManager.open(runID, runAttributes);
         vectorManager.open(runID, runAttributes);
     }
 
-    void simulate(double timeLimit) {
-        while (!fes.isEmpty() && fes.peek().time < timeLimit) {
-            Event event = fes.remove();
+    private static FileOutputVectorManager createFileVectorManager(String fileName) {
+        FileOutputVectorManager vectorManager = new FileOutputVectorManager(fileName);
+        vectorManager.setAsynchronous(true); // keep disk I/O off the simulation loop
+        return vectorManager;
+    }
+
+    public long getNow() {
+        return now;
+    }
+
+    /**
+     * Returns the current simulation time in seconds.
+     */
+    public double getSimTime() {
+        return toSeconds(now);
+    }
+
+    public long getEventNumber() {
+        return eventNumber;
+    }
+
+    public static long toTicks(double seconds) {
+        double ticks = Math.rint(seconds * TICKS_PER_SECOND);
+        if (!(ticks >= 0 && ticks < 0x1p63))
+            throw new IllegalArgumentException("Simulation time out of range: " + seconds);
+        return (long)ticks;
+    }
+
+    public static double toSeconds(long ticks) {
+        return ticks / TICKS_PER_SECOND;
+    }
+
+    /**
+     * Schedules the event for the given time (in ticks), which must not be in the past.
+     */
+    public void scheduleAt(long time, Event event) {
+        if (time < now)
+            throw new IllegalArgumentException("Cannot schedule an event into the past");
+        fes.insert(event, time);
+    }
+
+    /**
+     * Moves an event, scheduled or not, to the given time.
+     */
+    public void rescheduleAt(long time, Event event) {
+        if (time < now)
+            throw new IllegalArgumentException("Cannot schedule an event into the past");
+        fes.reschedule(event, time);
+    }
+
+    /**
+     * Removes the event from the future events set; returns false if it was not scheduled.
+     */
+    public boolean cancel(Event event) {
+        return fes.remove(event);
+    }
+
+    /**
+     * Executes events until the future events set is empty, or the next event
+     * is at or after the time limit (in ticks).
+     */
+    public void run(long timeLimit) {
+        Event event;
+        while ((event = fes.peekFirst()) != null && event.time < timeLimit) {
+            fes.removeFirst();
             now = event.time;
+            eventNumber++;
             event.execute();
+            if (event.pool != null && !event.isScheduled())
+                event.pool.release(event);
         }
+    }
+
+    void simulate(double timeLimit) {
+        run(toTicks(timeLimit));
 
         for (Component c : components)
             c.recordSummaryResults();
@@ -0,0 +1,36 @@
+package org.omnetpp.scave.writers.filters;
+
+import org.omnetpp.scave.writers.IOutputVector;
+
+/**
+ * Decimates the vector: records the first value and every n-th value after
+ * it, unchanged (timestamps are passed on as given, e.g. BigDecimal).
+ */
+public class EveryNthFilter extends VectorFilter {
+    private final int n;
+    private int counter = 0;
+
+    public EveryNthFilter(int n, IOutputVector next) {
+        super(next);
+        if (n < 1)
+            throw new IllegalArgumentException("n must be positive");
+        this.n = n;
+    }
+
+    private boolean select() {
+        boolean selected = counter == 0;
+        if (++counter == n)
+            counter = 0;
+        return selected;
+    }
+
+    @Override
+    public boolean record(Number time, double value) {
+        return select() && next.record(time, value);
+    }
+
+    @Override
+    public boolean record(double time, double value) {
+        return select() && next.record(time, value);
+    }
+}
@@ -0,0 +1,227 @@
+package org.omnetpp.scave.writers.filters;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.omnetpp.scave.writers.IOutputVector;
+import org.omnetpp.scave.writers.IOutputVectorManager;
+import org.omnetpp.scave.writers.ISimulationTimeProvider;
+
+/**
+ * An output vector manager that puts filters in front of the vectors of
+ * another output vector manager, according to rules that match vectors by
+ * name. This allows models to reduce the amount of vector output by orders of
+ * magnitude at recording time, e.g. by recording per-second averages instead
+ * of every value, without changing the code that records the values.
+ *
+ * Rules are matched against the full name of the vector, i.e. the component
+ * path and the vector name joined with a dot, e.g. "net.host[2].queueLength".
+ * In patterns, "*" matches any sequence of characters except dots, "**"
+ * matches any sequence of characters, "?" matches one character except a dot;
+ * everything else is literal. Every matching rule produces an output vector,
+ * named "&lt;name&gt;:&lt;recordingMode&gt;" and with a "recordingmode"
+ * attribute, except the "vector" mode, which records the values unchanged
+ * under the original name. Vectors that match no rule are recorded unchanged.
+ *
+ * Example:
+ * <pre>
+ * FilteringOutputVectorManager manager = new FilteringOutputVectorManager(new FileOutputVectorManager("results.vec"));
+ * manager.addRule("**.queueLength", "timeavg(1)");
+ * manager.addRule("**.delay", "vector");
+ * manager.addRule("**.delay", "max(10)");
+ * </pre>
+ *
+ * Like output vectors in general, filtered vectors must not be recorded into
+ * from several threads at the same time.
+ */
+public class FilteringOutputVectorManager implements IOutputVectorManager {
+    public static final String RECORDING_MODE_VECTOR = "vector";
+
+    protected static class Rule {
+        final String pattern;
+        final Pattern regex;
+        final String recordingMode;
+        final VectorFilterFactory factory; // null for RECORDING_MODE_VECTOR
+
+        Rule(String pattern, String recordingMode, VectorFilterFactory factory) {
+            this.pattern = pattern;
+            this.regex = compilePattern(pattern);
+            this.recordingMode = recordingMode;
+            this.factory = factory;
+        }
+    }
+
+    /**
+     * Records the values into several vectors, with the same timestamp.
+     */
+    protected static class FanOut implements IOutputVector {
+        final IOutputVector[] vectors;
+        final ISimulationTimeProvider simtimeProvider;
+
+        FanOut(IOutputVector[] vectors, ISimulationTimeProvider simtimeProvider) {
+            this.vectors = vectors;
+            this.simtimeProvider = simtimeProvider;
+        }
+
+        public void flush() {
+            for (IOutputVector vector : vectors)
+                vector.flush();
+        }
+
+        public void close() {
+            for (IOutputVector vector : vectors)
+                vector.close();
+        }
+
+        public boolean record(double value) {
+            return record(simtimeProvider.getSimulationTime(), value);
+        }
+
+        public boolean record(Number time, double value) {
+            boolean recorded = false;
+            for (IOutputVector vector : vectors)
+                recorded |= vector.record(time, value);
+            return recorded;
+        }
+
+        public boolean record(double time, double value) {
+            boolean recorded = false;
+            for (IOutputVector vector : vectors)
+                recorded |= vector.record(time, value);
+            return recorded;
+        }
+    }
+
+    protected final IOutputVectorManager delegate;
+    protected final List<Rule> rules = new ArrayList<Rule>();
+    protected final List<VectorFilter> filters = new ArrayList<VectorFilter>(); // heads of the filter chains, for close()
+
+    // the delegate's simulation time provider, also if it is set later
+    protected final ISimulationTimeProvider simtimeProvider = new ISimulationTimeProvider() {
+        public Number getSimulationTime() {
+            ISimulationTimeProvider provider = delegate.getSimtimeProvider();
+            if (provider == null)
+                throw new IllegalStateException("Simtime provider not yet specified");
+            return provider.getSimulationTime();
+        }
+
+        public long getEventNumber() {
+            ISimulationTimeProvider provider = delegate.getSimtimeProvider();
+            if (provider == null)
+                throw new IllegalStateException("Simtime provider not yet specified");
+            return provider.getEventNumber();
+        }
+    };
+
+    public FilteringOutputVectorManager(IOutputVectorManager delegate) {
+        this.delegate = delegate;
+    }
+
+    public IOutputVectorManager getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Adds a rule with a filter chain given as text, see VectorFilters.parse(),
+     * or "vector" for recording the values unchanged. The specification is
+     * also used as the recording mode.
+     */
+    public void addRule(String pattern, String filterSpec) {
+        filterSpec = filterSpec.trim();
+        addRule(pattern, filterSpec, filterSpec.equals(RECORDING_MODE_VECTOR) ? null : VectorFilters.parse(filterSpec));
+    }
+
+    /**
+     * Adds a rule with a filter chain created by the given factory; if the
+     * factory is null, the values are recorded unchanged.
+     */
+    public void addRule(String pattern, String recordingMode, VectorFilterFactory factory) {
+        synchronized (filters) {
+            rules.add(new Rule(pattern, recordingMode, factory));
+        }
+    }
+
+    public IOutputVector createVector(String componentPath, String vectorName, Map<String, String> attributes) {
+        String fullName = componentPath + "." + vectorName;
+        List<IOutputVector> vectors = new ArrayList<IOutputVector>();
+        synchronized (filters) {
+            for (Rule rule : rules) {
+                if (!rule.regex.matcher(fullName).matches())
+                    continue;
+                if (rule.factory == null) {
+                    vectors.add(delegate.createVector(componentPath, vectorName, attributes));
+                    continue;
+                }
+                Map<String, String> filteredAttributes = attributes == null ? new HashMap<String, String>() : new HashMap<String, String>(attributes);
+                filteredAttributes.put(ATTR_RECORDINGMODE, rule.recordingMode);
+                VectorFilter filter = rule.factory.create(delegate.createVector(componentPath, vectorName + ":" + rule.recordingMode, filteredAttributes));
+                filter.setSimtimeProvider(simtimeProvider);
+                filters.add(filter);
+                vectors.add(filter);
+            }
+        }
+        if (vectors.isEmpty())
+            return delegate.createVector(componentPath, vectorName, attributes);
+        else if (vectors.size() == 1)
+            return vectors.get(0);
+        else
+            return new FanOut(vectors.toArray(new IOutputVector[vectors.size()]), simtimeProvider);
+    }
+
+    public void setSimtimeProvider(ISimulationTimeProvider simtimeProvider) {
+        delegate.setSimtimeProvider(simtimeProvider);
+    }
+
+    public ISimulationTimeProvider getSimtimeProvider() {
+        return delegate.getSimtimeProvider();
+    }
+
+    public void open(String runID, Map<String, String> runAttributes) {
+        delegate.open(runID, runAttributes);
+    }
+
+    /**
+     * Closes the filters, so that they record the results of incomplete
+     * intervals, then the underlying manager.
+     */
+    public void close() {
+        synchronized (filters) {
+            for (VectorFilter filter : filters)
+                filter.close();
+            filters.clear();
+        }
+        delegate.close();
+    }
+
+    public void flush() {
+        delegate.flush();
+    }
+
+    public String getFileName() {
+        return delegate.getFileName();
+    }
+
+    /**
+     * Converts a vector name pattern into a regular expression.
+     */
+    protected static Pattern compilePattern(String pattern) {
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '*' && i + 1 < pattern.length() && pattern.charAt(i + 1) == '*') {
+                regex.append(".*");
+                i++;
+            }
+            else if (c == '*')
+                regex.append("[^.]*");
+            else if (c == '?')
+                regex.append("[^.]");
+            else
+                regex.append(Pattern.quote(String.valueOf(c)));
+        }
+        return Pattern.compile(regex.toString());
+    }
+}
@@ -0,0 +1,92 @@
+package org.omnetpp.scave.writers.filters;
+
+import org.omnetpp.scave.writers.IOutputVector;
+
+/**
+ * Base class for filters that record one result per time interval. Intervals
+ * are [k*interval, (k+1)*interval), aligned to time zero; a value recorded
+ * at the end of an interval belongs to the next one. The result of an
+ * interval is recorded with the end time of the interval, when the first
+ * value after it arrives, so it is recorded late by up to one interval; on
+ * close, the result of the last, incomplete interval is recorded with the
+ * time of its last value. Intervals without data are not recorded.
+ */
+public abstract class IntervalFilter extends VectorFilter {
+    protected final double interval;
+    protected long intervalIndex = -1; // of the current interval; -1 before the first value
+    protected double intervalStart = Double.NaN;
+    protected double intervalEnd = Double.NaN;
+    protected double lastTime = Double.NaN;
+
+    protected IntervalFilter(double interval, IOutputVector next) {
+        super(next);
+        if (!(interval > 0) || Double.isInfinite(interval))
+            throw new IllegalArgumentException("Interval must be positive");
+        this.interval = interval;
+    }
+
+    public double getInterval() {
+        return interval;
+    }
+
+    @Override
+    public boolean record(double time, double value) {
+        boolean recorded = false;
+        if (!(time < intervalEnd)) // also true before the first value, when intervalEnd is NaN
+            recorded = startInterval(time);
+        collect(time, value);
+        lastTime = time;
+        return recorded;
+    }
+
+    private boolean startInterval(double time) {
+        boolean recorded = false;
+        if (intervalIndex >= 0 && hasData())
+            recorded = next.record(intervalEnd, getResult(intervalEnd));
+
+        long index = (long)Math.floor(time / interval);
+        while ((index + 1) * interval <= time) // rounding
+            index++;
+        if (intervalIndex >= 0 && index > intervalIndex + 1)
+            recorded |= skippedIntervals(intervalEnd + interval);
+        intervalIndex = index;
+        intervalStart = index * interval;
+        intervalEnd = (index + 1) * interval;
+        reset();
+        return recorded;
+    }
+
+    @Override
+    protected void finish() {
+        if (intervalIndex >= 0 && hasData())
+            next.record(lastTime, getResult(lastTime));
+    }
+
+    /**
+     * Adds a value recorded in the current interval.
+     */
+    protected abstract void collect(double time, double value);
+
+    /**
+     * Returns true if the current interval has a result to record.
+     */
+    protected abstract boolean hasData();
+
+    /**
+     * Returns the result of the current interval, up to the given time.
+     */
+    protected abstract double getResult(double endTime);
+
+    /**
+     * Clears the data collected for the interval, when a new one starts.
+     */
+    protected abstract void reset();
+
+    /**
+     * Called when one or more intervals without data were skipped; the first
+     * of them ends at the given time. Does nothing by default.
+     */
+    protected boolean skippedIntervals(double firstEndTime) {
+        return false;
+    }
+}
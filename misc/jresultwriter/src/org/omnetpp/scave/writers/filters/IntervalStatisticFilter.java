@@ -0,0 +1,64 @@
+package org.omnetpp.scave.writers.filters;
+
+import org.omnetpp.scave.writers.IOutputVector;
+
+/**
+ * Records a statistic of the values in every time interval: their sum,
+ * count, minimum, maximum or mean. See IntervalFilter for how intervals are
+ * handled.
+ */
+public class IntervalStatisticFilter extends IntervalFilter {
+    public enum Statistic {
+        SUM, COUNT, MIN, MAX, MEAN
+    }
+
+    private final Statistic statistic;
+    private long count;
+    private double sum;
+    private double min;
+    private double max;
+
+    public IntervalStatisticFilter(Statistic statistic, double interval, IOutputVector next) {
+        super(interval, next);
+        this.statistic = statistic;
+        reset();
+    }
+
+    public Statistic getStatistic() {
+        return statistic;
+    }
+
+    @Override
+    protected void collect(double time, double value) {
+        count++;
+        sum += value;
+        if (value < min)
+            min = value;
+        if (value > max)
+            max = value;
+    }
+
+    @Override
+    protected boolean hasData() {
+        return count > 0;
+    }
+
+    @Override
+    protected double getResult(double endTime) {
+        switch (statistic) {
+            case SUM: return sum;
+            case COUNT: return count;
+            case MIN: return min;
+            case MAX: return max;
+            default: return sum / count;
+        }
+    }
+
+    @Override
+    protected void reset() {
+        count = 0;
+        sum = 0;
+        min = Double.POSITIVE_INFINITY;
+        max = Double.NEGATIVE_INFINITY;
+    }
+}
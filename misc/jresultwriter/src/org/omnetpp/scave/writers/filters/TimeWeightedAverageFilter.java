@@ -0,0 +1,66 @@
+package org.omnetpp.scave.writers.filters;
+
+import org.omnetpp.scave.writers.IOutputVector;
+
+/**
+ * Records the time-weighted average of the values in every time interval,
+ * treating the vector as a signal that keeps its last value until the next
+ * one (sample-hold), like a queue length. The signal is undefined before
+ * the first value, so the first interval is averaged from there on.
+ *
+ * Since the signal has a value in every interval after the first one, a
+ * run of intervals without new values is represented by a single value
+ * (the held one) at the end of the first such interval; the results should
+ * be plotted with backward sample-hold interpolation.
+ */
+public class TimeWeightedAverageFilter extends IntervalFilter {
+    private double lastValue = Double.NaN; // the value being held
+    private double integral; // of the signal over the current interval, up to lastTime
+    private double duration; // part of the current interval where the signal is defined, up to lastTime
+
+    public TimeWeightedAverageFilter(double interval, IOutputVector next) {
+        super(interval, next);
+    }
+
+    @Override
+    public boolean record(double time, double value) {
+        if (Double.isNaN(value))
+            throw new IllegalArgumentException("Cannot average NaN");
+        return super.record(time, value);
+    }
+
+    @Override
+    protected void collect(double time, double value) {
+        if (!Double.isNaN(lastValue)) {
+            double from = Math.max(lastTime, intervalStart);
+            integral += lastValue * (time - from);
+            duration += time - from;
+        }
+        lastValue = value;
+    }
+
+    @Override
+    protected boolean hasData() {
+        return !Double.isNaN(lastValue);
+    }
+
+    @Override
+    protected double getResult(double endTime) {
+        double from = Math.max(lastTime, intervalStart);
+        double totalDuration = duration + (endTime - from);
+        if (!(totalDuration > 0))
+            return lastValue;
+        return (integral + lastValue * (endTime - from)) / totalDuration;
+    }
+
+    @Override
+    protected void reset() {
+        integral = 0;
+        duration = 0;
+    }
+
+    @Override
+    protected boolean skippedIntervals(double firstEndTime) {
+        return next.record(firstEndTime, lastValue);
+    }
+}
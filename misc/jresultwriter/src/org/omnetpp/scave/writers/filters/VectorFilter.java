@@ -0,0 +1,74 @@
+package org.omnetpp.scave.writers.filters;
+
+import org.omnetpp.scave.writers.IOutputVector;
+import org.omnetpp.scave.writers.ISimulationTimeProvider;
+
+/**
+ * Base class of output vector filters: output vectors that process the
+ * recorded values, and record the results into another output vector (which
+ * may be another filter, so filters can be chained). Filters are meant to
+ * reduce the amount of output at recording time, e.g. by recording only
+ * averages over time intervals. They do not allocate memory while recording.
+ *
+ * Filters work with double timestamps; record(Number, double) converts the
+ * time to double, unless the filter passes values through unchanged.
+ * flush() does not emit the result of an incomplete window or interval,
+ * close() does.
+ */
+public abstract class VectorFilter implements IOutputVector {
+    protected final IOutputVector next;
+    protected ISimulationTimeProvider simtimeProvider;
+    private boolean closed = false;
+
+    protected VectorFilter(IOutputVector next) {
+        if (next == null)
+            throw new IllegalArgumentException("Filter output must not be null");
+        this.next = next;
+    }
+
+    public IOutputVector getNext() {
+        return next;
+    }
+
+    public ISimulationTimeProvider getSimtimeProvider() {
+        return simtimeProvider;
+    }
+
+    /**
+     * Sets the simulation time provider used by record(double value).
+     */
+    public void setSimtimeProvider(ISimulationTimeProvider simtimeProvider) {
+        this.simtimeProvider = simtimeProvider;
+    }
+
+    public boolean record(double value) {
+        if (simtimeProvider == null)
+            throw new IllegalStateException("Simtime provider not yet specified");
+        return record(simtimeProvider.getSimulationTime(), value);
+    }
+
+    public boolean record(Number time, double value) {
+        return record(time.doubleValue(), value);
+    }
+
+    public abstract boolean record(double time, double value);
+
+    public void flush() {
+        next.flush();
+    }
+
+    public void close() {
+        if (closed)
+            return;
+        closed = true;
+        finish();
+        next.close();
+    }
+
+    /**
+     * Records the result of the incomplete last window or interval, if any.
+     * Called from close().
+     */
+    protected void finish() {
+    }
+}
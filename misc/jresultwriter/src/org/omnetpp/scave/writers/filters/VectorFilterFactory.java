@@ -0,0 +1,14 @@
+package org.omnetpp.scave.writers.filters;
+
+import org.omnetpp.scave.writers.IOutputVector;
+
+/**
+ * Creates the filter chain for an output vector, e.g.
+ * <code>next -&gt; new EveryNthFilter(10, new WindowAverageFilter(5, next))</code>.
+ */
+public interface VectorFilterFactory {
+    /**
+     * Returns the head of a new filter chain whose output is the given vector.
+     */
+    VectorFilter create(IOutputVector next);
+}
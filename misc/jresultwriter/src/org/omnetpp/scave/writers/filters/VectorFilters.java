@@ -0,0 +1,92 @@
+package org.omnetpp.scave.writers.filters;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.omnetpp.scave.writers.IOutputVector;
+import org.omnetpp.scave.writers.filters.IntervalStatisticFilter.Statistic;
+
+/**
+ * Creates filter chains from textual specifications, so that they can be
+ * given in configuration files. A specification is a list of filters
+ * separated by "|", applied from left to right, e.g.
+ * "everynth(10)|windowavg(5)". Filters:
+ * <ul>
+ * <li>everynth(n): the first value and every n-th after it</li>
+ * <li>windowavg(n): mean of every n values</li>
+ * <li>sum(interval), count(interval), min(interval), max(interval),
+ *     mean(interval): statistic of the values per time interval</li>
+ * <li>timeavg(interval): time-weighted average per time interval</li>
+ * </ul>
+ * Intervals are given in seconds of simulation time.
+ */
+public class VectorFilters {
+    private VectorFilters() {
+    }
+
+    /**
+     * Parses a filter chain specification; throws IllegalArgumentException
+     * if it is malformed.
+     */
+    public static VectorFilterFactory parse(String spec) {
+        List<VectorFilterFactory> factories = new ArrayList<VectorFilterFactory>();
+        for (String filterSpec : spec.split("\\|", -1))
+            factories.add(parseFilter(filterSpec.trim(), spec));
+        if (factories.size() == 1)
+            return factories.get(0);
+        return next -> {
+            IOutputVector vector = next;
+            for (int i = factories.size() - 1; i >= 0; i--)
+                vector = factories.get(i).create(vector);
+            return (VectorFilter)vector;
+        };
+    }
+
+    private static VectorFilterFactory parseFilter(String filterSpec, String spec) {
+        int open = filterSpec.indexOf('(');
+        if (open <= 0 || !filterSpec.endsWith(")"))
+            throw new IllegalArgumentException("Malformed filter \"" + filterSpec + "\" in \"" + spec + "\", expected name(argument)");
+        String name = filterSpec.substring(0, open).trim();
+        String arg = filterSpec.substring(open + 1, filterSpec.length() - 1).trim();
+        try {
+            switch (name) {
+                case "everynth": {
+                    int n = parsePositiveInt(arg);
+                    return next -> new EveryNthFilter(n, next);
+                }
+                case "windowavg": {
+                    int n = parsePositiveInt(arg);
+                    return next -> new WindowAverageFilter(n, next);
+                }
+                case "timeavg": {
+                    double interval = parseInterval(arg);
+                    return next -> new TimeWeightedAverageFilter(interval, next);
+                }
+                case "sum": case "count": case "min": case "max": case "mean": {
+                    Statistic statistic = Statistic.valueOf(name.toUpperCase());
+                    double interval = parseInterval(arg);
+                    return next -> new IntervalStatisticFilter(statistic, interval, next);
+                }
+                default:
+                    throw new IllegalArgumentException("Unknown filter \"" + name + "\" in \"" + spec + "\"");
+            }
+        }
+        catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid argument for filter \"" + name + "\" in \"" + spec + "\"", e);
+        }
+    }
+
+    private static int parsePositiveInt(String arg) {
+        int n = Integer.parseInt(arg);
+        if (n < 1)
+            throw new NumberFormatException("not positive");
+        return n;
+    }
+
+    private static double parseInterval(String arg) {
+        double interval = Double.parseDouble(arg);
+        if (!(interval > 0) || Double.isInfinite(interval))
+            throw new NumberFormatException("not positive");
+        return interval;
+    }
+}
@@ -0,0 +1,44 @@
+package org.omnetpp.scave.writers.filters;
+
+import org.omnetpp.scave.writers.IOutputVector;
+
+/**
+ * Records the mean of every n consecutive values (non-overlapping windows),
+ * with the timestamp of the last value of the window. On close, the mean of
+ * the incomplete last window is recorded.
+ */
+public class WindowAverageFilter extends VectorFilter {
+    private final int windowSize;
+    private int count = 0;
+    private double sum = 0;
+    private double lastTime;
+
+    public WindowAverageFilter(int windowSize, IOutputVector next) {
+        super(next);
+        if (windowSize < 1)
+            throw new IllegalArgumentException("Window size must be positive");
+        this.windowSize = windowSize;
+    }
+
+    @Override
+    public boolean record(double time, double value) {
+        sum += value;
+        lastTime = time;
+        if (++count < windowSize)
+            return false;
+        return emit();
+    }
+
+    private boolean emit() {
+        double mean = sum / count;
+        count = 0;
+        sum = 0;
+        return next.record(lastTime, mean);
+    }
+
+    @Override
+    protected void finish() {
+        if (count > 0)
+            emit();
+    }
+}
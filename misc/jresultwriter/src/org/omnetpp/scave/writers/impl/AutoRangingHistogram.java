@@ -0,0 +1,208 @@
+package org.omnetpp.scave.writers.impl;
+
+import java.util.Arrays;
+
+/**
+ * Histogram with equal-width cells whose range is determined automatically.
+ * The first observations are precollected; from them, the histogram range is
+ * set up with a "nice" cell width (1, 2 or 5 times a power of ten), using about
+ * half of the maximum number of cells. Later observations outside the range
+ * extend it with new cells; when that would exceed the maximum number of cells,
+ * neighboring cells are merged pairwise (doubling the cell width) until the
+ * new value fits. Only infinite values end up in the underflow/overflow cells.
+ *
+ * Cell edges are always integer multiples of the cell width, so merging never
+ * redistributes observations. Updates are O(1) except for the occasional
+ * range extension, which is O(maxCells). If the histogram is queried before
+ * the precollection is complete, the cells are set up from the observations
+ * collected so far.
+ *
+ * Limitation: quantile estimates are only accurate to within one cell width,
+ * i.e. about range/maxCells. For heavily skewed data (e.g. lognormal), where a
+ * few large values stretch the range, most observations end up in the first
+ * cell or two, and the relative error of the low quantiles can be arbitrarily
+ * large (e.g. a median estimated 100 times too high). Use LogLinearHistogram
+ * or QuantileSketch for such data.
+ */
+public class AutoRangingHistogram extends StreamingStatistic {
+    private final int numPrecollected;
+    private final int maxCells;
+
+    // precollected observations; released after setting up the cells
+    private double[] precollectedValues;
+    private double[] precollectedWeights;
+    private int numPrecollectedSoFar = 0;
+
+    // cell k covers [(firstCell+k)*cellWidth, (firstCell+k+1)*cellWidth)
+    private double cellWidth = 0;
+    private long firstCell;
+    private int numCells = 0;
+    private final double[] cells;
+
+    /**
+     * Creates a histogram that precollects 100 observations and has at most 100 cells.
+     */
+    public AutoRangingHistogram() {
+        this(100, 100, false);
+    }
+
+    public AutoRangingHistogram(int maxCells) {
+        this(100, maxCells, false);
+    }
+
+    public AutoRangingHistogram(int numPrecollected, int maxCells, boolean weighted) {
+        super(weighted);
+        if (numPrecollected < 1)
+            throw new IllegalArgumentException("numPrecollected must be positive");
+        if (maxCells < 2)
+            throw new IllegalArgumentException("maxCells must be at least 2");
+        this.numPrecollected = numPrecollected;
+        this.maxCells = maxCells;
+        this.precollectedValues = new double[numPrecollected];
+        this.precollectedWeights = weighted ? new double[numPrecollected] : null;
+        this.cells = new double[maxCells];
+    }
+
+    public int getMaxCells() {
+        return maxCells;
+    }
+
+    /**
+     * Returns the current cell width, or 0 if the cells have not been set up yet.
+     */
+    public double getCellWidth() {
+        return cellWidth;
+    }
+
+    @Override
+    protected void collectIntoDistribution(double value, double weight) {
+        if (Double.isInfinite(value)) {
+            if (value > 0)
+                overflow += weight;
+            else
+                underflow += weight;
+        }
+        else if (cellWidth == 0) {
+            precollectedValues[numPrecollectedSoFar] = value;
+            if (weighted)
+                precollectedWeights[numPrecollectedSoFar] = weight;
+            if (++numPrecollectedSoFar == numPrecollected)
+                setUpCells();
+        }
+        else
+            collectIntoCells(value, weight);
+    }
+
+    private void setUpCells() {
+        double lo = Double.POSITIVE_INFINITY, hi = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < numPrecollectedSoFar; i++) {
+            lo = Math.min(lo, precollectedValues[i]);
+            hi = Math.max(hi, precollectedValues[i]);
+        }
+        if (numPrecollectedSoFar == 0) {
+            // no finite observations yet; the range will be set up by the first one
+            cellWidth = 1;
+            precollectedValues = precollectedWeights = null;
+            return;
+        }
+        if (hi > lo)
+            cellWidth = niceCellWidth((hi - lo) / Math.max(1, maxCells / 2));
+        else
+            cellWidth = lo == 0 ? 1 : niceCellWidth(Math.abs(lo) / 10);
+        while (!isExactIndex(Math.floor(hi / cellWidth)) || !isExactIndex(Math.floor(lo / cellWidth)) || Math.floor(hi / cellWidth) - Math.floor(lo / cellWidth) >= maxCells)
+            cellWidth *= 2; // guard against rounding in niceCellWidth() and huge values
+        firstCell = (long)Math.floor(lo / cellWidth);
+        numCells = (int)((long)Math.floor(hi / cellWidth) - firstCell + 1);
+
+        for (int i = 0; i < numPrecollectedSoFar; i++)
+            collectIntoCells(precollectedValues[i], weighted ? precollectedWeights[i] : 1.0);
+        precollectedValues = precollectedWeights = null;
+    }
+
+    /**
+     * Returns the smallest value of the form {1,2,5}*10^k that is at least x.
+     */
+    private static double niceCellWidth(double x) {
+        double magnitude = Math.pow(10, Math.floor(Math.log10(x)));
+        for (double factor : new double[] {1, 2, 5, 10})
+            if (factor * magnitude >= x)
+                return factor * magnitude;
+        return 10 * magnitude;
+    }
+
+    private static boolean isExactIndex(double cellIndex) {
+        return Math.abs(cellIndex) < 0x1p53;
+    }
+
+    private void collectIntoCells(double value, double weight) {
+        double cellIndex = Math.floor(value / cellWidth);
+        if (numCells == 0 || cellIndex < firstCell || cellIndex >= firstCell + numCells)
+            cellIndex = extendRange(value);
+        cells[(int)((long)cellIndex - firstCell)] += weight;
+    }
+
+    /**
+     * Extends the range to include the given value, merging cells as needed.
+     * Returns the absolute index of the cell the value belongs to.
+     */
+    private double extendRange(double value) {
+        while (true) {
+            double cellIndex = Math.floor(value / cellWidth);
+            double newFirst = numCells == 0 ? cellIndex : Math.min(firstCell, cellIndex);
+            double newLast = numCells == 0 ? cellIndex : Math.max(firstCell + numCells - 1, cellIndex);
+            if (newLast - newFirst < maxCells && isExactIndex(cellIndex)) {
+                int shift = (int)(firstCell - (long)newFirst);
+                if (numCells > 0 && shift > 0) {
+                    System.arraycopy(cells, 0, cells, shift, numCells);
+                    Arrays.fill(cells, 0, shift, 0);
+                }
+                firstCell = (long)newFirst;
+                numCells = (int)((long)newLast - firstCell + 1);
+                return cellIndex;
+            }
+            mergeCellPairs();
+        }
+    }
+
+    /**
+     * Doubles the cell width by merging neighboring cells.
+     */
+    private void mergeCellPairs() {
+        long newFirstCell = Math.floorDiv(firstCell, 2);
+        int offset = (int)(firstCell - 2 * newFirstCell); // 0 or 1
+        int newNumCells = (numCells + offset + 1) / 2;
+        for (int k = 0; k < newNumCells; k++) {
+            int i = 2 * k - offset; // old cells i and i+1 make up new cell k
+            double sum = 0;
+            if (i >= 0)
+                sum += cells[i];
+            if (i + 1 < numCells)
+                sum += cells[i+1];
+            cells[k] = sum;
+        }
+        Arrays.fill(cells, newNumCells, numCells, 0);
+        firstCell = newFirstCell;
+        numCells = newNumCells;
+        cellWidth *= 2;
+    }
+
+    private void ensureCellsSetUp() {
+        if (cellWidth == 0)
+            setUpCells();
+    }
+
+    public int getNumCells() {
+        ensureCellsSetUp();
+        return numCells;
+    }
+
+    public double getCellBoundary(int k) {
+        ensureCellsSetUp();
+        return (firstCell + k) * cellWidth;
+    }
+
+    public double getCellValue(int k) {
+        ensureCellsSetUp();
+        return cells[k];
+    }
+}
@@ -0,0 +1,549 @@
+package org.omnetpp.scave.writers.impl;
+
+import static org.omnetpp.scave.writers.impl.BinaryVectorFormat.*;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Deflater;
+
+import org.omnetpp.scave.writers.IOutputVector;
+import org.omnetpp.scave.writers.IOutputVectorManager;
+import org.omnetpp.scave.writers.ISimulationTimeProvider;
+import org.omnetpp.scave.writers.ResultRecordingException;
+import org.omnetpp.scave.writers.impl.BinaryVectorFormat.ByteWriter;
+
+/**
+ * An output vector manager that writes a compact binary, column-oriented
+ * vector file, which is several times smaller and faster to write and read
+ * than the text format of FileOutputVectorManager. The file contains its
+ * own block index, so no separate index file is written. See
+ * BinaryVectorFormat for the file format; the file can be read with
+ * BinaryVectorFileReader, and converted to/from the text format with
+ * VectorFileConverter.
+ *
+ * Timestamps are stored as fixed-point integers at the given time scale
+ * (picoseconds by default) when that represents them exactly, otherwise as
+ * doubles. Event numbers are only recorded if enabled with
+ * setRecordEventNumbers(), and are taken from the simtime provider.
+ */
+public class BinaryOutputVectorManager extends OutputFileManager implements IOutputVectorManager {
+    static final double[] FIXEDPOINT_SCALES = new double[19]; // exact powers of ten
+
+    static {
+        double p = 1;
+        for (int i = 0; i < FIXEDPOINT_SCALES.length; i++, p *= 10)
+            FIXEDPOINT_SCALES[i] = p;
+    }
+
+    protected String runID;
+    protected Map<String, String> runAttributes;
+    protected File file;
+    protected OutputStream out;
+    protected long fileOffset = 0; // number of bytes written to the file so far
+
+    protected ISimulationTimeProvider simtimeProvider;
+
+    protected int perVectorLimit = 4096;
+    protected int totalLimit = 1000000;
+    protected int compressionLevel = Deflater.NO_COMPRESSION;
+    protected int timeScaleExponent = -12;
+    protected boolean recordEventNumbers = false;
+
+    protected int lastId = 0;
+    protected int nbuffered = 0;
+
+    protected Set<OutputVector> vectors = new LinkedHashSet<OutputVector>();
+
+    // reused buffers
+    protected ByteWriter record = new ByteWriter(256);
+    protected ByteWriter payload = new ByteWriter(65536);
+    protected ByteWriter compressed = new ByteWriter(65536);
+    protected long[] rawTimes = new long[0];
+    protected Deflater deflater;
+
+    // contents of the index, written at the end
+    protected ByteWriter vectorDeclarations = new ByteWriter(1024);
+    protected int numVectorDeclarations = 0;
+    protected ByteWriter indexEntries = new ByteWriter(65536);
+    protected int numIndexEntries = 0;
+
+    class OutputVector implements IOutputVector {
+        int id;
+        String componentPath;
+        String vectorName;
+        Map<String, String> attributes;
+        boolean declared = false;
+        boolean hasEventNumbers;
+
+        // buffered samples; the arrays are reused across blocks
+        int n = 0;
+        long[] eventNumbers;
+        double[] times = new double[16];
+        double[] values = new double[16];
+        Number[] exactTimes = null; // only allocated if a time cannot be represented as double (e.g. BigDecimal)
+        double lastTime = 0;
+        double min = Double.NaN;
+        double max = Double.NaN;
+        double sum = 0;
+        double sqrSum = 0;
+
+        public OutputVector(int id, String componentPath, String vectorName, Map<String, String> attributes) {
+            this.id = id;
+            this.componentPath = componentPath;
+            this.vectorName = vectorName;
+            this.attributes = attributes;
+            this.hasEventNumbers = recordEventNumbers;
+            if (hasEventNumbers)
+                eventNumbers = new long[16];
+        }
+
+        public void close() {
+            flush();
+            vectors.remove(this);
+            id = -1; // i.e. dead object
+        }
+
+        public void flush() {
+            if (id == -1)
+                throw new IllegalStateException("Output vector already closed");
+
+            writeBlock(this);
+        }
+
+        public boolean record(double value) {
+            if (simtimeProvider == null)
+                throw new IllegalStateException("Simtime provider not yet specified");
+
+            return record(simtimeProvider.getSimulationTime(), value);
+        }
+
+        public boolean record(Number time, double value) {
+            if (time instanceof Double || time instanceof Integer || time instanceof Float || time instanceof Short || time instanceof Byte ||
+                    (time instanceof Long && Math.abs(time.longValue()) < (1L<<53)))
+                return store(time.doubleValue(), null, value);
+            else
+                return store(time.doubleValue(), time, value);
+        }
+
+        public boolean record(double time, double value) {
+            return store(time, null, value);
+        }
+
+        protected boolean store(double time, Number exactTime, double value) {
+            if (id == -1)
+                throw new IllegalStateException("Attempt to write to an output vector that's already closed");
+
+            if (time < lastTime)
+                throw new IllegalStateException("Vector data must be recorded in increasing timestamp order (t="+time+ "tprev="+lastTime+")");
+            lastTime = time;
+
+            if (n == times.length) {
+                int newSize = (n * 3) / 2;
+                times = Arrays.copyOf(times, newSize);
+                values = Arrays.copyOf(values, newSize);
+                if (eventNumbers != null)
+                    eventNumbers = Arrays.copyOf(eventNumbers, newSize);
+                if (exactTimes != null)
+                    exactTimes = Arrays.copyOf(exactTimes, newSize);
+            }
+
+            if (hasEventNumbers) {
+                if (simtimeProvider == null)
+                    throw new IllegalStateException("Simtime provider is needed for recording event numbers");
+                eventNumbers[n] = simtimeProvider.getEventNumber();
+            }
+            times[n] = time;
+            values[n] = value;
+            if (exactTime != null) {
+                if (exactTimes == null)
+                    exactTimes = new Number[times.length];
+                exactTimes[n] = exactTime;
+            }
+            n++;
+
+            if (min > value || Double.isNaN(min))
+                min = value;
+            if (max < value || Double.isNaN(max))
+                max = value;
+            sum += value;
+            sqrSum += value*value;
+
+            ++nbuffered;
+
+            if (n > perVectorLimit)
+                writeBlock(this);
+            else if (nbuffered > totalLimit)
+                for (OutputVector v : vectors)
+                    writeBlock(v);
+
+            return false;
+        }
+
+        void clearBlock() {
+            nbuffered -= n;
+            n = 0;
+            min = Double.NaN;
+            max = Double.NaN;
+            sum = 0;
+            sqrSum = 0;
+            if (exactTimes != null)
+                Arrays.fill(exactTimes, null);
+        }
+    }
+
+    public BinaryOutputVectorManager(String fileName) {
+        file = new File(fileName);
+        if (file.exists() && !file.delete())
+            throw new ResultRecordingException("Cannot delete old output vector file " + file.getPath());
+    }
+
+    public ISimulationTimeProvider getSimtimeProvider() {
+        return simtimeProvider;
+    }
+
+    public void setSimtimeProvider(ISimulationTimeProvider simtimeProvider) {
+        this.simtimeProvider = simtimeProvider;
+    }
+
+    public int getPerVectorBufferLimit() {
+        return perVectorLimit;
+    }
+
+    /**
+     * Sets the number of samples per block (for vectors that are not flushed
+     * earlier because of the total limit).
+     */
+    public void setPerVectorBufferLimit(int count) {
+        this.perVectorLimit = count;
+    }
+
+    public int getTotalBufferLimit() {
+        return totalLimit;
+    }
+
+    public void setTotalBufferLimit(int count) {
+        this.totalLimit = count;
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * Sets the deflate compression level of the blocks. The default is
+     * Deflater.NO_COMPRESSION, because deflating makes writing several times
+     * slower for a further 10-40% size reduction.
+     */
+    public void setCompressionLevel(int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+    }
+
+    public int getTimeScaleExponent() {
+        return timeScaleExponent;
+    }
+
+    /**
+     * Sets the resolution of fixed-point timestamps as a power of ten, between
+     * -18 and 0. The default is -12 (picoseconds). Must be called before open().
+     */
+    public void setTimeScaleExponent(int exponent) {
+        if (exponent < -18 || exponent > 0)
+            throw new IllegalArgumentException("Time scale exponent must be in the -18..0 range");
+        this.timeScaleExponent = exponent;
+    }
+
+    public boolean getRecordEventNumbers() {
+        return recordEventNumbers;
+    }
+
+    /**
+     * Whether vectors created after this call should record event numbers too.
+     */
+    public void setRecordEventNumbers(boolean recordEventNumbers) {
+        this.recordEventNumbers = recordEventNumbers;
+    }
+
+    public void open(String runID, Map<String, String> runAttributes) {
+        this.runID = runID;
+        this.runAttributes = runAttributes;
+    }
+
+    protected void open() {
+        try {
+            out = new FileOutputStream(file);
+        }
+        catch (FileNotFoundException e) {
+            throw new ResultRecordingException("Cannot open output vector file " + file.getPath(), e);
+        }
+        fileOffset = 0;
+        write(MAGIC, 0, MAGIC.length);
+
+        ByteWriter header = new ByteWriter(256);
+        header.writeVarLong(VERSION);
+        header.writeVarLong(zigzag(timeScaleExponent));
+        header.writeString(runID == null ? "" : runID);
+        header.writeAttributes(runAttributes);
+        writeRecord(TAG_HEADER, header, null);
+
+        if (compressionLevel != Deflater.NO_COMPRESSION)
+            deflater = new Deflater(compressionLevel);
+    }
+
+    public void close() {
+        if (out != null) {
+            flush();
+
+            // index and trailer
+            long indexOffset = fileOffset;
+            ByteWriter index = new ByteWriter(vectorDeclarations.len + indexEntries.len + 32);
+            index.writeVarLong(numVectorDeclarations);
+            index.writeBytes(vectorDeclarations.buf, 0, vectorDeclarations.len);
+            index.writeVarLong(numIndexEntries);
+            index.writeBytes(indexEntries.buf, 0, indexEntries.len);
+            writeRecord(TAG_INDEX, index, null);
+            record.clear();
+            record.writeLong(indexOffset);
+            record.writeBytes(INDEX_MAGIC, 0, INDEX_MAGIC.length);
+            write(record.buf, 0, record.len);
+
+            try {
+                out.close();
+            }
+            catch (IOException e) {
+                throw new ResultRecordingException("Cannot close output vector file " + file.getPath(), e);
+            }
+            out = null;
+            if (deflater != null)
+                deflater.end();
+            deflater = null;
+        }
+        vectors.clear();
+    }
+
+    public void flush() {
+        for (OutputVector v : vectors)
+            writeBlock(v);
+
+        if (out != null) {
+            try {
+                out.flush();
+            }
+            catch (IOException e) {
+                throw new ResultRecordingException("Cannot write output vector file " + file.getPath(), e);
+            }
+        }
+    }
+
+    public String getFileName() {
+        return file.getPath();
+    }
+
+    public IOutputVector createVector(String componentPath, String vectorName, Map<String, String> attributes) {
+        int id = ++lastId;
+        OutputVector vector = new OutputVector(id, componentPath, vectorName, attributes);
+        vectors.add(vector);
+        return vector;
+    }
+
+    protected void write(byte[] bytes, int off, int len) {
+        try {
+            out.write(bytes, off, len);
+            fileOffset += len;
+        }
+        catch (IOException e) {
+            throw new ResultRecordingException("Cannot write output vector file " + file.getPath(), e);
+        }
+    }
+
+    protected void writeRecord(byte tag, ByteWriter header, ByteWriter payload) {
+        int payloadLength = payload == null ? 0 : payload.len;
+        record.clear();
+        record.writeByte(tag);
+        record.writeVarLong(header.len);
+        record.writeBytes(header.buf, 0, header.len);
+        record.writeVarLong(payloadLength);
+        write(record.buf, 0, record.len);
+        if (payloadLength != 0)
+            write(payload.buf, 0, payloadLength);
+    }
+
+    protected void writeVectorDeclaration(OutputVector v) {
+        ByteWriter header = new ByteWriter(128);
+        header.writeVarLong(v.id);
+        header.writeString(v.componentPath);
+        header.writeString(v.vectorName);
+        header.writeVarLong(v.hasEventNumbers ? VECTOR_EVENTNUMBERS : 0);
+        header.writeAttributes(v.attributes);
+        writeRecord(TAG_VECTOR, header, null);
+
+        vectorDeclarations.writeBytes(header.buf, 0, header.len);
+        numVectorDeclarations++;
+        v.declared = true;
+    }
+
+    protected void writeBlock(OutputVector v) {
+        int n = v.n;
+        if (n == 0)
+            return;
+
+        if (out == null)
+            open();
+        if (!v.declared)
+            writeVectorDeclaration(v);
+
+        // encode columns
+        int flags = 0;
+        ByteWriter p = payload;
+        p.clear();
+        if (v.hasEventNumbers) {
+            flags |= BLOCK_EVENTNUMBERS;
+            long prev = 0;
+            for (int i = 0; i < n; i++) {
+                p.writeVarLong(zigzag(v.eventNumbers[i] - prev));
+                prev = v.eventNumbers[i];
+            }
+        }
+        if (toFixedPoint(v)) {
+            // the deltas are typically multiples of a power of ten (e.g. microseconds at picosecond scale)
+            int exp = POWERS_OF_TEN.length - 1;
+            for (int i = 1; i < n && exp > 0; i++) {
+                long delta = rawTimes[i] - rawTimes[i-1];
+                while (exp > 0 && delta % POWERS_OF_TEN[exp] != 0)
+                    exp--;
+            }
+            long divisor = POWERS_OF_TEN[exp];
+            p.writeVarLong(zigzag(rawTimes[0]));
+            p.writeVarLong(exp);
+            for (int i = 1; i < n; i++)
+                p.writeVarLong(zigzag((rawTimes[i] - rawTimes[i-1]) / divisor));
+        }
+        else {
+            flags |= BLOCK_TIMES_XOR;
+            writeXor(p, v.times, n);
+        }
+        if (areIntegers(v.values, n)) {
+            flags |= BLOCK_VALUES_INTEGER;
+            long prev = 0;
+            for (int i = 0; i < n; i++) {
+                long value = (long)v.values[i];
+                p.writeVarLong(zigzag(value - prev));
+                prev = value;
+            }
+        }
+        else {
+            int valuesStart = p.len;
+            writeXor(p, v.values, n);
+            if (p.len - valuesStart > 8 * n) {
+                // not compressible, store raw
+                p.len = valuesStart;
+                for (int i = 0; i < n; i++)
+                    p.writeDouble(v.values[i]);
+            }
+            else
+                flags |= BLOCK_VALUES_XOR;
+        }
+
+        ByteWriter data = p;
+        if (deflater != null && deflate(p)) {
+            flags |= BLOCK_DEFLATED;
+            data = compressed;
+        }
+
+        // block header
+        ByteWriter header = record;
+        header.clear();
+        header.writeByte(TAG_BLOCK);
+        int lengthPos = header.len;
+        header.writeByte(0); // header length placeholder, fixed up below
+        int headerStart = header.len;
+        header.writeVarLong(v.id);
+        header.writeVarLong(n);
+        header.writeVarLong(flags);
+        header.writeDouble(v.times[0]);
+        header.writeDouble(v.times[n-1]);
+        header.writeDouble(v.min);
+        header.writeDouble(v.max);
+        header.writeDouble(v.sum);
+        header.writeDouble(v.sqrSum);
+        header.buf[lengthPos] = (byte)(header.len - headerStart); // at most 59, so it's a one-byte varint
+        int headerEnd = header.len;
+        header.writeVarLong(data.len);
+        long payloadOffset = fileOffset + header.len;
+        write(header.buf, 0, header.len);
+        write(data.buf, 0, data.len);
+
+        // index entry: the block header plus the location of the payload
+        indexEntries.writeBytes(header.buf, headerStart, headerEnd - headerStart);
+        indexEntries.writeVarLong(payloadOffset);
+        indexEntries.writeVarLong(data.len);
+        numIndexEntries++;
+
+        v.clearBlock();
+    }
+
+    /**
+     * Returns true if the values are all integers that can be converted to long
+     * and back without loss (negative zero excluded).
+     */
+    protected static boolean areIntegers(double[] values, int n) {
+        for (int i = 0; i < n; i++) {
+            double d = values[i];
+            if (d != Math.rint(d) || Math.abs(d) >= (1L<<53) || (d == 0 && Double.doubleToRawLongBits(d) != 0))
+                return false; // note: NaN and infinities also fail here
+        }
+        return true;
+    }
+
+    /**
+     * Converts the buffered times of the vector to fixed-point into rawTimes,
+     * and returns true if all of them could be represented exactly.
+     */
+    protected boolean toFixedPoint(OutputVector v) {
+        int n = v.n;
+        if (rawTimes.length < n)
+            rawTimes = new long[v.times.length];
+        double scale = FIXEDPOINT_SCALES[-timeScaleExponent];
+        for (int i = 0; i < n; i++) {
+            if (v.exactTimes != null && v.exactTimes[i] instanceof BigDecimal) {
+                try {
+                    rawTimes[i] = ((BigDecimal)v.exactTimes[i]).scaleByPowerOfTen(-timeScaleExponent).longValueExact();
+                    continue;
+                }
+                catch (ArithmeticException e) {
+                    return false;
+                }
+            }
+            double scaled = v.times[i] * scale;
+            if (!(Math.abs(scaled) < 9e18))
+                return false;
+            long raw = Math.round(scaled);
+            if (raw / scale != v.times[i]) // must be exactly what the reader computes
+                return false;
+            rawTimes[i] = raw;
+        }
+        return true;
+    }
+
+    protected boolean deflate(ByteWriter input) {
+        deflater.reset();
+        deflater.setInput(input.buf, 0, input.len);
+        deflater.finish();
+        ByteWriter c = compressed;
+        c.clear();
+        while (!deflater.finished()) {
+            if (c.len >= input.len)
+                return false; // not worth it
+            c.ensureCapacity(Math.max(4096, input.len - c.len));
+            c.len += deflater.deflate(c.buf, c.len, c.buf.length - c.len);
+        }
+        return c.len < input.len;
+    }
+}
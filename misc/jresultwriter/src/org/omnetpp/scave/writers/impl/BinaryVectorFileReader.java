@@ -0,0 +1,410 @@
+package org.omnetpp.scave.writers.impl;
+
+import static org.omnetpp.scave.writers.impl.BinaryVectorFormat.*;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.omnetpp.scave.writers.impl.BinaryVectorFormat.ByteReader;
+
+/**
+ * Reads binary vector files written by BinaryOutputVectorManager. The block
+ * index is read from the end of the file; if it is missing (the simulation
+ * did not close the file), it is reconstructed by scanning the file, and
+ * a possibly truncated last block is ignored.
+ */
+public class BinaryVectorFileReader implements Closeable {
+    private String fileName;
+    private RandomAccessFile file;
+    private int timeScaleExponent;
+    private String runID;
+    private Map<String,String> runAttributes;
+    private Map<Integer,VectorInfo> vectors = new LinkedHashMap<Integer,VectorInfo>();
+    private List<BlockInfo> blocks = new ArrayList<BlockInfo>();
+    private boolean indexComplete;
+
+    private byte[] payloadBuffer = new byte[0];
+    private byte[] inflateBuffer = new byte[0];
+    private Inflater inflater = new Inflater();
+
+    public static class VectorInfo {
+        public final int id;
+        public final String moduleName;
+        public final String name;
+        public final Map<String,String> attributes;
+        public final boolean hasEventNumbers;
+
+        VectorInfo(int id, String moduleName, String name, Map<String,String> attributes, boolean hasEventNumbers) {
+            this.id = id;
+            this.moduleName = moduleName;
+            this.name = name;
+            this.attributes = attributes;
+            this.hasEventNumbers = hasEventNumbers;
+        }
+    }
+
+    public static class BlockInfo {
+        public final int vectorId;
+        public final int count;
+        public final double startTime;
+        public final double endTime;
+        public final double min;
+        public final double max;
+        public final double sum;
+        public final double sumSqr;
+        final int flags;
+        long payloadOffset;
+        int payloadLength;
+
+        BlockInfo(ByteReader in) throws IOException {
+            vectorId = in.readVarInt();
+            count = in.readVarInt();
+            flags = in.readVarInt();
+            startTime = in.readDouble();
+            endTime = in.readDouble();
+            min = in.readDouble();
+            max = in.readDouble();
+            sum = in.readDouble();
+            sumSqr = in.readDouble();
+        }
+    }
+
+    /**
+     * Samples of a block or vector. eventNumbers is null if not recorded.
+     */
+    public static class VectorData {
+        public int count;
+        public long[] eventNumbers;
+        public double[] times;
+        public double[] values;
+    }
+
+    public BinaryVectorFileReader(String fileName) throws IOException {
+        this.fileName = fileName;
+        file = new RandomAccessFile(fileName, "r");
+        try {
+            readHeader();
+            indexComplete = readIndex();
+            if (!indexComplete)
+                scan();
+        }
+        catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    public void close() throws IOException {
+        file.close();
+        inflater.end();
+    }
+
+    public String getRunID() {
+        return runID;
+    }
+
+    public Map<String,String> getRunAttributes() {
+        return runAttributes;
+    }
+
+    /**
+     * Returns the time scale exponent of fixed-point timestamps (e.g. -12 for picoseconds).
+     */
+    public int getTimeScaleExponent() {
+        return timeScaleExponent;
+    }
+
+    public List<VectorInfo> getVectors() {
+        return Collections.unmodifiableList(new ArrayList<VectorInfo>(vectors.values()));
+    }
+
+    public VectorInfo getVector(int id) {
+        return vectors.get(id);
+    }
+
+    /**
+     * Returns the blocks of all vectors, in file order.
+     */
+    public List<BlockInfo> getBlocks() {
+        return Collections.unmodifiableList(blocks);
+    }
+
+    /**
+     * Returns false if the file had no index at the end (i.e. it was not
+     * closed properly), and the blocks were found by scanning the file.
+     */
+    public boolean isIndexComplete() {
+        return indexComplete;
+    }
+
+    private void readHeader() throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        file.seek(0);
+        file.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC))
+            throw new IOException(fileName + ": not a binary vector file");
+        if (file.read() != TAG_HEADER)
+            throw new IOException(fileName + ": file header missing");
+        byte[] header = new byte[(int)readVarLong(file)];
+        file.readFully(header);
+        ByteReader in = new ByteReader(header, 0, header.length);
+        int version = in.readVarInt();
+        if (version != VERSION)
+            throw new IOException(fileName + ": unsupported file format version " + version);
+        timeScaleExponent = (int)unzigzag(in.readVarLong());
+        runID = in.readString();
+        runAttributes = in.readAttributes();
+    }
+
+    private static long readVarLong(RandomAccessFile file) throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = file.readUnsignedByte();
+            result |= (long)(b & 0x7f) << shift;
+            if ((b & 0x80) == 0)
+                return result;
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private boolean readIndex() throws IOException {
+        long length = file.length();
+        if (length < MAGIC.length + TRAILER_SIZE)
+            return false;
+        file.seek(length - TRAILER_SIZE);
+        long indexOffset = file.readLong();
+        byte[] magic = new byte[INDEX_MAGIC.length];
+        file.readFully(magic);
+        if (!Arrays.equals(magic, INDEX_MAGIC) || indexOffset < MAGIC.length || indexOffset >= length - TRAILER_SIZE)
+            return false;
+
+        file.seek(indexOffset);
+        if (file.read() != TAG_INDEX)
+            return false;
+        byte[] index = new byte[(int)readVarLong(file)];
+        file.readFully(index);
+        ByteReader in = new ByteReader(index, 0, index.length);
+        int numVectors = in.readVarInt();
+        for (int i = 0; i < numVectors; i++)
+            addVector(in);
+        int numBlocks = in.readVarInt();
+        for (int i = 0; i < numBlocks; i++) {
+            BlockInfo block = new BlockInfo(in);
+            block.payloadOffset = in.readVarLong();
+            block.payloadLength = in.readVarInt();
+            blocks.add(block);
+        }
+        return true;
+    }
+
+    private void addVector(ByteReader in) throws IOException {
+        int id = in.readVarInt();
+        String moduleName = in.readString();
+        String name = in.readString();
+        int flags = in.readVarInt();
+        Map<String,String> attributes = in.readAttributes();
+        vectors.put(id, new VectorInfo(id, moduleName, name, attributes, (flags & VECTOR_EVENTNUMBERS) != 0));
+    }
+
+    /**
+     * Collects vector declarations and blocks by reading the records one by one.
+     */
+    private void scan() throws IOException {
+        vectors.clear();
+        blocks.clear();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName), 65536))) {
+            long offset = 0;
+            skipFully(in, MAGIC.length);
+            offset += MAGIC.length;
+            long fileLength = file.length();
+            byte[] header = new byte[256];
+            while (true) {
+                try {
+                    int tag = in.read();
+                    if (tag == -1)
+                        break;
+                    long headerLength = BinaryVectorFormat.readVarLong(in);
+                    if (headerLength > fileLength)
+                        break; // garbage
+                    if (header.length < headerLength)
+                        header = new byte[(int)headerLength];
+                    in.readFully(header, 0, (int)headerLength);
+                    long payloadLength = BinaryVectorFormat.readVarLong(in);
+                    long payloadOffset = offset + 1 + varLongSize(headerLength) + headerLength + varLongSize(payloadLength);
+                    if (payloadOffset + payloadLength > fileLength)
+                        break; // truncated
+                    skipFully(in, payloadLength);
+                    offset = payloadOffset + payloadLength;
+
+                    ByteReader reader = new ByteReader(header, 0, (int)headerLength);
+                    if (tag == TAG_VECTOR)
+                        addVector(reader);
+                    else if (tag == TAG_BLOCK) {
+                        BlockInfo block = new BlockInfo(reader);
+                        block.payloadOffset = payloadOffset;
+                        block.payloadLength = (int)payloadLength;
+                        blocks.add(block);
+                    }
+                    else if (tag == TAG_INDEX)
+                        break;
+                }
+                catch (EOFException e) {
+                    break; // truncated record
+                }
+            }
+        }
+    }
+
+    /**
+     * Skips exactly n bytes; throws EOFException if the stream ends before that.
+     * (InputStream.skipNBytes() is only available from Java 12.)
+     */
+    private static void skipFully(InputStream in, long n) throws IOException {
+        while (n > 0) {
+            long skipped = in.skip(n);
+            if (skipped <= 0) {
+                if (in.read() == -1)
+                    throw new EOFException();
+                skipped = 1;
+            }
+            n -= skipped;
+        }
+    }
+
+    private static int varLongSize(long v) {
+        int n = 1;
+        while ((v & ~0x7fL) != 0) {
+            v >>>= 7;
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Reads the samples of the given block. The arrays in the result object are
+     * reused if large enough; pass null to allocate a new object.
+     */
+    public VectorData readBlock(BlockInfo block, VectorData result) throws IOException {
+        if (result == null)
+            result = new VectorData();
+        int n = block.count;
+        result.count = n;
+        if (result.times == null || result.times.length < n) {
+            result.times = new double[n];
+            result.values = new double[n];
+        }
+        boolean hasEventNumbers = (block.flags & BLOCK_EVENTNUMBERS) != 0;
+        if (hasEventNumbers && (result.eventNumbers == null || result.eventNumbers.length < n))
+            result.eventNumbers = new long[Math.max(n, result.times.length)];
+        if (!hasEventNumbers)
+            result.eventNumbers = null;
+        if (n == 0)
+            return result;
+
+        ByteReader in = readPayload(block);
+        if (hasEventNumbers) {
+            long prev = 0;
+            for (int i = 0; i < n; i++)
+                result.eventNumbers[i] = prev += unzigzag(in.readVarLong());
+        }
+        if ((block.flags & BLOCK_TIMES_XOR) != 0)
+            readXor(in, result.times, n);
+        else {
+            double scale = BinaryOutputVectorManager.FIXEDPOINT_SCALES[-timeScaleExponent];
+            long raw = unzigzag(in.readVarLong());
+            int exp = in.readVarInt();
+            if (exp >= POWERS_OF_TEN.length)
+                throw new IOException(fileName + ": corrupt block at offset " + block.payloadOffset);
+            long multiplier = POWERS_OF_TEN[exp];
+            result.times[0] = raw / scale;
+            for (int i = 1; i < n; i++) {
+                raw += unzigzag(in.readVarLong()) * multiplier;
+                result.times[i] = raw / scale;
+            }
+        }
+        if ((block.flags & BLOCK_VALUES_INTEGER) != 0) {
+            long prev = 0;
+            for (int i = 0; i < n; i++)
+                result.values[i] = prev += unzigzag(in.readVarLong());
+        }
+        else if ((block.flags & BLOCK_VALUES_XOR) != 0)
+            readXor(in, result.values, n);
+        else
+            for (int i = 0; i < n; i++)
+                result.values[i] = in.readDouble();
+        return result;
+    }
+
+    private ByteReader readPayload(BlockInfo block) throws IOException {
+        int len = block.payloadLength;
+        if (payloadBuffer.length < len)
+            payloadBuffer = new byte[len];
+        file.seek(block.payloadOffset);
+        file.readFully(payloadBuffer, 0, len);
+        if ((block.flags & BLOCK_DEFLATED) == 0)
+            return new ByteReader(payloadBuffer, 0, len);
+
+        inflater.reset();
+        inflater.setInput(payloadBuffer, 0, len);
+        int total = 0;
+        try {
+            while (!inflater.finished()) {
+                if (total == inflateBuffer.length)
+                    inflateBuffer = Arrays.copyOf(inflateBuffer, Math.max(4 * len, 2 * inflateBuffer.length));
+                int k = inflater.inflate(inflateBuffer, total, inflateBuffer.length - total);
+                if (k == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    throw new IOException(fileName + ": corrupt block at offset " + block.payloadOffset);
+                total += k;
+            }
+        }
+        catch (DataFormatException e) {
+            throw new IOException(fileName + ": corrupt block at offset " + block.payloadOffset, e);
+        }
+        return new ByteReader(inflateBuffer, 0, total);
+    }
+
+    /**
+     * Reads all samples of the given vector.
+     */
+    public VectorData readVector(int vectorId) throws IOException {
+        VectorInfo vector = vectors.get(vectorId);
+        if (vector == null)
+            throw new IllegalArgumentException("No such vector: " + vectorId);
+        int total = 0;
+        for (BlockInfo block : blocks)
+            if (block.vectorId == vectorId)
+                total += block.count;
+
+        VectorData result = new VectorData();
+        result.times = new double[total];
+        result.values = new double[total];
+        result.eventNumbers = vector.hasEventNumbers ? new long[total] : null;
+        VectorData blockData = new VectorData();
+        for (BlockInfo block : blocks) {
+            if (block.vectorId != vectorId)
+                continue;
+            readBlock(block, blockData);
+            int n = blockData.count;
+            System.arraycopy(blockData.times, 0, result.times, result.count, n);
+            System.arraycopy(blockData.values, 0, result.values, result.count, n);
+            if (result.eventNumbers != null && blockData.eventNumbers != null)
+                System.arraycopy(blockData.eventNumbers, 0, result.eventNumbers, result.count, n);
+            result.count += n;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,337 @@
+package org.omnetpp.scave.writers.impl;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Constants and encoding utilities of the binary vector file format written
+ * by BinaryOutputVectorManager and read by BinaryVectorFileReader.
+ *
+ * The file starts with MAGIC, followed by records. A record consists of a
+ * tag byte, a length-prefixed header and a length-prefixed payload (lengths
+ * are varints). Records:
+ * <ul>
+ * <li>'H' (file header): format version, time scale exponent, run ID, run attributes
+ * <li>'V' (vector declaration): vector ID, module, name, flags, attributes
+ * <li>'B' (data block): vector ID, sample count, encoding flags, start/end time,
+ *     min/max/sum/sum of squares of the values; the payload holds the columns
+ * <li>'X' (index): all vector declarations and the location and statistics of all blocks
+ * </ul>
+ * The file ends with a trailer: the offset of the 'X' record as a 64-bit
+ * integer, and INDEX_MAGIC. A file without a valid trailer (e.g. written by
+ * a simulation that crashed) can still be read by scanning the records.
+ *
+ * Block payload columns, in order: event numbers (if present), as varint
+ * deltas; times, either as fixed-point integers at the file's time scale
+ * (the first one, then the power of ten that divides all deltas, then the
+ * divided deltas, all varints) or as XOR-compressed doubles; values, as
+ * varint deltas if they are all integers, otherwise raw or XOR-compressed
+ * doubles (whichever is smaller). The payload may be deflated.
+ *
+ * Numbers in headers: integers are unsigned or zigzag-encoded LEB128 varints,
+ * doubles are 8-byte big-endian IEEE 754, strings are length-prefixed UTF-8.
+ */
+class BinaryVectorFormat {
+    static final byte[] MAGIC = "OPPBVEC\n".getBytes(StandardCharsets.US_ASCII);
+    static final byte[] INDEX_MAGIC = "OPPBVIDX".getBytes(StandardCharsets.US_ASCII);
+    static final int TRAILER_SIZE = 8 + 8;
+    static final int VERSION = 1;
+
+    static final byte TAG_HEADER = 'H';
+    static final byte TAG_VECTOR = 'V';
+    static final byte TAG_BLOCK = 'B';
+    static final byte TAG_INDEX = 'X';
+
+    // vector flags
+    static final int VECTOR_EVENTNUMBERS = 1;
+
+    // block flags
+    static final int BLOCK_EVENTNUMBERS = 1;
+    static final int BLOCK_TIMES_XOR = 2;   // otherwise fixed-point deltas
+    static final int BLOCK_VALUES_XOR = 4;  // otherwise raw
+    static final int BLOCK_DEFLATED = 8;
+    static final int BLOCK_VALUES_INTEGER = 16; // varint deltas
+
+    static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        long p = 1;
+        for (int i = 0; i < POWERS_OF_TEN.length; i++, p *= 10)
+            POWERS_OF_TEN[i] = p;
+    }
+
+    static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    static long unzigzag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    static long readVarLong(InputStream in) throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0)
+                throw new EOFException();
+            result |= (long)(b & 0x7f) << shift;
+            if ((b & 0x80) == 0)
+                return result;
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    /**
+     * Growable byte buffer with methods for writing the primitives of the format,
+     * including a bit-level writer for XOR compression.
+     */
+    static class ByteWriter {
+        byte[] buf;
+        int len = 0;
+        private long bitAcc = 0;
+        private int bitCount = 0;
+
+        ByteWriter(int initialCapacity) {
+            buf = new byte[initialCapacity];
+        }
+
+        void clear() {
+            len = 0;
+            bitAcc = 0;
+            bitCount = 0;
+        }
+
+        void ensureCapacity(int extra) {
+            if (len + extra > buf.length)
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + extra));
+        }
+
+        void writeByte(int b) {
+            ensureCapacity(1);
+            buf[len++] = (byte)b;
+        }
+
+        void writeBytes(byte[] bytes, int off, int n) {
+            ensureCapacity(n);
+            System.arraycopy(bytes, off, buf, len, n);
+            len += n;
+        }
+
+        void writeVarLong(long v) {
+            ensureCapacity(10);
+            while ((v & ~0x7fL) != 0) {
+                buf[len++] = (byte)((v & 0x7f) | 0x80);
+                v >>>= 7;
+            }
+            buf[len++] = (byte)v;
+        }
+
+        void writeLong(long v) {
+            ensureCapacity(8);
+            for (int shift = 56; shift >= 0; shift -= 8)
+                buf[len++] = (byte)(v >>> shift);
+        }
+
+        void writeDouble(double d) {
+            writeLong(Double.doubleToRawLongBits(d));
+        }
+
+        void writeString(String s) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            writeBytes(bytes, 0, bytes.length);
+        }
+
+        void writeAttributes(Map<String,String> attributes) {
+            writeVarLong(attributes == null ? 0 : attributes.size());
+            if (attributes != null) {
+                for (Map.Entry<String,String> e : attributes.entrySet()) {
+                    writeString(e.getKey());
+                    writeString(e.getValue());
+                }
+            }
+        }
+
+        /**
+         * Writes the lowest n bits of value (n <= 64), most significant bit first.
+         */
+        void writeBits(long value, int n) {
+            if (n > 32) {
+                writeBits(value >>> 32, n - 32);
+                n = 32;
+            }
+            bitAcc = (bitAcc << n) | (value & ((1L << n) - 1));
+            bitCount += n;
+            if (bitCount >= 8) {
+                ensureCapacity(5);
+                do {
+                    buf[len++] = (byte)(bitAcc >>> (bitCount - 8));
+                    bitCount -= 8;
+                } while (bitCount >= 8);
+            }
+        }
+
+        /**
+         * Pads the bit stream to a byte boundary.
+         */
+        void alignBits() {
+            if (bitCount > 0)
+                writeByte((int)(bitAcc << (8 - bitCount)));
+            bitAcc = 0;
+            bitCount = 0;
+        }
+    }
+
+    /**
+     * Reads what ByteWriter writes.
+     */
+    static class ByteReader {
+        final byte[] buf;
+        int pos;
+        final int end;
+        private long bitAcc = 0;
+        private int bitCount = 0;
+
+        ByteReader(byte[] buf, int off, int len) {
+            this.buf = buf;
+            this.pos = off;
+            this.end = off + len;
+        }
+
+        private void check(int n) throws IOException {
+            if (pos + n > end)
+                throw new EOFException("Unexpected end of record");
+        }
+
+        int readByte() throws IOException {
+            check(1);
+            return buf[pos++] & 0xff;
+        }
+
+        long readVarLong() throws IOException {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                result |= (long)(b & 0x7f) << shift;
+                if ((b & 0x80) == 0)
+                    return result;
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        int readVarInt() throws IOException {
+            long v = readVarLong();
+            if (v < 0 || v > Integer.MAX_VALUE)
+                throw new IOException("Integer out of range: " + v);
+            return (int)v;
+        }
+
+        long readLong() throws IOException {
+            check(8);
+            long v = 0;
+            for (int i = 0; i < 8; i++)
+                v = (v << 8) | (buf[pos++] & 0xff);
+            return v;
+        }
+
+        double readDouble() throws IOException {
+            return Double.longBitsToDouble(readLong());
+        }
+
+        String readString() throws IOException {
+            int n = readVarInt();
+            check(n);
+            String s = new String(buf, pos, n, StandardCharsets.UTF_8);
+            pos += n;
+            return s;
+        }
+
+        Map<String,String> readAttributes() throws IOException {
+            int n = readVarInt();
+            Map<String,String> attributes = new LinkedHashMap<String,String>();
+            for (int i = 0; i < n; i++) {
+                String key = readString();
+                attributes.put(key, readString());
+            }
+            return attributes;
+        }
+
+        long readBits(int n) throws IOException {
+            if (n > 32) {
+                long hi = readBits(n - 32);
+                return (hi << 32) | readBits(32);
+            }
+            while (bitCount < n) {
+                bitAcc = (bitAcc << 8) | readByte();
+                bitCount += 8;
+            }
+            bitCount -= n;
+            return (bitAcc >>> bitCount) & ((1L << n) - 1);
+        }
+
+        void alignBits() {
+            bitAcc = 0;
+            bitCount = 0;
+        }
+    }
+
+    /**
+     * Writes the first n elements of the array with the XOR compression scheme of
+     * the Gorilla time series database: each value is XOR'ed with the previous one,
+     * and only the bits between the leading and trailing zeros are stored.
+     */
+    static void writeXor(ByteWriter out, double[] data, int n) {
+        long prev = Double.doubleToRawLongBits(data[0]);
+        out.writeBits(prev, 64);
+        int prevLeading = -1, prevTrailing = 0;
+        for (int i = 1; i < n; i++) {
+            long bits = Double.doubleToRawLongBits(data[i]);
+            long xor = bits ^ prev;
+            prev = bits;
+            if (xor == 0)
+                out.writeBits(0, 1);
+            else {
+                int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+                int trailing = Long.numberOfTrailingZeros(xor);
+                if (prevLeading >= 0 && leading >= prevLeading && trailing >= prevTrailing) {
+                    // fits into the previous window
+                    out.writeBits(0b10, 2);
+                    out.writeBits(xor >>> prevTrailing, 64 - prevLeading - prevTrailing);
+                }
+                else {
+                    int significant = 64 - leading - trailing;
+                    out.writeBits(0b11, 2);
+                    out.writeBits(leading, 5);
+                    out.writeBits(significant - 1, 6);
+                    out.writeBits(xor >>> trailing, significant);
+                    prevLeading = leading;
+                    prevTrailing = trailing;
+                }
+            }
+        }
+        out.alignBits();
+    }
+
+    static void readXor(ByteReader in, double[] data, int n) throws IOException {
+        long prev = in.readBits(64);
+        data[0] = Double.longBitsToDouble(prev);
+        int prevLeading = 0, prevTrailing = 0;
+        for (int i = 1; i < n; i++) {
+            if (in.readBits(1) != 0) {
+                if (in.readBits(1) != 0) {
+                    prevLeading = (int)in.readBits(5);
+                    int significant = (int)in.readBits(6) + 1;
+                    prevTrailing = 64 - prevLeading - significant;
+                }
+                prev ^= in.readBits(64 - prevLeading - prevTrailing) << prevTrailing;
+            }
+            data[i] = Double.longBitsToDouble(prev);
+        }
+        in.alignBits();
+    }
+}
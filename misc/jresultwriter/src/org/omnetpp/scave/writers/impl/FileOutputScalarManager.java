@@ -17,6 +17,8 @@ import org.omnetpp.scave.writers.ResultRecordingException;
  * This class does not support filtering (of scalars or recorded data),
  * this functionality may be added via subclasses.
  *
+ * Methods are synchronized, so scalars may be recorded from several threads.
+ *
  * @author Andras
  */
 public class FileOutputScalarManager extends OutputFileManager implements IOutputScalarManager {
@@ -33,7 +35,7 @@ public class FileOutputScalarManager extends OutputFileManager implements IOutpu
             throw new ResultRecordingException("Cannot delete old output scalar file " + file.getPath());
     }
 
-    public void open(String runID, Map<String, String> runAttributes) {
+    public synchronized void open(String runID, Map<String, String> runAttributes) {
         this.runID = runID;
         this.runAttributes = runAttributes;
     }
@@ -52,14 +54,14 @@ public class FileOutputScalarManager extends OutputFileManager implements IOutpu
         flushAndCheck();
     }
 
-    public void close() {
+    public synchronized void close() {
         if (out != null) {
             flushAndCheck();
             out.close();
         }
     }
 
-    public void flush() {
+    public synchronized void flush() {
         if (out != null)
             flushAndCheck();
     }
@@ -73,21 +75,21 @@ public class FileOutputScalarManager extends OutputFileManager implements IOutpu
         return file.getPath();
     }
 
-    public void recordScalar(String componentPath, String name, double value, Map<String, String> attributes) {
+    public synchronized void recordScalar(String componentPath, String name, double value, Map<String, String> attributes) {
         if (out == null)
             open();
         out.println("scalar " + q(componentPath) + " " + q(name) + " " + value);
         writeAttributes(out, attributes);
     }
 
-    public void recordScalar(String componentPath, String name, Number value, Map<String, String> attributes) {
+    public synchronized void recordScalar(String componentPath, String name, Number value, Map<String, String> attributes) {
         if (out == null)
             open();
         out.println("scalar " + q(componentPath) + " " + q(name) + " " + value.toString());
         writeAttributes(out, attributes);
     }
 
-    public void recordStatistic(String componentPath, String name, IStatisticalSummary statistic, Map<String, String> attributes) {
+    public synchronized void recordStatistic(String componentPath, String name, IStatisticalSummary statistic, Map<String, String> attributes) {
         if (out == null)
             open();
         out.println("statistic " + q(componentPath) + " " + q(name));
@@ -116,10 +118,11 @@ public class FileOutputScalarManager extends OutputFileManager implements IOutpu
             IHistogramSummary histogram = (IHistogramSummary)statistic;
             int n = histogram.getNumCells();
             if (n > 0) {
-                out.println("bin -INF " + histogram.getUnderflowCell());
+                // underflow cell, one line per cell with its lower edge, then the overflow cell
+                out.println("bin -inf " + histogram.getUnderflowCell());
                 for (int i=0; i<n; i++)
-                    out.print("bin " + histogram.getCellBoundary(i) + " " + histogram.getCellValue(i));
-                out.println("bin " + histogram.getCellBoundary(n) + histogram.getOverflowCell());
+                    out.println("bin " + histogram.getCellBoundary(i) + " " + histogram.getCellValue(i));
+                out.println("bin " + histogram.getCellBoundary(n) + " " + histogram.getOverflowCell());
             }
         }
     }
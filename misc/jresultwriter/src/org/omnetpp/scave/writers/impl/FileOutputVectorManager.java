@@ -2,13 +2,22 @@ package org.omnetpp.scave.writers.impl;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintStream;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 import org.omnetpp.scave.writers.IOutputVector;
 import org.omnetpp.scave.writers.IOutputVectorManager;
@@ -23,6 +32,12 @@ import org.omnetpp.scave.writers.ResultRecordingException;
  * This class does not support filtering (of vectors or recorded data)
  * at all -- this functionality may be added via subclasses.
  *
+ * File writing can be moved to a background thread, see setAsynchronous().
+ * Vectors can be recorded from several threads at once, see setConcurrent().
+ * For long simulations, the vector file can be written through memory-mapped
+ * segments with periodic checkpoints, so that it can be recovered after a
+ * crash, see setMemoryMapped().
+ *
  * @author Andras
  */
 public class FileOutputVectorManager extends OutputFileManager implements IOutputVectorManager {
@@ -31,7 +46,7 @@ public class FileOutputVectorManager extends OutputFileManager implements IOutpu
     protected String runID;
     protected Map<String, String> runAttributes;
     protected File file;
-    protected FileOutputStream stream;
+    protected OutputStream stream; // a FileOutputStream, or a MappedFileOutputStream in memory-mapped mode
     protected PrintStream out;
     protected File indexFile;
     protected FileOutputStream indexStream;
@@ -42,25 +57,118 @@ public class FileOutputVectorManager extends OutputFileManager implements IOutpu
     protected int perVectorLimit = 1000;
     protected int totalLimit = 1000000;
 
-    protected int lastId = 0;
-    protected int nbuffered = 0;
-
-    protected Set<OutputVector> vectors = new HashSet<OutputVector>();
-
-    class OutputVector implements IOutputVector {
-        int id;
-        byte[] header;
-
+    protected final AtomicInteger lastId = new AtomicInteger();
+    protected int nbuffered = 0; // not used in concurrent mode, see RecordingThreadState
+
+    protected Set<OutputVector> vectors = new LinkedHashSet<OutputVector>(); // creation order, so that output is reproducible; guarded by itself
+
+    protected TextBuffer textBuffer = new TextBuffer(); // shared by all vectors, reused for every block
+
+    // asynchronous mode
+    protected boolean asynchronous = false;
+    protected int writeQueueCapacity = 64; // in blocks
+    protected final Queue<Block> writeQueue = new ConcurrentLinkedQueue<Block>();
+    protected Semaphore writeQueueSlots; // free places in the write queue
+    protected Queue<Block> freeBlocks = new ConcurrentLinkedQueue<Block>(); // written blocks, for reuse
+    protected volatile Thread writerThread;
+    protected volatile boolean writerParked = false; // the writer thread found the queue empty, and waits to be unparked
+    protected volatile RuntimeException writeError;
+
+    // memory-mapped mode
+    protected boolean memoryMapped = false;
+    protected int mappedSegmentSize = MappedFileOutputStream.DEFAULT_SEGMENT_SIZE;
+    protected long checkpointInterval = 10000; // milliseconds
+    protected long lastCheckpointTime;
+
+    // concurrent mode
+    protected boolean concurrent = false;
+    protected final ThreadLocal<RecordingThreadState> recordingThreadState = ThreadLocal.withInitial(RecordingThreadState::new);
+
+    /**
+     * A block of buffered samples of one vector, i.e. one entry in the index file.
+     * In asynchronous mode, full blocks are handed over to the writer thread,
+     * and the vector continues recording into a recycled one. In concurrent
+     * mode, the recording thread also formats the data lines into the block.
+     */
+    static class Block {
+        byte[] header; // vector declaration, if not yet written
+        byte[] idPrefix; // "<id> "
         int n = 0;
-        Number[] times = new Number[10];
+        double[] times = new double[10];
         double[] values = new double[10];
-
-        Number blockStartTime = 0;
-        Number blockEndTime = 0;
+        Number[] exactTimes = null; // only allocated if a time cannot be represented as double (e.g. BigDecimal)
+        double startTime = 0;
+        double endTime = 0;
         double min = Double.NaN;
         double max = Double.NaN;
         double sum = 0;
         double sqrSum = 0;
+        TextBuffer data = null; // formatted data lines, in concurrent mode
+        boolean formatted = false;
+        CountDownLatch written = null; // set on the marker blocks used for flush() and shutdown
+        boolean shutdown = false; // marker: stop the writer thread
+        boolean checkpoint = false; // marker: write a checkpoint in memory-mapped mode
+
+        void add(double time, Number exactTime, double value) {
+            if (n == times.length) {
+                int newSize = (n * 3) / 2;
+                times = Arrays.copyOf(times, newSize);
+                values = Arrays.copyOf(values, newSize);
+                if (exactTimes != null)
+                    exactTimes = Arrays.copyOf(exactTimes, newSize);
+            }
+
+            times[n] = time;
+            values[n] = value;
+            if (exactTime != null) {
+                if (exactTimes == null)
+                    exactTimes = new Number[times.length];
+                exactTimes[n] = exactTime;
+            }
+            if (n == 0)
+                startTime = time;
+            endTime = time;
+            n++;
+
+            // update statistics
+            if (min > value || Double.isNaN(min))
+                min = value;
+            if (max < value || Double.isNaN(max))
+                max = value;
+            sum += value;
+            sqrSum += value*value;
+        }
+
+        void reset() {
+            header = null;
+            n = 0;
+            min = Double.NaN;
+            max = Double.NaN;
+            sum = 0;
+            sqrSum = 0;
+            formatted = false;
+            if (exactTimes != null)
+                Arrays.fill(exactTimes, null);
+        }
+    }
+
+    /**
+     * Per-thread bookkeeping for the total buffer limit in concurrent mode:
+     * the number of samples the thread recorded since it last flushed, and
+     * the vectors it recorded them into.
+     */
+    static class RecordingThreadState {
+        int nbuffered = 0;
+        List<OutputVector> vectors = new ArrayList<OutputVector>();
+    }
+
+    class OutputVector implements IOutputVector {
+        int id;
+        byte[] header;
+        byte[] idPrefix; // "<id> "
+        Block block = new Block();
+        double lastTime = 0;
+        RecordingThreadState lastRecordingThread = null; // in concurrent mode
 
         public OutputVector(int id, String componentPath, String vectorName, Map<String, String> attributes) {
             this.id = id;
@@ -72,19 +180,14 @@ public class FileOutputVectorManager extends OutputFileManager implements IOutpu
             writeAttributes(tmp, attributes);
             tmp.close();
             header = bos.toByteArray();
-        }
-
-        protected void writeVectorHeader() throws IOException {
-            if (out == null)
-                open();
-            out.write(header);
-            indexOut.write(header);
-            header = null;
+            idPrefix = (id + " ").getBytes();
         }
 
         public void close() {
             flush();
-            vectors.remove(this);
+            synchronized (vectors) {
+                vectors.remove(this);
+            }
             id = -1; // i.e. dead object
         }
 
@@ -103,82 +206,93 @@ public class FileOutputVectorManager extends OutputFileManager implements IOutpu
         }
 
         public boolean record(Number time, double value) {
-            if (id == -1)
-                throw new IllegalStateException("Attempt to write to an output vector that's already closed");
+            if (time instanceof Double || time instanceof Integer || time instanceof Float || time instanceof Short || time instanceof Byte ||
+                    (time instanceof Long && Math.abs(time.longValue()) < (1L<<53)))
+                return store(time.doubleValue(), null, value); // exactly representable as double
+            else
+                return store(time.doubleValue(), time, value); // keep the original object to preserve precision (e.g. BigDecimal simtime)
+        }
 
-            if (time.doubleValue() < blockEndTime.doubleValue())
-                throw new IllegalStateException("Vector data must be recorded in increasing timestamp order (t="+time+ "tprev="+blockEndTime+")");
+        public boolean record(double time, double value) {
+            return store(time, null, value);
+        }
 
-            if (n == times.length) {
-                int newSize = (n * 3) / 2;
-                Number[] newTimes = new Number[newSize];
-                double[] newValues = new double[newSize];
-                System.arraycopy(times, 0, newTimes, 0, n);
-                System.arraycopy(values, 0, newValues, 0, n);
-                times = newTimes;
-                values = newValues;
-            }
+        protected boolean store(double time, Number exactTime, double value) {
+            if (!concurrent) {
+                append(time, exactTime, value);
+                ++nbuffered;
 
-            // store
-            times[n] = time;
-            values[n] = value;
-            if (n == 0)
-                blockStartTime = time;
-            blockEndTime = time;
-            n++;
+                // flush if needed
+                changed(this);
+                return false;
+            }
 
-            // update statistics
-            if (min > value || Double.isNaN(min))
-                min = value;
-            if (max < value || Double.isNaN(max))
-                max = value;
-            sum += value;
-            sqrSum += value*value;
+            RecordingThreadState state = recordingThreadState.get();
+            synchronized (this) {
+                append(time, exactTime, value);
+                if (block.n > perVectorLimit)
+                    writeBlock();
+                if (lastRecordingThread != state) {
+                    lastRecordingThread = state;
+                    state.vectors.add(this);
+                }
+            }
+            // not under the vector's lock, as it locks other vectors
+            if (++state.nbuffered > totalLimit)
+                FileOutputVectorManager.this.flush(state);
+            return false;
+        }
 
-            ++nbuffered;
+        private void append(double time, Number exactTime, double value) {
+            if (id == -1)
+                throw new IllegalStateException("Attempt to write to an output vector that's already closed");
 
-            // flush if needed
-            changed(this);
+            if (time < lastTime)
+                throw new IllegalStateException("Vector data must be recorded in increasing timestamp order (t="+time+ "tprev="+lastTime+")");
+            lastTime = time;
 
-            return false;
+            block.add(time, exactTime, value);
         }
 
         protected void writeBlock() {
-            try {
-                // write out vector declaration if not yet done
-                if (header != null)
-                    writeVectorHeader();
-
-                // write data
-                long blockOffset = stream.getChannel().position();
-                for (int i=0; i<n; i++)
-                    out.println(id + " " + times[i] + " " + values[i]);
-                long blockSize = stream.getChannel().position() - blockOffset;
-
-                // make sure that the offsets referred to by the index file are exists in the vector file
-                // so the index can be used to access the vector file while it is being written
-                out.flush();
-                if (out.checkError())
-                    throw new ResultRecordingException("Cannot write output vector file " + file.getPath());
-
-                // write index
-                indexOut.println(id + " " + blockOffset + " " + blockSize + " " +
-                        blockStartTime + " " + blockEndTime + " " +
-                        n + " " + min + " " + max + " " + sum + " " + sqrSum);
-
-
-                // reset block
-                nbuffered -= n;
-                n = 0;
-                min = Double.NaN;
-                max = Double.NaN;
-                sum = 0;
-                sqrSum = 0;
-                times = new Number[10];
-                values = new double[10];
+            if (!concurrent)
+                doWriteBlock();
+            else {
+                synchronized (this) {
+                    doWriteBlock();
+                }
             }
-            catch (IOException e) {
-                throw new ResultRecordingException("Error recording vector results:" + e.getMessage(), e);
+        }
+
+        private void doWriteBlock() {
+            if (block.n == 0)
+                return;
+
+            // write out vector declaration with the first block
+            block.header = header;
+            block.idPrefix = idPrefix;
+            header = null;
+
+            if (!asynchronous) {
+                nbuffered -= block.n;
+                FileOutputVectorManager.this.writeBlock(block);
+                block.reset();
+            }
+            else {
+                Block full = block;
+                Block free = freeBlocks.poll();
+                block = free != null ? free : new Block();
+                if (concurrent) {
+                    // format on the recording thread, so that the single writer thread only does I/O
+                    if (full.data == null)
+                        full.data = new TextBuffer();
+                    full.data.clear();
+                    appendData(full.data, full);
+                    full.formatted = true;
+                }
+                else
+                    nbuffered -= full.n;
+                enqueue(full);
             }
         }
     }
@@ -218,6 +332,125 @@ public class FileOutputVectorManager extends OutputFileManager implements IOutpu
         this.totalLimit = count;
     }
 
+    public boolean isAsynchronous() {
+        return asynchronous;
+    }
+
+    /**
+     * Turns on asynchronous mode, where formatting and writing the files are
+     * done on a background thread. Recording only appends to an in-memory block,
+     * and full blocks are passed to the writer thread through a bounded queue;
+     * when the queue is full, recording waits until the writer catches up.
+     * The resulting files are the same as in synchronous mode. flush() and
+     * close() wait for the writer; close() also syncs the files to disk.
+     * Errors that occur on the writer thread are thrown from subsequent
+     * recording, flush() or close() calls.
+     *
+     * Must be called before any data is recorded.
+     */
+    public void setAsynchronous(boolean asynchronous) {
+        if (nbuffered != 0 || out != null || writerThread != null)
+            throw new IllegalStateException("Cannot change asynchronous mode after recording has started");
+        if (!asynchronous && concurrent)
+            throw new IllegalStateException("Concurrent mode requires asynchronous mode");
+        this.asynchronous = asynchronous;
+    }
+
+    public boolean isConcurrent() {
+        return concurrent;
+    }
+
+    /**
+     * Turns on concurrent mode, which allows vectors to be created and
+     * recorded from several threads at once, e.g. by the partitions of a
+     * parallel simulation. Implies asynchronous mode. Every vector buffers
+     * its samples separately under its own lock, which is uncontended as
+     * long as each vector is recorded by one thread at a time; full blocks
+     * are formatted by the recording thread and passed without locking to
+     * the single writer thread, which appends them to the files in the order
+     * they arrive. Blocks of different vectors are thus interleaved
+     * nondeterministically, but the files are valid and indexed the same way
+     * as in the other modes. Vector IDs are allocated atomically.
+     *
+     * The total buffer limit applies to each recording thread separately:
+     * a thread that has recorded more samples than the limit since it last
+     * did so flushes the vectors it has recorded into. flush() may be called
+     * from any thread; close() must only be called after recording threads
+     * have finished.
+     *
+     * Must be called before any data is recorded.
+     */
+    public void setConcurrent(boolean concurrent) {
+        if (nbuffered != 0 || out != null || writerThread != null)
+            throw new IllegalStateException("Cannot change concurrent mode after recording has started");
+        this.concurrent = concurrent;
+        if (concurrent)
+            this.asynchronous = true;
+    }
+
+    public int getWriteQueueCapacity() {
+        return writeQueueCapacity;
+    }
+
+    /**
+     * Sets the maximum number of blocks waiting to be written in asynchronous mode.
+     */
+    public void setWriteQueueCapacity(int blocks) {
+        if (writerThread != null)
+            throw new IllegalStateException("Cannot change write queue capacity after recording has started");
+        this.writeQueueCapacity = blocks;
+    }
+
+    public boolean isMemoryMapped() {
+        return memoryMapped;
+    }
+
+    /**
+     * Turns on memory-mapped mode, where the vector file is written through
+     * preallocated memory-mapped segments (see MappedFileOutputStream) instead
+     * of a FileOutputStream. The data is in the page cache as soon as a block
+     * is written, so it survives if the process is killed.
+     *
+     * In this mode, a checkpoint is made periodically and on flush(): the
+     * vector file is forced to disk, then a "# checkpoint <offset>" comment
+     * line is appended to the index file, and the index file is synced as
+     * well. After a crash, VectorFileRecovery restores a consistent pair of
+     * files up to the last complete block, validating only the blocks
+     * written after the last checkpoint.
+     *
+     * Must be called before any data is recorded.
+     */
+    public void setMemoryMapped(boolean memoryMapped) {
+        if (out != null)
+            throw new IllegalStateException("Cannot change memory-mapped mode after the file has been opened");
+        this.memoryMapped = memoryMapped;
+    }
+
+    public int getMappedSegmentSize() {
+        return mappedSegmentSize;
+    }
+
+    /**
+     * Sets the size of the memory-mapped segments in bytes; the vector file
+     * grows by this amount at a time until it is closed.
+     */
+    public void setMappedSegmentSize(int bytes) {
+        if (out != null)
+            throw new IllegalStateException("Cannot change segment size after the file has been opened");
+        this.mappedSegmentSize = bytes;
+    }
+
+    public long getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    /**
+     * Sets the minimum time between checkpoints in memory-mapped mode, in milliseconds.
+     */
+    public void setCheckpointInterval(long millis) {
+        this.checkpointInterval = millis;
+    }
+
     public void open(String runID, Map<String, String> runAttributes) {
         this.runID = runID;
         this.runAttributes = runAttributes;
@@ -225,15 +458,15 @@ public class FileOutputVectorManager extends OutputFileManager implements IOutpu
 
     protected void open() {
         try {
-            stream = new FileOutputStream(file);
+            stream = memoryMapped ? new MappedFileOutputStream(file, mappedSegmentSize) : new FileOutputStream(file);
         }
-        catch (FileNotFoundException e) {
+        catch (IOException e) {
             throw new ResultRecordingException("Cannot open output vector file " + file.getPath(), e);
         }
         try {
             indexStream = new FileOutputStream(indexFile);
         }
-        catch (FileNotFoundException e) {
+        catch (IOException e) {
             throw new ResultRecordingException("Cannot open output vector index file " + indexFile.getPath(), e);
         }
 
@@ -249,12 +482,17 @@ public class FileOutputVectorManager extends OutputFileManager implements IOutpu
         writeRunHeader(indexOut, runID, runAttributes);
 
         flushAndCheck();
+        lastCheckpointTime = System.currentTimeMillis();
     }
 
     public void close() {
+        flush();
+        stopWriterThread();
+
         if (out != null) {
-            flush();
-            out.close();
+            if (asynchronous && !memoryMapped) // memory-mapped mode has already synced at the final checkpoint
+                sync(stream, file);
+            out.close(); // in memory-mapped mode, this truncates the file to its actual length
 
             // record size and timestamp of the vector file, for up-to-date checks
             try {
@@ -266,19 +504,259 @@ public class FileOutputVectorManager extends OutputFileManager implements IOutpu
             indexOut.print("file " + file.length() + " " + file.lastModified()/1000);
             if (indexOut.checkError())
                 throw new ResultRecordingException("Cannot write output vector index file " + indexFile.getPath());
+            if (asynchronous)
+                sync(indexStream, indexFile);
             indexOut.close();
         }
-        vectors.clear();
+        synchronized (vectors) {
+            vectors.clear();
+        }
     }
 
     public void flush() {
-        for (OutputVector v : vectors)
+        OutputVector[] snapshot;
+        synchronized (vectors) {
+            snapshot = vectors.toArray(new OutputVector[vectors.size()]);
+        }
+        for (OutputVector v : snapshot)
             v.writeBlock();
 
+        if (writerThread != null)
+            waitForWriter();
+        else if (memoryMapped && out != null)
+            checkpoint();
+
         if (out != null)
             flushAndCheck();
     }
 
+    protected void sync(OutputStream stream, File file) {
+        try {
+            if (stream instanceof MappedFileOutputStream)
+                ((MappedFileOutputStream)stream).force();
+            else
+                ((FileOutputStream)stream).getFD().sync();
+        }
+        catch (IOException e) {
+            throw new ResultRecordingException("Cannot sync file " + file.getPath() + " to disk", e);
+        }
+    }
+
+    /**
+     * Writes the given block to the vector file, and its entry to the index file.
+     * Called on the writer thread in asynchronous mode.
+     */
+    protected void writeBlock(Block block) {
+        try {
+            // write out vector declaration if not yet done
+            if (block.header != null) {
+                if (out == null)
+                    open();
+                out.write(block.header);
+                indexOut.write(block.header);
+            }
+
+            // write data
+            long blockOffset = getVectorFilePosition();
+            TextBuffer buf = textBuffer;
+            buf.clear();
+            TextBuffer data = buf;
+            if (block.formatted)
+                data = block.data;
+            else
+                appendData(buf, block);
+            data.writeTo(stream);
+            long blockSize = data.length();
+
+            // make sure that the offsets referred to by the index file are exists in the vector file
+            // so the index can be used to access the vector file while it is being written
+            out.flush();
+            if (out.checkError())
+                throw new ResultRecordingException("Cannot write output vector file " + file.getPath());
+
+            // write index
+            buf.clear();
+            buf.append(block.idPrefix).append(blockOffset).append(' ').append(blockSize).append(' ');
+            appendTime(buf, block, 0, block.startTime).append(' ');
+            appendTime(buf, block, block.n-1, block.endTime).append(' ');
+            buf.append((long)block.n).append(' ').append(block.min).append(' ').append(block.max).append(' ').append(block.sum).append(' ').append(block.sqrSum).newline();
+            buf.writeTo(indexStream);
+        }
+        catch (IOException e) {
+            throw new ResultRecordingException("Error recording vector results:" + e.getMessage(), e);
+        }
+
+        if (memoryMapped && System.currentTimeMillis() - lastCheckpointTime >= checkpointInterval)
+            checkpoint();
+    }
+
+    protected long getVectorFilePosition() throws IOException {
+        if (stream instanceof MappedFileOutputStream)
+            return ((MappedFileOutputStream)stream).position();
+        else
+            return ((FileOutputStream)stream).getChannel().position();
+    }
+
+    /**
+     * Memory-mapped mode: syncs the vector file, then records in the index
+     * file that everything up to the current offset of the vector file is on
+     * disk, and syncs the index file too. Called on the writer thread in
+     * asynchronous mode.
+     */
+    protected void checkpoint() {
+        sync(stream, file);
+        indexOut.println("# checkpoint " + ((MappedFileOutputStream)stream).position());
+        if (indexOut.checkError())
+            throw new ResultRecordingException("Cannot write output vector index file " + indexFile.getPath());
+        sync(indexStream, indexFile);
+        lastCheckpointTime = System.currentTimeMillis();
+    }
+
+    private static void appendData(TextBuffer buf, Block block) {
+        for (int i=0; i<block.n; i++) {
+            buf.append(block.idPrefix);
+            appendTime(buf, block, i, block.times[i]);
+            buf.append(' ').append(block.values[i]).newline();
+        }
+    }
+
+    private static TextBuffer appendTime(TextBuffer buf, Block block, int i, double time) {
+        if (block.exactTimes != null && block.exactTimes[i] != null)
+            return buf.appendAscii(block.exactTimes[i].toString());
+        else
+            return buf.append(time);
+    }
+
+    /**
+     * Hands over a block to the writer thread, waiting if the queue is full.
+     * May be called from several threads concurrently.
+     */
+    protected void enqueue(Block block) {
+        checkWriteError();
+        Thread writer = writerThread;
+        if (writer == null)
+            writer = startWriterThread();
+        offer(writer, block);
+    }
+
+    /**
+     * Appends the block to the write queue, and wakes up the writer thread if
+     * it is waiting. Data blocks take up a slot in the queue, until they are
+     * written; markers don't. The queue itself is lock-free, and so is
+     * acquiring a slot while the queue is not full.
+     */
+    protected void offer(Thread writer, Block block) {
+        if (block.written == null) {
+            try {
+                writeQueueSlots.acquire();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ResultRecordingException("Interrupted while waiting for the vector file writer thread", e);
+            }
+        }
+        writeQueue.offer(block);
+        if (writerParked)
+            LockSupport.unpark(writer);
+    }
+
+    protected synchronized Thread startWriterThread() {
+        if (writerThread == null) {
+            writeQueueSlots = new Semaphore(writeQueueCapacity);
+            Thread thread = new Thread(this::writerLoop, "Vector file writer: " + file.getName());
+            thread.setDaemon(true);
+            thread.start();
+            writerThread = thread;
+        }
+        return writerThread;
+    }
+
+    protected void writerLoop() {
+        while (true) {
+            Block block = writeQueue.poll();
+            if (block == null) {
+                // announce that we are going to sleep, then check again, so
+                // that a block offered meanwhile is not missed
+                writerParked = true;
+                if (writeQueue.isEmpty())
+                    LockSupport.park(this);
+                writerParked = false;
+                if (Thread.currentThread().isInterrupted())
+                    return;
+                continue;
+            }
+            if (block.written != null) {
+                // marker: everything before it has been written
+                if (block.checkpoint && writeError == null && out != null) {
+                    try {
+                        checkpoint();
+                    }
+                    catch (RuntimeException e) {
+                        writeError = e;
+                    }
+                }
+                block.written.countDown();
+                if (block.shutdown)
+                    return;
+                continue;
+            }
+            if (writeError == null) { // after an error, just discard the blocks
+                try {
+                    writeBlock(block);
+                }
+                catch (RuntimeException e) {
+                    writeError = e;
+                }
+            }
+            block.reset();
+            freeBlocks.offer(block);
+            writeQueueSlots.release();
+        }
+    }
+
+    /**
+     * Waits until all blocks handed over to the writer thread have been written.
+     */
+    protected void waitForWriter() {
+        Block marker = new Block();
+        marker.written = new CountDownLatch(1);
+        marker.checkpoint = memoryMapped;
+        enqueue(marker);
+        try {
+            marker.written.await();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResultRecordingException("Interrupted while waiting for the vector file writer thread", e);
+        }
+        checkWriteError();
+    }
+
+    protected void stopWriterThread() {
+        Thread writer = writerThread;
+        if (writer == null)
+            return;
+        Block marker = new Block();
+        marker.shutdown = true;
+        marker.written = new CountDownLatch(1);
+        offer(writer, marker);
+        try {
+            writer.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResultRecordingException("Interrupted while waiting for the vector file writer thread", e);
+        }
+        writerThread = null;
+        checkWriteError();
+    }
+
+    protected void checkWriteError() {
+        RuntimeException e = writeError;
+        if (e != null)
+            throw e instanceof ResultRecordingException ? e : new ResultRecordingException("Error recording vector results: " + e.getMessage(), e);
+    }
+
     protected void flushAndCheck() {
         if (out.checkError()) // implies flush()
             throw new ResultRecordingException("Cannot write output vector file " + file.getPath());
@@ -291,18 +769,36 @@ public class FileOutputVectorManager extends OutputFileManager implements IOutpu
     }
 
     public IOutputVector createVector(String componentPath, String vectorName, Map<String, String> attributes) {
-        int id = ++lastId;
+        int id = lastId.incrementAndGet();
         OutputVector vector = new OutputVector(id, componentPath, vectorName, attributes);
-        vectors.add(vector);
+        synchronized (vectors) {
+            vectors.add(vector);
+        }
         return vector;
     }
 
     protected void changed(OutputVector vector) {
-        if (vector.n > perVectorLimit)
+        if (vector.block.n > perVectorLimit)
             vector.writeBlock();
         else if (nbuffered > totalLimit) {
             for (OutputVector v : vectors)
                 v.writeBlock();
         }
     }
+
+    /**
+     * Concurrent mode: flushes the vectors the calling thread has recorded
+     * into since it last did so.
+     */
+    protected void flush(RecordingThreadState state) {
+        for (OutputVector v : state.vectors) {
+            synchronized (v) {
+                v.writeBlock();
+                if (v.lastRecordingThread == state)
+                    v.lastRecordingThread = null;
+            }
+        }
+        state.vectors.clear();
+        state.nbuffered = 0;
+    }
 }
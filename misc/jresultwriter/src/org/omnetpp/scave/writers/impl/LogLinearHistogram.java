@@ -0,0 +1,140 @@
+package org.omnetpp.scave.writers.impl;
+
+/**
+ * Histogram with logarithmically growing, linearly subdivided cells (in the
+ * style of HdrHistogram). Every power-of-two range [2^e, 2^(e+1)) within the
+ * trackable range is divided into 2^subBucketBits equal cells, so the width of
+ * a cell is at most 2^-subBucketBits times the values in it: the relative error
+ * of quantiles is bounded by that, independent of the distribution.
+ *
+ * Negative values are mirrored into their own cells. Values whose magnitude
+ * is below the lowest discernible value go into a single cell around zero;
+ * values (and infinities) beyond the highest trackable value go into the
+ * underflow/overflow cells. Updates are O(1) (the cell index is computed from
+ * the bits of the double), and memory is fixed at construction time.
+ * Histograms with the same configuration can be merged, e.g. to combine
+ * results of parallel replications.
+ */
+public class LogLinearHistogram extends StreamingStatistic {
+    private final double lowestDiscernibleValue;
+    private final double highestTrackableValue;
+    private final int subBucketBits;
+    private final int minExponent;  // the zero cell is (-2^minExponent, 2^minExponent)
+    private final int maxExponent;  // values with magnitude >= 2^maxExponent are out of range
+    private final int numSlots;     // number of cells for each sign
+
+    // cell positions: negative cells from the most negative one, then the
+    // zero cell at position numSlots, then the positive cells
+    private final double[] cells;
+    private int firstUsed = Integer.MAX_VALUE;
+    private int lastUsed = -1;
+
+    /**
+     * Creates a histogram with 5 sub-bucket bits (at most ~3% relative cell width),
+     * for values between 1e-9 and 1e9 in magnitude.
+     */
+    public LogLinearHistogram() {
+        this(1e-9, 1e9, 5, false);
+    }
+
+    public LogLinearHistogram(double lowestDiscernibleValue, double highestTrackableValue, int subBucketBits) {
+        this(lowestDiscernibleValue, highestTrackableValue, subBucketBits, false);
+    }
+
+    public LogLinearHistogram(double lowestDiscernibleValue, double highestTrackableValue, int subBucketBits, boolean weighted) {
+        super(weighted);
+        if (!(lowestDiscernibleValue >= Double.MIN_NORMAL) || !(highestTrackableValue > lowestDiscernibleValue) || Double.isInfinite(highestTrackableValue))
+            throw new IllegalArgumentException("Invalid value range: " + lowestDiscernibleValue + ".." + highestTrackableValue);
+        if (subBucketBits < 0 || subBucketBits > 16)
+            throw new IllegalArgumentException("subBucketBits must be in the range 0..16");
+        this.lowestDiscernibleValue = lowestDiscernibleValue;
+        this.highestTrackableValue = highestTrackableValue;
+        this.subBucketBits = subBucketBits;
+        this.minExponent = Math.getExponent(lowestDiscernibleValue);
+        this.maxExponent = Math.getExponent(highestTrackableValue) + 1;
+        long slots = (long)(maxExponent - minExponent) << subBucketBits;
+        if (2 * slots + 1 > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Too many cells, decrease the value range or subBucketBits");
+        this.numSlots = (int)slots;
+        this.cells = new double[2 * numSlots + 1];
+    }
+
+    public double getLowestDiscernibleValue() {
+        return lowestDiscernibleValue;
+    }
+
+    public double getHighestTrackableValue() {
+        return highestTrackableValue;
+    }
+
+    public int getSubBucketBits() {
+        return subBucketBits;
+    }
+
+    @Override
+    protected void collectIntoDistribution(double value, double weight) {
+        double magnitude = Math.abs(value);
+        int position;
+        if (magnitude < Math.scalb(1.0, minExponent))
+            position = numSlots;
+        else if (!(magnitude < Math.scalb(1.0, maxExponent))) {
+            if (value > 0)
+                overflow += weight;
+            else
+                underflow += weight;
+            return;
+        }
+        else {
+            long bits = Double.doubleToRawLongBits(magnitude);
+            int exponent = (int)(bits >>> 52) - Double.MAX_EXPONENT;
+            int subBucket = (int)((bits >>> (52 - subBucketBits)) & ((1 << subBucketBits) - 1));
+            int slot = ((exponent - minExponent) << subBucketBits) | subBucket;
+            position = value > 0 ? numSlots + 1 + slot : numSlots - 1 - slot;
+        }
+        cells[position] += weight;
+        if (position < firstUsed)
+            firstUsed = position;
+        if (position > lastUsed)
+            lastUsed = position;
+    }
+
+    /**
+     * Adds the observations of another histogram to this one. The two
+     * histograms must have been created with the same parameters.
+     */
+    public void merge(LogLinearHistogram other) {
+        if (other.minExponent != minExponent || other.maxExponent != maxExponent || other.subBucketBits != subBucketBits)
+            throw new IllegalArgumentException("Cannot merge histograms with different configurations");
+        mergeMoments(other);
+        for (int i = other.firstUsed; i <= other.lastUsed; i++)
+            cells[i] += other.cells[i];
+        firstUsed = Math.min(firstUsed, other.firstUsed);
+        lastUsed = Math.max(lastUsed, other.lastUsed);
+    }
+
+    /**
+     * Returns the lower edge of the given positive slot; slot numSlots
+     * yields the upper end of the trackable range.
+     */
+    private double slotLowerEdge(int slot) {
+        int exponent = minExponent + (slot >> subBucketBits);
+        int subBucket = slot & ((1 << subBucketBits) - 1);
+        return Math.scalb(1.0 + Math.scalb((double)subBucket, -subBucketBits), exponent);
+    }
+
+    /**
+     * Returns the cells from the first non-empty one to the last non-empty one.
+     */
+    public int getNumCells() {
+        return lastUsed < 0 ? 0 : lastUsed - firstUsed + 1;
+    }
+
+    public double getCellBoundary(int k) {
+        int position = firstUsed + k;
+        return position <= numSlots ? -slotLowerEdge(numSlots - position) : slotLowerEdge(position - numSlots - 1);
+    }
+
+    public double getCellValue(int k) {
+        return cells[firstUsed + k];
+    }
+}
@@ -0,0 +1,116 @@
+package org.omnetpp.scave.writers.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An output stream that writes a file through memory-mapped segments of
+ * fixed size. Segments are mapped (and the file extended) in advance, so
+ * writing is a memory copy into the page cache, and the data survives if the
+ * process is killed, without any explicit flushing. force() writes the data
+ * to disk. close() truncates the file to the length actually written.
+ *
+ * Until the stream is closed, the file is longer than the data in it, and
+ * the rest of the last segment reads as zero bytes.
+ */
+public class MappedFileOutputStream extends OutputStream {
+    public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final int segmentSize;
+    private MappedByteBuffer segment; // the current segment
+    private long segmentStart = 0;
+    private List<MappedByteBuffer> unforcedSegments = new ArrayList<MappedByteBuffer>(); // written since the last force()
+
+    public MappedFileOutputStream(File file) throws IOException {
+        this(file, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public MappedFileOutputStream(File file, int segmentSize) throws IOException {
+        if (segmentSize <= 0)
+            throw new IllegalArgumentException("Segment size must be positive");
+        this.file = new RandomAccessFile(file, "rw");
+        this.file.setLength(0);
+        this.channel = this.file.getChannel();
+        this.segmentSize = segmentSize;
+        mapSegment(0);
+    }
+
+    private void mapSegment(long start) throws IOException {
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, start, segmentSize); // extends the file
+        segmentStart = start;
+        unforcedSegments.add(segment);
+    }
+
+    private void ensureOpen() throws IOException {
+        if (segment == null)
+            throw new IOException("Stream closed");
+    }
+
+    /**
+     * Returns the number of bytes written so far.
+     */
+    public long position() {
+        return segment == null ? segmentStart : segmentStart + segment.position();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (!segment.hasRemaining())
+            mapSegment(segmentStart + segmentSize);
+        segment.put((byte)b);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        ensureOpen();
+        while (length > 0) {
+            if (!segment.hasRemaining())
+                mapSegment(segmentStart + segmentSize);
+            int n = Math.min(length, segment.remaining());
+            segment.put(bytes, offset, n);
+            offset += n;
+            length -= n;
+        }
+    }
+
+    /**
+     * Writes the data written so far to the storage device.
+     */
+    public void force() throws IOException {
+        ensureOpen();
+        for (MappedByteBuffer buffer : unforcedSegments)
+            buffer.force();
+        unforcedSegments.clear();
+        unforcedSegments.add(segment);
+    }
+
+    /**
+     * Releases the mapping, and truncates the file to the data written.
+     * Segments are unmapped by the garbage collector; on platforms that do
+     * not allow truncating a mapped file (Windows), truncation fails.
+     */
+    @Override
+    public void close() throws IOException {
+        if (segment == null)
+            return;
+        long length = position();
+        segmentStart = length;
+        segment = null;
+        unforcedSegments = null;
+        try {
+            channel.truncate(length);
+        }
+        finally {
+            file.close();
+        }
+    }
+}
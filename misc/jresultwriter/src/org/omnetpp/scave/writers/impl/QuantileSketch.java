@@ -0,0 +1,304 @@
+package org.omnetpp.scave.writers.impl;
+
+import java.util.Arrays;
+
+/**
+ * Quantile estimator based on the merging t-digest of Ted Dunning. The
+ * distribution is summarized with a bounded number of centroids (mean and
+ * weight); centroids near the tails are kept small (the smallest and the
+ * largest observations are kept as they are), so extreme quantiles (e.g.
+ * 99.9%) are estimated much more accurately than with a fixed-width
+ * histogram, and with no need to know the value range in advance.
+ *
+ * Observations are appended to a buffer, which is sorted and merged into the
+ * centroids when full, so updates are O(1) amortized. Centroid sizes are
+ * limited by both the arcsine scale function k1 (which bounds the number of
+ * centroids to about compression) and the logarithmic k2 of the t-digest paper
+ * (which keeps tail centroids small). Infinite values are counted in the
+ * underflow/overflow cells. As histogram cells, each centroid is presented
+ * as a cell that extends halfway to its neighbors. Sketches can be merged.
+ */
+public class QuantileSketch extends StreamingStatistic {
+    private final double compression;
+
+    // centroids, sorted by mean; means are strictly increasing
+    private double[] means;
+    private double[] weights;
+    private int numCentroids = 0;
+
+    // unmerged observations
+    private final double[] bufferValues;
+    private final double[] bufferWeights;
+    private int bufferSize = 0;
+    private boolean bufferHasUnitWeights = true;
+
+    // scratch space for merging
+    private double[] mergedMeans;
+    private double[] mergedWeights;
+
+    /**
+     * Creates a sketch with compression 100, which typically yields quantile
+     * errors well below 1% in the middle, and much smaller ones at the tails.
+     */
+    public QuantileSketch() {
+        this(100, false);
+    }
+
+    public QuantileSketch(double compression) {
+        this(compression, false);
+    }
+
+    public QuantileSketch(double compression, boolean weighted) {
+        super(weighted);
+        if (!(compression >= 10) || compression > 10000)
+            throw new IllegalArgumentException("Compression must be in the range 10..10000");
+        this.compression = compression;
+        int maxCentroids = (int)Math.ceil(compression) + 10;
+        means = new double[maxCentroids];
+        weights = new double[maxCentroids];
+        int bufferCapacity = (int)(5 * compression);
+        bufferValues = new double[bufferCapacity];
+        bufferWeights = new double[bufferCapacity];
+        mergedMeans = new double[maxCentroids];
+        mergedWeights = new double[maxCentroids];
+    }
+
+    public double getCompression() {
+        return compression;
+    }
+
+    @Override
+    protected void collectIntoDistribution(double value, double weight) {
+        if (value == Double.NEGATIVE_INFINITY)
+            underflow += weight;
+        else if (value == Double.POSITIVE_INFINITY)
+            overflow += weight;
+        else
+            addToBuffer(value, weight);
+    }
+
+    private void addToBuffer(double value, double weight) {
+        if (bufferSize == bufferValues.length)
+            flush();
+        bufferValues[bufferSize] = value;
+        bufferWeights[bufferSize] = weight;
+        bufferSize++;
+        if (weight != 1)
+            bufferHasUnitWeights = false;
+    }
+
+    /**
+     * Adds the observations of another sketch to this one.
+     */
+    public void merge(QuantileSketch other) {
+        other.flush();
+        mergeMoments(other);
+        for (int i = 0; i < other.numCentroids; i++)
+            addToBuffer(other.means[i], other.weights[i]);
+    }
+
+    /**
+     * Merges the buffered observations into the centroids.
+     */
+    private void flush() {
+        if (bufferSize == 0)
+            return;
+        if (bufferHasUnitWeights)
+            Arrays.sort(bufferValues, 0, bufferSize); // weights are all 1, no need to permute them
+        else
+            sort(bufferValues, bufferWeights, 0, bufferSize - 1);
+
+        double totalWeight = 0;
+        for (int i = 0; i < numCentroids; i++)
+            totalWeight += weights[i];
+        for (int i = 0; i < bufferSize; i++)
+            totalWeight += bufferWeights[i];
+
+        // walk the centroids and the buffer in sorted order, and greedily merge
+        // neighbors as long as the k-size of the result stays below 1
+        int i = 0, j = 0, n = 0;
+        double weightSoFar = 0;
+        double scale = Math.exp(-normalizer(totalWeight) / compression);
+        double limit = 0; // the first centroid is a single observation
+        double currentSum = 0, currentWeight = 0, lastMean = Double.NaN;
+        while (i < numCentroids || j < bufferSize) {
+            double mean, weight;
+            if (j == bufferSize || (i < numCentroids && means[i] <= bufferValues[j])) {
+                mean = means[i];
+                weight = weights[i++];
+            }
+            else {
+                mean = bufferValues[j];
+                weight = bufferWeights[j++];
+            }
+            if (currentWeight == 0 || weightSoFar + currentWeight + weight <= limit || mean == lastMean) {
+                currentSum += mean * weight;
+                currentWeight += weight;
+            }
+            else {
+                n = emit(n, currentSum / currentWeight, currentWeight);
+                weightSoFar += currentWeight;
+                double q = weightSoFar / totalWeight;
+                limit = totalWeight * Math.min(quantileLimitK1(q), quantileLimitK2(q, scale));
+                currentSum = mean * weight;
+                currentWeight = weight;
+            }
+            lastMean = mean;
+        }
+        n = emit(n, currentSum / currentWeight, currentWeight);
+
+        double[] tmp = means; means = mergedMeans; mergedMeans = tmp;
+        tmp = weights; weights = mergedWeights; mergedWeights = tmp;
+        numCentroids = n;
+        bufferSize = 0;
+        bufferHasUnitWeights = true;
+    }
+
+    private int emit(int n, double mean, double weight) {
+        // rounding may yield a mean not greater than the previous one; fold it in
+        if (n > 0 && mean <= mergedMeans[n-1]) {
+            mergedWeights[n-1] += weight;
+            return n;
+        }
+        if (n == mergedMeans.length) {
+            // more centroids than estimated; grow rather than lose accuracy
+            mergedMeans = Arrays.copyOf(mergedMeans, 2 * n);
+            mergedWeights = Arrays.copyOf(mergedWeights, 2 * n);
+            means = Arrays.copyOf(means, 2 * n);
+            weights = Arrays.copyOf(weights, 2 * n);
+        }
+        mergedMeans[n] = mean;
+        mergedWeights[n] = weight;
+        return n + 1;
+    }
+
+    /**
+     * Returns the normalizer Z of the scale function k2(q) = compression/Z * ln(q/(1-q)).
+     */
+    private double normalizer(double totalWeight) {
+        return 4 * Math.log(Math.max(totalWeight / compression, 1)) + 24;
+    }
+
+    /**
+     * Returns the largest quantile a centroid starting at quantile q may extend
+     * to according to k1(q) = compression/(2 pi) * asin(2q-1), i.e. k1^-1(k1(q) + 1).
+     */
+    private double quantileLimitK1(double q) {
+        double k = compression / (2 * Math.PI) * Math.asin(2 * q - 1);
+        double angle = Math.min((k + 1) * 2 * Math.PI / compression, Math.PI / 2);
+        return (Math.sin(angle) + 1) / 2;
+    }
+
+    /**
+     * Returns the largest quantile a centroid starting at quantile q may extend
+     * to according to k2, i.e. k2^-1(k2(q) + 1); scale is exp(-Z/compression).
+     */
+    private static double quantileLimitK2(double q, double scale) {
+        return q / (q + (1 - q) * scale);
+    }
+
+    /**
+     * Sorts values and weights together by value.
+     */
+    private static void sort(double[] values, double[] weights, int lo, int hi) {
+        while (hi - lo > 16) {
+            double pivot = median(values[lo], values[(lo + hi) >>> 1], values[hi]);
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (values[i] < pivot) i++;
+                while (values[j] > pivot) j--;
+                if (i <= j) {
+                    swap(values, weights, i, j);
+                    i++;
+                    j--;
+                }
+            }
+            // recurse into the smaller part, iterate on the larger one
+            if (j - lo < hi - i) {
+                sort(values, weights, lo, j);
+                lo = i;
+            }
+            else {
+                sort(values, weights, i, hi);
+                hi = j;
+            }
+        }
+        for (int i = lo + 1; i <= hi; i++)
+            for (int j = i; j > lo && values[j-1] > values[j]; j--)
+                swap(values, weights, j, j-1);
+    }
+
+    private static double median(double a, double b, double c) {
+        return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+    }
+
+    private static void swap(double[] values, double[] weights, int i, int j) {
+        double tmp = values[i]; values[i] = values[j]; values[j] = tmp;
+        tmp = weights[i]; weights[i] = weights[j]; weights[j] = tmp;
+    }
+
+    /**
+     * Interpolates between the centroids, assuming that half of the weight of
+     * each centroid lies on either side of its mean.
+     */
+    @Override
+    public double getQuantile(double q) {
+        if (!(q >= 0 && q <= 1))
+            throw new IllegalArgumentException("Quantile out of range: " + q);
+        if (count == 0)
+            return Double.NaN;
+        flush();
+        double target = q * getTotalWeight() - underflow;
+        if (target <= 0)
+            return min;
+        if (numCentroids == 0 || target >= getTotalWeight() - underflow - overflow)
+            return max;
+
+        double firstMin = underflow > 0 ? means[0] : min; // min might be -inf
+        double lastMax = overflow > 0 ? means[numCentroids-1] : max;
+        double cumulated = 0;
+        double prevMean = firstMin, prevPosition = 0; // position: cumulated weight at the mean
+        for (int i = 0; i < numCentroids; i++) {
+            double position = cumulated + weights[i] / 2;
+            if (target <= position) {
+                double fraction = position == prevPosition ? 1 : (target - prevPosition) / (position - prevPosition);
+                return prevMean + (means[i] - prevMean) * fraction;
+            }
+            cumulated += weights[i];
+            prevMean = means[i];
+            prevPosition = position;
+        }
+        double fraction = (target - prevPosition) / (cumulated - prevPosition);
+        return prevMean + (lastMax - prevMean) * fraction;
+    }
+
+    /**
+     * Returns the number of centroids.
+     */
+    public int getNumCells() {
+        flush();
+        return numCentroids;
+    }
+
+    /**
+     * Cell boundaries are the minimum, the midpoints between neighboring
+     * centroid means, and (just above) the maximum.
+     */
+    public double getCellBoundary(int k) {
+        flush();
+        if (k < 0 || k > numCentroids)
+            throw new IndexOutOfBoundsException("Cell boundary index out of range: " + k);
+        if (k == 0)
+            return Math.min(means[0], underflow > 0 ? means[0] : min);
+        if (k == numCentroids) {
+            double top = Math.max(means[numCentroids-1], overflow > 0 ? means[numCentroids-1] : max);
+            return Math.nextUp(top);
+        }
+        return means[k-1] + (means[k] - means[k-1]) / 2;
+    }
+
+    public double getCellValue(int k) {
+        flush();
+        return weights[k];
+    }
+}
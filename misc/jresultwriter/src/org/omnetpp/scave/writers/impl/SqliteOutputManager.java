@@ -0,0 +1,298 @@
+package org.omnetpp.scave.writers.impl;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+
+import org.omnetpp.scave.writers.ResultRecordingException;
+
+/**
+ * Common base class for SqliteOutputScalarManager and SqliteOutputVectorManager.
+ * The files use the SQLite result file schema of OMNeT++ (see
+ * src/common/sqliteresultfileschema.cc), so they can be analyzed in the IDE
+ * and with opp_scavetool, or queried directly with SQL.
+ *
+ * The database is accessed via JDBC with an embedded SQLite driver, e.g.
+ * the one in sqlite-jdbc (org.xerial), which has to be on the classpath.
+ * There is no server involved: the database is a single local file.
+ *
+ * Inserts are done with prepared statements, in transactions that are
+ * committed after every commitFrequency inserts and at flush(), and the
+ * journal is not synced to disk while recording; if the simulation crashes,
+ * the results of the last transaction are lost.
+ */
+public abstract class SqliteOutputManager extends OutputFileManager {
+    public static final String JDBC_URL_PREFIX = "jdbc:sqlite:";
+
+    /**
+     * Default simulation time exponent, i.e. simulation time is stored in picoseconds.
+     */
+    public static final int DEFAULT_SIMTIME_EXP = -12;
+
+    /**
+     * The tables of the OMNeT++ SQLite result file format, one statement per element.
+     */
+    protected static final String[] SQL_CREATE_TABLES = {
+        "CREATE TABLE IF NOT EXISTS run (" +
+            "runId INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+            "runName TEXT NOT NULL, " +
+            "simtimeExp INTEGER NOT NULL)",
+        "CREATE TABLE IF NOT EXISTS runAttr (" +
+            "runId INTEGER NOT NULL REFERENCES run(runId) ON DELETE CASCADE, " +
+            "attrName TEXT NOT NULL, " +
+            "attrValue TEXT NOT NULL)",
+        "CREATE TABLE IF NOT EXISTS runItervar (" +
+            "runId INTEGER NOT NULL REFERENCES run(runId) ON DELETE CASCADE, " +
+            "itervarName TEXT NOT NULL, " +
+            "itervarValue TEXT NOT NULL)",
+        "CREATE TABLE IF NOT EXISTS runConfig (" +
+            "runId INTEGER NOT NULL REFERENCES run(runId) ON DELETE CASCADE, " +
+            "configKey TEXT NOT NULL, " +
+            "configValue TEXT NOT NULL, " +
+            "configOrder INTEGER NOT NULL)",
+        "CREATE TABLE IF NOT EXISTS scalar (" +
+            "scalarId INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+            "runId INTEGER NOT NULL REFERENCES run(runId) ON DELETE CASCADE, " +
+            "moduleName TEXT NOT NULL, " +
+            "scalarName TEXT NOT NULL, " +
+            "scalarValue REAL)", // cannot be NOT NULL, because SQLite converts NaN to NULL
+        "CREATE TABLE IF NOT EXISTS scalarAttr (" +
+            "scalarId INTEGER NOT NULL REFERENCES scalar(scalarId) ON DELETE CASCADE, " +
+            "attrName TEXT NOT NULL, " +
+            "attrValue TEXT NOT NULL)",
+        "CREATE TABLE IF NOT EXISTS parameter (" +
+            "paramId INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+            "runId INTEGER NOT NULL REFERENCES run(runId) ON DELETE CASCADE, " +
+            "moduleName TEXT NOT NULL, " +
+            "paramName TEXT NOT NULL, " +
+            "paramValue TEXT NOT NULL)",
+        "CREATE TABLE IF NOT EXISTS paramAttr (" +
+            "paramId INTEGER NOT NULL REFERENCES parameter(paramId) ON DELETE CASCADE, " +
+            "attrName TEXT NOT NULL, " +
+            "attrValue TEXT NOT NULL)",
+        "CREATE TABLE IF NOT EXISTS statistic (" +
+            "statId INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+            "runId INTEGER NOT NULL REFERENCES run(runId) ON DELETE CASCADE, " +
+            "moduleName TEXT NOT NULL, " +
+            "statName TEXT NOT NULL, " +
+            "isHistogram INTEGER NOT NULL, " +
+            "isWeighted INTEGER NOT NULL, " +
+            "statCount INTEGER NOT NULL, " +
+            "statMean REAL, " +
+            "statStddev REAL, " +
+            "statSum REAL, " +
+            "statSqrsum REAL, " +
+            "statMin REAL, " +
+            "statMax REAL, " +
+            "statWeights REAL, " +
+            "statWeightedSum REAL, " +
+            "statSqrSumWeights REAL, " +
+            "statWeightedSqrSum REAL)",
+        "CREATE TABLE IF NOT EXISTS statisticAttr (" +
+            "statId INTEGER NOT NULL REFERENCES statistic(statId) ON DELETE CASCADE, " +
+            "attrName TEXT NOT NULL, " +
+            "attrValue TEXT NOT NULL)",
+        "CREATE TABLE IF NOT EXISTS histogramBin (" +
+            "statId INTEGER NOT NULL REFERENCES statistic(statId) ON DELETE CASCADE, " +
+            "lowerEdge REAL NOT NULL, " +
+            "binValue REAL NOT NULL)",
+        "CREATE TABLE IF NOT EXISTS vector (" +
+            "vectorId INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+            "runId INTEGER NOT NULL REFERENCES run(runId) ON DELETE CASCADE, " +
+            "moduleName TEXT NOT NULL, " +
+            "vectorName TEXT NOT NULL, " +
+            "vectorCount INTEGER, " + // filled in when the vector is closed
+            "vectorMin REAL, " +
+            "vectorMax REAL, " +
+            "vectorSum REAL, " +
+            "vectorSumSqr REAL, " +
+            "startEventNum INTEGER, " +
+            "endEventNum INTEGER, " +
+            "startSimtimeRaw INTEGER, " +
+            "endSimtimeRaw INTEGER)",
+        "CREATE TABLE IF NOT EXISTS vectorAttr (" +
+            "vectorId INTEGER NOT NULL REFERENCES vector(vectorId) ON DELETE CASCADE, " +
+            "attrName TEXT NOT NULL, " +
+            "attrValue TEXT NOT NULL)",
+        "CREATE TABLE IF NOT EXISTS vectorData (" +
+            "vectorId INTEGER NOT NULL REFERENCES vector(vectorId) ON DELETE CASCADE, " +
+            "eventNumber INTEGER NOT NULL, " +
+            "simtimeRaw INTEGER NOT NULL, " +
+            "value REAL)", // cannot be NOT NULL because of NaN values
+    };
+
+    protected File file;
+    protected String runID;
+    protected Map<String, String> runAttributes;
+    protected int simtimeExp = DEFAULT_SIMTIME_EXP;
+    protected int commitFrequency = 100000; // inserts per transaction
+
+    protected Connection connection;
+    protected long runId = -1; // database id of the run
+    protected int insertCount = 0; // since the last commit
+    private PreparedStatement lastInsertIdStatement;
+
+    protected SqliteOutputManager(String fileName) {
+        file = new File(fileName);
+        if (file.exists() && !file.delete())
+            throw new ResultRecordingException("Cannot delete old output file " + file.getPath());
+    }
+
+    public int getSimtimeExp() {
+        return simtimeExp;
+    }
+
+    /**
+     * Sets the exponent of the unit of simulation time in the file, e.g. -12
+     * for picoseconds; simulation times are stored as integer multiples of
+     * the unit. Must be called before open().
+     */
+    public void setSimtimeExp(int simtimeExp) {
+        if (connection != null)
+            throw new IllegalStateException("Cannot change the simulation time exponent after open()");
+        this.simtimeExp = simtimeExp;
+    }
+
+    public int getCommitFrequency() {
+        return commitFrequency;
+    }
+
+    /**
+     * Sets the number of inserts after which the current transaction is committed.
+     */
+    public void setCommitFrequency(int inserts) {
+        if (inserts < 1)
+            throw new IllegalArgumentException("Commit frequency must be positive");
+        this.commitFrequency = inserts;
+    }
+
+    public String getFileName() {
+        return file.getPath();
+    }
+
+    /**
+     * Opens the database, creates the tables and inserts the run.
+     */
+    protected void openDatabase() {
+        try {
+            connection = DriverManager.getConnection(JDBC_URL_PREFIX + file.getPath());
+        }
+        catch (SQLException e) {
+            throw new ResultRecordingException("Cannot open output file " + file.getPath() + ": " + e.getMessage()
+                    + " (is an SQLite JDBC driver on the classpath?)", e);
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            // page size must be set before anything is written; journal mode outside transactions
+            statement.execute("PRAGMA page_size = 16384");
+            statement.execute("PRAGMA foreign_keys = ON");
+            statement.execute("PRAGMA synchronous = OFF");
+            statement.execute("PRAGMA journal_mode = TRUNCATE");
+            statement.execute("PRAGMA cache_size = 100000");
+
+            connection.setAutoCommit(false);
+            for (String sql : SQL_CREATE_TABLES)
+                statement.executeUpdate(sql);
+            lastInsertIdStatement = connection.prepareStatement("SELECT last_insert_rowid()");
+
+            try (PreparedStatement insertRun = connection.prepareStatement("INSERT INTO run (runName, simtimeExp) VALUES (?, ?)")) {
+                insertRun.setString(1, runID);
+                insertRun.setInt(2, simtimeExp);
+                insertRun.executeUpdate();
+            }
+            runId = lastInsertId();
+            try (PreparedStatement insertRunAttr = connection.prepareStatement("INSERT INTO runAttr (runId, attrName, attrValue) VALUES (?, ?, ?)")) {
+                insertAttributes(insertRunAttr, runId, runAttributes);
+            }
+            connection.commit();
+        }
+        catch (SQLException e) {
+            throw error("Cannot initialize output file", e);
+        }
+    }
+
+    /**
+     * Commits the current transaction, restores the default journal mode, and
+     * closes the database.
+     */
+    protected void closeDatabase() {
+        if (connection == null)
+            return;
+        try {
+            lastInsertIdStatement.close();
+            connection.commit();
+            connection.setAutoCommit(true);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("PRAGMA journal_mode = DELETE");
+            }
+            connection.close();
+        }
+        catch (SQLException e) {
+            throw error("Cannot close output file", e);
+        }
+        finally {
+            connection = null;
+            runId = -1;
+        }
+    }
+
+    /**
+     * Commits the current transaction.
+     */
+    protected void commit() {
+        try {
+            connection.commit();
+            insertCount = 0;
+        }
+        catch (SQLException e) {
+            throw error("Cannot write output file", e);
+        }
+    }
+
+    /**
+     * To be called after inserting rows; commits the transaction every
+     * commitFrequency inserts.
+     */
+    protected void inserted(int count) {
+        insertCount += count;
+        if (insertCount >= commitFrequency)
+            commit();
+    }
+
+    /**
+     * Returns the rowid of the last inserted row, i.e. the value of the
+     * AUTOINCREMENT primary key.
+     */
+    protected long lastInsertId() throws SQLException {
+        try (ResultSet resultSet = lastInsertIdStatement.executeQuery()) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    /**
+     * Inserts the attributes with a prepared "INSERT INTO ...Attr" statement
+     * that has the id, the name and the value as parameters.
+     */
+    protected int insertAttributes(PreparedStatement statement, long id, Map<String, String> attributes) throws SQLException {
+        if (attributes == null || attributes.isEmpty())
+            return 0;
+        for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+            statement.setLong(1, id);
+            statement.setString(2, attribute.getKey());
+            statement.setString(3, attribute.getValue());
+            statement.addBatch();
+        }
+        statement.executeBatch();
+        return attributes.size();
+    }
+
+    protected ResultRecordingException error(String message, SQLException e) {
+        return new ResultRecordingException(message + " " + file.getPath() + ": " + e.getMessage(), e);
+    }
+}
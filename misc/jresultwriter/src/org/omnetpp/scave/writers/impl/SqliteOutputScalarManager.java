@@ -0,0 +1,149 @@
+package org.omnetpp.scave.writers.impl;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Map;
+
+import org.omnetpp.scave.writers.IHistogramSummary;
+import org.omnetpp.scave.writers.IOutputScalarManager;
+import org.omnetpp.scave.writers.IStatisticalSummary;
+import org.omnetpp.scave.writers.IStatisticalSummary2;
+
+/**
+ * An output scalar manager that writes OMNeT++ SQLite scalar files, the
+ * counterpart of FileOutputScalarManager; see SqliteOutputManager.
+ *
+ * Methods are synchronized, so scalars may be recorded from several threads.
+ */
+public class SqliteOutputScalarManager extends SqliteOutputManager implements IOutputScalarManager {
+    protected PreparedStatement insertScalar;
+    protected PreparedStatement insertScalarAttr;
+    protected PreparedStatement insertStatistic;
+    protected PreparedStatement insertStatisticAttr;
+    protected PreparedStatement insertHistogramBin;
+
+    public SqliteOutputScalarManager(String fileName) {
+        super(fileName);
+    }
+
+    public synchronized void open(String runID, Map<String, String> runAttributes) {
+        this.runID = runID;
+        this.runAttributes = runAttributes;
+    }
+
+    protected void open() {
+        openDatabase();
+        try {
+            insertScalar = connection.prepareStatement("INSERT INTO scalar (runId, moduleName, scalarName, scalarValue) VALUES (?, ?, ?, ?)");
+            insertScalarAttr = connection.prepareStatement("INSERT INTO scalarAttr (scalarId, attrName, attrValue) VALUES (?, ?, ?)");
+            insertStatistic = connection.prepareStatement("INSERT INTO statistic (runId, moduleName, statName, isHistogram, isWeighted, " +
+                    "statCount, statMean, statStddev, statSum, statSqrsum, statMin, statMax, " +
+                    "statWeights, statWeightedSum, statSqrSumWeights, statWeightedSqrSum) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+            insertStatisticAttr = connection.prepareStatement("INSERT INTO statisticAttr (statId, attrName, attrValue) VALUES (?, ?, ?)");
+            insertHistogramBin = connection.prepareStatement("INSERT INTO histogramBin (statId, lowerEdge, binValue) VALUES (?, ?, ?)");
+        }
+        catch (SQLException e) {
+            throw error("Cannot initialize output scalar file", e);
+        }
+    }
+
+    public synchronized void close() {
+        if (connection != null) {
+            try {
+                insertScalar.close();
+                insertScalarAttr.close();
+                insertStatistic.close();
+                insertStatisticAttr.close();
+                insertHistogramBin.close();
+            }
+            catch (SQLException e) {
+                throw error("Cannot close output scalar file", e);
+            }
+            closeDatabase();
+        }
+    }
+
+    public synchronized void flush() {
+        if (connection != null)
+            commit();
+    }
+
+    public synchronized void recordScalar(String componentPath, String name, double value, Map<String, String> attributes) {
+        if (connection == null)
+            open();
+        try {
+            insertScalar.setLong(1, runId);
+            insertScalar.setString(2, componentPath);
+            insertScalar.setString(3, name);
+            insertScalar.setDouble(4, value);
+            insertScalar.executeUpdate();
+            int count = 1 + insertAttributes(insertScalarAttr, lastInsertId(), attributes);
+            inserted(count);
+        }
+        catch (SQLException e) {
+            throw error("Cannot write output scalar file", e);
+        }
+    }
+
+    public synchronized void recordScalar(String componentPath, String name, Number value, Map<String, String> attributes) {
+        recordScalar(componentPath, name, value.doubleValue(), attributes);
+    }
+
+    public synchronized void recordStatistic(String componentPath, String name, IStatisticalSummary statistic, Map<String, String> attributes) {
+        if (connection == null)
+            open();
+        IStatisticalSummary2 statistic2 = statistic instanceof IStatisticalSummary2 ? (IStatisticalSummary2)statistic : null;
+        boolean isWeighted = statistic2 != null && statistic2.isWeighted();
+        IHistogramSummary histogram = statistic instanceof IHistogramSummary ? (IHistogramSummary)statistic : null;
+        int numCells = histogram == null ? 0 : histogram.getNumCells();
+        try {
+            insertStatistic.setLong(1, runId);
+            insertStatistic.setString(2, componentPath);
+            insertStatistic.setString(3, name);
+            insertStatistic.setInt(4, numCells > 0 ? 1 : 0);
+            insertStatistic.setInt(5, isWeighted ? 1 : 0);
+            insertStatistic.setLong(6, statistic.getN());
+            insertStatistic.setDouble(7, statistic.getMean());
+            insertStatistic.setDouble(8, statistic.getStandardDeviation());
+            insertStatistic.setDouble(9, statistic.getSum());
+            insertStatistic.setDouble(10, statistic.getSqrSum());
+            insertStatistic.setDouble(11, statistic.getMin());
+            insertStatistic.setDouble(12, statistic.getMax());
+            if (isWeighted) {
+                insertStatistic.setDouble(13, statistic2.getWeights());
+                insertStatistic.setDouble(14, statistic2.getWeightedSum());
+                insertStatistic.setDouble(15, statistic2.getSqrSumWeights());
+                insertStatistic.setDouble(16, statistic2.getWeightedSqrSum());
+            }
+            else {
+                for (int i = 13; i <= 16; i++)
+                    insertStatistic.setNull(i, Types.DOUBLE);
+            }
+            insertStatistic.executeUpdate();
+            long statId = lastInsertId();
+            int count = 1 + insertAttributes(insertStatisticAttr, statId, attributes);
+
+            if (numCells > 0) {
+                // underflow cell, one row per cell with its lower edge, then the overflow cell
+                addBin(statId, Double.NEGATIVE_INFINITY, histogram.getUnderflowCell());
+                for (int i = 0; i < numCells; i++)
+                    addBin(statId, histogram.getCellBoundary(i), histogram.getCellValue(i));
+                addBin(statId, histogram.getCellBoundary(numCells), histogram.getOverflowCell());
+                insertHistogramBin.executeBatch();
+                count += numCells + 2;
+            }
+            inserted(count);
+        }
+        catch (SQLException e) {
+            throw error("Cannot write output scalar file", e);
+        }
+    }
+
+    protected void addBin(long statId, double lowerEdge, double value) throws SQLException {
+        insertHistogramBin.setLong(1, statId);
+        insertHistogramBin.setDouble(2, lowerEdge);
+        insertHistogramBin.setDouble(3, value);
+        insertHistogramBin.addBatch();
+    }
+}
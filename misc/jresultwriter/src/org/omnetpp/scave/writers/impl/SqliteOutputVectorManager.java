@@ -0,0 +1,321 @@
+package org.omnetpp.scave.writers.impl;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.omnetpp.scave.writers.IOutputVector;
+import org.omnetpp.scave.writers.IOutputVectorManager;
+import org.omnetpp.scave.writers.ISimulationTimeProvider;
+import org.omnetpp.scave.writers.ResultRecordingException;
+
+/**
+ * An output vector manager that writes OMNeT++ SQLite vector files, the
+ * counterpart of FileOutputVectorManager; see SqliteOutputManager.
+ *
+ * Samples are buffered per vector, and inserted in batches into the
+ * vectorData table when the buffer of the vector fills up, or the total
+ * number of buffered samples reaches its limit. Event numbers come from the
+ * simulation time provider. The index on vectorData is only created when the
+ * manager is closed, because maintaining it during recording would make
+ * every insert slower.
+ *
+ * Like FileOutputVectorManager in its default mode, vectors must be
+ * recorded into from one thread at a time.
+ */
+public class SqliteOutputVectorManager extends SqliteOutputManager implements IOutputVectorManager {
+    protected ISimulationTimeProvider simtimeProvider;
+
+    protected int perVectorLimit = 1000;
+    protected int totalLimit = 1000000;
+    protected int nbuffered = 0;
+
+    protected List<OutputVector> vectors = new ArrayList<OutputVector>();
+    protected double simtimeScale; // 10^-simtimeExp, set at open
+
+    protected PreparedStatement insertVector;
+    protected PreparedStatement insertVectorAttr;
+    protected PreparedStatement insertVectorData;
+    protected PreparedStatement updateVector;
+
+    class OutputVector implements IOutputVector {
+        long id;
+        long[] eventNumbers = new long[perVectorLimit];
+        long[] simtimes = new long[perVectorLimit];
+        double[] values = new double[perVectorLimit];
+        int n = 0;
+
+        // vector statistics, for the vector table
+        long count = 0;
+        double min = Double.NaN;
+        double max = Double.NaN;
+        double sum = 0;
+        double sumSqr = 0;
+        long startEventNum, endEventNum;
+        long startTime, endTime;
+
+        OutputVector(long id) {
+            this.id = id;
+        }
+
+        public void close() {
+            synchronized (SqliteOutputVectorManager.this) {
+                checkAlive();
+                finish();
+                vectors.remove(this);
+                id = -1; // i.e. dead object
+            }
+        }
+
+        public void flush() {
+            synchronized (SqliteOutputVectorManager.this) {
+                checkAlive();
+                writeBlock();
+                commit();
+            }
+        }
+
+        public boolean record(double value) {
+            if (simtimeProvider == null)
+                throw new IllegalStateException("Simtime provider not yet specified");
+            return record(simtimeProvider.getSimulationTime(), value);
+        }
+
+        public boolean record(Number time, double value) {
+            if (time instanceof BigDecimal) {
+                try {
+                    return store(((BigDecimal)time).scaleByPowerOfTen(-simtimeExp).setScale(0, RoundingMode.HALF_EVEN).longValueExact(), value);
+                }
+                catch (ArithmeticException e) {
+                    throw new ResultRecordingException("Simulation time out of range: " + time);
+                }
+            }
+            return record(time.doubleValue(), value);
+        }
+
+        public boolean record(double time, double value) {
+            double raw = Math.rint(time * simtimeScale);
+            if (!(Math.abs(raw) < 0x1p63))
+                throw new ResultRecordingException("Simulation time out of range: " + time);
+            return store((long)raw, value);
+        }
+
+        protected boolean store(long simtimeRaw, double value) {
+            if (id == -1)
+                throw new IllegalStateException("Output vector already closed");
+            long eventNumber = simtimeProvider == null ? -1 : simtimeProvider.getEventNumber();
+
+            eventNumbers[n] = eventNumber;
+            simtimes[n] = simtimeRaw;
+            values[n] = value;
+            n++;
+
+            if (count == 0) {
+                startEventNum = eventNumber;
+                startTime = simtimeRaw;
+                min = max = value;
+            }
+            else {
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            endEventNum = eventNumber;
+            endTime = simtimeRaw;
+            count++;
+            sum += value;
+            sumSqr += value * value;
+
+            nbuffered++;
+            if (n == values.length)
+                writeBlock();
+            else if (nbuffered >= totalLimit)
+                SqliteOutputVectorManager.this.writeBlocks();
+            return false;
+        }
+
+        void checkAlive() {
+            if (id == -1)
+                throw new IllegalStateException("Output vector already closed");
+        }
+
+        /**
+         * Inserts the buffered samples into the vectorData table, in the
+         * current transaction.
+         */
+        void writeBlock() {
+            if (n == 0)
+                return;
+            synchronized (SqliteOutputVectorManager.this) {
+                try {
+                    for (int i = 0; i < n; i++) {
+                        insertVectorData.setLong(1, id);
+                        insertVectorData.setLong(2, eventNumbers[i]);
+                        insertVectorData.setLong(3, simtimes[i]);
+                        insertVectorData.setDouble(4, values[i]);
+                        insertVectorData.addBatch();
+                    }
+                    insertVectorData.executeBatch();
+                }
+                catch (SQLException e) {
+                    throw error("Cannot write output vector file", e);
+                }
+                nbuffered -= n;
+                int written = n;
+                n = 0;
+                inserted(written);
+            }
+        }
+
+        /**
+         * Writes the remaining samples, and the statistics of the vector.
+         */
+        void finish() {
+            writeBlock();
+            try {
+                if (count > 0) {
+                    updateVector.setLong(1, startEventNum);
+                    updateVector.setLong(2, endEventNum);
+                    updateVector.setLong(3, startTime);
+                    updateVector.setLong(4, endTime);
+                }
+                else {
+                    for (int i = 1; i <= 4; i++)
+                        updateVector.setNull(i, Types.INTEGER);
+                }
+                updateVector.setLong(5, count);
+                updateVector.setDouble(6, min);
+                updateVector.setDouble(7, max);
+                updateVector.setDouble(8, sum);
+                updateVector.setDouble(9, sumSqr);
+                updateVector.setLong(10, id);
+                updateVector.executeUpdate();
+            }
+            catch (SQLException e) {
+                throw error("Cannot write output vector file", e);
+            }
+            inserted(1);
+        }
+    }
+
+    public SqliteOutputVectorManager(String fileName) {
+        super(fileName);
+    }
+
+    public ISimulationTimeProvider getSimtimeProvider() {
+        return simtimeProvider;
+    }
+
+    public void setSimtimeProvider(ISimulationTimeProvider simtimeProvider) {
+        this.simtimeProvider = simtimeProvider;
+    }
+
+    public int getPerVectorBufferLimit() {
+        return perVectorLimit;
+    }
+
+    /**
+     * Sets the number of samples buffered per vector; affects vectors
+     * created afterwards.
+     */
+    public void setPerVectorBufferLimit(int count) {
+        if (count < 1)
+            throw new IllegalArgumentException("Buffer limit must be positive");
+        this.perVectorLimit = count;
+    }
+
+    public int getTotalBufferLimit() {
+        return totalLimit;
+    }
+
+    public void setTotalBufferLimit(int count) {
+        this.totalLimit = count;
+    }
+
+    public synchronized void open(String runID, Map<String, String> runAttributes) {
+        this.runID = runID;
+        this.runAttributes = runAttributes;
+    }
+
+    protected void open() {
+        simtimeScale = Math.pow(10, -simtimeExp);
+        openDatabase();
+        try {
+            insertVector = connection.prepareStatement("INSERT INTO vector (runId, moduleName, vectorName) VALUES (?, ?, ?)");
+            insertVectorAttr = connection.prepareStatement("INSERT INTO vectorAttr (vectorId, attrName, attrValue) VALUES (?, ?, ?)");
+            insertVectorData = connection.prepareStatement("INSERT INTO vectorData (vectorId, eventNumber, simtimeRaw, value) VALUES (?, ?, ?, ?)");
+            updateVector = connection.prepareStatement("UPDATE vector " +
+                    "SET startEventNum=?, endEventNum=?, startSimtimeRaw=?, endSimtimeRaw=?, " +
+                    "vectorCount=?, vectorMin=?, vectorMax=?, vectorSum=?, vectorSumSqr=? " +
+                    "WHERE vectorId=?");
+        }
+        catch (SQLException e) {
+            throw error("Cannot initialize output vector file", e);
+        }
+    }
+
+    /**
+     * Writes the remaining samples and the vector statistics, creates the
+     * index on the vector data, and closes the file.
+     */
+    public synchronized void close() {
+        if (connection == null)
+            return;
+        for (OutputVector vector : vectors) {
+            vector.finish();
+            vector.id = -1;
+        }
+        vectors.clear();
+        nbuffered = 0;
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE INDEX IF NOT EXISTS vectorData_idx ON vectorData (vectorId)");
+            insertVector.close();
+            insertVectorAttr.close();
+            insertVectorData.close();
+            updateVector.close();
+        }
+        catch (SQLException e) {
+            throw error("Cannot index output vector file", e);
+        }
+        closeDatabase();
+    }
+
+    public synchronized void flush() {
+        if (connection != null) {
+            writeBlocks();
+            commit();
+        }
+    }
+
+    /**
+     * Inserts the buffered samples of all vectors.
+     */
+    protected synchronized void writeBlocks() {
+        for (OutputVector vector : vectors)
+            vector.writeBlock();
+    }
+
+    public synchronized IOutputVector createVector(String componentPath, String vectorName, Map<String, String> attributes) {
+        if (connection == null)
+            open();
+        try {
+            insertVector.setLong(1, runId);
+            insertVector.setString(2, componentPath);
+            insertVector.setString(3, vectorName);
+            insertVector.executeUpdate();
+            long id = lastInsertId();
+            inserted(1 + insertAttributes(insertVectorAttr, id, attributes));
+            OutputVector vector = new OutputVector(id);
+            vectors.add(vector);
+            return vector;
+        }
+        catch (SQLException e) {
+            throw error("Cannot write output vector file", e);
+        }
+    }
+}
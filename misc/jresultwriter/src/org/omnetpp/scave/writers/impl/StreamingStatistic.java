@@ -0,0 +1,213 @@
+package org.omnetpp.scave.writers.impl;
+
+import org.omnetpp.scave.writers.IHistogramSummary;
+import org.omnetpp.scave.writers.IStatisticalSummary2;
+
+/**
+ * Base class for statistics that are collected one observation at a time,
+ * in constant memory and constant time per observation. Computes count, sum,
+ * min/max, mean and variance, and the weighted variants if the statistic is
+ * weighted; subclasses maintain the distribution estimate, and present it as
+ * histogram cells. Instances can be passed to IOutputScalarManager.recordStatistic().
+ *
+ * Variance formulas are the same as in OMNeT++'s cStdDev.
+ */
+public abstract class StreamingStatistic implements IHistogramSummary, IStatisticalSummary2 {
+    protected final boolean weighted;
+    protected long count = 0;
+    protected double min = Double.NaN;
+    protected double max = Double.NaN;
+    protected double sum = 0;
+    protected double sqrSum = 0;
+    protected double sumWeights = 0;
+    protected double weightedSum = 0;
+    protected double sqrSumWeights = 0;
+    protected double weightedSqrSum = 0;
+    protected double underflow = 0; // weight of observations below the histogram range
+    protected double overflow = 0;  // weight of observations above the histogram range
+
+    protected StreamingStatistic(boolean weighted) {
+        this.weighted = weighted;
+    }
+
+    /**
+     * Adds an observation. NaN values are rejected.
+     */
+    public void collect(double value) {
+        collect(value, 1.0);
+    }
+
+    /**
+     * Adds a weighted observation. Weights other than 1 are only accepted by
+     * weighted statistics; observations with zero weight are ignored.
+     */
+    public void collect(double value, double weight) {
+        if (Double.isNaN(value))
+            throw new IllegalArgumentException("Cannot collect NaN");
+        if (weight != 1.0) {
+            if (!weighted)
+                throw new IllegalArgumentException("Weighted observation in unweighted statistic");
+            if (!(weight >= 0) || Double.isInfinite(weight))
+                throw new IllegalArgumentException("Invalid weight: " + weight);
+            if (weight == 0)
+                return;
+        }
+
+        count++;
+        if (count == 1)
+            min = max = value;
+        else if (value < min)
+            min = value;
+        else if (value > max)
+            max = value;
+        sum += value;
+        sqrSum += value * value;
+        if (weighted) {
+            sumWeights += weight;
+            weightedSum += weight * value;
+            sqrSumWeights += weight * weight;
+            weightedSqrSum += weight * value * value;
+        }
+
+        collectIntoDistribution(value, weight);
+    }
+
+    /**
+     * Updates the distribution estimate with a (non-NaN) observation.
+     */
+    protected abstract void collectIntoDistribution(double value, double weight);
+
+    /**
+     * Returns the estimated value below which the given fraction (0..1) of the
+     * observations (or total weight) falls, or NaN if there are no observations.
+     * This implementation interpolates linearly within histogram cells; values
+     * in the underflow and overflow cells are taken to be at min and max.
+     */
+    public double getQuantile(double q) {
+        if (!(q >= 0 && q <= 1))
+            throw new IllegalArgumentException("Quantile out of range: " + q);
+        if (count == 0)
+            return Double.NaN;
+        double target = q * getTotalWeight();
+        double cumulated = underflow;
+        if (target <= cumulated)
+            return min;
+        int n = getNumCells();
+        for (int k = 0; k < n; k++) {
+            double cellValue = getCellValue(k);
+            if (cellValue > 0 && target <= cumulated + cellValue) {
+                double lower = getCellBoundary(k), upper = getCellBoundary(k+1);
+                double result = lower + (upper - lower) * (target - cumulated) / cellValue;
+                return Math.max(min, Math.min(max, result));
+            }
+            cumulated += cellValue;
+        }
+        return max;
+    }
+
+    public long getUnderflowCell() {
+        return Math.round(underflow);
+    }
+
+    public long getOverflowCell() {
+        return Math.round(overflow);
+    }
+
+    public double getCellPDF(int k) {
+        double cellSize = getCellBoundary(k+1) - getCellBoundary(k);
+        return cellSize == 0 ? 0 : getCellValue(k) / getTotalWeight() / cellSize;
+    }
+
+    /**
+     * Adds the moments of another statistic to this one.
+     */
+    protected void mergeMoments(StreamingStatistic other) {
+        if (other.weighted != weighted)
+            throw new IllegalArgumentException("Cannot merge weighted and unweighted statistics");
+        if (other.count == 0)
+            return;
+        min = count == 0 ? other.min : Math.min(min, other.min);
+        max = count == 0 ? other.max : Math.max(max, other.max);
+        count += other.count;
+        sum += other.sum;
+        sqrSum += other.sqrSum;
+        sumWeights += other.sumWeights;
+        weightedSum += other.weightedSum;
+        sqrSumWeights += other.sqrSumWeights;
+        weightedSqrSum += other.weightedSqrSum;
+        underflow += other.underflow;
+        overflow += other.overflow;
+    }
+
+    /**
+     * Returns the total weight of the observations (the count if unweighted).
+     */
+    protected double getTotalWeight() {
+        return weighted ? sumWeights : count;
+    }
+
+    public long getN() {
+        return count;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public double getSum() {
+        return count == 0 ? Double.NaN : sum;
+    }
+
+    public double getSqrSum() {
+        return count == 0 ? Double.NaN : sqrSum;
+    }
+
+    public double getMean() {
+        if (count == 0)
+            return Double.NaN;
+        return weighted ? weightedSum / sumWeights : sum / count;
+    }
+
+    public double getVariance() {
+        if (count == 0)
+            return Double.NaN;
+        if (count == 1)
+            return 0;
+        double var;
+        if (!weighted)
+            var = (sqrSum - sum * sum / count) / (count - 1);
+        else {
+            double denominator = sumWeights * sumWeights - sqrSumWeights;
+            var = denominator == 0 ? 0 : (sumWeights * weightedSqrSum - weightedSum * weightedSum) / denominator;
+        }
+        return var < 0 ? 0 : var; // may be slightly negative due to rounding errors
+    }
+
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    public boolean isWeighted() {
+        return weighted;
+    }
+
+    public double getWeights() {
+        return count == 0 ? Double.NaN : sumWeights;
+    }
+
+    public double getWeightedSum() {
+        return count == 0 ? Double.NaN : weightedSum;
+    }
+
+    public double getSqrSumWeights() {
+        return count == 0 ? Double.NaN : sqrSumWeights;
+    }
+
+    public double getWeightedSqrSum() {
+        return count == 0 ? Double.NaN : weightedSqrSum;
+    }
+}
@@ -0,0 +1,291 @@
+package org.omnetpp.scave.writers.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A reusable, growable byte buffer for producing the text of result files
+ * without creating garbage: numbers are formatted directly into the buffer.
+ *
+ * Doubles are written in the shortest form that parses back to the same
+ * value (e.g. "0.1", "42", "1.25e-07"), using plain decimal notation for
+ * magnitudes above 1e-4. Infinities and NaN are written as "inf", "-inf"
+ * and "nan", like in the C++ result files. Values outside [1e-9, 2^53) that
+ * are not integers are formatted via Double.toString(), which round-trips too.
+ */
+public class TextBuffer {
+    private static final long[] POWERS_OF_FIVE = new long[28]; // 5^27 still fits into a long
+    private static final long MAX_EXACT_LONG = 1L << 53;
+    private static final long MAX_DIGITS_17 = 100000000000000000L; // 10^17
+    private static final double MIN_SHORTEST = 1e-9; // 17 significant digits need at most 27 fraction digits
+    private static final byte[] DIGIT_PAIRS = new byte[200];
+
+    static {
+        long p = 1;
+        for (int i = 0; i < POWERS_OF_FIVE.length; i++, p *= 5)
+            POWERS_OF_FIVE[i] = p;
+        for (int i = 0; i < 100; i++) {
+            DIGIT_PAIRS[2*i] = (byte)('0' + i / 10);
+            DIGIT_PAIRS[2*i+1] = (byte)('0' + i % 10);
+        }
+    }
+
+    private byte[] buf;
+    private int len = 0;
+
+    public TextBuffer() {
+        this(8192);
+    }
+
+    public TextBuffer(int initialCapacity) {
+        buf = new byte[Math.max(initialCapacity, 64)];
+    }
+
+    public int length() {
+        return len;
+    }
+
+    public byte[] array() {
+        return buf;
+    }
+
+    public void clear() {
+        len = 0;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buf, 0, len);
+    }
+
+    private void ensureCapacity(int extra) {
+        if (len + extra > buf.length) {
+            byte[] newBuf = new byte[Math.max(buf.length * 2, len + extra)];
+            System.arraycopy(buf, 0, newBuf, 0, len);
+            buf = newBuf;
+        }
+    }
+
+    public TextBuffer append(char ch) {
+        ensureCapacity(1);
+        buf[len++] = (byte)ch;
+        return this;
+    }
+
+    public TextBuffer append(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buf, len, bytes.length);
+        len += bytes.length;
+        return this;
+    }
+
+    /**
+     * Appends the string, which is assumed to consist of ASCII characters only.
+     */
+    public TextBuffer appendAscii(String s) {
+        int n = s.length();
+        ensureCapacity(n);
+        for (int i = 0; i < n; i++)
+            buf[len++] = (byte)s.charAt(i);
+        return this;
+    }
+
+    public TextBuffer newline() {
+        return append('\n');
+    }
+
+    public TextBuffer append(long value) {
+        ensureCapacity(20);
+        if (value < 0) {
+            if (value == Long.MIN_VALUE)
+                return appendAscii(Long.toString(value));
+            buf[len++] = '-';
+            value = -value;
+        }
+        int numDigits = numDigits(value);
+        int end = len + numDigits;
+        int pos = end;
+        while (value >= 100) {
+            int pair = (int)(value % 100);
+            value /= 100;
+            buf[--pos] = DIGIT_PAIRS[2*pair+1];
+            buf[--pos] = DIGIT_PAIRS[2*pair];
+        }
+        if (value >= 10) {
+            buf[--pos] = DIGIT_PAIRS[2*(int)value+1];
+            buf[--pos] = DIGIT_PAIRS[2*(int)value];
+        }
+        else
+            buf[--pos] = (byte)('0' + value);
+        len = end;
+        return this;
+    }
+
+    private static int numDigits(long value) {
+        int n = 1;
+        while (value >= 10) {
+            value /= 10;
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Returns the upper 64 bits of the 128-bit product of two non-negative
+     * longs. Same as Math.multiplyHigh(), which is not available in Java 8.
+     */
+    private static long multiplyHigh(long x, long y) {
+        long x1 = x >>> 32, x0 = x & 0xFFFFFFFFL;
+        long y1 = y >>> 32, y0 = y & 0xFFFFFFFFL;
+        long middle = x1 * y0 + ((x0 * y0) >>> 32);
+        long middle2 = x0 * y1 + (middle & 0xFFFFFFFFL);
+        return x1 * y1 + (middle >>> 32) + (middle2 >>> 32);
+    }
+
+    public TextBuffer append(double value) {
+        ensureCapacity(32);
+        if (Double.isNaN(value))
+            return appendAscii("nan");
+        if (Double.isInfinite(value))
+            return appendAscii(value > 0 ? "inf" : "-inf");
+        if (value == 0)
+            return appendAscii((Double.doubleToRawLongBits(value) < 0) ? "-0" : "0");
+
+        double abs = Math.abs(value);
+
+        // integers
+        if (abs < MAX_EXACT_LONG && abs == Math.rint(abs))
+            return append((long)value);
+
+        if (abs < MIN_SHORTEST || abs >= MAX_EXACT_LONG)
+            return appendJavaFormatted(value); // rare in practice
+
+        // Find the smallest k for which the integer m nearest to abs*10^k satisfies
+        // that m*10^-k parses back to abs. With v = M*2^E, abs*10^k = M*5^k / 2^s where
+        // s = -E-k, so it can be computed exactly in 128-bit integer arithmetic. The
+        // decimal parses back to abs if its distance from abs is less than half ulp,
+        // which is 5^k/2 in units of 2^-s (a quarter ulp below powers of two).
+        long bits = Double.doubleToRawLongBits(abs);
+        long mantissa = (bits & ((1L << 52) - 1)) | (1L << 52);
+        int exponent = (int)(bits >>> 52) - 1075;
+        boolean isPowerOfTwo = mantissa == (1L << 52);
+        for (int k = 1; k < POWERS_OF_FIVE.length; k++) {
+            long f = POWERS_OF_FIVE[k];
+            long hi = multiplyHigh(mantissa, f);
+            long lo = mantissa * f;
+            int s = -exponent - k;
+            long m, distance;
+            boolean roundedDown;
+            if (s <= 0) {
+                if (hi != 0 || s < -10 || (lo << -s) >>> -s != lo)
+                    break;
+                m = lo << -s; // exact
+                distance = 0;
+                roundedDown = true;
+            }
+            else {
+                long remHi, remLo;
+                if (s < 64) {
+                    if ((hi >>> s) != 0)
+                        break;
+                    m = (lo >>> s) | (hi << (64 - s));
+                    remHi = 0;
+                    remLo = lo & ((1L << s) - 1);
+                }
+                else {
+                    m = s == 64 ? hi : hi >>> (s - 64);
+                    remHi = s == 64 ? 0 : hi & ((1L << (s - 64)) - 1);
+                    remLo = lo;
+                }
+                // round to nearest: compare the remainder with 2^(s-1)
+                int halfBit = s - 1;
+                boolean aboveHalf = halfBit >= 64 ? Long.compareUnsigned(remHi, 1L << (halfBit - 64)) >= 0 : remHi != 0 || Long.compareUnsigned(remLo, 1L << halfBit) >= 0;
+                roundedDown = !aboveHalf;
+                if (roundedDown) {
+                    if (remHi != 0 || remLo < 0)
+                        continue; // too far
+                    distance = remLo;
+                }
+                else {
+                    m++;
+                    // distance = 2^s - rem, as a 128-bit subtraction
+                    long dLo = s < 64 ? (1L << s) - remLo : -remLo;
+                    long dHi = s < 64 ? 0 : (1L << (s - 64)) - remHi - (remLo != 0 ? 1 : 0);
+                    if (dHi != 0 || dLo < 0)
+                        continue; // too far
+                    distance = dLo;
+                }
+            }
+            if (m >= MAX_DIGITS_17)
+                break;
+            boolean close = (isPowerOfTwo && roundedDown && distance != 0) ? distance <= (f - 1) >>> 2 : distance <= (f - 1) >>> 1;
+            if (close) {
+                if (value < 0)
+                    buf[len++] = '-';
+                appendDecimal(m, k, abs < 1e-4);
+                return this;
+            }
+        }
+
+        // not reached for doubles in the handled range (17 significant digits always suffice)
+        return appendJavaFormatted(value);
+    }
+
+    /**
+     * Appends m*10^-k in plain or scientific notation; m > 0.
+     */
+    private void appendDecimal(long m, int k, boolean scientific) {
+        int numDigits = numDigits(m);
+        int start = len;
+        append(m); // digits, to be moved around
+        if (scientific) {
+            // d.ddde-XX
+            int exp = numDigits - 1 - k;
+            if (numDigits > 1) {
+                System.arraycopy(buf, start + 1, buf, start + 2, numDigits - 1);
+                buf[start + 1] = '.';
+                len++;
+            }
+            buf[len++] = 'e';
+            buf[len++] = exp < 0 ? (byte)'-' : (byte)'+';
+            exp = Math.abs(exp);
+            if (exp < 10)
+                buf[len++] = '0';
+            append((long)exp);
+        }
+        else if (k >= numDigits) {
+            // 0.000ddd
+            int zeros = k - numDigits;
+            System.arraycopy(buf, start, buf, start + 2 + zeros, numDigits);
+            buf[start] = '0';
+            buf[start + 1] = '.';
+            for (int i = 0; i < zeros; i++)
+                buf[start + 2 + i] = '0';
+            len += 2 + zeros;
+        }
+        else {
+            // ddd.ddd
+            int intDigits = numDigits - k;
+            System.arraycopy(buf, start + intDigits, buf, start + intDigits + 1, k);
+            buf[start + intDigits] = '.';
+            len++;
+        }
+    }
+
+    private TextBuffer appendJavaFormatted(double value) {
+        // Double.toString() round-trips; convert its exponent notation to the C style ("1.5E-10" -> "1.5e-10")
+        String s = Double.toString(value);
+        int n = s.length();
+        ensureCapacity(n);
+        for (int i = 0; i < n; i++) {
+            char ch = s.charAt(i);
+            if (ch == 'E')
+                ch = 'e';
+            else if (ch == '.' && i+2 < n && s.charAt(i+1) == '0' && s.charAt(i+2) == 'E') {
+                i++; // drop ".0" before the exponent
+                continue;
+            }
+            buf[len++] = (byte)ch;
+        }
+        return this;
+    }
+}
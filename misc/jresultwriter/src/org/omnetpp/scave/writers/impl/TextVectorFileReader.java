@@ -0,0 +1,190 @@
+package org.omnetpp.scave.writers.impl;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads text vector (".vec") files, and reports their contents to a handler.
+ * Only the first run in the file is processed; run-level lines other than
+ * "run" and "attr" (e.g. "itervar", "config") are ignored.
+ */
+public class TextVectorFileReader {
+    public interface Handler {
+        void run(String runID, Map<String,String> runAttributes);
+        void vector(int id, String moduleName, String name, Map<String,String> attributes, boolean hasEventNumbers);
+        void data(int vectorId, long eventNumber, double time, double value); // eventNumber is -1 if not recorded
+    }
+
+    private String fileName;
+
+    public TextVectorFileReader(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public void read(Handler handler) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(fileName), StandardCharsets.UTF_8), 65536)) {
+            String runID = null;
+            Map<String,String> runAttributes = new LinkedHashMap<String,String>();
+            boolean runReported = false;
+            Map<Integer,Boolean> hasEventNumbers = new LinkedHashMap<Integer,Boolean>();
+
+            // pending vector declaration, reported when its attributes are complete
+            int vectorId = -1;
+            String moduleName = null, vectorName = null;
+            boolean vectorHasEventNumbers = false;
+            Map<String,String> vectorAttributes = null;
+
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isEmpty())
+                    continue;
+                char first = line.charAt(0);
+                if (first >= '0' && first <= '9') {
+                    if (vectorId != -1) {
+                        handler.vector(vectorId, moduleName, vectorName, vectorAttributes, vectorHasEventNumbers);
+                        vectorId = -1;
+                    }
+                    parseDataLine(line, lineNumber, hasEventNumbers, handler);
+                    continue;
+                }
+
+                List<String> tokens = tokenize(line, lineNumber);
+                if (tokens.isEmpty())
+                    continue;
+                String keyword = tokens.get(0);
+                if (keyword.equals("attr") && tokens.size() >= 3) {
+                    if (vectorId != -1)
+                        vectorAttributes.put(tokens.get(1), tokens.get(2));
+                    else if (!runReported)
+                        runAttributes.put(tokens.get(1), tokens.get(2));
+                    continue;
+                }
+
+                if (vectorId != -1) {
+                    handler.vector(vectorId, moduleName, vectorName, vectorAttributes, vectorHasEventNumbers);
+                    vectorId = -1;
+                }
+
+                if (keyword.equals("run")) {
+                    if (runID != null)
+                        break; // only the first run
+                    runID = tokens.size() > 1 ? tokens.get(1) : "";
+                }
+                else if (keyword.equals("vector")) {
+                    if (!runReported) {
+                        handler.run(runID, runAttributes);
+                        runReported = true;
+                    }
+                    if (tokens.size() < 4)
+                        throw new IOException(fileName + ":" + lineNumber + ": invalid vector declaration");
+                    vectorId = Integer.parseInt(tokens.get(1));
+                    moduleName = tokens.get(2);
+                    vectorName = tokens.get(3);
+                    String columns = tokens.size() > 4 ? tokens.get(4) : "TV";
+                    vectorHasEventNumbers = columns.equals("ETV");
+                    if (!columns.equals("TV") && !vectorHasEventNumbers)
+                        throw new IOException(fileName + ":" + lineNumber + ": unsupported vector columns: " + columns);
+                    vectorAttributes = new LinkedHashMap<String,String>();
+                    hasEventNumbers.put(vectorId, vectorHasEventNumbers);
+                }
+                // other lines (version, itervar, param, config, ...) are ignored
+            }
+            if (vectorId != -1)
+                handler.vector(vectorId, moduleName, vectorName, vectorAttributes, vectorHasEventNumbers);
+            if (!runReported)
+                handler.run(runID, runAttributes);
+        }
+    }
+
+    private void parseDataLine(String line, int lineNumber, Map<Integer,Boolean> hasEventNumbers, Handler handler) throws IOException {
+        try {
+            int pos = line.indexOf(' ');
+            int vectorId = Integer.parseInt(line.substring(0, pos));
+            Boolean withEventNumbers = hasEventNumbers.get(vectorId);
+            if (withEventNumbers == null)
+                throw new IOException(fileName + ":" + lineNumber + ": undeclared vector " + vectorId);
+            long eventNumber = -1;
+            if (withEventNumbers) {
+                int next = line.indexOf(' ', pos + 1);
+                eventNumber = Long.parseLong(line.substring(pos + 1, next));
+                pos = next;
+            }
+            int next = line.indexOf(' ', pos + 1);
+            double time = Double.parseDouble(line.substring(pos + 1, next));
+            double value = parseDouble(line.substring(next + 1).trim());
+            handler.data(vectorId, eventNumber, time, value);
+        }
+        catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+            throw new IOException(fileName + ":" + lineNumber + ": invalid data line");
+        }
+    }
+
+    private static double parseDouble(String s) {
+        switch (s) {
+            case "nan": case "-nan": return Double.NaN;
+            case "inf": return Double.POSITIVE_INFINITY;
+            case "-inf": return Double.NEGATIVE_INFINITY;
+            default: return Double.parseDouble(s);
+        }
+    }
+
+    /**
+     * Splits the line at whitespace, handling quoted tokens (see OutputFileManager.q()).
+     */
+    private List<String> tokenize(String line, int lineNumber) throws IOException {
+        List<String> tokens = new ArrayList<String>();
+        int i = 0, n = line.length();
+        while (i < n) {
+            char ch = line.charAt(i);
+            if (ch == ' ' || ch == '\t') {
+                i++;
+                continue;
+            }
+            StringBuilder token = new StringBuilder();
+            if (ch == '"') {
+                i++;
+                while (true) {
+                    if (i >= n)
+                        throw new IOException(fileName + ":" + lineNumber + ": unterminated string");
+                    ch = line.charAt(i++);
+                    if (ch == '"')
+                        break;
+                    if (ch == '\\' && i < n) {
+                        ch = line.charAt(i++);
+                        switch (ch) {
+                            case 'b': token.append('\b'); break;
+                            case 'f': token.append('\f'); break;
+                            case 'n': token.append('\n'); break;
+                            case 'r': token.append('\r'); break;
+                            case 't': token.append('\t'); break;
+                            case 'x':
+                                if (i + 2 > n)
+                                    throw new IOException(fileName + ":" + lineNumber + ": invalid escape sequence");
+                                token.append((char)Integer.parseInt(line.substring(i, i + 2), 16));
+                                i += 2;
+                                break;
+                            default: token.append(ch);
+                        }
+                    }
+                    else
+                        token.append(ch);
+                }
+            }
+            else {
+                while (i < n && line.charAt(i) != ' ' && line.charAt(i) != '\t')
+                    token.append(line.charAt(i++));
+            }
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,98 @@
+package org.omnetpp.scave.writers.impl;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.omnetpp.scave.writers.IOutputVector;
+import org.omnetpp.scave.writers.ISimulationTimeProvider;
+import org.omnetpp.scave.writers.impl.BinaryVectorFileReader.BlockInfo;
+import org.omnetpp.scave.writers.impl.BinaryVectorFileReader.VectorData;
+import org.omnetpp.scave.writers.impl.BinaryVectorFileReader.VectorInfo;
+
+/**
+ * Converts between the text vector file format (FileOutputVectorManager) and
+ * the binary one (BinaryOutputVectorManager). Vector IDs may change. Event
+ * numbers are lost when converting to text, because FileOutputVectorManager
+ * does not record them.
+ *
+ * Usage: VectorFileConverter <inputfile> <outputfile>; the direction is
+ * determined from the contents of the input file.
+ */
+public class VectorFileConverter {
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: VectorFileConverter <inputfile> <outputfile>");
+            System.exit(1);
+        }
+        if (isBinaryVectorFile(args[0]))
+            binaryToText(args[0], args[1]);
+        else
+            textToBinary(args[0], args[1]);
+    }
+
+    public static boolean isBinaryVectorFile(String fileName) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(fileName, "r")) {
+            byte[] magic = new byte[BinaryVectorFormat.MAGIC.length];
+            return file.read(magic) == magic.length && Arrays.equals(magic, BinaryVectorFormat.MAGIC);
+        }
+    }
+
+    /**
+     * Converts a text vector file into a binary one. The text file's index file is not needed.
+     */
+    public static void textToBinary(String textFileName, String binaryFileName) throws IOException {
+        BinaryOutputVectorManager manager = new BinaryOutputVectorManager(binaryFileName);
+        long[] eventNumber = new long[1];
+        manager.setSimtimeProvider(new ISimulationTimeProvider() {
+            public long getEventNumber() { return eventNumber[0]; }
+            public Number getSimulationTime() { throw new UnsupportedOperationException(); }
+        });
+        Map<Integer,IOutputVector> vectors = new HashMap<Integer,IOutputVector>();
+
+        new TextVectorFileReader(textFileName).read(new TextVectorFileReader.Handler() {
+            public void run(String runID, Map<String,String> runAttributes) {
+                manager.open(runID, runAttributes);
+            }
+
+            public void vector(int id, String moduleName, String name, Map<String,String> attributes, boolean hasEventNumbers) {
+                manager.setRecordEventNumbers(hasEventNumbers);
+                vectors.put(id, manager.createVector(moduleName, name, attributes));
+            }
+
+            public void data(int vectorId, long eventNum, double time, double value) {
+                eventNumber[0] = eventNum;
+                vectors.get(vectorId).record(time, value);
+            }
+        });
+        manager.close();
+    }
+
+    /**
+     * Converts a binary vector file into a text vector file and its index.
+     */
+    public static void binaryToText(String binaryFileName, String textFileName) throws IOException {
+        try (BinaryVectorFileReader reader = new BinaryVectorFileReader(binaryFileName)) {
+            FileOutputVectorManager manager = new FileOutputVectorManager(textFileName);
+            manager.open(reader.getRunID(), reader.getRunAttributes());
+            Map<Integer,IOutputVector> vectors = new HashMap<Integer,IOutputVector>();
+            List<VectorInfo> vectorInfos = new ArrayList<VectorInfo>(reader.getVectors());
+            vectorInfos.sort((a, b) -> Integer.compare(a.id, b.id)); // so that IDs are preserved if they are contiguous
+            for (VectorInfo vector : vectorInfos)
+                vectors.put(vector.id, manager.createVector(vector.moduleName, vector.name, vector.attributes));
+
+            VectorData data = null;
+            for (BlockInfo block : reader.getBlocks()) {
+                data = reader.readBlock(block, data);
+                IOutputVector vector = vectors.get(block.vectorId);
+                for (int i = 0; i < data.count; i++)
+                    vector.record(data.times[i], data.values[i]);
+            }
+            manager.close();
+        }
+    }
+}
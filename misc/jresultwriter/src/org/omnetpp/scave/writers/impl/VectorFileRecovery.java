@@ -0,0 +1,247 @@
+package org.omnetpp.scave.writers.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Recovers a text vector file and its index after the simulation that wrote
+ * them with FileOutputVectorManager crashed or was killed, i.e. the files were
+ * not closed. Since index entries are written after the data they refer to,
+ * the index is read up to the last entry whose block is complete; the vector
+ * file is truncated after that block (this also removes the unused part of
+ * the last segment in memory-mapped mode), incomplete entries and
+ * declarations of vectors without blocks are removed from the end of the
+ * index, and the index gets the "file" line that is normally written on
+ * close, so that it is considered up to date.
+ *
+ * Only the blocks after the last "# checkpoint" line of the index (written in
+ * memory-mapped mode) are read and validated, because the data before the
+ * checkpoint is known to be on disk; without checkpoints, every block is.
+ * The vector file is never scanned as a whole.
+ *
+ * Usage: VectorFileRecovery <vectorfile>
+ */
+public class VectorFileRecovery {
+    public static class Result {
+        public boolean wasComplete; // the files were closed properly; nothing was done
+        public int numBlocks; // index entries kept
+        public int numBlocksValidated; // blocks whose data was checked
+        public int numBlocksDropped; // index entries removed
+        public long vectorFileSize; // after recovery
+        public long bytesDropped; // removed from the end of the vector file
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: VectorFileRecovery <vectorfile>");
+            System.exit(1);
+        }
+        Result result = recover(args[0]);
+        if (result.wasComplete)
+            System.out.println(args[0] + " is complete, nothing to do");
+        else
+            System.out.println("Recovered " + args[0] + ": " + result.numBlocks + " blocks kept (" + result.numBlocksValidated + " validated), "
+                    + result.numBlocksDropped + " index entries and " + result.bytesDropped + " bytes dropped, vector file size " + result.vectorFileSize);
+    }
+
+    public static Result recover(String vectorFileName) throws IOException {
+        File vectorFile = new File(vectorFileName);
+        File indexFile = new File(vectorFileName.replaceFirst("\\.[^./\\:]*$", "") + ".vci");
+        if (!indexFile.exists())
+            throw new IOException("Index file " + indexFile.getPath() + " not found");
+        byte[] index = Files.readAllBytes(indexFile.toPath());
+        Result result = new Result();
+
+        int firstLineEnd = indexOf(index, (byte)'\n', 0);
+        if (firstLineEnd == -1)
+            throw new IOException("Index file " + indexFile.getPath() + " is truncated");
+        String firstLine = new String(index, 0, firstLineEnd, StandardCharsets.US_ASCII).trim();
+        if (firstLine.startsWith("file ")) {
+            result.wasComplete = true;
+            return result;
+        }
+
+        long checkpointOffset = findLastCheckpoint(index); // the data before it is known to be on disk
+        long indexEnd = -1; // end of the last valid entry in the index
+        try (RandomAccessFile vec = new RandomAccessFile(vectorFile, "rw")) {
+            long vectorFileLength = vec.length();
+            long headerEnd = firstLineEnd + 1; // end of the run header in the index
+            long dataEnd = -1; // end of the last valid block in the vector file
+            Set<String> vectorIds = new HashSet<String>();
+            boolean valid = true;
+
+            for (int lineStart = firstLineEnd + 1; lineStart < index.length; ) {
+                int lineEnd = indexOf(index, (byte)'\n', lineStart);
+                if (lineEnd == -1)
+                    break; // incomplete last line
+                String line = new String(index, lineStart, lineEnd - lineStart, StandardCharsets.US_ASCII);
+                lineStart = lineEnd + 1;
+
+                if (!line.isEmpty() && Character.isDigit(line.charAt(0))) {
+                    // <id> <offset> <size> <startTime> <endTime> <count> <min> <max> <sum> <sqrSum>
+                    String[] fields = line.split(" ");
+                    valid = valid && fields.length == 10 && vectorIds.contains(fields[0]) &&
+                            isValidBlock(vec, vectorFileLength, fields, Math.max(dataEnd, 0), checkpointOffset, result);
+                    if (valid) {
+                        result.numBlocks++;
+                        indexEnd = lineEnd + 1;
+                        dataEnd = Long.parseLong(fields[1]) + Long.parseLong(fields[2]);
+                    }
+                    else
+                        result.numBlocksDropped++;
+                }
+                else if (line.startsWith("vector "))
+                    vectorIds.add(line.split(" ")[1]);
+                else if (vectorIds.isEmpty())
+                    headerEnd = lineEnd + 1;
+            }
+
+            if (indexEnd == -1) {
+                // no complete block: keep the run header only
+                indexEnd = headerEnd;
+                dataEnd = findHeaderEnd(vec);
+            }
+            result.vectorFileSize = dataEnd;
+            result.bytesDropped = vectorFileLength - dataEnd;
+            vec.setLength(dataEnd);
+            vec.getFD().sync();
+        }
+
+        // truncate the index, and add the "file" line that marks it as up to date
+        try (RandomAccessFile vci = new RandomAccessFile(indexFile, "rw")) {
+            String fileLine = "file " + vectorFile.length() + " " + vectorFile.lastModified()/1000;
+            if (fileLine.length() > firstLineEnd)
+                throw new IOException("No room for the file line in index file " + indexFile.getPath());
+            vci.setLength(indexEnd);
+            vci.seek(0);
+            vci.write(fileLine.getBytes(StandardCharsets.US_ASCII));
+            vci.getFD().sync();
+        }
+        return result;
+    }
+
+    /**
+     * Returns the vector file offset in the last complete checkpoint line of the index, or -1.
+     */
+    private static long findLastCheckpoint(byte[] index) {
+        int end = index.length;
+        while (end > 0 && index[end - 1] != '\n')
+            end--; // skip incomplete last line
+        byte[] prefix = "# checkpoint ".getBytes(StandardCharsets.US_ASCII);
+        for (int lineEnd = end - 1; lineEnd > 0; ) {
+            int lineStart = lineEnd;
+            while (lineStart > 0 && index[lineStart - 1] != '\n')
+                lineStart--;
+            if (startsWith(index, lineStart, prefix)) {
+                try {
+                    return Long.parseLong(new String(index, lineStart + prefix.length, lineEnd - lineStart - prefix.length, StandardCharsets.US_ASCII));
+                }
+                catch (NumberFormatException e) {
+                    return -1;
+                }
+            }
+            lineEnd = lineStart - 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Checks that the index entry is well-formed and follows the previous
+     * block. If the block may not be complete (i.e. it extends beyond the last
+     * checkpoint), also reads it, and checks that it consists of the given
+     * number of complete lines of the vector, with the given start and end times.
+     */
+    private static boolean isValidBlock(RandomAccessFile vec, long vectorFileLength, String[] fields, long previousEnd, long checkpointOffset, Result result) throws IOException {
+        long offset, size, count;
+        try {
+            offset = Long.parseLong(fields[1]);
+            size = Long.parseLong(fields[2]);
+            count = Long.parseLong(fields[5]);
+        }
+        catch (NumberFormatException e) {
+            return false;
+        }
+        if (offset < previousEnd || size <= 0 || count <= 0 || offset + size > vectorFileLength)
+            return false;
+        if (offset + size <= checkpointOffset)
+            return true;
+        if (size > Integer.MAX_VALUE)
+            return false;
+
+        result.numBlocksValidated++;
+        byte[] data = new byte[(int)size];
+        vec.seek(offset);
+        vec.readFully(data);
+        byte[] prefix = (fields[0] + " ").getBytes(StandardCharsets.US_ASCII);
+        int numLines = 0;
+        String firstTime = null, lastTime = null;
+        for (int lineStart = 0; lineStart < data.length; ) {
+            int lineEnd = indexOf(data, (byte)'\n', lineStart);
+            if (lineEnd == -1 || indexOf(data, (byte)0, lineStart, lineEnd) != -1 || !startsWith(data, lineStart, prefix))
+                return false;
+            int timeEnd = indexOf(data, (byte)' ', lineStart + prefix.length, lineEnd);
+            if (timeEnd == -1)
+                return false;
+            lastTime = new String(data, lineStart + prefix.length, timeEnd - lineStart - prefix.length, StandardCharsets.US_ASCII);
+            if (firstTime == null)
+                firstTime = lastTime;
+            numLines++;
+            lineStart = lineEnd + 1;
+        }
+        return numLines == count && fields[3].equals(firstTime) && fields[4].equals(lastTime);
+    }
+
+    /**
+     * Returns the end of the run header at the beginning of the vector file,
+     * i.e. the start of the first line that is a vector declaration,
+     * incomplete, or contains zero bytes (unwritten part of a mapped segment).
+     */
+    private static long findHeaderEnd(RandomAccessFile vec) throws IOException {
+        byte[] buffer = new byte[65536];
+        vec.seek(0);
+        StringBuilder line = new StringBuilder();
+        long lineStart = 0, position = 0;
+        int n;
+        while ((n = vec.read(buffer)) > 0) {
+            for (int i = 0; i < n; i++, position++) {
+                byte b = buffer[i];
+                if (b == 0)
+                    return lineStart;
+                if (b != '\n') {
+                    line.append((char)b);
+                    continue;
+                }
+                if (line.toString().startsWith("vector "))
+                    return lineStart;
+                line.setLength(0);
+                lineStart = position + 1;
+            }
+        }
+        return lineStart;
+    }
+
+    private static boolean startsWith(byte[] data, int offset, byte[] prefix) {
+        if (offset + prefix.length > data.length)
+            return false;
+        for (int i = 0; i < prefix.length; i++)
+            if (data[offset + i] != prefix[i])
+                return false;
+        return true;
+    }
+
+    private static int indexOf(byte[] data, byte b, int from) {
+        return indexOf(data, b, from, data.length);
+    }
+
+    private static int indexOf(byte[] data, byte b, int from, int to) {
+        for (int i = from; i < to; i++)
+            if (data[i] == b)
+                return i;
+        return -1;
+    }
+}
@@ -0,0 +1,75 @@
+package org.omnetpp.scave.writers.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.omnetpp.scave.writers.IOutputVector;
+import org.omnetpp.scave.writers.impl.FileOutputVectorManager;
+
+/**
+ * Checks that FileOutputVectorManager produces the same files in
+ * asynchronous mode as in synchronous mode.
+ */
+public class AsyncWriterTest {
+    public static void main(String[] args) throws IOException {
+        record("sync.vec", false);
+        record("async.vec", true);
+
+        boolean ok = true;
+        ok &= compare("sync.vec", "async.vec", 0);
+        ok &= compare("sync.vci", "async.vci", 1); // first line contains the vector file's timestamp
+
+        if (ok)
+            for (String name : new String[] {"sync.vec", "sync.vci", "async.vec", "async.vci"})
+                new File(name).delete();
+
+        System.out.println(ok ? "PASS" : "FAIL");
+        if (!ok)
+            System.exit(1);
+    }
+
+    private static void record(String fileName, boolean asynchronous) {
+        FileOutputVectorManager manager = new FileOutputVectorManager(fileName);
+        manager.setAsynchronous(asynchronous);
+        manager.setWriteQueueCapacity(4); // exercise back-pressure
+        manager.setPerVectorBufferLimit(100);
+        manager.setTotalBufferLimit(1000);
+        Map<String, String> runAttributes = new HashMap<String, String>();
+        runAttributes.put("network", "Test");
+        manager.open("test-run", runAttributes);
+
+        Random random = new Random(42);
+        int numVectors = 50;
+        IOutputVector[] vectors = new IOutputVector[numVectors];
+        for (int i = 0; i < numVectors; i++)
+            vectors[i] = manager.createVector("net.host[" + i + "]", "delay", null);
+        IOutputVector exact = manager.createVector("net", "exact times", null);
+
+        double t = 0;
+        for (int i = 0; i < 200000; i++) {
+            t += random.nextDouble() * 0.01;
+            vectors[random.nextInt(numVectors)].record(t, random.nextGaussian());
+            if (i % 1000 == 0)
+                exact.record(new BigDecimal(t).setScale(18, RoundingMode.DOWN), i);
+            if (i == 100000)
+                manager.flush();
+        }
+        vectors[0].close();
+        manager.close();
+    }
+
+    private static boolean compare(String file1, String file2, int skipLines) throws IOException {
+        String[] lines1 = new String(Files.readAllBytes(new File(file1).toPath())).split("\n", -1);
+        String[] lines2 = new String(Files.readAllBytes(new File(file2).toPath())).split("\n", -1);
+        boolean same = Arrays.equals(Arrays.copyOfRange(lines1, skipLines, lines1.length), Arrays.copyOfRange(lines2, skipLines, lines2.length));
+        System.out.println(file1 + " vs " + file2 + ": " + (same ? "identical" : "DIFFERENT") + " (" + lines1.length + " lines)");
+        return same;
+    }
+}
@@ -0,0 +1,265 @@
+package org.omnetpp.scave.writers.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * A small benchmark harness in the style of JMH, usable without any
+ * dependencies. Every benchmark is run for a number of warmup iterations and
+ * measurement iterations of fixed duration; the score is the mean over the
+ * measurement iterations with a 99.9% confidence interval, as in JMH.
+ * Memory allocated by the benchmark thread is reported per operation and
+ * per second (threads the benchmark starts are not accounted).
+ *
+ * Results can be written in the JSON format of JMH ("-rf json"), so that
+ * runs can be compared with tools made for JMH.
+ */
+public class BenchmarkHarness {
+    public enum Mode {
+        THROUGHPUT("thrpt"), AVERAGE_TIME("avgt");
+
+        final String shortName;
+
+        Mode(String shortName) {
+            this.shortName = shortName;
+        }
+    }
+
+    public interface Benchmark {
+        /**
+         * Called once before the warmup iterations.
+         */
+        default void setUp() throws Exception {}
+
+        /**
+         * Called before every invocation of run(); not included in the measurement.
+         */
+        default void prepare() throws Exception {}
+
+        /**
+         * Performs the measured operations, and returns their number.
+         */
+        long run() throws Exception;
+
+        /**
+         * Called once after the measurement iterations.
+         */
+        default void tearDown() throws Exception {}
+    }
+
+    static class Result {
+        String name;
+        Map<String,String> params;
+        Mode mode;
+        TimeUnit timeUnit;
+        double[] scores;
+        double score;
+        double scoreError;
+        double allocatedBytesPerOp;
+        double allocationRate; // MB/s
+
+        String getScoreUnit() {
+            String unit = timeUnitName(timeUnit);
+            return mode == Mode.THROUGHPUT ? "ops/" + unit : unit + "/op";
+        }
+    }
+
+    private int warmupIterations = 3;
+    private int measurementIterations = 5;
+    private double iterationSeconds = 1.0;
+    private Pattern filter = null;
+    private final List<Result> results = new ArrayList<Result>();
+    private final com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+
+    /**
+     * Accepts a subset of the JMH command-line options: -wi (warmup iterations),
+     * -i (measurement iterations), -r (iteration time in seconds), -rff (result
+     * file), and a regex that selects benchmarks by name. Returns the result
+     * file name, or null.
+     */
+    public String parseArgs(String[] args) {
+        String resultFile = null;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("-wi") && i + 1 < args.length)
+                warmupIterations = Integer.parseInt(args[++i]);
+            else if (arg.equals("-i") && i + 1 < args.length)
+                measurementIterations = Integer.parseInt(args[++i]);
+            else if (arg.equals("-r") && i + 1 < args.length)
+                iterationSeconds = Double.parseDouble(args[++i].replaceAll("s$", ""));
+            else if (arg.equals("-rff") && i + 1 < args.length)
+                resultFile = args[++i];
+            else if (arg.startsWith("-"))
+                throw new IllegalArgumentException("Unknown option: " + arg);
+            else
+                filter = Pattern.compile(arg);
+        }
+        if (measurementIterations < 1 || warmupIterations < 0 || !(iterationSeconds > 0))
+            throw new IllegalArgumentException("Invalid iteration settings");
+        return resultFile;
+    }
+
+    /**
+     * Runs the benchmark unless it is filtered out, and prints its result.
+     */
+    public void run(String name, Map<String,String> params, Mode mode, TimeUnit timeUnit, Benchmark benchmark) throws Exception {
+        String label = name + (params.isEmpty() ? "" : ":" + params);
+        if (filter != null && !filter.matcher(name).find())
+            return;
+        System.out.println("# Benchmark: " + label);
+
+        Result result = new Result();
+        result.name = name;
+        result.params = new LinkedHashMap<String,String>(params);
+        result.mode = mode;
+        result.timeUnit = timeUnit;
+        result.scores = new double[measurementIterations];
+        double nanosPerUnit = timeUnit.toNanos(1);
+        long threadId = Thread.currentThread().getId();
+        long totalOps = 0, totalAllocated = 0, totalNanos = 0;
+
+        benchmark.setUp();
+        try {
+            for (int iteration = 0; iteration < warmupIterations + measurementIterations; iteration++) {
+                boolean warmup = iteration < warmupIterations;
+                long ops = 0, nanos = 0, allocated = 0;
+                long deadline = System.nanoTime() + (long)(iterationSeconds * 1e9);
+                do {
+                    benchmark.prepare();
+                    long allocatedBefore = threadBean.getThreadAllocatedBytes(threadId);
+                    long startTime = System.nanoTime();
+                    ops += benchmark.run();
+                    long endTime = System.nanoTime();
+                    allocated += threadBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+                    nanos += endTime - startTime;
+                } while (System.nanoTime() < deadline);
+
+                double score = mode == Mode.THROUGHPUT ? ops / (nanos / nanosPerUnit) : nanos / nanosPerUnit / ops;
+                System.out.printf("%s %2d: %.3f %s%n", warmup ? "# Warmup Iteration" : "Iteration        ", warmup ? iteration + 1 : iteration - warmupIterations + 1, score, result.getScoreUnit());
+                if (!warmup) {
+                    result.scores[iteration - warmupIterations] = score;
+                    totalOps += ops;
+                    totalNanos += nanos;
+                    totalAllocated += allocated;
+                }
+            }
+        }
+        finally {
+            benchmark.tearDown();
+        }
+
+        int n = result.scores.length;
+        double sum = 0, sqrSum = 0;
+        for (double score : result.scores) {
+            sum += score;
+            sqrSum += score * score;
+        }
+        result.score = sum / n;
+        result.scoreError = n < 2 ? Double.NaN : studentT999(n - 1) * Math.sqrt(Math.max(0, (sqrSum - sum * sum / n) / (n - 1)) / n);
+        result.allocatedBytesPerOp = totalAllocated / (double)totalOps;
+        result.allocationRate = totalAllocated / 1e6 / (totalNanos / 1e9);
+        results.add(result);
+        System.out.printf("Result: %.3f +-(99.9%%) %.3f %s, allocation: %.1f B/op, %.1f MB/s%n%n", result.score, result.scoreError, result.getScoreUnit(), result.allocatedBytesPerOp, result.allocationRate);
+    }
+
+    /**
+     * Returns the 99.95th percentile of Student's t distribution (two-sided 99.9%).
+     */
+    private static double studentT999(int df) {
+        final double[] table = {636.619, 31.599, 12.924, 8.610, 6.869, 5.959, 5.408, 5.041, 4.781, 4.587};
+        if (df <= table.length)
+            return table[df - 1];
+        // Cornish-Fisher expansion around the normal quantile
+        double z = 3.2905;
+        return z + (z*z*z + z) / (4 * df) + (5*Math.pow(z, 5) + 16*z*z*z + 3*z) / (96.0 * df * df);
+    }
+
+    public void printSummary() {
+        System.out.printf("%-24s %-36s %5s %14s %14s %-6s %12s%n", "Benchmark", "Params", "Mode", "Score", "Error", "Units", "Alloc B/op");
+        for (Result r : results)
+            System.out.printf("%-24s %-36s %5s %14.3f %14.3f %-6s %12.1f%n", r.name, r.params.isEmpty() ? "" : r.params.toString(),
+                    r.mode.shortName, r.score, r.scoreError, r.getScoreUnit(), r.allocatedBytesPerOp);
+    }
+
+    /**
+     * Writes the results in the JSON format of JMH.
+     */
+    public void writeJson(String fileName) throws IOException {
+        try (PrintStream out = new PrintStream(new File(fileName), "UTF-8")) {
+            out.println("[");
+            for (int i = 0; i < results.size(); i++) {
+                Result r = results.get(i);
+                out.println("    {");
+                out.println("        \"benchmark\" : " + json(r.name) + ",");
+                out.println("        \"mode\" : " + json(r.mode.shortName) + ",");
+                out.println("        \"threads\" : 1,");
+                out.println("        \"forks\" : 1,");
+                out.println("        \"jvm\" : " + json(System.getProperty("java.home")) + ",");
+                out.println("        \"jdkVersion\" : " + json(System.getProperty("java.version")) + ",");
+                out.println("        \"warmupIterations\" : " + warmupIterations + ",");
+                out.println("        \"warmupTime\" : " + json(iterationSeconds + " s") + ",");
+                out.println("        \"measurementIterations\" : " + measurementIterations + ",");
+                out.println("        \"measurementTime\" : " + json(iterationSeconds + " s") + ",");
+                if (!r.params.isEmpty()) {
+                    out.println("        \"params\" : {");
+                    int k = 0;
+                    for (Map.Entry<String,String> e : r.params.entrySet())
+                        out.println("            " + json(e.getKey()) + " : " + json(e.getValue()) + (++k < r.params.size() ? "," : ""));
+                    out.println("        },");
+                }
+                out.println("        \"primaryMetric\" : {");
+                out.println("            \"score\" : " + number(r.score) + ",");
+                out.println("            \"scoreError\" : " + number(r.scoreError) + ",");
+                out.println("            \"scoreUnit\" : " + json(r.getScoreUnit()) + ",");
+                StringBuilder rawData = new StringBuilder();
+                for (int k = 0; k < r.scores.length; k++)
+                    rawData.append(k == 0 ? "" : ", ").append(number(r.scores[k]));
+                out.println("            \"rawData\" : [ [ " + rawData + " ] ]");
+                out.println("        },");
+                out.println("        \"secondaryMetrics\" : {");
+                out.println("            \"\u00b7gc.alloc.rate\" : { \"score\" : " + number(r.allocationRate) + ", \"scoreUnit\" : \"MB/sec\" },");
+                out.println("            \"\u00b7gc.alloc.rate.norm\" : { \"score\" : " + number(r.allocatedBytesPerOp) + ", \"scoreUnit\" : \"B/op\" }");
+                out.println("        }");
+                out.println("    }" + (i + 1 < results.size() ? "," : ""));
+            }
+            out.println("]");
+        }
+    }
+
+    private static String number(double d) {
+        return Double.isFinite(d) ? String.valueOf(d) : "\"" + d + "\"";
+    }
+
+    private static String json(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : s.toCharArray()) {
+            if (c == '"' || c == '\\')
+                sb.append('\\').append(c);
+            else if (c < 0x20)
+                sb.append(String.format("\\u%04x", (int)c));
+            else
+                sb.append(c);
+        }
+        return sb.append('"').toString();
+    }
+
+    private static String timeUnitName(TimeUnit unit) {
+        switch (unit) {
+            case NANOSECONDS: return "ns";
+            case MICROSECONDS: return "us";
+            case MILLISECONDS: return "ms";
+            case SECONDS: return "s";
+            case MINUTES: return "min";
+            case HOURS: return "hr";
+            default: return "day";
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package org.omnetpp.scave.writers.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.omnetpp.scave.writers.IOutputVector;
+import org.omnetpp.scave.writers.ISimulationTimeProvider;
+import org.omnetpp.scave.writers.impl.BinaryOutputVectorManager;
+import org.omnetpp.scave.writers.impl.BinaryVectorFileReader;
+import org.omnetpp.scave.writers.impl.BinaryVectorFileReader.VectorData;
+import org.omnetpp.scave.writers.impl.BinaryVectorFileReader.VectorInfo;
+import org.omnetpp.scave.writers.impl.VectorFileConverter;
+
+/**
+ * Checks that BinaryOutputVectorManager files read back exactly, that
+ * conversion to text and back preserves the data, and that files that
+ * were not closed can be read.
+ */
+public class BinaryVectorFileTest {
+    static long eventNumber = 0;
+    static boolean ok = true;
+
+    public static void main(String[] args) throws IOException {
+        int numVectors = 5;
+        List<List<double[]>> expected = new ArrayList<List<double[]>>(); // per vector: {event, time, value}
+        for (int i = 0; i < numVectors; i++)
+            expected.add(new ArrayList<double[]>());
+
+        BinaryOutputVectorManager manager = new BinaryOutputVectorManager("test.bvec");
+        manager.setPerVectorBufferLimit(500);
+        manager.setSimtimeProvider(new ISimulationTimeProvider() {
+            public long getEventNumber() { return eventNumber; }
+            public Number getSimulationTime() { return 0.0; }
+        });
+        Map<String, String> runAttributes = new HashMap<String, String>();
+        runAttributes.put("network", "Test");
+        manager.open("test-run", runAttributes);
+        IOutputVector[] vectors = new IOutputVector[numVectors];
+        for (int i = 0; i < numVectors; i++) {
+            manager.setRecordEventNumbers(i % 2 == 0);
+            Map<String, String> attributes = new HashMap<String, String>();
+            attributes.put("unit", "s");
+            vectors[i] = manager.createVector("net.host[" + i + "]", "vector " + i, attributes);
+        }
+
+        Random random = new Random(1);
+        double t = 0;
+        long ticks = 0;
+        for (int k = 0; k < 100000; k++) {
+            eventNumber += 1 + random.nextInt(3);
+            int i = random.nextInt(numVectors);
+            double time, value;
+            switch (i) {
+                case 0: ticks += random.nextInt(1000); time = ticks / 1e6; value = random.nextInt(20); break; // fixed-point times, small integers
+                case 1: t += random.nextDouble(); time = t; value = random.nextGaussian(); break; // arbitrary doubles
+                case 2: time = Math.max(t, ticks / 1e6); value = k % 100 == 0 ? Double.NaN : k % 101 == 0 ? Double.NEGATIVE_INFINITY : -0.0; break;
+                default: time = Math.max(t, ticks / 1e6); value = Double.longBitsToDouble(random.nextLong()); break; // incompressible
+            }
+            if (i == 4 && k % 7 == 0) {
+                BigDecimal exact = ticks / 1e6 >= t ? new BigDecimal(ticks).movePointLeft(6) : new BigDecimal(t);
+                time = exact.doubleValue();
+                vectors[i].record(exact, value);
+            }
+            else
+                vectors[i].record(time, value);
+            expected.get(i).add(new double[] {eventNumber, time, value});
+        }
+        manager.flush();
+        File copy = new File("test-unclosed.bvec");
+        Files.copy(new File("test.bvec").toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        manager.close();
+
+        // read back
+        try (BinaryVectorFileReader reader = new BinaryVectorFileReader("test.bvec")) {
+            check("index complete", reader.isIndexComplete());
+            check("run ID", reader.getRunID().equals("test-run"));
+            check("run attributes", reader.getRunAttributes().equals(runAttributes));
+            check("number of vectors", reader.getVectors().size() == numVectors);
+            for (VectorInfo vector : reader.getVectors()) {
+                int i = vector.id - 1;
+                check("vector name", vector.name.equals("vector " + i) && vector.moduleName.equals("net.host[" + i + "]") && vector.attributes.get("unit").equals("s"));
+                check("event numbers flag", vector.hasEventNumbers == (i % 2 == 0));
+                compare("vector " + i, expected.get(i), reader.readVector(vector.id), vector.hasEventNumbers);
+            }
+        }
+
+        // unclosed file (no index), also truncated in the middle of a block
+        try (RandomAccessFile file = new RandomAccessFile(copy, "rw")) {
+            file.setLength(file.length() - 100);
+        }
+        try (BinaryVectorFileReader reader = new BinaryVectorFileReader(copy.getPath())) {
+            check("index incomplete", !reader.isIndexComplete());
+            check("vectors of unclosed file", reader.getVectors().size() == numVectors);
+            for (VectorInfo vector : reader.getVectors()) {
+                VectorData data = reader.readVector(vector.id);
+                List<double[]> prefix = expected.get(vector.id - 1).subList(0, data.count);
+                compare("unclosed vector " + vector.id, prefix, data, vector.hasEventNumbers);
+            }
+        }
+
+        // conversion to text and back (event numbers are lost)
+        VectorFileConverter.binaryToText("test.bvec", "test.vec");
+        VectorFileConverter.textToBinary("test.vec", "test2.bvec");
+        try (BinaryVectorFileReader reader = new BinaryVectorFileReader("test2.bvec")) {
+            check("converted run ID", reader.getRunID().equals("test-run"));
+            for (VectorInfo vector : reader.getVectors()) {
+                int i = Integer.parseInt(vector.name.substring("vector ".length()));
+                compare("converted vector " + i, expected.get(i), reader.readVector(vector.id), false);
+            }
+        }
+
+        for (String name : new String[] {"test.bvec", "test-unclosed.bvec", "test.vec", "test.vci", "test2.bvec"})
+            new File(name).delete();
+
+        System.out.println(ok ? "PASS" : "FAIL");
+        if (!ok)
+            System.exit(1);
+    }
+
+    private static void compare(String label, List<double[]> expected, VectorData actual, boolean withEventNumbers) {
+        boolean same = expected.size() == actual.count;
+        for (int j = 0; same && j < actual.count; j++) {
+            double[] e = expected.get(j);
+            same = Double.doubleToRawLongBits(e[1]) == Double.doubleToRawLongBits(actual.times[j]) &&
+                    (Double.doubleToRawLongBits(e[2]) == Double.doubleToRawLongBits(actual.values[j]) || (Double.isNaN(e[2]) && Double.isNaN(actual.values[j]))) &&
+                    (!withEventNumbers || e[0] == actual.eventNumbers[j]);
+            if (!same)
+                System.out.println(label + ": mismatch at sample " + j);
+        }
+        check(label + " (" + actual.count + " samples)", same);
+    }
+
+    private static void check(String label, boolean condition) {
+        if (!condition) {
+            System.out.println("FAILED: " + label);
+            ok = false;
+        }
+    }
+}
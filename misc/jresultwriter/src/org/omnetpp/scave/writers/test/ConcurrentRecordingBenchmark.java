@@ -0,0 +1,81 @@
+package org.omnetpp.scave.writers.test;
+
+import java.io.File;
+import java.util.concurrent.CyclicBarrier;
+
+import org.omnetpp.scave.writers.IOutputVector;
+import org.omnetpp.scave.writers.impl.FileOutputVectorManager;
+
+/**
+ * Measures how the recording throughput of FileOutputVectorManager in
+ * concurrent mode scales with the number of recording threads. Every thread
+ * records the same number of samples into its own vectors; the time includes
+ * closing the manager, i.e. writing out everything. Speedup is relative to
+ * one recording thread, so the results are only meaningful on a machine with
+ * at least as many cores as threads (plus one for the writer thread).
+ *
+ * Usage: ConcurrentRecordingBenchmark [samplesPerThread [vectorsPerThread [maxThreads]]]
+ */
+public class ConcurrentRecordingBenchmark {
+    private static final int REPETITIONS = 3;
+
+    public static void main(String[] args) throws Exception {
+        int samplesPerThread = args.length > 0 ? Integer.parseInt(args[0]) : 2000000;
+        int vectorsPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+
+        System.out.println("Recording " + samplesPerThread + " samples into " + vectorsPerThread + " vectors per thread, "
+                + Runtime.getRuntime().availableProcessors() + " processors available");
+        record(1, samplesPerThread, vectorsPerThread); // warm-up
+        System.out.printf("%8s %14s %10s %11s%n", "threads", "Msamples/s", "speedup", "efficiency");
+        double baseline = 0;
+        for (int numThreads = 1; numThreads <= maxThreads; numThreads *= 2) {
+            double best = 0;
+            for (int rep = 0; rep < REPETITIONS; rep++)
+                best = Math.max(best, record(numThreads, samplesPerThread, vectorsPerThread));
+            if (numThreads == 1)
+                baseline = best;
+            System.out.printf("%8d %14.2f %10.2f %10.0f%%%n", numThreads, best / 1e6, best / baseline, 100 * best / baseline / numThreads);
+        }
+        new File("bench.vec").delete();
+        new File("bench.vci").delete();
+    }
+
+    /**
+     * Returns the throughput in samples per second.
+     */
+    private static double record(int numThreads, int samplesPerThread, int vectorsPerThread) throws Exception {
+        FileOutputVectorManager manager = new FileOutputVectorManager("bench.vec");
+        manager.setConcurrent(true);
+        manager.open("bench", null);
+        CyclicBarrier barrier = new CyclicBarrier(numThreads + 1);
+        Thread[] threads = new Thread[numThreads];
+        for (int t = 0; t < numThreads; t++) {
+            int thread = t;
+            threads[t] = new Thread(() -> {
+                IOutputVector[] vectors = new IOutputVector[vectorsPerThread];
+                for (int i = 0; i < vectorsPerThread; i++)
+                    vectors[i] = manager.createVector("net.part[" + thread + "].node[" + i + "]", "delay", null);
+                try {
+                    barrier.await();
+                }
+                catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+                double time = 0;
+                for (int i = 0; i < samplesPerThread; i++) {
+                    time += 0.001;
+                    vectors[i % vectorsPerThread].record(time, 0.1 + (i % 1000) * 0.037);
+                }
+            });
+            threads[t].start();
+        }
+        barrier.await();
+        long startTime = System.nanoTime();
+        for (Thread thread : threads)
+            thread.join();
+        manager.close();
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        return (double)numThreads * samplesPerThread / seconds;
+    }
+}
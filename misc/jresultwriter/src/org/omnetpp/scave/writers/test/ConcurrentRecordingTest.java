@@ -0,0 +1,150 @@
+package org.omnetpp.scave.writers.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.omnetpp.scave.writers.IOutputVector;
+import org.omnetpp.scave.writers.impl.FileOutputVectorManager;
+
+/**
+ * Records vectors from several threads at once with FileOutputVectorManager
+ * in concurrent mode, while another thread keeps flushing the manager, then
+ * checks that the vector file contains every sample of every vector in order,
+ * that vector IDs are unique, and that every index entry describes exactly
+ * the lines at its offset.
+ */
+public class ConcurrentRecordingTest {
+    static final int NUM_THREADS = 8;
+    static final int VECTORS_PER_THREAD = 20;
+    static final int SAMPLES_PER_THREAD = 100000;
+
+    static boolean ok = true;
+
+    public static void main(String[] args) throws Exception {
+        FileOutputVectorManager manager = new FileOutputVectorManager("concurrent.vec");
+        manager.setConcurrent(true);
+        manager.setWriteQueueCapacity(4); // exercise back-pressure
+        manager.setPerVectorBufferLimit(100);
+        manager.setTotalBufferLimit(500);
+        manager.open("test-run", null);
+
+        // each thread creates its own vectors, and records sample k of a vector as (k/1000, k)
+        Map<String,Integer> expectedCounts = new HashMap<String,Integer>();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < NUM_THREADS; t++) {
+            int thread = t;
+            for (int v = 0; v < VECTORS_PER_THREAD; v++)
+                expectedCounts.put("net.part[" + thread + "].node[" + v + "]", 0);
+            threads.add(new Thread(() -> {
+                Random random = new Random(thread);
+                IOutputVector[] vectors = new IOutputVector[VECTORS_PER_THREAD];
+                int[] counts = new int[VECTORS_PER_THREAD];
+                for (int v = 0; v < VECTORS_PER_THREAD; v++)
+                    vectors[v] = manager.createVector("net.part[" + thread + "].node[" + v + "]", "delay", null);
+                for (int i = 0; i < SAMPLES_PER_THREAD; i++) {
+                    int v = random.nextInt(VECTORS_PER_THREAD);
+                    vectors[v].record(counts[v] / 1000.0, counts[v]);
+                    counts[v]++;
+                }
+                synchronized (expectedCounts) {
+                    for (int v = 0; v < VECTORS_PER_THREAD; v++)
+                        expectedCounts.put("net.part[" + thread + "].node[" + v + "]", counts[v]);
+                }
+            }));
+        }
+
+        AtomicBoolean done = new AtomicBoolean(false);
+        Thread flusher = new Thread(() -> {
+            while (!done.get())
+                manager.flush();
+        });
+        flusher.start();
+        for (Thread thread : threads)
+            thread.start();
+        for (Thread thread : threads)
+            thread.join();
+        done.set(true);
+        flusher.join();
+        manager.close();
+
+        verify("concurrent.vec", "concurrent.vci", expectedCounts);
+
+        if (ok) {
+            new File("concurrent.vec").delete();
+            new File("concurrent.vci").delete();
+        }
+        System.out.println(ok ? "PASS" : "FAIL");
+        if (!ok)
+            System.exit(1);
+    }
+
+    private static void verify(String vecFileName, String vciFileName, Map<String,Integer> expectedCounts) throws IOException {
+        byte[] vec = Files.readAllBytes(new File(vecFileName).toPath());
+        String[] lines = new String(vec, StandardCharsets.US_ASCII).split("\n");
+
+        // vector declarations and data lines
+        Map<String,String> componentOfId = new HashMap<String,String>();
+        Map<String,Integer> counts = new HashMap<String,Integer>();
+        for (String line : lines) {
+            String[] fields = line.split(" ");
+            if (line.startsWith("vector ")) {
+                check("unique vector ID " + fields[1], componentOfId.put(fields[1], fields[2]) == null);
+                counts.put(fields[1], 0);
+            }
+            else if (!line.isEmpty() && Character.isDigit(line.charAt(0))) {
+                Integer count = counts.get(fields[0]);
+                check("data line after vector declaration: " + line, count != null);
+                if (count == null)
+                    continue;
+                check("samples in order: " + line, fields.length == 3 && Double.parseDouble(fields[1]) == count / 1000.0 && Integer.parseInt(fields[2]) == count);
+                counts.put(fields[0], count + 1);
+            }
+        }
+        check("number of vectors", componentOfId.size() == expectedCounts.size());
+        for (Map.Entry<String,String> e : componentOfId.entrySet())
+            check("all samples of " + e.getValue(), counts.get(e.getKey()).equals(expectedCounts.get(e.getValue())));
+
+        // index entries
+        String[] indexLines = new String(Files.readAllBytes(new File(vciFileName).toPath()), StandardCharsets.US_ASCII).split("\n");
+        check("vector file size in index", indexLines[0].trim().startsWith("file " + vec.length + " "));
+        Map<String,Integer> indexedCounts = new HashMap<String,Integer>();
+        Set<Long> offsets = new HashSet<Long>();
+        for (String line : indexLines) {
+            if (line.isEmpty() || !Character.isDigit(line.charAt(0)))
+                continue;
+            // <id> <offset> <size> <startTime> <endTime> <count> <min> <max> <sum> <sqrSum>
+            String[] fields = line.split(" ");
+            long offset = Long.parseLong(fields[1]);
+            int size = Integer.parseInt(fields[2]);
+            int count = Integer.parseInt(fields[5]);
+            check("distinct block offsets", offsets.add(offset));
+            check("block within file", offset >= 0 && offset + size <= vec.length);
+            if (offset < 0 || offset + size > vec.length)
+                continue;
+            String[] blockLines = new String(vec, (int)offset, size, StandardCharsets.US_ASCII).split("\n");
+            check("block line count: " + line, blockLines.length == count && vec[(int)offset + size - 1] == '\n');
+            for (String blockLine : blockLines)
+                check("block belongs to vector: " + line, blockLine.startsWith(fields[0] + " "));
+            check("block start time: " + line, blockLines[0].split(" ")[1].equals(fields[3]));
+            check("block end time: " + line, blockLines[blockLines.length - 1].split(" ")[1].equals(fields[4]));
+            indexedCounts.merge(fields[0], count, Integer::sum);
+        }
+        check("index covers all samples", indexedCounts.equals(counts));
+    }
+
+    private static void check(String label, boolean condition) {
+        if (!condition && ok) // only report the first failure, there may be many
+            System.out.println("FAILED: " + label);
+        ok &= condition;
+    }
+}
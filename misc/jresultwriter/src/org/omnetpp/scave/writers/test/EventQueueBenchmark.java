@@ -0,0 +1,199 @@
+package org.omnetpp.scave.writers.test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.omnetpp.scave.writers.example.Event;
+import org.omnetpp.scave.writers.example.EventPool;
+import org.omnetpp.scave.writers.example.EventQueue;
+
+/**
+ * Measures the example simulation kernel's event queue with the "hold"
+ * model: a fixed number of pending events, where executing an event schedules
+ * a new (pooled) one at a random future time. Compares it with the
+ * java.util.PriorityQueue the kernel used before, also for cancellation.
+ * Checks FIFO ordering of events with equal times, and that cancelled events
+ * are not executed.
+ *
+ * Usage: EventQueueBenchmark [numPendingEvents]
+ */
+public class EventQueueBenchmark {
+    static boolean ok = true;
+
+    static class HoldEvent extends Event {
+        long executions = 0;
+
+        @Override
+        public void execute() {
+            executions++;
+        }
+    }
+
+    static class PlainEvent {
+        long time;
+        long sequence;
+    }
+
+    public static void main(String[] args) {
+        int numPending = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int numEvents = 10 * numPending;
+        checkOrdering();
+
+        System.out.printf("%-28s %12s%n", "hold model, " + numPending + " pending", "Mevents/s");
+        for (int rep = 0; rep < 2; rep++) { // the first round is warmup
+            System.out.printf("%-28s %12.2f%n", "EventQueue + EventPool", holdEventQueue(numPending, numEvents) / 1e6);
+            System.out.printf("%-28s %12.2f%n", "PriorityQueue", holdPriorityQueue(numPending, numEvents) / 1e6);
+        }
+
+        System.out.printf("%-28s %12s%n", "cancel + reschedule", "Mops/s");
+        System.out.printf("%-28s %12.2f%n", "EventQueue", cancelEventQueue(numPending, 1000000) / 1e6);
+        System.out.printf("%-28s %12.5f%n", "PriorityQueue", cancelPriorityQueue(numPending, 200) / 1e6);
+
+        System.out.println(ok ? "PASS" : "FAIL");
+        if (!ok)
+            System.exit(1);
+    }
+
+    private static long nextInterval(Random random) {
+        return 1 + (long)(-Math.log(1 - random.nextDouble()) * 1e9); // exponential, with ties at small sizes
+    }
+
+    private static double holdEventQueue(int numPending, int numEvents) {
+        Random random = new Random(1);
+        EventQueue queue = new EventQueue();
+        EventPool<HoldEvent> pool = new EventPool<HoldEvent>(HoldEvent::new);
+        for (int i = 0; i < numPending; i++)
+            queue.insert(pool.obtain(), nextInterval(random));
+        long startTime = System.nanoTime();
+        long now = 0;
+        for (int i = 0; i < numEvents; i++) {
+            HoldEvent event = (HoldEvent)queue.removeFirst();
+            check("time order", event.getTime() >= now);
+            now = event.getTime();
+            event.execute();
+            pool.release(event);
+            queue.insert(pool.obtain(), now + nextInterval(random));
+        }
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        check("pool size", pool.getNumFree() == 0 && queue.size() == numPending);
+        return numEvents / seconds;
+    }
+
+    private static double holdPriorityQueue(int numPending, int numEvents) {
+        Random random = new Random(1);
+        long[] sequence = new long[1];
+        PriorityQueue<PlainEvent> queue = new PriorityQueue<PlainEvent>(Comparator.<PlainEvent>comparingLong(e -> e.time).thenComparingLong(e -> e.sequence));
+        for (int i = 0; i < numPending; i++) {
+            PlainEvent event = new PlainEvent();
+            event.time = nextInterval(random);
+            event.sequence = sequence[0]++;
+            queue.add(event);
+        }
+        long startTime = System.nanoTime();
+        for (int i = 0; i < numEvents; i++) {
+            PlainEvent event = queue.remove();
+            event.time += nextInterval(random);
+            event.sequence = sequence[0]++;
+            queue.add(event);
+        }
+        return numEvents / ((System.nanoTime() - startTime) / 1e9);
+    }
+
+    private static double cancelEventQueue(int numPending, int numOps) {
+        Random random = new Random(2);
+        EventQueue queue = new EventQueue();
+        HoldEvent[] events = new HoldEvent[numPending];
+        for (int i = 0; i < numPending; i++)
+            queue.insert(events[i] = new HoldEvent(), nextInterval(random));
+        long startTime = System.nanoTime();
+        for (int i = 0; i < numOps; i++) {
+            HoldEvent event = events[random.nextInt(numPending)];
+            queue.remove(event);
+            queue.insert(event, nextInterval(random));
+        }
+        return numOps / ((System.nanoTime() - startTime) / 1e9);
+    }
+
+    private static double cancelPriorityQueue(int numPending, int numOps) {
+        Random random = new Random(2);
+        PriorityQueue<PlainEvent> queue = new PriorityQueue<PlainEvent>(Comparator.<PlainEvent>comparingLong(e -> e.time).thenComparingLong(e -> e.sequence));
+        PlainEvent[] events = new PlainEvent[numPending];
+        for (int i = 0; i < numPending; i++) {
+            events[i] = new PlainEvent();
+            events[i].time = nextInterval(random);
+            queue.add(events[i]);
+        }
+        long startTime = System.nanoTime();
+        for (int i = 0; i < numOps; i++) {
+            PlainEvent event = events[random.nextInt(numPending)];
+            queue.remove(event); // linear search
+            event.time = nextInterval(random);
+            queue.add(event);
+        }
+        return numOps / ((System.nanoTime() - startTime) / 1e9);
+    }
+
+    /**
+     * Schedules events with many equal times, cancels and reschedules some,
+     * and checks the execution order.
+     */
+    private static void checkOrdering() {
+        Random random = new Random(3);
+        EventQueue queue = new EventQueue();
+        List<HoldEvent> events = new ArrayList<HoldEvent>();
+        List<Long> insertionOrder = new ArrayList<Long>(); // per event: order of the last insertion
+        long order = 0;
+        for (int i = 0; i < 100000; i++) {
+            HoldEvent event = new HoldEvent();
+            queue.insert(event, random.nextInt(100));
+            events.add(event);
+            insertionOrder.add(order++);
+        }
+        for (int i = 0; i < 20000; i++) {
+            int k = random.nextInt(events.size());
+            HoldEvent event = events.get(k);
+            if (i % 2 == 0)
+                queue.remove(event);
+            else {
+                queue.reschedule(event, random.nextInt(100));
+                insertionOrder.set(k, order++);
+            }
+        }
+        int numScheduled = 0;
+        boolean[] scheduled = new boolean[events.size()];
+        Map<Event,Long> orderOf = new IdentityHashMap<Event,Long>();
+        for (int i = 0; i < events.size(); i++) {
+            scheduled[i] = events.get(i).isScheduled();
+            if (scheduled[i])
+                numScheduled++;
+            orderOf.put(events.get(i), insertionOrder.get(i));
+        }
+        check("queue size", queue.size() == numScheduled);
+
+        Event prev = null;
+        int numExecuted = 0;
+        while (!queue.isEmpty()) {
+            HoldEvent event = (HoldEvent)queue.removeFirst();
+            event.execute();
+            numExecuted++;
+            if (prev != null)
+                check("order", prev.getTime() < event.getTime() || (prev.getTime() == event.getTime() && orderOf.get(prev) < orderOf.get(event)));
+            prev = event;
+        }
+        check("executed events", numExecuted == numScheduled);
+        for (int i = 0; i < events.size(); i++)
+            check("cancelled events are not executed", events.get(i).executions == (scheduled[i] ? 1 : 0));
+    }
+
+    private static void check(String label, boolean condition) {
+        if (!condition) {
+            System.out.println("FAILED: " + label);
+            ok = false;
+        }
+    }
+}
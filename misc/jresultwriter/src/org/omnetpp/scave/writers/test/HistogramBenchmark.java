@@ -0,0 +1,177 @@
+package org.omnetpp.scave.writers.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+import org.omnetpp.scave.writers.impl.AutoRangingHistogram;
+import org.omnetpp.scave.writers.impl.FileOutputScalarManager;
+import org.omnetpp.scave.writers.impl.LogLinearHistogram;
+import org.omnetpp.scave.writers.impl.QuantileSketch;
+import org.omnetpp.scave.writers.impl.StreamingStatistic;
+
+/**
+ * Measures the update speed and the quantile accuracy of the streaming
+ * statistics (relative to exact quantiles computed from the sorted data),
+ * for several distributions, and checks the errors against a bound. For
+ * equal-width histograms on heavily skewed data (lognormal), only the
+ * absolute error bound of one cell width is checked, as the relative error
+ * of low quantiles is unbounded there (see AutoRangingHistogram). Also checks that merged statistics match the
+ * ones collected in one piece, and that histograms written into a scalar
+ * file have well-formed "bin" lines.
+ *
+ * Usage: HistogramBenchmark [numValues]
+ */
+public class HistogramBenchmark {
+    static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    static boolean ok = true;
+
+    public static void main(String[] args) throws IOException {
+        int numValues = args.length > 0 ? Integer.parseInt(args[0]) : 10000000;
+        Random random = new Random(1);
+        Object[][] distributions = { // name, generator, heavily skewed
+            {"exponential", (DoubleSupplier)() -> -Math.log(1 - random.nextDouble()), false},
+            {"lognormal", (DoubleSupplier)() -> Math.exp(2 * random.nextGaussian()), true},
+            {"uniform", (DoubleSupplier)() -> random.nextDouble() * 1000, false},
+        };
+        Object[][] statistics = { // name, factory, max relative error
+            {"log-linear", (Supplier<StreamingStatistic>)() -> new LogLinearHistogram(), 0.05},
+            {"t-digest", (Supplier<StreamingStatistic>)() -> new QuantileSketch(), 0.05},
+            {"auto-range", (Supplier<StreamingStatistic>)() -> new AutoRangingHistogram(), 0.05},
+        };
+
+        System.out.printf("%-12s %-11s %8s %6s", "distribution", "statistic", "Mvals/s", "cells");
+        for (double q : QUANTILES)
+            System.out.printf(" %9s", "err@" + q);
+        System.out.println();
+
+        for (Object[] distribution : distributions) {
+            DoubleSupplier generator = (DoubleSupplier)distribution[1];
+            boolean skewed = (Boolean)distribution[2];
+            double[] values = new double[numValues];
+            for (int i = 0; i < numValues; i++)
+                values[i] = generator.getAsDouble();
+            double[] sorted = values.clone();
+            Arrays.sort(sorted);
+
+            for (Object[] statistic : statistics) {
+                @SuppressWarnings("unchecked")
+                Supplier<StreamingStatistic> factory = (Supplier<StreamingStatistic>)statistic[1];
+                double maxError = (Double)statistic[2];
+                StreamingStatistic stat = factory.get();
+                long startTime = System.nanoTime();
+                for (double value : values)
+                    stat.collect(value);
+                double seconds = (System.nanoTime() - startTime) / 1e9;
+
+                System.out.printf("%-12s %-11s %8.1f %6d", distribution[0], statistic[0], numValues / seconds / 1e6, stat.getNumCells());
+                for (double q : QUANTILES) {
+                    double exact = sorted[(int)Math.min(numValues - 1, Math.ceil(q * numValues) - 1)];
+                    double error = Math.abs(stat.getQuantile(q) - exact);
+                    double relativeError = error / Math.abs(exact);
+                    System.out.printf(" %9.2e", relativeError);
+                    String label = distribution[0] + "/" + statistic[0] + " quantile " + q;
+                    if (skewed && stat instanceof AutoRangingHistogram)
+                        check(label + " within one cell", error <= ((AutoRangingHistogram)stat).getCellWidth());
+                    else
+                        check(label, relativeError <= maxError);
+                }
+                System.out.println();
+                check(distribution[0] + "/" + statistic[0] + " count", stat.getN() == numValues);
+                check(distribution[0] + "/" + statistic[0] + " cells", totalCellValue(stat) == numValues);
+            }
+        }
+
+        checkMerge(new LogLinearHistogram(), new LogLinearHistogram(), new LogLinearHistogram());
+        checkMerge(new QuantileSketch(), new QuantileSketch(), new QuantileSketch());
+        checkScalarFile(random);
+
+        System.out.println(ok ? "PASS" : "FAIL");
+        if (!ok)
+            System.exit(1);
+    }
+
+    private static double totalCellValue(StreamingStatistic stat) {
+        double total = stat.getUnderflowCell() + stat.getOverflowCell();
+        for (int k = 0; k < stat.getNumCells(); k++)
+            total += stat.getCellValue(k);
+        return total;
+    }
+
+    private static <T extends StreamingStatistic> void checkMerge(T all, T part1, T part2) {
+        Random random = new Random(2);
+        for (int i = 0; i < 100000; i++) {
+            double value = random.nextGaussian() * 100;
+            all.collect(value);
+            (i % 3 == 0 ? part1 : part2).collect(value);
+        }
+        if (part1 instanceof LogLinearHistogram)
+            ((LogLinearHistogram)part1).merge((LogLinearHistogram)part2);
+        else
+            ((QuantileSketch)part1).merge((QuantileSketch)part2);
+        String label = "merged " + all.getClass().getSimpleName();
+        check(label + " moments", part1.getN() == all.getN() && part1.getMin() == all.getMin() && part1.getMax() == all.getMax() &&
+                Math.abs(part1.getMean() - all.getMean()) < 1e-9 && Math.abs(part1.getVariance() / all.getVariance() - 1) < 1e-9);
+        check(label + " cells", totalCellValue(part1) == all.getN());
+        for (double q : QUANTILES)
+            check(label + " quantile " + q, Math.abs(part1.getQuantile(q) - all.getQuantile(q)) < 0.05 * all.getStandardDeviation());
+    }
+
+    /**
+     * Records the statistics into a scalar file, and checks the "bin" lines:
+     * three tokens each, strictly increasing edges, and counts adding up.
+     */
+    private static void checkScalarFile(Random random) throws IOException {
+        StreamingStatistic[] stats = {new LogLinearHistogram(), new QuantileSketch(), new AutoRangingHistogram(), new AutoRangingHistogram(50)};
+        for (int i = 0; i < 10000; i++) {
+            double value = random.nextGaussian();
+            for (StreamingStatistic stat : stats)
+                stat.collect(i == 0 ? Double.POSITIVE_INFINITY : i == 1 ? Double.NEGATIVE_INFINITY : i == 2 ? 1e10 : value);
+        }
+        // no observations: no cells, so no bin lines
+        StreamingStatistic empty = new AutoRangingHistogram();
+
+        FileOutputScalarManager manager = new FileOutputScalarManager("test-histogram.sca");
+        manager.open("test-run", null);
+        for (int i = 0; i < stats.length; i++)
+            manager.recordStatistic("net.host", "stat" + i, stats[i], null);
+        manager.recordStatistic("net.host", "empty", empty, null);
+        manager.close();
+
+        List<String> lines = Files.readAllLines(new File("test-histogram.sca").toPath());
+        int numHistograms = 0;
+        double total = 0, prevEdge = Double.NaN;
+        for (String line : lines) {
+            String[] tokens = line.split(" ");
+            if (tokens[0].equals("statistic")) {
+                check("bin counts add up", Double.isNaN(prevEdge) || total == 10000);
+                prevEdge = Double.NaN;
+                total = 0;
+            }
+            else if (tokens[0].equals("bin")) {
+                check("bin line has 3 tokens: " + line, tokens.length == 3);
+                double edge = tokens[1].equals("-inf") ? Double.NEGATIVE_INFINITY : Double.parseDouble(tokens[1]);
+                if (Double.isNaN(prevEdge))
+                    numHistograms++;
+                check("bin edges increase: " + line, Double.isNaN(prevEdge) || edge > prevEdge);
+                prevEdge = edge;
+                total += Double.parseDouble(tokens[2]);
+            }
+        }
+        check("bin counts add up", Double.isNaN(prevEdge) || total == 10000);
+        check("number of histograms", numHistograms == stats.length);
+        new File("test-histogram.sca").delete();
+    }
+
+    private static void check(String label, boolean condition) {
+        if (!condition) {
+            System.out.println("FAILED: " + label);
+            ok = false;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package org.omnetpp.scave.writers.test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.omnetpp.scave.writers.IOutputVector;
+import org.omnetpp.scave.writers.impl.FileOutputVectorManager;
+import org.omnetpp.scave.writers.impl.TextVectorFileReader;
+import org.omnetpp.scave.writers.impl.VectorFileRecovery;
+
+/**
+ * Checks the memory-mapped mode of FileOutputVectorManager: that it produces
+ * the same files as the regular mode (apart from checkpoint comments in the
+ * index), and that VectorFileRecovery restores a consistent vector file and
+ * index after the recording process has been killed.
+ */
+public class MappedOutputTest {
+    static final int NUM_VECTORS = 50;
+
+    static boolean ok = true;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 2 && args[0].equals("-child")) {
+            recordUntilKilled(args[1]);
+            return;
+        }
+
+        for (boolean asynchronous : new boolean[] {false, true}) {
+            record("plain.vec", false, asynchronous, 300000);
+            record("mapped.vec", true, asynchronous, 300000);
+            check("same vector file", Files.readAllLines(new File("plain.vec").toPath()).equals(Files.readAllLines(new File("mapped.vec").toPath())));
+            check("same index file", indexEntries("plain.vci").equals(indexEntries("mapped.vci")));
+            check("closed files need no recovery", VectorFileRecovery.recover("mapped.vec").wasComplete);
+        }
+
+        // kill a process while it is recording, then recover its files
+        Process child = new ProcessBuilder(System.getProperty("java.home") + "/bin/java", "-cp", System.getProperty("java.class.path"),
+                MappedOutputTest.class.getName(), "-child", "crash.vec").redirectErrorStream(true).start();
+        BufferedReader childOut = new BufferedReader(new InputStreamReader(child.getInputStream()));
+        String line = childOut.readLine();
+        check("child process started recording: " + line, "recording".equals(line));
+        Thread.sleep(1500);
+        child.destroyForcibly().waitFor();
+
+        VectorFileRecovery.Result result = VectorFileRecovery.recover("crash.vec");
+        System.out.println("Recovered: " + result.numBlocks + " blocks kept, " + result.numBlocksValidated + " validated, "
+                + result.numBlocksDropped + " index entries and " + result.bytesDropped + " bytes dropped");
+        check("blocks recovered", result.numBlocks > 0 && !result.wasComplete);
+        check("only blocks after the last checkpoint validated", result.numBlocksValidated < result.numBlocks);
+        verifyRecovered("crash.vec", "crash.vci");
+        check("second recovery is a no-op", VectorFileRecovery.recover("crash.vec").wasComplete);
+
+        if (ok)
+            for (String name : new String[] {"plain.vec", "plain.vci", "mapped.vec", "mapped.vci", "crash.vec", "crash.vci"})
+                new File(name).delete();
+        System.out.println(ok ? "PASS" : "FAIL");
+        if (!ok)
+            System.exit(1);
+    }
+
+    private static FileOutputVectorManager createManager(String fileName, boolean memoryMapped, boolean asynchronous) {
+        FileOutputVectorManager manager = new FileOutputVectorManager(fileName);
+        manager.setMemoryMapped(memoryMapped);
+        manager.setMappedSegmentSize(100000); // many segment boundaries, also within blocks
+        manager.setAsynchronous(asynchronous);
+        manager.setPerVectorBufferLimit(100);
+        manager.open("test-run", null);
+        return manager;
+    }
+
+    /**
+     * Records sample k of every vector as (k/1000, k).
+     */
+    private static void record(String fileName, boolean memoryMapped, boolean asynchronous, int numSamples) {
+        FileOutputVectorManager manager = createManager(fileName, memoryMapped, asynchronous);
+        IOutputVector[] vectors = new IOutputVector[NUM_VECTORS];
+        for (int i = 0; i < NUM_VECTORS; i++)
+            vectors[i] = manager.createVector("net.host[" + i + "]", "delay", null);
+        Random random = new Random(1);
+        int[] counts = new int[NUM_VECTORS];
+        for (int i = 0; i < numSamples; i++) {
+            int v = random.nextInt(NUM_VECTORS);
+            vectors[v].record(counts[v] / 1000.0, counts[v]);
+            counts[v]++;
+            if (i == numSamples / 2)
+                manager.flush();
+        }
+        manager.close();
+    }
+
+    private static void recordUntilKilled(String fileName) {
+        FileOutputVectorManager manager = createManager(fileName, true, false);
+        manager.setCheckpointInterval(200);
+        IOutputVector[] vectors = new IOutputVector[NUM_VECTORS];
+        for (int i = 0; i < NUM_VECTORS; i++)
+            vectors[i] = manager.createVector("net.host[" + i + "]", "delay", null);
+        System.out.println("recording");
+        System.out.flush();
+        Random random = new Random(1);
+        int[] counts = new int[NUM_VECTORS];
+        while (true) {
+            int v = random.nextInt(NUM_VECTORS);
+            vectors[v].record(counts[v] / 1000.0, counts[v]);
+            counts[v]++;
+        }
+    }
+
+    private static List<String> indexEntries(String fileName) throws IOException {
+        List<String> lines = new ArrayList<String>(Files.readAllLines(new File(fileName).toPath()));
+        lines.remove(0); // contains the vector file's timestamp
+        lines.removeIf(line -> line.startsWith("# checkpoint "));
+        return lines;
+    }
+
+    /**
+     * Checks that the vector file is readable and every vector contains a
+     * gapless sequence of samples, and that the index entries describe the
+     * file exactly.
+     */
+    private static void verifyRecovered(String vecFileName, String vciFileName) throws IOException {
+        byte[] vec = Files.readAllBytes(new File(vecFileName).toPath());
+        check("vector file ends with a complete line", vec.length > 0 && vec[vec.length - 1] == '\n');
+
+        Map<Integer,Integer> counts = new HashMap<Integer,Integer>();
+        new TextVectorFileReader(vecFileName).read(new TextVectorFileReader.Handler() {
+            public void run(String runID, Map<String,String> runAttributes) {}
+
+            public void vector(int id, String moduleName, String name, Map<String,String> attributes, boolean hasEventNumbers) {
+                counts.put(id, 0);
+            }
+
+            public void data(int vectorId, long eventNumber, double time, double value) {
+                int k = counts.get(vectorId);
+                check("samples in order", value == k && time == k / 1000.0);
+                counts.put(vectorId, k + 1);
+            }
+        });
+
+        List<String> indexLines = Files.readAllLines(new File(vciFileName).toPath());
+        check("vector file size in index", indexLines.get(0).startsWith("file " + vec.length + " "));
+        Map<Integer,Integer> indexedCounts = new HashMap<Integer,Integer>();
+        long previousEnd = 0;
+        for (String line : indexLines) {
+            if (line.isEmpty() || !Character.isDigit(line.charAt(0)))
+                continue;
+            String[] fields = line.split(" ");
+            long offset = Long.parseLong(fields[1]);
+            int size = Integer.parseInt(fields[2]);
+            check("blocks in order, within the file", offset >= previousEnd && offset + size <= vec.length);
+            previousEnd = offset + size;
+            if (offset + size > vec.length)
+                break;
+            String[] blockLines = new String(vec, (int)offset, size, StandardCharsets.US_ASCII).split("\n");
+            check("block line count", blockLines.length == Integer.parseInt(fields[5]));
+            for (String blockLine : blockLines)
+                check("block belongs to vector", blockLine.startsWith(fields[0] + " "));
+            indexedCounts.merge(Integer.parseInt(fields[0]), blockLines.length, Integer::sum);
+        }
+        check("index ends at the end of the vector file", previousEnd == vec.length);
+        counts.values().removeIf(count -> count == 0);
+        check("index covers all samples", indexedCounts.equals(counts));
+    }
+
+    private static void check(String label, boolean condition) {
+        if (!condition && ok) // only report the first failure, there may be many
+            System.out.println("FAILED: " + label);
+        ok &= condition;
+    }
+}
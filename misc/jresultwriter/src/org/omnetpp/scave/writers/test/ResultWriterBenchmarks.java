@@ -0,0 +1,219 @@
+package org.omnetpp.scave.writers.test;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.omnetpp.scave.writers.IOutputVector;
+import org.omnetpp.scave.writers.example.Main;
+import org.omnetpp.scave.writers.impl.AutoRangingHistogram;
+import org.omnetpp.scave.writers.impl.FileOutputScalarManager;
+import org.omnetpp.scave.writers.impl.FileOutputVectorManager;
+import org.omnetpp.scave.writers.impl.LogLinearHistogram;
+import org.omnetpp.scave.writers.impl.StreamingStatistic;
+import org.omnetpp.scave.writers.test.BenchmarkHarness.Benchmark;
+import org.omnetpp.scave.writers.test.BenchmarkHarness.Mode;
+
+/**
+ * Benchmarks of the result recording and output paths, to catch performance
+ * regressions: vector recording throughput with many concurrent vectors,
+ * block flush latency (formatting and writing a block, and updating the
+ * index), scalar and statistic output, and end-to-end runs of the Aloha
+ * example. Files are written into the current directory, and removed.
+ *
+ * Usage: ResultWriterBenchmarks [-wi n] [-i n] [-r seconds] [-rff result.json] [regex]
+ */
+public class ResultWriterBenchmarks {
+    private static final int BATCH = 10000;
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkHarness harness = new BenchmarkHarness();
+        String resultFile = harness.parseArgs(args);
+
+        for (boolean asynchronous : new boolean[] {false, true})
+            for (int numVectors : new int[] {1, 100, 10000})
+                harness.run("vector.record", params("vectors", numVectors, "asynchronous", asynchronous), Mode.THROUGHPUT, TimeUnit.SECONDS, new VectorRecording(numVectors, asynchronous));
+        for (int blockSize : new int[] {100, 1000, 10000})
+            harness.run("vector.flushBlock", params("samples", blockSize), Mode.AVERAGE_TIME, TimeUnit.MICROSECONDS, new BlockFlush(blockSize));
+        harness.run("scalar.recordScalar", params(), Mode.THROUGHPUT, TimeUnit.SECONDS, new ScalarRecording());
+        for (String type : new String[] {"LogLinearHistogram", "AutoRangingHistogram"})
+            harness.run("scalar.recordStatistic", params("statistic", type), Mode.AVERAGE_TIME, TimeUnit.MICROSECONDS, new StatisticRecording(type));
+        harness.run("aloha.run", params("hosts", 10), Mode.AVERAGE_TIME, TimeUnit.MILLISECONDS, new AlohaRun(10));
+
+        harness.printSummary();
+        if (resultFile != null)
+            harness.writeJson(resultFile);
+    }
+
+    private static Map<String,String> params(Object... keysAndValues) {
+        if (keysAndValues.length == 0)
+            return Collections.emptyMap();
+        Map<String,String> params = new LinkedHashMap<String,String>();
+        for (int i = 0; i < keysAndValues.length; i += 2)
+            params.put(keysAndValues[i].toString(), keysAndValues[i+1].toString());
+        return params;
+    }
+
+    private static void delete(String... fileNames) {
+        for (String fileName : fileNames)
+            new File(fileName).delete();
+    }
+
+    /**
+     * Records samples round-robin into a set of vectors; one operation is one sample.
+     */
+    static class VectorRecording implements Benchmark {
+        final int numVectors;
+        final boolean asynchronous;
+        FileOutputVectorManager manager;
+        IOutputVector[] vectors;
+        double time = 0;
+        int next = 0;
+
+        VectorRecording(int numVectors, boolean asynchronous) {
+            this.numVectors = numVectors;
+            this.asynchronous = asynchronous;
+        }
+
+        public void setUp() {
+            manager = new FileOutputVectorManager("bench.vec");
+            manager.setAsynchronous(asynchronous);
+            manager.open("bench", null);
+            vectors = new IOutputVector[numVectors];
+            for (int i = 0; i < numVectors; i++)
+                vectors[i] = manager.createVector("net.node[" + i + "]", "delay", null);
+        }
+
+        public long run() {
+            for (int i = 0; i < BATCH; i++) {
+                time += 0.001;
+                vectors[next].record(time, 0.1 + (i % 1000) * 0.037);
+                if (++next == numVectors)
+                    next = 0;
+            }
+            return BATCH;
+        }
+
+        public void tearDown() {
+            manager.close();
+            delete("bench.vec", "bench.vci");
+        }
+    }
+
+    /**
+     * Writes out a block of buffered samples of a vector (synchronously).
+     */
+    static class BlockFlush implements Benchmark {
+        final int blockSize;
+        FileOutputVectorManager manager;
+        IOutputVector vector;
+        double time = 0;
+
+        BlockFlush(int blockSize) {
+            this.blockSize = blockSize;
+        }
+
+        public void setUp() {
+            manager = new FileOutputVectorManager("bench.vec");
+            manager.setPerVectorBufferLimit(Integer.MAX_VALUE);
+            manager.setTotalBufferLimit(Integer.MAX_VALUE);
+            manager.open("bench", null);
+            vector = manager.createVector("net.node", "delay", null);
+        }
+
+        public void prepare() {
+            for (int i = 0; i < blockSize; i++) {
+                time += 0.001;
+                vector.record(time, 0.1 + (i % 1000) * 0.037);
+            }
+        }
+
+        public long run() {
+            vector.flush();
+            return 1;
+        }
+
+        public void tearDown() {
+            manager.close();
+            delete("bench.vec", "bench.vci");
+        }
+    }
+
+    static class ScalarRecording implements Benchmark {
+        FileOutputScalarManager manager;
+        String[] componentPaths = new String[100];
+
+        public void setUp() {
+            manager = new FileOutputScalarManager("bench.sca");
+            manager.open("bench", null);
+            for (int i = 0; i < componentPaths.length; i++)
+                componentPaths[i] = "net.node[" + i + "]";
+        }
+
+        public long run() {
+            for (int i = 0; i < BATCH; i++)
+                manager.recordScalar(componentPaths[i % componentPaths.length], "pkSent", i * 1.5, null);
+            return BATCH;
+        }
+
+        public void tearDown() {
+            manager.close();
+            delete("bench.sca");
+        }
+    }
+
+    /**
+     * Writes a statistic with its histogram (collected in advance) into a scalar file.
+     */
+    static class StatisticRecording implements Benchmark {
+        final String type;
+        FileOutputScalarManager manager;
+        StreamingStatistic statistic;
+
+        StatisticRecording(String type) {
+            this.type = type;
+        }
+
+        public void setUp() {
+            manager = new FileOutputScalarManager("bench.sca");
+            manager.open("bench", null);
+            statistic = type.equals("LogLinearHistogram") ? new LogLinearHistogram() : new AutoRangingHistogram();
+            Random random = new Random(1);
+            for (int i = 0; i < 100000; i++)
+                statistic.collect(Math.exp(random.nextGaussian()));
+        }
+
+        public long run() {
+            manager.recordStatistic("net.node", "delay", statistic, null);
+            return 1;
+        }
+
+        public void tearDown() {
+            manager.close();
+            delete("bench.sca");
+        }
+    }
+
+    /**
+     * A complete run of the Aloha example, recording results into files.
+     */
+    static class AlohaRun implements Benchmark {
+        final int numHosts;
+
+        AlohaRun(int numHosts) {
+            this.numHosts = numHosts;
+        }
+
+        public long run() {
+            Main.simulateAloha(0, numHosts, 2.0, 0);
+            return 1;
+        }
+
+        public void tearDown() {
+            delete("aloha-0.sca", "aloha-0.vec", "aloha-0.vci");
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package org.omnetpp.scave.writers.test;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.omnetpp.scave.writers.IOutputVector;
+import org.omnetpp.scave.writers.IResultAttributes;
+import org.omnetpp.scave.writers.ISimulationTimeProvider;
+import org.omnetpp.scave.writers.impl.LogLinearHistogram;
+import org.omnetpp.scave.writers.impl.SqliteOutputManager;
+import org.omnetpp.scave.writers.impl.SqliteOutputScalarManager;
+import org.omnetpp.scave.writers.impl.SqliteOutputVectorManager;
+
+/**
+ * Writes SQLite scalar and vector files, and checks their contents with SQL.
+ * Needs an SQLite JDBC driver on the classpath; skipped if there is none.
+ */
+public class SqliteOutputTest {
+    static boolean ok = true;
+
+    public static void main(String[] args) throws Exception {
+        if (!isDriverAvailable()) {
+            System.out.println("SKIPPED: no SQLite JDBC driver on the classpath");
+            return;
+        }
+
+        testScalars();
+        testVectors();
+
+        System.out.println(ok ? "PASS" : "FAIL");
+        if (!ok)
+            System.exit(1);
+    }
+
+    static boolean isDriverAvailable() {
+        try {
+            DriverManager.getConnection(SqliteOutputManager.JDBC_URL_PREFIX + ":memory:").close();
+            return true;
+        }
+        catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private static Map<String,String> runAttributes() {
+        Map<String,String> attributes = new LinkedHashMap<String,String>();
+        attributes.put(IResultAttributes.ATTR_NETWORK, "Test");
+        attributes.put(IResultAttributes.ATTR_RUNNUMBER, "0");
+        return attributes;
+    }
+
+    private static void testScalars() throws Exception {
+        SqliteOutputScalarManager manager = new SqliteOutputScalarManager("sqlitetest.sca");
+        manager.setCommitFrequency(10); // exercise intermediate commits
+        manager.open("run-1", runAttributes());
+        Map<String,String> attributes = new LinkedHashMap<String,String>();
+        attributes.put(IResultAttributes.ATTR_UNIT, "s");
+        for (int i = 0; i < 100; i++)
+            manager.recordScalar("net.host[" + i + "]", "delay", i * 0.5, attributes);
+        manager.recordScalar("net", "nan", Double.NaN, null);
+        LogLinearHistogram histogram = new LogLinearHistogram();
+        for (int i = 1; i <= 1000; i++)
+            histogram.collect(i);
+        manager.recordStatistic("net", "hist", histogram, attributes);
+        manager.close();
+
+        try (Connection connection = DriverManager.getConnection(SqliteOutputManager.JDBC_URL_PREFIX + "sqlitetest.sca");
+                Statement statement = connection.createStatement()) {
+            check("run", "run-1".equals(queryString(statement, "SELECT runName FROM run")) && queryLong(statement, "SELECT simtimeExp FROM run") == -12);
+            check("run attributes", queryLong(statement, "SELECT COUNT(*) FROM runAttr") == 2);
+            check("scalars", queryLong(statement, "SELECT COUNT(*) FROM scalar") == 101);
+            check("scalar value", queryDouble(statement, "SELECT scalarValue FROM scalar WHERE moduleName='net.host[7]' AND scalarName='delay'") == 3.5);
+            check("NaN scalar", queryLong(statement, "SELECT COUNT(*) FROM scalar WHERE scalarName='nan' AND scalarValue IS NULL") == 1);
+            check("scalar attributes", queryLong(statement, "SELECT COUNT(*) FROM scalarAttr WHERE attrName='unit' AND attrValue='s'") == 100);
+            check("statistic", queryLong(statement, "SELECT statCount FROM statistic WHERE statName='hist' AND isHistogram=1") == 1000
+                    && queryDouble(statement, "SELECT statSum FROM statistic") == 500500);
+            check("histogram bins", queryLong(statement, "SELECT COUNT(*) FROM histogramBin") == histogram.getNumCells() + 2
+                    && queryDouble(statement, "SELECT SUM(binValue) FROM histogramBin") == 1000);
+        }
+        new File("sqlitetest.sca").delete();
+    }
+
+    private static void testVectors() throws Exception {
+        SqliteOutputVectorManager manager = new SqliteOutputVectorManager("sqlitetest.vec");
+        manager.setPerVectorBufferLimit(100);
+        manager.setTotalBufferLimit(250); // exercise both kinds of block writes
+        manager.setCommitFrequency(1000);
+        long[] eventNumber = {0};
+        double[] now = {0};
+        manager.setSimtimeProvider(new ISimulationTimeProvider() {
+            public Number getSimulationTime() { return now[0]; }
+            public long getEventNumber() { return eventNumber[0]; }
+        });
+        manager.open("run-1", runAttributes());
+        Map<String,String> attributes = new LinkedHashMap<String,String>();
+        attributes.put(IResultAttributes.ATTR_INTERPOLATIONMODE, IResultAttributes.IM_SAMPLE_HOLD);
+        IOutputVector[] vectors = new IOutputVector[10];
+        for (int i = 0; i < vectors.length; i++)
+            vectors[i] = manager.createVector("net.host[" + i + "]", "queueLength", attributes);
+        for (int i = 0; i < 10000; i++) {
+            eventNumber[0] = i + 1;
+            now[0] = i * 0.001;
+            vectors[i % 10].record(i);
+        }
+        IOutputVector empty = manager.createVector("net", "empty", null);
+        vectors[0].close();
+        manager.close();
+
+        try (Connection connection = DriverManager.getConnection(SqliteOutputManager.JDBC_URL_PREFIX + "sqlitetest.vec");
+                Statement statement = connection.createStatement()) {
+            check("vectors", queryLong(statement, "SELECT COUNT(*) FROM vector") == 11);
+            check("vector attributes", queryLong(statement, "SELECT COUNT(*) FROM vectorAttr") == 10);
+            check("vector data", queryLong(statement, "SELECT COUNT(*) FROM vectorData") == 10000);
+            check("vector data of one vector", queryLong(statement, "SELECT COUNT(*) FROM vectorData d JOIN vector v ON d.vectorId = v.vectorId WHERE v.moduleName='net.host[3]'") == 1000);
+            check("vector statistics", queryLong(statement, "SELECT vectorCount FROM vector WHERE moduleName='net.host[3]'") == 1000
+                    && queryDouble(statement, "SELECT vectorMin FROM vector WHERE moduleName='net.host[3]'") == 3
+                    && queryDouble(statement, "SELECT vectorMax FROM vector WHERE moduleName='net.host[3]'") == 9993
+                    && queryLong(statement, "SELECT startEventNum FROM vector WHERE moduleName='net.host[3]'") == 4
+                    && queryLong(statement, "SELECT endSimtimeRaw FROM vector WHERE moduleName='net.host[3]'") == 9993000000000L);
+            check("empty vector", queryLong(statement, "SELECT vectorCount FROM vector WHERE vectorName='empty'") == 0);
+            check("simtime", queryLong(statement, "SELECT simtimeRaw FROM vectorData WHERE value=1234") == 1234000000000L
+                    && queryLong(statement, "SELECT eventNumber FROM vectorData WHERE value=1234") == 1235);
+            check("order", queryLong(statement, "SELECT COUNT(*) FROM vectorData a JOIN vectorData b ON a.vectorId = b.vectorId AND a.rowid < b.rowid AND a.simtimeRaw > b.simtimeRaw") == 0);
+            check("index", queryLong(statement, "SELECT COUNT(*) FROM sqlite_master WHERE type='index' AND name='vectorData_idx'") == 1);
+        }
+        check("closed vector rejects samples", throwsIllegalState(() -> empty.record(1)));
+        new File("sqlitetest.vec").delete();
+    }
+
+    private static boolean throwsIllegalState(Runnable runnable) {
+        try {
+            runnable.run();
+            return false;
+        }
+        catch (IllegalStateException e) {
+            return true;
+        }
+    }
+
+    static long queryLong(Statement statement, String sql) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery(sql)) {
+            return resultSet.next() ? resultSet.getLong(1) : Long.MIN_VALUE;
+        }
+    }
+
+    static double queryDouble(Statement statement, String sql) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery(sql)) {
+            return resultSet.next() ? resultSet.getDouble(1) : Double.NaN;
+        }
+    }
+
+    static String queryString(Statement statement, String sql) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery(sql)) {
+            return resultSet.next() ? resultSet.getString(1) : null;
+        }
+    }
+
+    private static void check(String label, boolean condition) {
+        if (!condition) {
+            System.out.println("FAILED: " + label);
+            ok = false;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package org.omnetpp.scave.writers.test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.omnetpp.scave.writers.example.Main;
+import org.omnetpp.scave.writers.impl.SqliteOutputManager;
+import org.omnetpp.scave.writers.impl.TextVectorFileReader;
+
+/**
+ * Compares the text and the SQLite result file formats on the Aloha example
+ * with many hosts: the time of the simulation run with result recording, the
+ * size of the files, and the time of two typical queries, i.e. loading one
+ * vector, and the mean of a scalar over all hosts. Needs an SQLite JDBC
+ * driver on the classpath. Files are written into the current directory,
+ * and removed.
+ *
+ * Usage: SqliteResultBenchmark [numHosts [repetitions]]
+ */
+public class SqliteResultBenchmark {
+    private static final String VECTOR_MODULE = "Aloha.server";
+    private static final String VECTOR_NAME = "numConcurrentTransmissions";
+    private static final String SCALAR_NAME = "pkSent";
+
+    public static void main(String[] args) throws Exception {
+        if (!SqliteOutputTest.isDriverAvailable()) {
+            System.out.println("SKIPPED: no SQLite JDBC driver on the classpath");
+            return;
+        }
+        int numHosts = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int repetitions = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        System.out.printf("Aloha, %d hosts, best of %d runs%n", numHosts, repetitions);
+        System.out.printf("%-8s %10s %12s %14s %14s %10s%n", "format", "run [ms]", "size [kB]", "vector [ms]", "scalar [ms]", "samples");
+        for (boolean sqlite : new boolean[] {false, true}) {
+            long runTime = Long.MAX_VALUE, vectorTime = Long.MAX_VALUE, scalarTime = Long.MAX_VALUE;
+            long size = 0, samples = 0;
+            double mean = 0;
+            for (int rep = 0; rep < repetitions; rep++) {
+                delete();
+                long start = System.nanoTime();
+                Main.simulateAloha(0, numHosts, 2.0, 0, sqlite);
+                runTime = Math.min(runTime, System.nanoTime() - start);
+                size = new File("aloha-0.sca").length() + new File("aloha-0.vec").length() + new File("aloha-0.vci").length();
+
+                start = System.nanoTime();
+                samples = sqlite ? loadVectorSqlite() : loadVectorText();
+                vectorTime = Math.min(vectorTime, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                mean = sqlite ? scalarMeanSqlite() : scalarMeanText();
+                scalarTime = Math.min(scalarTime, System.nanoTime() - start);
+            }
+            delete();
+            System.out.printf("%-8s %10.1f %12d %14.2f %14.2f %10d   (mean %s: %.3f)%n", sqlite ? "sqlite" : "text",
+                    runTime / 1e6, size / 1024, vectorTime / 1e6, scalarTime / 1e6, samples, SCALAR_NAME, mean);
+        }
+    }
+
+    private static void delete() {
+        for (String fileName : new String[] {"aloha-0.sca", "aloha-0.vec", "aloha-0.vci"})
+            new File(fileName).delete();
+    }
+
+    private static long loadVectorText() throws IOException {
+        long[] count = {0};
+        double[] sum = {0};
+        Set<Integer> ids = new HashSet<Integer>();
+        new TextVectorFileReader("aloha-0.vec").read(new TextVectorFileReader.Handler() {
+            public void run(String runID, Map<String,String> runAttributes) {}
+            public void vector(int id, String moduleName, String name, Map<String,String> attributes, boolean hasEventNumbers) {
+                if (moduleName.equals(VECTOR_MODULE) && name.equals(VECTOR_NAME))
+                    ids.add(id);
+            }
+            public void data(int vectorId, long eventNumber, double time, double value) {
+                if (ids.contains(vectorId)) {
+                    count[0]++;
+                    sum[0] += time + value;
+                }
+            }
+        });
+        return count[0];
+    }
+
+    private static long loadVectorSqlite() throws SQLException {
+        long count = 0;
+        double sum = 0;
+        try (Connection connection = DriverManager.getConnection(SqliteOutputManager.JDBC_URL_PREFIX + "aloha-0.vec");
+                PreparedStatement statement = connection.prepareStatement("SELECT simtimeRaw, value FROM vectorData " +
+                        "WHERE vectorId = (SELECT vectorId FROM vector WHERE moduleName = ? AND vectorName = ?) ORDER BY rowid")) {
+            statement.setString(1, VECTOR_MODULE);
+            statement.setString(2, VECTOR_NAME);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    count++;
+                    sum += resultSet.getLong(1) * 1e-12 + resultSet.getDouble(2);
+                }
+            }
+        }
+        return count;
+    }
+
+    private static double scalarMeanText() throws IOException {
+        double sum = 0;
+        int count = 0;
+        try (BufferedReader reader = new BufferedReader(new FileReader("aloha-0.sca"))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("scalar ")) {
+                    String[] fields = line.split(" ");
+                    if (fields.length == 4 && fields[2].equals(SCALAR_NAME)) {
+                        sum += Double.parseDouble(fields[3]);
+                        count++;
+                    }
+                }
+            }
+        }
+        return sum / count;
+    }
+
+    private static double scalarMeanSqlite() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(SqliteOutputManager.JDBC_URL_PREFIX + "aloha-0.sca");
+                PreparedStatement statement = connection.prepareStatement("SELECT AVG(scalarValue) FROM scalar WHERE scalarName = ?")) {
+            statement.setString(1, SCALAR_NAME);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                return resultSet.getDouble(1);
+            }
+        }
+    }
+}
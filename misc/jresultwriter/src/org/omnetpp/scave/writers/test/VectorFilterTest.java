@@ -0,0 +1,225 @@
+package org.omnetpp.scave.writers.test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.omnetpp.scave.writers.IOutputVector;
+import org.omnetpp.scave.writers.IOutputVectorManager;
+import org.omnetpp.scave.writers.IResultAttributes;
+import org.omnetpp.scave.writers.ISimulationTimeProvider;
+import org.omnetpp.scave.writers.filters.EveryNthFilter;
+import org.omnetpp.scave.writers.filters.FilteringOutputVectorManager;
+import org.omnetpp.scave.writers.filters.IntervalStatisticFilter;
+import org.omnetpp.scave.writers.filters.IntervalStatisticFilter.Statistic;
+import org.omnetpp.scave.writers.filters.TimeWeightedAverageFilter;
+import org.omnetpp.scave.writers.filters.VectorFilter;
+import org.omnetpp.scave.writers.filters.VectorFilters;
+import org.omnetpp.scave.writers.filters.WindowAverageFilter;
+
+/**
+ * Checks the results of the vector filters on small hand-computed inputs,
+ * filter chain specifications, rule matching in FilteringOutputVectorManager,
+ * and that recording through filters does not allocate.
+ */
+public class VectorFilterTest {
+    static boolean ok = true;
+
+    /**
+     * Collects the recorded values, as "time:value" strings.
+     */
+    static class CapturingVector implements IOutputVector {
+        final List<String> samples = new ArrayList<String>();
+        boolean closed = false;
+
+        public void flush() {}
+        public void close() { closed = true; }
+        public boolean record(double value) { throw new UnsupportedOperationException(); }
+        public boolean record(Number time, double value) { samples.add(time + ":" + value); return true; }
+        public boolean record(double time, double value) { samples.add(time + ":" + value); return true; }
+    }
+
+    static class CapturingManager implements IOutputVectorManager {
+        final Map<String,CapturingVector> vectors = new LinkedHashMap<String,CapturingVector>();
+        final Map<String,Map<String,String>> attributes = new LinkedHashMap<String,Map<String,String>>();
+        ISimulationTimeProvider simtimeProvider;
+
+        public IOutputVector createVector(String componentPath, String vectorName, Map<String,String> attrs) {
+            CapturingVector vector = new CapturingVector();
+            vectors.put(componentPath + "." + vectorName, vector);
+            attributes.put(componentPath + "." + vectorName, attrs);
+            return vector;
+        }
+        public void setSimtimeProvider(ISimulationTimeProvider simtimeProvider) { this.simtimeProvider = simtimeProvider; }
+        public ISimulationTimeProvider getSimtimeProvider() { return simtimeProvider; }
+        public void open(String runID, Map<String,String> runAttributes) {}
+        public void close() {}
+        public void flush() {}
+        public String getFileName() { return null; }
+    }
+
+    /**
+     * Discards the values, for the allocation check.
+     */
+    static class NullVector implements IOutputVector {
+        long count = 0;
+
+        public void flush() {}
+        public void close() {}
+        public boolean record(double value) { count++; return true; }
+        public boolean record(Number time, double value) { count++; return true; }
+        public boolean record(double time, double value) { count++; return true; }
+    }
+
+    public static void main(String[] args) {
+        testFilters();
+        testSpecs();
+        testManager();
+        testAllocation();
+
+        System.out.println(ok ? "PASS" : "FAIL");
+        if (!ok)
+            System.exit(1);
+    }
+
+    private static List<String> run(VectorFilter filter, CapturingVector out, double[] times, double[] values) {
+        for (int i = 0; i < times.length; i++)
+            filter.record(times[i], values[i]);
+        filter.close();
+        check("output closed", out.closed);
+        return out.samples;
+    }
+
+    private static void testFilters() {
+        double[] t = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+        double[] v = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+        CapturingVector out = new CapturingVector();
+        checkSamples("everynth", run(new EveryNthFilter(3, out), out, t, v), "1.0:1.0", "4.0:4.0", "7.0:7.0", "10.0:10.0");
+        out = new CapturingVector();
+        checkSamples("windowavg", run(new WindowAverageFilter(4, out), out, t, v), "4.0:2.5", "8.0:6.5", "10.0:9.5");
+
+        // intervals of 1s: [0,1) has 1 and 2, [1,2) has 3 and 4, [3,4) has 5 (at its last value on close)
+        double[] it = {0.1, 0.5, 1.0, 1.7, 3.2};
+        double[] iv = {1, 2, 3, 4, 5};
+        out = new CapturingVector();
+        checkSamples("sum", run(new IntervalStatisticFilter(Statistic.SUM, 1.0, out), out, it, iv), "1.0:3.0", "2.0:7.0", "3.2:5.0");
+        out = new CapturingVector();
+        checkSamples("count", run(new IntervalStatisticFilter(Statistic.COUNT, 1.0, out), out, it, iv), "1.0:2.0", "2.0:2.0", "3.2:1.0");
+        out = new CapturingVector();
+        checkSamples("min", run(new IntervalStatisticFilter(Statistic.MIN, 1.0, out), out, it, iv), "1.0:1.0", "2.0:3.0", "3.2:5.0");
+        out = new CapturingVector();
+        checkSamples("max", run(new IntervalStatisticFilter(Statistic.MAX, 1.0, out), out, it, iv), "1.0:2.0", "2.0:4.0", "3.2:5.0");
+        out = new CapturingVector();
+        checkSamples("mean", run(new IntervalStatisticFilter(Statistic.MEAN, 1.0, out), out, it, iv), "1.0:1.5", "2.0:3.5", "3.2:5.0");
+
+        // signal: undefined until 0.5, then 2 until 1.5, 4 until 4.2, then 0
+        out = new CapturingVector();
+        checkSamples("timeavg", run(new TimeWeightedAverageFilter(1.0, out), out, new double[] {0.5, 1.5, 4.2}, new double[] {2, 4, 0}),
+                "1.0:2.0", "2.0:3.0", "3.0:4.0", "4.2:4.0");
+
+        // values exactly at interval boundaries, with intervals that are not exact in binary
+        out = new CapturingVector();
+        checkSamples("boundaries", run(new IntervalStatisticFilter(Statistic.COUNT, 0.1, out), out, new double[] {0, 0.1, 0.2, 0.3, 0.30000000000000004}, new double[] {1, 1, 1, 1, 1}),
+                "0.1:1.0", "0.2:1.0", "0.30000000000000004:2.0", "0.30000000000000004:1.0");
+    }
+
+    private static void testSpecs() {
+        CapturingVector out = new CapturingVector();
+        VectorFilter chain = VectorFilters.parse("everynth(2) | windowavg(2)").create(out);
+        double[] t = {1, 2, 3, 4, 5, 6, 7, 8};
+        checkSamples("chain", run(chain, out, t, t), "3.0:2.0", "7.0:6.0");
+
+        for (String spec : new String[] {"foo(1)", "windowavg(0)", "sum", "timeavg(-1)", "max(x)", "everynth(2)|"}) {
+            boolean thrown = false;
+            try {
+                VectorFilters.parse(spec);
+            }
+            catch (IllegalArgumentException e) {
+                thrown = true;
+            }
+            check("invalid spec rejected: " + spec, thrown);
+        }
+    }
+
+    private static void testManager() {
+        CapturingManager capture = new CapturingManager();
+        double[] now = {0};
+        capture.setSimtimeProvider(new ISimulationTimeProvider() {
+            public Number getSimulationTime() { return now[0]; }
+            public long getEventNumber() { return 0; }
+        });
+        FilteringOutputVectorManager manager = new FilteringOutputVectorManager(capture);
+        manager.addRule("**.delay", "vector");
+        manager.addRule("**.delay", "max(10)");
+        manager.addRule("net.host[*].queueLength", "timeavg(10)");
+
+        Map<String,String> attributes = new LinkedHashMap<String,String>();
+        attributes.put(IResultAttributes.ATTR_UNIT, "s");
+        IOutputVector delay = manager.createVector("net.host[1]", "delay", attributes);
+        IOutputVector queueLength = manager.createVector("net.host[1]", "queueLength", null);
+        IOutputVector nestedQueueLength = manager.createVector("net.host[1].nic", "queueLength", null);
+        check("vector names", capture.vectors.keySet().equals(new java.util.HashSet<String>(Arrays.asList(
+                "net.host[1].delay", "net.host[1].delay:max(10)", "net.host[1].queueLength:timeavg(10)", "net.host[1].nic.queueLength"))));
+        check("attributes", "max(10)".equals(capture.attributes.get("net.host[1].delay:max(10)").get(IResultAttributes.ATTR_RECORDINGMODE))
+                && "s".equals(capture.attributes.get("net.host[1].delay:max(10)").get(IResultAttributes.ATTR_UNIT))
+                && capture.attributes.get("net.host[1].delay") == attributes);
+
+        for (int i = 0; i < 25; i++) {
+            now[0] = i;
+            delay.record(i % 7); // via the simtime provider
+            queueLength.record(now[0], i < 5 ? 1 : 3);
+            nestedQueueLength.record(now[0], i);
+        }
+        manager.close();
+        check("unfiltered vector", capture.vectors.get("net.host[1].delay").samples.size() == 25 && capture.vectors.get("net.host[1].nic.queueLength").samples.size() == 25);
+        checkSamples("fan-out filter", capture.vectors.get("net.host[1].delay:max(10)").samples, "10.0:6.0", "20.0:6.0", "24.0:6.0");
+        checkSamples("timeavg via manager", capture.vectors.get("net.host[1].queueLength:timeavg(10)").samples, "10.0:2.0", "20.0:3.0", "24.0:3.0");
+    }
+
+    private static void testAllocation() {
+        NullVector sink = new NullVector();
+        FilteringOutputVectorManager manager = new FilteringOutputVectorManager(new IOutputVectorManager() {
+            public IOutputVector createVector(String componentPath, String vectorName, Map<String,String> attributes) { return sink; }
+            public void setSimtimeProvider(ISimulationTimeProvider simtimeProvider) {}
+            public ISimulationTimeProvider getSimtimeProvider() { return null; }
+            public void open(String runID, Map<String,String> runAttributes) {}
+            public void close() {}
+            public void flush() {}
+            public String getFileName() { return null; }
+        });
+        for (String spec : new String[] {"everynth(3)|windowavg(10)", "sum(0.01)", "count(0.01)", "min(0.01)", "max(0.01)", "mean(0.01)", "timeavg(0.01)"})
+            manager.addRule("**.v", spec);
+        IOutputVector vector = manager.createVector("net", "v", null);
+
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        double time = 0;
+        long allocated = 0;
+        for (int rep = 0; rep < 3; rep++) { // the first rounds are warmup
+            long allocatedBefore = threadBean.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < 1000000; i++) {
+                time += 0.001;
+                vector.record(time, i % 100);
+            }
+            allocated = threadBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        }
+        System.out.println("Allocated while recording 1000000 values through 7 filter chains: " + allocated + " bytes");
+        check("recording through filters does not allocate", allocated < 1000);
+        check("filters produced output", sink.count > 0);
+    }
+
+    private static void checkSamples(String label, List<String> actual, String... expected) {
+        boolean same = actual.equals(Arrays.asList(expected));
+        check(label + ": expected " + Arrays.asList(expected) + ", got " + actual, same);
+    }
+
+    private static void check(String label, boolean condition) {
+        if (!condition) {
+            System.out.println("FAILED: " + label);
+            ok = false;
+        }
+    }
+}
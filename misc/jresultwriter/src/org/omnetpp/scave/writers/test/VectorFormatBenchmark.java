@@ -0,0 +1,102 @@
+package org.omnetpp.scave.writers.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Random;
+
+import org.omnetpp.scave.writers.IOutputVector;
+import org.omnetpp.scave.writers.IOutputVectorManager;
+import org.omnetpp.scave.writers.impl.BinaryOutputVectorManager;
+import org.omnetpp.scave.writers.impl.BinaryVectorFileReader;
+import org.omnetpp.scave.writers.impl.BinaryVectorFileReader.BlockInfo;
+import org.omnetpp.scave.writers.impl.BinaryVectorFileReader.VectorData;
+import org.omnetpp.scave.writers.impl.FileOutputVectorManager;
+import org.omnetpp.scave.writers.impl.TextVectorFileReader;
+
+/**
+ * Compares the text and the binary vector file formats: writing speed, file
+ * size and reading speed, for a single vector with simulation-like data
+ * (timestamps on a microsecond grid, queue length-like values).
+ *
+ * Usage: VectorFormatBenchmark [numSamples]
+ */
+public class VectorFormatBenchmark {
+    public static void main(String[] args) throws IOException {
+        int numSamples = args.length > 0 ? Integer.parseInt(args[0]) : 100000000;
+        System.out.println("Single vector with " + numSamples + " samples");
+
+        File textFile = new File("bench-format.vec");
+        File textIndexFile = new File("bench-format.vci");
+        File binaryFile = new File("bench-format.bvec");
+
+        double textWrite = write(new FileOutputVectorManager(textFile.getPath()), numSamples);
+        double binaryWrite = write(new BinaryOutputVectorManager(binaryFile.getPath()), numSamples);
+        double textRead = readText(textFile.getPath(), numSamples);
+        double binaryRead = readBinary(binaryFile.getPath(), numSamples);
+
+        long textSize = textFile.length() + textIndexFile.length();
+        long binarySize = binaryFile.length();
+        System.out.printf("%-8s %12s %12s %14s %14s%n", "format", "size (MB)", "bytes/sample", "write (Ms/s)", "read (Ms/s)");
+        System.out.printf("%-8s %12.1f %12.2f %14.2f %14.2f%n", "text", textSize / 1e6, textSize / (double)numSamples, numSamples / textWrite / 1e6, numSamples / textRead / 1e6);
+        System.out.printf("%-8s %12.1f %12.2f %14.2f %14.2f%n", "binary", binarySize / 1e6, binarySize / (double)numSamples, numSamples / binaryWrite / 1e6, numSamples / binaryRead / 1e6);
+
+        textFile.delete();
+        textIndexFile.delete();
+        binaryFile.delete();
+    }
+
+    private static double write(IOutputVectorManager manager, int numSamples) {
+        long startTime = System.nanoTime();
+        manager.open("bench", null);
+        IOutputVector vector = manager.createVector("net.host", "queueLength", null);
+        Random random = new Random(1);
+        long ticks = 0;
+        int queueLength = 0;
+        for (int i = 0; i < numSamples; i++) {
+            ticks += 1 + random.nextInt(1000);
+            queueLength = Math.max(0, queueLength + random.nextInt(3) - 1);
+            vector.record(ticks / 1e6, queueLength);
+        }
+        manager.close();
+        return (System.nanoTime() - startTime) / 1e9;
+    }
+
+    private static double readText(String fileName, int numSamples) throws IOException {
+        long startTime = System.nanoTime();
+        double[] sum = new double[1];
+        long[] count = new long[1];
+        new TextVectorFileReader(fileName).read(new TextVectorFileReader.Handler() {
+            public void run(String runID, Map<String,String> runAttributes) {}
+            public void vector(int id, String moduleName, String name, Map<String,String> attributes, boolean hasEventNumbers) {}
+            public void data(int vectorId, long eventNumber, double time, double value) {
+                sum[0] += value;
+                count[0]++;
+            }
+        });
+        check(count[0], numSamples);
+        return (System.nanoTime() - startTime) / 1e9;
+    }
+
+    private static double readBinary(String fileName, int numSamples) throws IOException {
+        long startTime = System.nanoTime();
+        double sum = 0;
+        long count = 0;
+        try (BinaryVectorFileReader reader = new BinaryVectorFileReader(fileName)) {
+            VectorData data = null;
+            for (BlockInfo block : reader.getBlocks()) {
+                data = reader.readBlock(block, data);
+                for (int i = 0; i < data.count; i++)
+                    sum += data.values[i];
+                count += data.count;
+            }
+        }
+        check(count, numSamples);
+        return (System.nanoTime() - startTime) / 1e9;
+    }
+
+    private static void check(long count, int numSamples) {
+        if (count != numSamples)
+            throw new IllegalStateException("Read " + count + " samples instead of " + numSamples);
+    }
+}
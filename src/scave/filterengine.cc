@@ -0,0 +1,357 @@
+//=========================================================================
+//  FILTERENGINE.CC - part of
+//                  OMNeT++/OMNEST
+//           Discrete System Simulation in C++
+//
+//=========================================================================
+
+/*--------------------------------------------------------------*
+  Copyright (C) 2006-2017 OpenSim Ltd.
+
+  This file is distributed WITHOUT ANY WARRANTY. See the file
+  `license' for details on this and other legal matters.
+*--------------------------------------------------------------*/
+
+#include <algorithm>
+#include <exception>
+#include "common/matchexpression.h"
+#include "common/stringutil.h"
+#include "filterengine.h"
+#include "fields.h"
+#include "resultfilemanager.h"
+
+#ifdef THREADED
+#include <thread>
+#include "common/rwlock.h"
+#define READER_MUTEX    Mutex __reader_mutex_(manager->getReadLock());
+#else
+#define READER_MUTEX
+#endif
+
+using namespace omnetpp::common;
+
+namespace omnetpp {
+namespace scave {
+
+#ifdef THREADED
+static const size_t PARALLEL_MIN_WORDS_PER_THREAD = 4096; // 64 items per word
+#endif
+
+/**
+ * Gives access to the (reverse Polish) parse result of MatchExpression.
+ */
+class MatchExpressionParser : public MatchExpression
+{
+  public:
+    std::vector<Elem> parse(const char *expression) {return parsePattern(expression);}
+};
+
+FilterEngine::FilterEngine(ResultFileManager *manager, const IDList& universe) : manager(manager), universe(universe)
+{
+    READER_MUTEX
+
+    // field scalar names are pooled lazily, on first access; make sure this happens
+    // here and not concurrently from the worker threads of evaluatePattern()
+    for (ID id : universe)
+        if (ResultFileManager::isField(id))
+            manager->getItemProperty(id, Scave::NAME);
+}
+
+FilterEngine::Node FilterEngine::parse(const char *expression)
+{
+    MatchExpressionParser parser;
+    std::vector<MatchExpression::Elem> elems = parser.parse(expression);
+
+    std::vector<Node> stack;
+    for (const MatchExpression::Elem& elem : elems) {
+        Node node;
+        switch (elem.type) {
+            case MatchExpression::Elem::PATTERN:
+                node.type = Node::PATTERN;
+                node.field = elem.fieldname.empty() ? std::string(Scave::NAME) : elem.fieldname; // default field is the name (see MatchableResultItem)
+                node.pattern = elem.pattern;
+                break;
+            case MatchExpression::Elem::AND:
+            case MatchExpression::Elem::OR:
+                Assert(stack.size() >= 2);
+                node.type = elem.type == MatchExpression::Elem::AND ? Node::AND : Node::OR;
+                node.children.push_back(std::move(stack[stack.size()-2]));
+                node.children.push_back(std::move(stack[stack.size()-1]));
+                stack.resize(stack.size()-2);
+                break;
+            case MatchExpression::Elem::NOT:
+                Assert(stack.size() >= 1);
+                node.type = Node::NOT;
+                node.children.push_back(std::move(stack.back()));
+                stack.pop_back();
+                break;
+            default:
+                throw opp_runtime_error("FilterEngine: unexpected element in filter expression");
+        }
+        stack.push_back(std::move(node));
+    }
+    if (stack.size() != 1)
+        throw opp_runtime_error("FilterEngine: malformed filter expression");
+    return std::move(stack[0]);
+}
+
+void FilterEngine::normalize(Node& node)
+{
+    for (Node& child : node.children)
+        normalize(child);
+
+    switch (node.type) {
+        case Node::PATTERN:
+            node.key = node.field + "=~" + opp_quotestr(node.pattern);
+            break;
+
+        case Node::NOT:
+            if (node.children[0].type == Node::NOT) {
+                Node grandchild = std::move(node.children[0].children[0]);
+                node = std::move(grandchild);
+            }
+            else
+                node.key = "NOT " + node.children[0].key;
+            break;
+
+        case Node::AND:
+        case Node::OR: {
+            // flatten, sort, and remove duplicates
+            std::vector<Node> operands;
+            for (Node& child : node.children) {
+                if (child.type == node.type)
+                    for (Node& grandchild : child.children)
+                        operands.push_back(std::move(grandchild));
+                else
+                    operands.push_back(std::move(child));
+            }
+            std::sort(operands.begin(), operands.end(), [](const Node& a, const Node& b) {return a.key < b.key;});
+            operands.erase(std::unique(operands.begin(), operands.end(), [](const Node& a, const Node& b) {return a.key == b.key;}), operands.end());
+            if (operands.size() == 1) {
+                Node operand = std::move(operands[0]);
+                node = std::move(operand);
+            }
+            else {
+                node.children = std::move(operands);
+                std::string op = node.type == Node::AND ? " AND " : " OR ";
+                node.key = "(";
+                for (size_t i = 0; i < node.children.size(); i++)
+                    node.key += (i == 0 ? "" : op) + node.children[i].key;
+                node.key += ")";
+            }
+            break;
+        }
+    }
+}
+
+std::string FilterEngine::normalize(const char *expression)
+{
+    if (opp_isblank(expression))
+        throw opp_runtime_error("Empty filter expression is not allowed");
+    Node node = parse(expression);
+    normalize(node);
+    return node.key;
+}
+
+IDList FilterEngine::filter(const char *expression, int limit, InterruptedFlag *interrupted)
+{
+    if (opp_isblank(expression))
+        throw opp_runtime_error("Empty filter expression is not allowed");
+
+    Node node = parse(expression);
+    normalize(node);
+
+    InterruptedFlag dummy;
+    if (interrupted == nullptr)
+        interrupted = &dummy;
+
+    READER_MUTEX
+    std::shared_ptr<const Bitmap> bitmap = evaluate(node, interrupted);
+
+    std::vector<ID> out;
+    int n = universe.size();
+    auto ids = universe.begin();
+    for (int i = 0; i < n; i++) {
+        if (((*bitmap)[i/64] >> (i%64)) & 1) {
+            out.push_back(ids[i]);
+            if (limit > 0 && (int)out.size() == limit)
+                break;
+        }
+    }
+    return IDList(std::move(out));
+}
+
+std::shared_ptr<const FilterEngine::Bitmap> FilterEngine::evaluate(const Node& node, InterruptedFlag *interrupted)
+{
+    auto it = cache.find(node.key);
+    if (it != cache.end())
+        return it->second;
+
+    if (node.type == Node::PATTERN)
+        return evaluatePattern(node, interrupted);
+
+    // evaluate already cached operands first, they may make evaluating the rest unnecessary
+    std::vector<const Node*> operands;
+    for (const Node& child : node.children)
+        operands.push_back(&child);
+    std::stable_partition(operands.begin(), operands.end(), [this](const Node *child) {return cache.find(child->key) != cache.end();});
+
+    size_t numWords = (universe.size() + 63) / 64;
+    auto result = std::make_shared<Bitmap>(*evaluate(*operands[0], interrupted));
+    if (node.type == Node::NOT) {
+        for (uint64_t& word : *result)
+            word = ~word;
+        if (universe.size() % 64 != 0)
+            result->back() &= (~(uint64_t)0) >> (64 - universe.size() % 64);
+    }
+    else {
+        for (size_t k = 1; k < operands.size(); k++) {
+            std::shared_ptr<const Bitmap> operand = evaluate(*operands[k], interrupted);
+            uint64_t any = 0;
+            for (size_t w = 0; w < numWords; w++) {
+                if (node.type == Node::AND)
+                    any |= (*result)[w] &= (*operand)[w];
+                else
+                    (*result)[w] |= (*operand)[w];
+            }
+            if (node.type == Node::AND && any == 0)
+                break; // empty already
+        }
+    }
+
+    addToCache(node.key, result);
+    return result;
+}
+
+std::shared_ptr<const FilterEngine::Bitmap> FilterEngine::evaluatePattern(const Node& node, InterruptedFlag *interrupted)
+{
+    PatternMatcher matcher(node.pattern.c_str(), false  /*dottedpath*/, true  /*fullstring*/, true  /*casesensitive*/);
+
+    // if a cached pattern on the same field covers this one (i.e. this one is a refinement),
+    // only the items matched by that pattern need to be checked
+    const CachedPattern *narrowest = nullptr;
+    for (const CachedPattern& cachedPattern : cachedPatterns)
+        if (cachedPattern.field == node.field && (!narrowest || cachedPattern.count < narrowest->count) && cachedPattern.matcher.covers(node.pattern.c_str()))
+            narrowest = &cachedPattern;
+    std::shared_ptr<const Bitmap> candidates = narrowest ? narrowest->bitmap : nullptr;
+
+    size_t numWords = (universe.size() + 63) / 64;
+    Bitmap result(numWords, 0);
+
+    int numThreads = 1;
+#ifdef THREADED
+    // attribute lookup of field scalars takes the manager's lock, so it cannot be done from worker threads
+    bool canRunInParallel = !opp_stringbeginswith(node.field.c_str(), Scave::ATTR_PREFIX);
+    if (canRunInParallel)
+        numThreads = std::min((size_t)std::thread::hardware_concurrency(), numWords / PARALLEL_MIN_WORDS_PER_THREAD);
+#endif
+
+    if (numThreads <= 1)
+        matchRange(matcher, node.field.c_str(), candidates.get(), result, 0, numWords, interrupted);
+#ifdef THREADED
+    else {
+        std::vector<std::thread> threads;
+        std::vector<std::exception_ptr> exceptions(numThreads);
+        size_t wordsPerThread = (numWords + numThreads - 1) / numThreads;
+        for (int t = 0; t < numThreads; t++) {
+            size_t fromWord = t * wordsPerThread;
+            size_t toWord = std::min(numWords, fromWord + wordsPerThread);
+            threads.emplace_back([&, t, fromWord, toWord]() {
+                try {
+                    matchRange(matcher, node.field.c_str(), candidates.get(), result, fromWord, toWord, interrupted);
+                }
+                catch (...) {
+                    exceptions[t] = std::current_exception();
+                }
+            });
+        }
+        for (std::thread& thread : threads)
+            thread.join();
+        for (std::exception_ptr& e : exceptions)
+            if (e)
+                std::rethrow_exception(e);
+    }
+#endif
+
+    auto bitmap = std::make_shared<const Bitmap>(std::move(result));
+    addToCache(node.key, bitmap);
+    cachedPatterns.push_back(CachedPattern { node.field, matcher, bitmap, countBits(*bitmap) });
+    return bitmap;
+}
+
+void FilterEngine::matchRange(const PatternMatcher& sharedMatcher, const char *field, const Bitmap *candidates, Bitmap& result, size_t fromWord, size_t toWord, InterruptedFlag *interrupted) const
+{
+    PatternMatcher matcher(sharedMatcher); // PatternMatcher has mutable state, so use a private copy
+
+    // property values often repeat among items, so match each distinct value only once.
+    // Values of most properties are stored in the result items, runs, etc, so they can be
+    // keyed by pointer; attributes of field scalars are returned from a temporary whose
+    // address gets reused, so those must be keyed by content.
+    bool keyByContent = opp_stringbeginswith(field, Scave::ATTR_PREFIX);
+    std::unordered_map<const char *, bool> matchCache;
+    std::unordered_map<std::string, bool> contentMatchCache;
+
+    int n = universe.size();
+    auto ids = universe.begin();
+    for (size_t w = fromWord; w < toWord; w++) {
+        if (interrupted->flag)
+            throw InterruptedException("Result filtering interrupted");
+        uint64_t bits = candidates ? (*candidates)[w] : ~(uint64_t)0;
+        if (bits == 0)
+            continue;
+        uint64_t word = 0;
+        for (int b = 0; b < 64; b++) {
+            int i = w * 64 + b;
+            if (i >= n)
+                break;
+            if (!((bits >> b) & 1))
+                continue;
+            const char *value = manager->getItemProperty(ids[i], field);
+            bool matches;
+            if (value == nullptr)
+                matches = false;
+            else if (keyByContent) {
+                auto it = contentMatchCache.find(value);
+                if (it != contentMatchCache.end())
+                    matches = it->second;
+                else
+                    contentMatchCache[value] = matches = matcher.matches(value);
+            }
+            else {
+                auto it = matchCache.find(value);
+                if (it != matchCache.end())
+                    matches = it->second;
+                else
+                    matchCache[value] = matches = matcher.matches(value);
+            }
+            if (matches)
+                word |= (uint64_t)1 << b;
+        }
+        result[w] = word;
+    }
+}
+
+void FilterEngine::addToCache(const std::string& key, const std::shared_ptr<const Bitmap>& bitmap)
+{
+    if ((int)cache.size() >= maxCacheSize)
+        clearCache(); // simple but effective: the entries in use are recomputed on the next filter() call
+    cache[key] = bitmap;
+}
+
+int FilterEngine::countBits(const Bitmap& bitmap)
+{
+    int count = 0;
+    for (uint64_t word : bitmap)
+        for (; word != 0; word &= word - 1)
+            count++;
+    return count;
+}
+
+void FilterEngine::clearCache()
+{
+    cache.clear();
+    cachedPatterns.clear();
+}
+
+}  // namespace scave
+}  // namespace omnetpp
@@ -0,0 +1,127 @@
+//=========================================================================
+//  FILTERENGINE.H - part of
+//                  OMNeT++/OMNEST
+//           Discrete System Simulation in C++
+//
+//=========================================================================
+
+/*--------------------------------------------------------------*
+  Copyright (C) 2006-2017 OpenSim Ltd.
+
+  This file is distributed WITHOUT ANY WARRANTY. See the file
+  `license' for details on this and other legal matters.
+*--------------------------------------------------------------*/
+
+#ifndef __OMNETPP_SCAVE_FILTERENGINE_H
+#define __OMNETPP_SCAVE_FILTERENGINE_H
+
+#include <string>
+#include <vector>
+#include <unordered_map>
+#include <memory>
+#include "common/patternmatcher.h"
+#include "scavedefs.h"
+#include "idlist.h"
+#include "interruptedflag.h"
+
+namespace omnetpp {
+namespace scave {
+
+class ResultFileManager;
+
+/**
+ * Evaluates filter expressions (as accepted by ResultFileManager::filterIDList())
+ * over a fixed list of result items, the "universe", with caching.
+ *
+ * Expressions are parsed into an AST which is normalized (nested AND/OR
+ * flattened, operands sorted, double negation removed), so that equivalent
+ * expressions share cache entries. The result of every subexpression is
+ * cached as a bitmap over the universe. When a pattern is refined (e.g.
+ * "module =~ **.host*" to "module =~ **.host[1]*"), the new pattern is only
+ * evaluated on the items matched by a cached pattern on the same field that
+ * covers it. Leaf predicates are evaluated once per distinct property value,
+ * and in parallel on large inputs.
+ *
+ * A FilterEngine is only valid as long as the contents of the ResultFileManager
+ * do not change; the owner should discard it when the manager's serial changes.
+ */
+class SCAVE_API FilterEngine
+{
+  public:
+    typedef std::vector<uint64_t> Bitmap;
+
+  private:
+    struct Node {
+        enum Type {PATTERN, AND, OR, NOT};
+        Type type;
+        std::string field;    // for PATTERN
+        std::string pattern;  // for PATTERN
+        std::vector<Node> children;
+        std::string key;      // canonical form, used as cache key
+    };
+
+    struct CachedPattern {
+        std::string field;
+        common::PatternMatcher matcher;
+        std::shared_ptr<const Bitmap> bitmap;
+        int count;
+    };
+
+    ResultFileManager *manager;
+    IDList universe;
+    int maxCacheSize = 1000;
+    std::unordered_map<std::string, std::shared_ptr<const Bitmap>> cache;  // key: canonical expression
+    std::vector<CachedPattern> cachedPatterns;
+
+  private:
+    static Node parse(const char *expression);
+    static void normalize(Node& node);
+    std::shared_ptr<const Bitmap> evaluate(const Node& node, InterruptedFlag *interrupted);
+    std::shared_ptr<const Bitmap> evaluatePattern(const Node& node, InterruptedFlag *interrupted);
+    void matchRange(const common::PatternMatcher& matcher, const char *field, const Bitmap *candidates, Bitmap& result, size_t fromWord, size_t toWord, InterruptedFlag *interrupted) const;
+    void addToCache(const std::string& key, const std::shared_ptr<const Bitmap>& bitmap);
+    static int countBits(const Bitmap& bitmap);
+
+  public:
+    FilterEngine(ResultFileManager *manager, const IDList& universe);
+
+    /**
+     * Returns the list of items the filter expressions are evaluated on.
+     */
+    const IDList& getUniverse() const {return universe;}
+
+    /**
+     * Returns the items of the universe that match the given filter expression,
+     * in the order they occur in the universe. If limit is positive, at most
+     * that many items are returned. Throws an exception if the expression is
+     * invalid.
+     */
+    IDList filter(const char *expression, int limit=-1, InterruptedFlag *interrupted=nullptr);
+
+    /**
+     * Returns the normalized (canonical) form of the given filter expression.
+     * Throws an exception if the expression is invalid.
+     */
+    static std::string normalize(const char *expression);
+
+    /**
+     * Sets the maximum number of cached (sub)expression results.
+     */
+    void setMaxCacheSize(int size) {maxCacheSize = size;}
+
+    /**
+     * Returns the number of cached (sub)expression results.
+     */
+    int getCacheSize() const {return (int)cache.size();}
+
+    /**
+     * Discards all cached results.
+     */
+    void clearCache();
+};
+
+}  // namespace scave
+}  // namespace omnetpp
+
+
+#endif
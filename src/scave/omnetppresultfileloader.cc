@@ -378,7 +378,7 @@ ResultFile *OmnetppResultFileLoader::loadFile(const char *displayName, const cha
     ResultFile *fileRef = nullptr;
 
     try {
-        //TODO handle lockfileOption
+        // note: lockfileOption is handled by ResultFileManager::loadFile()
 
         bool isVecFile = IndexFileUtils::isExistingVectorFile(fileSystemFileName);
         bool hasUpToDateIndex = isVecFile && IndexFileUtils::isIndexFileUpToDate(fileSystemFileName);
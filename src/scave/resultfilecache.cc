@@ -0,0 +1,542 @@
+//=========================================================================
+//  RESULTFILECACHE.CC - part of
+//                  OMNeT++/OMNEST
+//           Discrete System Simulation in C++
+//
+//=========================================================================
+
+/*--------------------------------------------------------------*
+  Copyright (C) 2006-2017 OpenSim Ltd.
+
+  This file is distributed WITHOUT ANY WARRANTY. See the file
+  `license' for details on this and other legal matters.
+*--------------------------------------------------------------*/
+
+#include <cstdio>
+#include <cstring>
+#include <cerrno>
+#include <atomic>
+#include <algorithm>
+#include "common/fileutil.h"
+#include "common/fileglobber.h"
+#include "common/stringutil.h"
+#include "omnetpp/platdep/platmisc.h"
+#include "resultfilecache.h"
+#include "indexfileutils.h"
+#include "interruptedflag.h"
+
+using namespace omnetpp::common;
+
+namespace omnetpp {
+namespace scave {
+
+static const char MAGIC[] = "OMNETPP-RESULTFILECACHE";
+static const char CACHEFILE_SUFFIX[] = ".rcache";
+
+static std::atomic<unsigned> tmpFileCounter(0);
+
+/**
+ * Serializes data into a byte buffer. Strings are written through a string
+ * table: the first occurrence of a string is written inline, later ones
+ * only as an index. Integers are written as varints.
+ */
+class CacheWriter
+{
+  private:
+    std::string buf;
+    std::unordered_map<std::string,uint64_t> stringTable;
+
+  public:
+    const std::string& getBuffer() const {return buf;}
+
+    void writeBytes(const void *data, size_t n) {buf.append((const char *)data, n);}
+    void writeByte(uint8_t b) {buf.push_back((char)b);}
+
+    void writeVarint(uint64_t d) {
+        while (d >= 0x80) {
+            writeByte((uint8_t)(d | 0x80));
+            d >>= 7;
+        }
+        writeByte((uint8_t)d);
+    }
+
+    void writeSignedVarint(int64_t d) {writeVarint(((uint64_t)d << 1) ^ (uint64_t)(d >> 63));} // zigzag
+    void writeDouble(double d) {writeBytes(&d, sizeof(d));}
+
+    void writeRawString(const std::string& s) {
+        writeVarint(s.size());
+        writeBytes(s.data(), s.size());
+    }
+
+    void writeString(const std::string& s) {
+        auto it = stringTable.find(s);
+        if (it != stringTable.end())
+            writeVarint(it->second);
+        else {
+            uint64_t index = stringTable.size();
+            stringTable[s] = index;
+            writeVarint(index);
+            writeRawString(s);
+        }
+    }
+
+    void writeStringMap(const StringMap& map) {
+        writeVarint(map.size());
+        for (const auto& pair : map) {
+            writeString(pair.first);
+            writeString(pair.second);
+        }
+    }
+
+    void writeKeyValueList(const OrderedKeyValueList& list) {
+        writeVarint(list.size());
+        for (const auto& pair : list) {
+            writeString(pair.first);
+            writeString(pair.second);
+        }
+    }
+
+    void writeSimtime(const simultime_t& t) {
+        writeSignedVarint(t.getIntValue());
+        writeSignedVarint(t.getScale());
+    }
+
+    void writeStatistics(const Statistics& stat) {
+        writeByte(stat.isWeighted() ? 1 : 0);
+        writeSignedVarint(stat.getCount());
+        writeDouble(stat.getMin());
+        writeDouble(stat.getMax());
+        writeDouble(stat.getSumWeights());
+        writeDouble(stat.getWeightedSum());
+        writeDouble(stat.getSumSquaredWeights());
+        writeDouble(stat.getSumWeightedSquaredValues());
+    }
+
+    void writeDoubles(const std::vector<double>& v) {
+        writeVarint(v.size());
+        writeBytes(v.data(), v.size() * sizeof(double));
+    }
+
+    void writeHistogram(const Histogram& bins) {
+        writeDoubles(bins.getBinEdges());
+        writeDoubles(bins.getBinValues());
+        writeDouble(bins.getUnderflows());
+        writeDouble(bins.getOverflows());
+    }
+};
+
+/**
+ * Decodes data written by CacheWriter from a memory buffer.
+ */
+class CacheReader
+{
+  private:
+    const char *p;
+    const char *end;
+    std::vector<std::string> stringTable;
+
+  public:
+    CacheReader(const char *data, size_t size) : p(data), end(data + size) {}
+
+    bool atEnd() const {return p == end;}
+
+    void readBytes(void *dest, size_t n) {
+        if ((size_t)(end - p) < n)
+            throw opp_runtime_error("truncated cache file");
+        memcpy(dest, p, n);
+        p += n;
+    }
+
+    uint8_t readByte() {
+        if (p == end)
+            throw opp_runtime_error("truncated cache file");
+        return (uint8_t)*p++;
+    }
+
+    uint64_t readVarint() {
+        uint64_t d = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            uint8_t b = readByte();
+            d |= (uint64_t)(b & 0x7f) << shift;
+            if ((b & 0x80) == 0)
+                return d;
+        }
+        throw opp_runtime_error("malformed cache file");
+    }
+
+    int64_t readSignedVarint() {
+        uint64_t d = readVarint();
+        return (int64_t)(d >> 1) ^ -(int64_t)(d & 1);
+    }
+
+    double readDouble() {
+        double d;
+        readBytes(&d, sizeof(d));
+        return d;
+    }
+
+    std::string readRawString() {
+        uint64_t n = readVarint();
+        if ((uint64_t)(end - p) < n)
+            throw opp_runtime_error("truncated cache file");
+        std::string s(p, n);
+        p += n;
+        return s;
+    }
+
+    const std::string& readString() {
+        uint64_t index = readVarint();
+        if (index == stringTable.size())
+            stringTable.push_back(readRawString());
+        else if (index > stringTable.size())
+            throw opp_runtime_error("malformed cache file");
+        return stringTable[index];
+    }
+
+    void readStringMap(StringMap& map) {
+        uint64_t n = readVarint();
+        for (uint64_t i = 0; i < n; i++) {
+            const std::string& key = readString();
+            map[key] = readString();
+        }
+    }
+
+    void readKeyValueList(OrderedKeyValueList& list) {
+        uint64_t n = readVarint();
+        for (uint64_t i = 0; i < n; i++) {
+            const std::string& key = readString();
+            list.push_back(std::make_pair(key, readString()));
+        }
+    }
+
+    simultime_t readSimtime() {
+        int64_t intVal = readSignedVarint();
+        int scale = (int)readSignedVarint();
+        return simultime_t(intVal, scale);
+    }
+
+    Statistics readStatistics() {
+        bool weighted = readByte() != 0;
+        int64_t count = readSignedVarint();
+        double minValue = readDouble();
+        double maxValue = readDouble();
+        double sumWeights = readDouble();
+        double sumWeightedValues = readDouble();
+        double sumSquaredWeights = readDouble();
+        double sumWeightedSquaredValues = readDouble();
+        if (count == -1)
+            return Statistics::makeInvalid(weighted);
+        else if (weighted)
+            return Statistics::makeWeighted(count, minValue, maxValue, sumWeights, sumWeightedValues, sumSquaredWeights, sumWeightedSquaredValues);
+        else
+            return Statistics::makeUnweighted(count, minValue, maxValue, sumWeightedValues, sumWeightedSquaredValues);
+    }
+
+    void readDoubles(std::vector<double>& v) {
+        uint64_t n = readVarint();
+        if ((uint64_t)(end - p) / sizeof(double) < n)
+            throw opp_runtime_error("truncated cache file");
+        v.resize(n);
+        readBytes(v.data(), n * sizeof(double));
+    }
+
+    Histogram readHistogram() {
+        std::vector<double> edges, values;
+        readDoubles(edges);
+        readDoubles(values);
+        if (edges.size() != values.size() + (edges.empty() ? 0 : 1))
+            throw opp_runtime_error("malformed cache file");
+        Histogram bins;
+        if (!edges.empty())
+            bins.setBins(edges, values);
+        bins.setUnderflows(readDouble());
+        bins.setOverflows(readDouble());
+        return bins;
+    }
+};
+
+static bool readWholeFile(const std::string& fileName, std::vector<char>& data)
+{
+    FILE *f = fopen(fileName.c_str(), "rb");
+    if (!f)
+        return false;
+    bool ok = opp_fseek(f, 0, SEEK_END) == 0;
+    int64_t size = ok ? opp_ftell(f) : -1;
+    ok = ok && size >= 0 && opp_fseek(f, 0, SEEK_SET) == 0;
+    if (ok) {
+        data.resize(size);
+        ok = size == 0 || fread(data.data(), size, 1, f) == 1;
+    }
+    fclose(f);
+    return ok;
+}
+
+std::string ResultFileCache::getCacheFileName(const char *fileSystemFileName) const
+{
+    // FNV-1a hash of the canonical path
+    std::string path = fileNameToSlash(fileSystemFileName);
+    uint64_t hash = 0xcbf29ce484222325ULL;
+    for (char c : path) {
+        hash ^= (uint8_t)c;
+        hash *= 0x100000001b3ULL;
+    }
+    return concatDirAndFile(cacheDir.c_str(), opp_stringf("%016llx%s", (unsigned long long)hash, CACHEFILE_SUFFIX).c_str());
+}
+
+ResultFile *ResultFileCache::loadFile(ResultFileManager *manager, const char *displayName, const char *fileSystemFileName, InterruptedFlag *interrupted)
+{
+    // vector data are read via the index, so it must be up to date as well
+    if (IndexFileUtils::isExistingVectorFile(fileSystemFileName) && !IndexFileUtils::isIndexFileUpToDate(fileSystemFileName))
+        return nullptr;
+
+    std::vector<char> data;
+    if (!readWholeFile(getCacheFileName(fileSystemFileName), data))
+        return nullptr;
+
+    ResultFile *fileRef = nullptr;
+    try {
+        CacheReader in(data.data(), data.size());
+
+        // check header
+        std::string magic = in.readRawString();
+        if (magic != MAGIC || in.readVarint() != FORMAT_VERSION)
+            return nullptr;
+        ResultFile::FileType fileType = (ResultFile::FileType)in.readVarint();
+        std::string path = in.readRawString();
+        FileFingerprint fingerprint;
+        fingerprint.lastModified = in.readSignedVarint();
+        fingerprint.fileSize = in.readSignedVarint();
+        if (path != fileNameToSlash(fileSystemFileName) || fingerprint != readFileFingerprint(fileSystemFileName))
+            return nullptr; // stale entry (or hash collision)
+
+        fileRef = manager->addFile(displayName, fileSystemFileName, fileType);
+
+        uint64_t numFileRuns = in.readVarint();
+        for (uint64_t i = 0; i < numFileRuns; i++) {
+            if (interrupted->flag)
+                throw InterruptedException("Result file loading interrupted");
+
+            // run
+            std::string runName = in.readString();
+            StringMap runAttrs, itervars;
+            OrderedKeyValueList configEntries;
+            in.readStringMap(runAttrs);
+            in.readStringMap(itervars);
+            in.readKeyValueList(configEntries);
+            Run *runRef = manager->getRunByName(runName.c_str());
+            if (!runRef) {
+                runRef = manager->addRun(runName);
+                runRef->attributes = runAttrs;
+                runRef->itervars = itervars;
+                runRef->configEntries = configEntries;
+            }
+            FileRun *fileRunRef = manager->getOrAddFileRun(fileRef, runRef);
+
+            // parameters
+            uint64_t n = in.readVarint();
+            for (uint64_t k = 0; k < n; k++) {
+                std::string moduleName = in.readString();
+                std::string name = in.readString();
+                StringMap attrs;
+                in.readStringMap(attrs);
+                manager->addParameter(fileRunRef, moduleName.c_str(), name.c_str(), attrs, in.readString());
+            }
+
+            // scalars
+            n = in.readVarint();
+            for (uint64_t k = 0; k < n; k++) {
+                std::string moduleName = in.readString();
+                std::string name = in.readString();
+                StringMap attrs;
+                in.readStringMap(attrs);
+                manager->addScalar(fileRunRef, moduleName.c_str(), name.c_str(), attrs, in.readDouble(), false);
+            }
+
+            // vectors
+            n = in.readVarint();
+            for (uint64_t k = 0; k < n; k++) {
+                std::string moduleName = in.readString();
+                std::string name = in.readString();
+                StringMap attrs;
+                in.readStringMap(attrs);
+                int vectorId = (int)in.readSignedVarint();
+                std::string columns = in.readString();
+                int index = manager->addVector(fileRunRef, vectorId, moduleName.c_str(), name.c_str(), attrs, columns.c_str());
+                VectorResult& vector = fileRunRef->vectorResults[index];
+                vector.startEventNum = in.readSignedVarint();
+                vector.endEventNum = in.readSignedVarint();
+                vector.startTime = in.readSimtime();
+                vector.endTime = in.readSimtime();
+                vector.stat = in.readStatistics();
+            }
+
+            // statistics
+            n = in.readVarint();
+            for (uint64_t k = 0; k < n; k++) {
+                std::string moduleName = in.readString();
+                std::string name = in.readString();
+                StringMap attrs;
+                in.readStringMap(attrs);
+                manager->addStatistics(fileRunRef, moduleName.c_str(), name.c_str(), in.readStatistics(), attrs);
+            }
+
+            // histograms
+            n = in.readVarint();
+            for (uint64_t k = 0; k < n; k++) {
+                std::string moduleName = in.readString();
+                std::string name = in.readString();
+                StringMap attrs;
+                in.readStringMap(attrs);
+                Statistics stat = in.readStatistics();
+                manager->addHistogram(fileRunRef, moduleName.c_str(), name.c_str(), stat, in.readHistogram(), attrs);
+            }
+        }
+
+        if (!in.atEnd())
+            throw opp_runtime_error("garbage at end of cache file");
+    }
+    catch (InterruptedException&) {
+        if (fileRef)
+            manager->unloadFile(fileRef);
+        throw;
+    }
+    catch (std::exception&) {
+        // unusable cache entry: pretend it's not there, the file will be parsed instead
+        if (fileRef)
+            manager->unloadFile(fileRef);
+        return nullptr;
+    }
+    return fileRef;
+}
+
+void ResultFileCache::saveFile(ResultFile *file)
+{
+    CacheWriter out;
+
+    // header
+    out.writeRawString(MAGIC);
+    out.writeVarint(FORMAT_VERSION);
+    out.writeVarint(file->getFileType());
+    out.writeRawString(fileNameToSlash(file->getFileSystemFilePath().c_str()));
+    out.writeSignedVarint(file->getFingerprint().lastModified);
+    out.writeSignedVarint(file->getFingerprint().fileSize);
+
+    const FileRunList& fileRuns = file->getFileRuns();
+    out.writeVarint(fileRuns.size());
+    for (FileRun *fileRun : fileRuns) {
+        Run *run = fileRun->getRun();
+        out.writeString(run->getRunName());
+        out.writeStringMap(run->getAttributes());
+        out.writeStringMap(run->getIterationVariables());
+        out.writeKeyValueList(run->getConfigEntries());
+
+        out.writeVarint(fileRun->parameterResults.size());
+        for (const ParameterResult& param : fileRun->parameterResults) {
+            out.writeString(param.getModuleName());
+            out.writeString(param.getName());
+            out.writeStringMap(param.getAttributes());
+            out.writeString(param.getValue());
+        }
+
+        out.writeVarint(fileRun->scalarResults.size());
+        for (const ScalarResult& scalar : fileRun->scalarResults) {
+            out.writeString(scalar.getModuleName());
+            out.writeString(scalar.getName());
+            out.writeStringMap(scalar.getAttributes());
+            out.writeDouble(scalar.getValue());
+        }
+
+        out.writeVarint(fileRun->vectorResults.size());
+        for (const VectorResult& vector : fileRun->vectorResults) {
+            out.writeString(vector.getModuleName());
+            out.writeString(vector.getName());
+            out.writeStringMap(vector.getAttributes());
+            out.writeSignedVarint(vector.getVectorId());
+            out.writeString(vector.getColumns());
+            out.writeSignedVarint(vector.getStartEventNum());
+            out.writeSignedVarint(vector.getEndEventNum());
+            out.writeSimtime(vector.getStartTime());
+            out.writeSimtime(vector.getEndTime());
+            out.writeStatistics(vector.getStatistics());
+        }
+
+        out.writeVarint(fileRun->statisticsResults.size());
+        for (const StatisticsResult& statistics : fileRun->statisticsResults) {
+            out.writeString(statistics.getModuleName());
+            out.writeString(statistics.getName());
+            out.writeStringMap(statistics.getAttributes());
+            out.writeStatistics(statistics.getStatistics());
+        }
+
+        out.writeVarint(fileRun->histogramResults.size());
+        for (const HistogramResult& histogram : fileRun->histogramResults) {
+            out.writeString(histogram.getModuleName());
+            out.writeString(histogram.getName());
+            out.writeStringMap(histogram.getAttributes());
+            out.writeStatistics(histogram.getStatistics());
+            out.writeHistogram(histogram.getHistogram());
+        }
+    }
+
+    // write to a temp file, then move it into place
+    mkPath(cacheDir.c_str());
+    std::string fileName = getCacheFileName(file->getFileSystemFilePath().c_str());
+    std::string tmpFileName = opp_stringf("%s.%d-%u.tmp", fileName.c_str(), (int)getpid(), tmpFileCounter++); // unique among concurrent writers
+    struct opp_stat_t s;
+    int64_t oldSize = opp_stat(fileName.c_str(), &s) == 0 ? (int64_t)s.st_size : 0; // size of the entry being replaced
+    FILE *f = fopen(tmpFileName.c_str(), "wb");
+    if (!f)
+        throw opp_runtime_error("Cannot open result file cache '%s' for write: %s", tmpFileName.c_str(), strerror(errno));
+    const std::string& buf = out.getBuffer();
+    bool ok = fwrite(buf.data(), buf.size(), 1, f) == 1;
+    ok = (fclose(f) == 0) && ok;
+    if (ok) {
+        remove(fileName.c_str()); // rename() does not overwrite on Windows
+        ok = rename(tmpFileName.c_str(), fileName.c_str()) == 0;
+    }
+    if (!ok) {
+        remove(tmpFileName.c_str());
+        throw opp_runtime_error("Cannot write result file cache '%s'", fileName.c_str());
+    }
+
+    // only rescan the directory when needed, otherwise loading N files would be O(N^2)
+    if (knownSize >= 0)
+        knownSize += (int64_t)buf.size() - oldSize;
+    if (knownSize < 0 || knownSize > maxSize)
+        trim();
+}
+
+void ResultFileCache::trim()
+{
+    struct Entry {
+        std::string fileName;
+        int64_t lastModified;
+        int64_t size;
+    };
+    std::vector<Entry> entries;
+    int64_t totalSize = 0;
+    std::string pattern = concatDirAndFile(cacheDir.c_str(), (std::string("*") + CACHEFILE_SUFFIX).c_str());
+    for (const std::string& fileName : FileGlobber(pattern.c_str()).getFilenames()) { // note: collectFilesInDirectory() would chdir, which is not thread-safe
+        struct opp_stat_t s;
+        if (opp_stat(fileName.c_str(), &s) != 0)
+            continue; // removed by someone else meanwhile
+        entries.push_back(Entry { fileName, (int64_t)s.st_mtime, (int64_t)s.st_size });
+        totalSize += s.st_size;
+    }
+    knownSize = totalSize;
+    if (totalSize <= maxSize)
+        return;
+
+    // oldest first
+    std::sort(entries.begin(), entries.end(), [](const Entry& a, const Entry& b) {return a.lastModified < b.lastModified;});
+    for (const Entry& entry : entries) {
+        if (totalSize <= maxSize)
+            break;
+        remove(entry.fileName.c_str()); // failure is harmless: a concurrent trim() may have removed it
+        totalSize -= entry.size;
+    }
+    knownSize = totalSize;
+}
+
+}  // namespace scave
+}  // namespace omnetpp
@@ -0,0 +1,101 @@
+//=========================================================================
+//  RESULTFILECACHE.H - part of
+//                  OMNeT++/OMNEST
+//           Discrete System Simulation in C++
+//
+//=========================================================================
+
+/*--------------------------------------------------------------*
+  Copyright (C) 2006-2017 OpenSim Ltd.
+
+  This file is distributed WITHOUT ANY WARRANTY. See the file
+  `license' for details on this and other legal matters.
+*--------------------------------------------------------------*/
+
+#ifndef __OMNETPP_SCAVE_RESULTFILECACHE_H
+#define __OMNETPP_SCAVE_RESULTFILECACHE_H
+
+#include <string>
+#include <vector>
+#include <unordered_map>
+#include "common/statistics.h"
+#include "common/histogram.h"
+#include "scavedefs.h"
+#include "resultfilemanager.h"
+
+namespace omnetpp {
+namespace scave {
+
+/**
+ * Persistent binary cache of the metadata and scalar contents of loaded
+ * result files. A cache entry stores everything ResultFileManager keeps
+ * in memory about one result file (runs, run attributes, itervars, config
+ * entries, and the declarations/values of all result items), so that the
+ * file can be re-added to a ResultFileManager without parsing the .sca or
+ * .vci file again.
+ *
+ * Cache entries are stored in a directory (one file per result file), named
+ * after a hash of the result file's file system path. Every entry records
+ * the path and the fingerprint (size + modification time) of the result
+ * file it was created from, and it is only used if both still match.
+ * Because entries are keyed by the result file alone, a cache directory
+ * may be shared by several ResultFileManager instances, also in different
+ * processes.
+ *
+ * The total size of the entries is bounded. The cache object keeps track
+ * of the total size in memory (the directory is scanned at the first write
+ * only), and when a write takes it over the limit, it rescans the directory
+ * and removes the least recently written entries until it fits again. Entries
+ * written by other instances sharing the directory are only counted at the
+ * next rescan, so the limit may be exceeded temporarily. Keep the cache
+ * object alive across writes (ResultFileManager does), otherwise every write
+ * involves a rescan. The class is not thread-safe; ResultFileManager only
+ * uses it while holding its write lock.
+ */
+class SCAVE_API ResultFileCache
+{
+  public:
+    static const uint32_t FORMAT_VERSION = 1;
+    static const int64_t DEFAULT_MAX_SIZE = 256*1024*1024;
+
+  private:
+    std::string cacheDir;
+    int64_t maxSize;
+    int64_t knownSize = -1; // total size of the entries as of the last trim(), plus the ones written since; -1 if unknown
+
+  public:
+    ResultFileCache(const char *cacheDir, int64_t maxSize=DEFAULT_MAX_SIZE) : cacheDir(cacheDir), maxSize(maxSize) {}
+
+    /**
+     * Returns the name of the cache file that belongs to the given result file.
+     */
+    std::string getCacheFileName(const char *fileSystemFileName) const;
+
+    /**
+     * Adds the given result file to the manager from the cache. Returns nullptr
+     * if there is no up-to-date cache entry for the file, or the entry cannot
+     * be read; the manager is left unchanged in that case.
+     */
+    ResultFile *loadFile(ResultFileManager *manager, const char *displayName, const char *fileSystemFileName, InterruptedFlag *interrupted);
+
+    /**
+     * Writes the cache entry of the given loaded result file, then trims the
+     * cache if its tracked total size went over the limit. The entry is written into a temporary file (unique to the writer)
+     * first and renamed afterwards, so readers never see partially written
+     * entries. Throws an exception on errors.
+     */
+    void saveFile(ResultFile *file);
+
+    /**
+     * Removes the least recently written entries until the total size of the
+     * entries does not exceed the size limit. Scans the cache directory, and
+     * updates the tracked total size accordingly.
+     */
+    void trim();
+};
+
+}  // namespace scave
+}  // namespace omnetpp
+
+
+#endif
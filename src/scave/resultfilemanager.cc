@@ -40,6 +40,7 @@
 #include "resultfilemanager.h"
 #include "omnetppresultfileloader.h"
 #include "sqliteresultfileloader.h"
+#include "resultfilecache.h"
 #include "vectorfileindex.h"
 #include "interruptedflag.h"
 
@@ -76,6 +77,15 @@ bool StringMapPtrEq::operator () (const StringMap *lhs, const StringMap *rhs) co
 ResultFileManager::~ResultFileManager()
 {
     clear();
+    delete cache;
+}
+
+void ResultFileManager::setCacheDirectory(const char *dir)
+{
+    WRITER_MUTEX
+    cacheDirectory = dir ? dir : "";
+    delete cache;
+    cache = cacheDirectory.empty() ? nullptr : new ResultFileCache(cacheDirectory.c_str());
 }
 
 void ResultFileManager::clear()
@@ -1305,11 +1315,34 @@ ResultFile *ResultFileManager::loadFile(const char *displayName, const char *fil
     if (!isFileReadable(fileSystemFileName))
         throw opp_runtime_error("Cannot open '%s' for read", fileSystemFileName);
 
+    // checked here, so that it applies to loading from the cache as well
+    if (lockfileOption == SKIP_IF_LOCKED && fileExists((std::string(fileSystemFileName) + ".lock").c_str())) {
+        LOG << "file is locked (being written), skipping: " << displayName << std::endl;
+        return nullptr;
+    }
+
     try {
         serial++;
-        ResultFile *file = SqliteResultFileUtils::isSqliteFile(fileSystemFileName) ?
+        bool isSqliteFile = SqliteResultFileUtils::isSqliteFile(fileSystemFileName);
+        bool useCache = cache != nullptr && !isSqliteFile; // SQLite files are fast to load anyway
+        if (useCache) {
+            ResultFile *file = cache->loadFile(this, displayName, fileSystemFileName, interrupted);
+            if (file) {
+                LOG << "loaded from cache: " << displayName << std::endl;
+                return file;
+            }
+        }
+        ResultFile *file = isSqliteFile ?
                 SqliteResultFileLoader(this, flags, interrupted).loadFile(displayName, fileSystemFileName) :
                 OmnetppResultFileLoader(this, flags, interrupted).loadFile(displayName, fileSystemFileName);
+        if (file && useCache) {
+            try {
+                cache->saveFile(file);
+            }
+            catch (std::exception& e) {
+                LOG << "could not write cache entry for " << displayName << ": " << e.what() << std::endl;
+            }
+        }
         return file; // note: nullptr if file was skipped (e.g. due to missing index)
     }
     catch (InterruptedException& e) {
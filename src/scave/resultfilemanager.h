@@ -116,7 +116,7 @@ class SCAVE_API ResultFileManager
         SKIP_IF_NO_INDEX = (1<<4), // don't load
         ALLOW_LOADING_WITHOUT_INDEX = (1<<5), // load without creating an index (i.e. scan .vec file instead of .vci file)
 
-        // What to do if there is a lock file (indicating that the file is being written to)
+        // What to do if there is a lock file ("<file>.lock", indicating that the file is being written to)
         SKIP_IF_LOCKED = (1<<6), // don't load (this is the default)
         IGNORE_LOCK_FILE = (1<<7), // pretend lock file doesn't exist
 
@@ -133,8 +133,12 @@ class SCAVE_API ResultFileManager
     friend class CmpBase; // uncheckedGet...()
     friend class OmnetppResultFileLoader;
     friend class SqliteResultFileLoader;
+    friend class ResultFileCache;
+    friend class ResultItemColumns; // _fieldid(), getPooledNameWithSuffix()
   private:
     int serial = 0; // incremented at each results change
+    std::string cacheDirectory; // for ResultFileCache; empty means caching is off
+    ResultFileCache *cache = nullptr; // for cacheDirectory; kept across loadFile() calls so that it can track the cache size
 
     std::unordered_set<ResultFile*> fileList;
     std::unordered_set<Run*> runList;
@@ -169,7 +173,7 @@ class SCAVE_API ResultFileManager
     static int _type(ID id)      {return _bits(id,58,5);}
     static int _hosttype(ID id)  {return _bits(id,56,2);} // a field of what kind of result
     static int _fieldid(ID id)   {return _bits(id,52,4);} // =0: not a field
-    static int _filerunid(ID id) {return _bits(id,32,20);}
+    static int _filerunid(ID id) {return _bits(id,FILERUNID_SHIFT,FILERUNID_BITS);}
     static int _pos(ID id)       {return _bits(id,0,32);}
     static ID _mkID(int type, int filerunid, int pos) {
         assert((type>>6)==0 && (filerunid>>20)==0 && ((int64_t)pos>>32)==0); // range check
@@ -250,6 +254,8 @@ class SCAVE_API ResultFileManager
     const StatisticsResult *getStatistics(ID id) const;
     const HistogramResult *getHistogram(ID id) const;
     static int getTypeOf(ID id) {return _type(id);} // PARAMETER/SCALAR/VECTOR/STATISTICS/HISTOGRAM
+    static const int FILERUNID_SHIFT = 32; // position of the FileRun id within an ID, for decoding IDs in bulk (e.g. in Java)
+    static const int FILERUNID_BITS = 20;
     static bool isField(ID id) {return  _fieldid(id) != 0;}
     static ID getContainingItemID(ID fieldItemId) {return _containingItemID(fieldItemId);}
     static ID getFieldItemID(ID containingItemId, int fieldId) {return _fieldItemID(containingItemId, fieldId);}
@@ -360,6 +366,15 @@ class SCAVE_API ResultFileManager
     void unloadFile(ResultFile *file);
     void unloadFile(const char *displayName);
 
+    /**
+     * Sets the directory where a persistent cache of the contents of loaded
+     * files is kept (see ResultFileCache). If set, loadFile() consults the cache
+     * before parsing a .sca/.vec file, and writes a cache entry after parsing one.
+     * An empty string turns caching off.
+     */
+    void setCacheDirectory(const char *dir);
+    const std::string& getCacheDirectory() const {return cacheDirectory;}
+
     bool isFileLoaded(const char *displayName) const;
     ResultFile *getFile(const char *displayName) const;
     Run *getRunByName(const char *runName) const;
@@ -0,0 +1,79 @@
+//=========================================================================
+//  RESULTITEMCOLUMNS.CC - part of
+//                  OMNeT++/OMNEST
+//           Discrete System Simulation in C++
+//
+//=========================================================================
+
+/*--------------------------------------------------------------*
+  Copyright (C) 2006-2017 OpenSim Ltd.
+
+  This file is distributed WITHOUT ANY WARRANTY. See the file
+  `license' for details on this and other legal matters.
+*--------------------------------------------------------------*/
+
+#include <cmath>
+#include <algorithm>
+#include <unordered_map>
+#include "resultitemcolumns.h"
+#include "resultfilemanager.h"
+
+#ifdef THREADED
+#include "common/rwlock.h"
+#define READER_MUTEX(mgr)    Mutex __reader_mutex_((mgr)->getReadLock())
+#else
+#define READER_MUTEX(mgr)
+#endif
+
+using namespace omnetpp::common;
+
+namespace omnetpp {
+namespace scave {
+
+static int encode(const std::string *str, std::unordered_map<const std::string*,int>& codes, std::vector<std::string>& dictionary)
+{
+    // strings are pooled in ResultFileManager, so pointer identity is string identity
+    auto it = codes.find(str);
+    if (it != codes.end())
+        return it->second;
+    int code = dictionary.size();
+    dictionary.push_back(*str);
+    codes[str] = code;
+    return code;
+}
+
+ResultItemColumns::ResultItemColumns(ResultFileManager *manager, const IDList& idList)
+{
+    READER_MUTEX(manager);
+
+    ids.assign(idList.begin(), idList.end());
+    std::sort(ids.begin(), ids.end());
+    ids.erase(std::unique(ids.begin(), ids.end()), ids.end());
+
+    int n = ids.size();
+    moduleCodes.resize(n);
+    nameCodes.resize(n);
+    values.resize(n);
+
+    std::unordered_map<const std::string*,int> moduleCodeMap, nameCodeMap;
+    for (int i = 0; i < n; i++) {
+        ID id = ids[i];
+        if (ResultFileManager::isField(id)) {
+            // avoid getFieldScalar(), as it would copy the attributes of the containing item
+            const ResultItem *container = manager->getContainingItem(id);
+            ResultItem::FieldNum fieldId = (ResultItem::FieldNum)ResultFileManager::_fieldid(id);
+            moduleCodes[i] = encode(container->moduleNameRef, moduleCodeMap, moduleDictionary);
+            nameCodes[i] = encode(manager->getPooledNameWithSuffix(container->nameRef, fieldId), nameCodeMap, nameDictionary);
+            values[i] = container->getScalarField(fieldId);
+        }
+        else {
+            const ResultItem *item = manager->getNonfieldItem(id);
+            moduleCodes[i] = encode(item->moduleNameRef, moduleCodeMap, moduleDictionary);
+            nameCodes[i] = encode(item->nameRef, nameCodeMap, nameDictionary);
+            values[i] = ResultFileManager::getTypeOf(id) == ResultFileManager::SCALAR ? static_cast<const ScalarResult*>(item)->getValue() : NAN;
+        }
+    }
+}
+
+}  // namespace scave
+}  // namespace omnetpp
@@ -0,0 +1,66 @@
+//=========================================================================
+//  RESULTITEMCOLUMNS.H - part of
+//                  OMNeT++/OMNEST
+//           Discrete System Simulation in C++
+//
+//=========================================================================
+
+/*--------------------------------------------------------------*
+  Copyright (C) 2006-2017 OpenSim Ltd.
+
+  This file is distributed WITHOUT ANY WARRANTY. See the file
+  `license' for details on this and other legal matters.
+*--------------------------------------------------------------*/
+
+#ifndef __OMNETPP_SCAVE_RESULTITEMCOLUMNS_H
+#define __OMNETPP_SCAVE_RESULTITEMCOLUMNS_H
+
+#include <string>
+#include <vector>
+#include "scavedefs.h"
+#include "idlist.h"
+
+namespace omnetpp {
+namespace scave {
+
+class ResultFileManager;
+
+/**
+ * Extracts the most frequently accessed properties of a set of result items
+ * into columns: module names and result names are dictionary-encoded (each
+ * item gets an int code that indexes into the module/name dictionary), and
+ * scalar values are stored in a double column (NaN for non-scalar items).
+ * The IDs are stored in sorted order, so row lookup can be done with binary
+ * search.
+ *
+ * The purpose of this class is to let the IDE build a Java-side columnar model
+ * of the results with a handful of bulk JNI calls, instead of fetching the
+ * items one by one.
+ */
+class SCAVE_API ResultItemColumns
+{
+  private:
+    std::vector<ID> ids;
+    std::vector<int> moduleCodes;
+    std::vector<int> nameCodes;
+    std::vector<double> values;
+    std::vector<std::string> moduleDictionary;
+    std::vector<std::string> nameDictionary;
+
+  public:
+    ResultItemColumns(ResultFileManager *manager, const IDList& idList);
+
+    int size() const {return (int)ids.size();}
+    const std::vector<ID>& getIDs() const {return ids;}
+    const std::vector<int>& getModuleCodes() const {return moduleCodes;}
+    const std::vector<int>& getNameCodes() const {return nameCodes;}
+    const std::vector<double>& getValues() const {return values;}
+    const std::vector<std::string>& getModuleDictionary() const {return moduleDictionary;}
+    const std::vector<std::string>& getNameDictionary() const {return nameDictionary;}
+};
+
+}  // namespace scave
+}  // namespace omnetpp
+
+
+#endif
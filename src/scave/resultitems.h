@@ -50,6 +50,8 @@ class FileRun;
 class ResultFileManager;
 class OmnetppResultFileLoader;
 class SqliteResultFileLoader;
+class ResultFileCache;
+class ResultItemColumns;
 
 typedef std::vector<std::string> StringVector;
 typedef std::set<std::string> StringSet;
@@ -68,6 +70,7 @@ class SCAVE_API ResultItem
 {
     friend class ResultFileManager;
     friend class SqliteResultFileLoader;
+    friend class ResultItemColumns;
 
   public:
     enum DataType { TYPE_NA, TYPE_BOOL, TYPE_INT, TYPE_DOUBLE, TYPE_ENUM };
@@ -182,6 +185,7 @@ class SCAVE_API VectorResult : public ResultItem
     friend class ResultFileManager;
     friend class OmnetppResultFileLoader;
     friend class SqliteResultFileLoader;
+    friend class ResultFileCache;
   private:
     int vectorId;
     std::string columns;
@@ -303,6 +307,7 @@ class SCAVE_API Run
     friend class ResultFileManager;
     friend class OmnetppResultFileLoader;
     friend class SqliteResultFileLoader;
+    friend class ResultFileCache;
 
   private:
     std::string runName; // unique identifier for the run, "runId"
@@ -353,6 +358,7 @@ class SCAVE_API FileRun
     friend class ResultFileManager;
     friend class OmnetppResultFileLoader;
     friend class SqliteResultFileLoader;
+    friend class ResultFileCache;
 
   private:
     int id;  // position in fileRunList
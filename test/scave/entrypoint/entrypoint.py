@@ -0,0 +1,51 @@
+# Runs chart scripts one after the other in the same Python process, the way
+# a process reused by PythonProcessPool does, and checks that reset() prevents
+# one chart from affecting the next one.
+
+import os
+import matplotlib as mpl
+from omnetpp.internal.PythonEntryPoint import PythonEntryPoint
+
+# changes what utils.preconfigure_plot() changes for Matplotlib charts
+styled_chart = """
+import matplotlib as mpl
+import matplotlib.pyplot as plt
+plt.style.use("ggplot")
+mpl.rcParams.update({"font.size": 21, "axes.grid": True, "figure.dpi": 150})
+plt.plot([1, 2, 3], [3, 1, 2])
+"""
+
+checked_params = ["font.size", "axes.grid", "figure.dpi", "axes.prop_cycle", "axes.facecolor"]
+
+plain_chart = """
+import matplotlib as mpl
+import matplotlib.pyplot as plt
+plt.plot([1, 2, 3], [3, 1, 2])
+rcparams = { k: mpl.rcParams[k] for k in checked_params }
+num_figures = len(plt.get_fignums())
+"""
+
+entry_point = PythonEntryPoint()
+entry_point.warmUp()
+defaults = { k: mpl.rcParams[k] for k in checked_params }
+working_dir = os.getcwd()
+
+print("*** plain chart in a fresh process")
+entry_point.execContext["checked_params"] = checked_params
+entry_point.execute(plain_chart)
+print("rcParams are the defaults:", entry_point.execContext["rcparams"] == defaults)
+entry_point.reset()
+
+print("*** styled chart, then a plain chart in the same process")
+entry_point.execute(styled_chart)
+print("styled chart changed rcParams:", { k: mpl.rcParams[k] for k in checked_params } != defaults)
+entry_point.reset()
+entry_point.execContext["checked_params"] = checked_params
+entry_point.execute(plain_chart)
+print("rcParams are the defaults:", entry_point.execContext["rcparams"] == defaults)
+print("number of figures:", entry_point.execContext["num_figures"])
+entry_point.reset()
+
+print("*** state restored by reset()")
+print("working directory:", os.getcwd() == working_dir)
+print("exec context cleared:", "rcparams" not in entry_point.execContext)
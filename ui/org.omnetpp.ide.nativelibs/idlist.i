@@ -18,7 +18,19 @@ namespace omnetpp { namespace scave {
   }
 
 
+%extend IDList {
+  void copyToArray(int64_t *outArray, int n) {
+      std::copy_n(self->begin(), std::min(n, self->size()), outArray);
+  }
+}
+
 %typemap(javacode) IDList %{
+  public long[] toLongArray() {
+      long[] array = new long[size()];
+      copyToArray(array);
+      return array;
+  }
+
   @Override
   public int hashCode() {
     long h = hashCode64();
@@ -33,6 +33,8 @@
 #include "scave/exporter.h"
 #include "scave/sqliteresultfileutils.h"
 #include "scave/xyarray.h"
+#include "scave/resultitemcolumns.h"
+#include "scave/filterengine.h"
 
 #include "resultspickler.h"
 #include "shmmanager.h"
@@ -78,6 +80,46 @@ USE_COMMON_ENGINE_ILOCK();
 // If there're wrappers (SwigValueWrapper) in the generated code, the following will help:
 //%feature("novaluewrapper") omnetpp::scave::IDListsByRun;
 
+//
+// Output array typemaps for the copyToArray() methods: the C++ side fills
+// a temporary buffer, which is copied into the Java array with a single
+// Set<Type>ArrayRegion() call.
+//
+%define OUTPUT_ARRAY_TYPEMAP(CTYPE, JNITYPE, JNIARRAYTYPE, JAVAARRAYTYPE, SETREGIONFUNC)
+%typemap(in) (CTYPE *outArray, int n) {
+    $2 = jenv->GetArrayLength($input);
+    $1 = new CTYPE[$2];
+}
+%typemap(argout) (CTYPE *outArray, int n) {
+    jenv->SETREGIONFUNC($input, 0, $2, (JNITYPE *)$1);
+}
+%typemap(freearg) (CTYPE *outArray, int n) {
+    delete [] $1;
+}
+%typemap(jni)    (CTYPE *outArray, int n) "JNIARRAYTYPE"
+%typemap(jtype)  (CTYPE *outArray, int n) "JAVAARRAYTYPE"
+%typemap(jstype) (CTYPE *outArray, int n) "JAVAARRAYTYPE"
+%typemap(javain) (CTYPE *outArray, int n) "$javainput"
+%enddef
+
+OUTPUT_ARRAY_TYPEMAP(int, jint, jintArray, int[], SetIntArrayRegion)
+OUTPUT_ARRAY_TYPEMAP(double, jdouble, jdoubleArray, double[], SetDoubleArrayRegion)
+OUTPUT_ARRAY_TYPEMAP(int64_t, jlong, jlongArray, long[], SetLongArrayRegion)
+
+// bulk input of IDs, for IDListBuffer::append()
+%typemap(in) (int64_t *array, int n) {
+    $2 = jenv->GetArrayLength($input);
+    $1 = new int64_t[$2];
+    jenv->GetLongArrayRegion($input, 0, $2, (jlong *)$1);
+}
+%typemap(freearg) (int64_t *array, int n) {
+    delete [] $1;
+}
+%typemap(jni)    (int64_t *array, int n) "jlongArray"
+%typemap(jtype)  (int64_t *array, int n) "long[]"
+%typemap(jstype) (int64_t *array, int n) "long[]"
+%typemap(javain) (int64_t *array, int n) "$javainput"
+
 namespace std {
    %typemap(javacode) vector<string> %{
        public String[] toArray() {
@@ -97,10 +139,8 @@ namespace std {
 
    %typemap(javacode) vector<int> %{
        public int[] toArray() {
-           int sz = (int) size();
-           int[] array = new int[sz];
-           for (int i=0; i<sz; i++)
-               array[i] = get(i);
+           int[] array = new int[(int)size()];
+           copyToArray(array);
            return array;
        }
        public static IntVector fromArray(int[] array) {
@@ -141,7 +181,21 @@ namespace std {
         }
    %}
 
+   %typemap(javacode) vector<double> %{
+       public double[] toArray() {
+           double[] array = new double[(int)size()];
+           copyToArray(array);
+           return array;
+       }
+   %}
+
    %typemap(javacode) vector<omnetpp::scave::ID> %{
+        public long[] toLongArray() {
+            long[] array = new long[(int)size()];
+            copyToArray(array);
+            return array;
+        }
+
         public Long[] toArray() {
             int sz = (int)size();
             Long[] array = new Long[sz];
@@ -171,13 +225,31 @@ namespace std {
        }
    }
 
+   %extend vector<int> {
+       void copyToArray(int *outArray, int n) {
+           std::copy_n(self->begin(), std::min((size_t)n, self->size()), outArray);
+       }
+   }
+
+   %extend vector<double> {
+       void copyToArray(double *outArray, int n) {
+           std::copy_n(self->begin(), std::min((size_t)n, self->size()), outArray);
+       }
+   }
+
    %extend vector<omnetpp::scave::ID> {
+       void copyToArray(int64_t *outArray, int n) {
+           std::copy_n(self->begin(), std::min((size_t)n, self->size()), outArray);
+       }
        void append(const vector<omnetpp::scave::ID>& v) {
            self->insert(self->end(), v.begin(), v.end());
        }
        void append(const omnetpp::scave::IDList& ids) {
            self->insert(self->end(), ids.begin(), ids.end());
        }
+       void append(int64_t *array, int n) {
+           self->insert(self->end(), array, array + n);
+       }
        omnetpp::scave::IDList toIDList() {
            return IDList(std::move(*self));
        }
@@ -416,6 +488,12 @@ CHECK_RESULTFILE_FORMAT_EXCEPTION(ResultFileManager::loadFile)
 %include "scave/resultitems.h"
 %include "scave/resultfilemanager.h"
 
+/* ------------- resultitemcolumns.h  ----------------- */
+%include "scave/resultitemcolumns.h"
+
+/* ------------- filterengine.h  ----------------- */
+%include "scave/filterengine.h"
+
 /* ------------- indexfileutils.h  ----------------- */
 %include "scave/indexfileutils.h"
 
@@ -73,6 +73,7 @@ import org.omnetpp.ned.model.interfaces.INedTypeInfo;
 import org.omnetpp.ned.model.interfaces.INedTypeResolver;
 import org.omnetpp.ned.model.interfaces.ISubmoduleOrConnection;
 import org.omnetpp.ned.model.notification.INedChangeListener;
+import org.omnetpp.ned.model.notification.NedModelDeltaEvent;
 import org.omnetpp.ned.model.pojo.ParamElement;
 
 /**
@@ -190,8 +191,8 @@ public final class InifileAnalyzer {
         inifileChangeListener = () -> modelChanged();
         doc.addInifileChangeListener(inifileChangeListener);
 
-        // listen on NED changes as well
-        nedChangeListener = (e) -> modelChanged();
+        // listen on NED changes as well (once per batch of changes)
+        nedChangeListener = (e) -> { if (e instanceof NedModelDeltaEvent) modelChanged(); };
         NedResourcesPlugin.getNedResources().addNedModelChangeListener(nedChangeListener);
 
         // listen on preferences
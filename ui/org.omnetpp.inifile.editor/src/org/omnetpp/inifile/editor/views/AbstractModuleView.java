@@ -25,6 +25,7 @@ import org.omnetpp.ned.model.INedElement;
 import org.omnetpp.ned.model.interfaces.INedModelProvider;
 import org.omnetpp.ned.model.interfaces.INedTypeInfo;
 import org.omnetpp.ned.model.notification.INedChangeListener;
+import org.omnetpp.ned.model.notification.NedModelDeltaEvent;
 import org.omnetpp.ned.model.notification.NedModelEvent;
 import org.omnetpp.ned.model.pojo.ChannelElement;
 import org.omnetpp.ned.model.pojo.ChannelInterfaceElement;
@@ -49,10 +50,12 @@ public abstract class AbstractModuleView extends PinnableView implements IShowIn
     protected void hookListeners() {
         super.hookListeners();
 
-        // Listen on NED changes as well (note: inifile changes arrive as selection changes)
+        // Listen on NED changes as well (note: inifile changes arrive as selection changes);
+        // delta events summarize batches of changes, so we only rebuild once per batch
         nedChangeListener = new INedChangeListener() {
             public void modelChanged(NedModelEvent event) {
-                nedModelChanged();
+                if (event instanceof NedModelDeltaEvent)
+                    nedModelChanged();
             }
         };
         NedResourcesPlugin.getNedResources().addNedModelChangeListener(nedChangeListener);
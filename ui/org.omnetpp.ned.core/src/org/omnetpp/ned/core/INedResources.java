@@ -21,7 +21,11 @@ import org.omnetpp.ned.model.notification.INedChangeListener;
 public interface INedResources extends INedTypeResolver {
     /**
      * Adds a listener that will be notified about changes anywhere
-     * in the loaded NED files.
+     * in the loaded NED files. Besides the individual change events, the
+     * listener receives a NedModelDeltaEvent after each begin/end batch
+     * (see fireBeginChangeEvent()) and after each change made outside
+     * batches; listeners that only need to know what has changed should
+     * react to that.
      */
     public void addNedModelChangeListener(INedChangeListener listener);
 
@@ -66,6 +70,10 @@ public interface INedResources extends INedTypeResolver {
      * fireEndChangeEvent() must be fired in pairs, i.e. fireEndChangeEvent()
      * must be fired even if there is an exception if the code path between
      * the two calls.
+     *
+     * Begin/end pairs may be nested, and may also be fired by NED trees.
+     * At the end of the outermost pair, a NedModelDeltaEvent is fired that
+     * summarizes the changes of the batch, and NED validation is scheduled.
      */
     public void fireBeginChangeEvent();
 
@@ -116,6 +124,20 @@ public interface INedResources extends INedTypeResolver {
      */
     public INedTypeResolver getImmutableCopy();
 
+    /**
+     * Like getImmutableCopy(), but the caller must call releaseImmutableCopy() when
+     * it no longer uses the copy. Copies obtained this way can be recycled: when a
+     * newer copy is made, the parse trees of the files that have not changed since
+     * are taken over from the released copy instead of being cloned again.
+     */
+    public INedTypeResolver acquireImmutableCopy();
+
+    /**
+     * Releases an immutable copy obtained with acquireImmutableCopy(). The copy
+     * must not be used afterwards.
+     */
+    public void releaseImmutableCopy(INedTypeResolver copy);
+
     /**
      * Checks whether an immutable copy returned from an earlier getImmutableCopy() call
      * is still up to date.
@@ -1,5 +1,9 @@
 package org.omnetpp.ned.core;
 
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.IFile;
 import org.omnetpp.ned.model.ex.NedFileElementEx;
 import org.omnetpp.ned.model.notification.INedChangeListener;
 import org.omnetpp.ned.model.notification.NedMarkerChangeEvent;
@@ -8,6 +12,12 @@ import org.omnetpp.ned.model.notification.NedModelEvent;
 /**
  * Default implementation of INedTypeResolver
  *
+ * An immutable copy may be recycled by NedResources when a newer copy is made:
+ * the trees of the files that have not changed since are taken over by the
+ * new copy instead of being cloned again. This is only done if the copy was
+ * obtained with acquireImmutableCopy() and all leases have been released,
+ * after which the copy is retired and must not be used.
+ *
  * @author Andras
  */
 public class ImmutableNedTypeResolver extends NedTypeResolver {
@@ -17,17 +27,93 @@ public class ImmutableNedTypeResolver extends NedTypeResolver {
         }
     };
 
-    protected ImmutableNedTypeResolver(NedTypeResolver other) {
-        super(other);
+    // value of NedResources' change counter when this copy was made
+    private final long changeCounter;
+
+    // NedResources' change counters of the files and of unattributed changes when this copy was made
+    private Map<IFile, Long> fileChangeCounters;
+    private long unattributedChangeCounter;
+
+    // number of acquireImmutableCopy() calls not yet released
+    private int leaseCount = 0;
+
+    // set when the copy was returned from getImmutableCopy(); such copies are never recycled
+    private boolean pinned = false;
+
+    // set when the trees were taken over by a newer copy
+    private boolean retired = false;
+
+    protected ImmutableNedTypeResolver(NedTypeResolver other, long changeCounter) {
+        this(other, changeCounter, null, null);
+    }
+
+    /**
+     * Creates a copy of the given resolver, taking over the trees of the given
+     * unchanged files from the donor; the donor gets retired.
+     */
+    protected ImmutableNedTypeResolver(NedTypeResolver other, long changeCounter, ImmutableNedTypeResolver donor, Set<IFile> unchangedFiles) {
+        super(other, donor, unchangedFiles);
+        this.changeCounter = changeCounter;
+
+        if (donor != null) {
+            donor.retired = true;
+            for (NedFileElementEx fileElement : donor.nedElementFiles.keySet())
+                fileElement.removeNedChangeListener(donor.listener);
+        }
 
         // add change listeners
         for (NedFileElementEx fileElement : nedElementFiles.keySet())
             fileElement.addNedChangeListener(listener);
     }
 
+    long getChangeCounter() {
+        return changeCounter;
+    }
+
+    void setChangeCounters(Map<IFile, Long> fileChangeCounters, long unattributedChangeCounter) {
+        this.fileChangeCounters = fileChangeCounters;
+        this.unattributedChangeCounter = unattributedChangeCounter;
+    }
+
+    /**
+     * Returns the value of NedResources' change counter at the last change of the
+     * given file before this copy was made, or 0 if it is not known.
+     */
+    long getFileChangeCounter(IFile file) {
+        Long counter = fileChangeCounters == null ? null : fileChangeCounters.get(file);
+        return counter == null ? 0 : counter;
+    }
+
+    /**
+     * Returns the value of NedResources' change counter at the last change before
+     * this copy was made that could not be attributed to a single file.
+     */
+    long getUnattributedChangeCounter() {
+        return unattributedChangeCounter;
+    }
+
+    void acquire() {
+        leaseCount++;
+    }
+
+    void release() {
+        leaseCount--;
+    }
+
+    void pin() {
+        pinned = true;
+    }
+
+    /**
+     * Whether the trees of this copy may be taken over by a newer copy.
+     */
+    boolean isRecyclable() {
+        return leaseCount == 0 && !pinned && !retired;
+    }
+
     protected void modelChanged(NedModelEvent event) {
         if (event instanceof NedMarkerChangeEvent)
             return; // that's OK
         throw new RuntimeException("Attempt to modify element in an immutable type resolver: " + event.toString());
     }
-}
\ No newline at end of file
+}
@@ -181,6 +181,12 @@ public class MsgResources implements IMsgTypeResolver, IResourceChangeListener {
         return new MsgTypeInfo(node);
     }
 
+    private static void forgetParseCacheEntry(IFile file) {
+        NedParseCache parseCache = NedResourcesPlugin.getParseCache();
+        if (parseCache != null)
+            parseCache.forget(file);
+    }
+
     public synchronized void forgetMsgFile(IFile file) {
         if (msgFiles.containsKey(file)) {
             MsgFileElementEx element = msgFiles.get(file);
@@ -199,7 +205,9 @@ public class MsgResources implements IMsgTypeResolver, IResourceChangeListener {
 
         // register msg file
         String source = FileUtils.readTextFile(file.getContents(), file.getCharset());
-        MsgFileElementEx element = NedTreeUtil.parseMsgSource(source, new SysoutNedErrorStore(), file.toString());  //TODO why SysoutNedErrorStore?
+        NedParseCache parseCache = NedResourcesPlugin.getParseCache();
+        MsgFileElementEx element = parseCache != null ? parseCache.parseMsgSource(file, source, new SysoutNedErrorStore()) :
+            NedTreeUtil.parseMsgSource(source, new SysoutNedErrorStore(), file.toString());  //TODO why SysoutNedErrorStore?
         msgFiles.put(file, element);
         msgElementFiles.put(element, file);
 
@@ -235,6 +243,7 @@ public class MsgResources implements IMsgTypeResolver, IResourceChangeListener {
                             switch (delta.getKind()) {
                             case IResourceDelta.REMOVED:
                                 forgetMsgFile(file);
+                                forgetParseCacheEntry(file);
                                 break;
                             case IResourceDelta.ADDED:
                                 readMsgFile(file);
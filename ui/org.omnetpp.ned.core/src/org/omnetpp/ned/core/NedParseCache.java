@@ -0,0 +1,236 @@
+/*--------------------------------------------------------------*
+  Copyright (C) 2006-2015 OpenSim Ltd.
+
+  This file is distributed WITHOUT ANY WARRANTY. See the file
+  'License' for details on this and other legal matters.
+*--------------------------------------------------------------*/
+
+package org.omnetpp.ned.core;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.runtime.Path;
+import org.omnetpp.common.Debug;
+import org.omnetpp.ned.model.INedElement;
+import org.omnetpp.ned.model.INedErrorStore;
+import org.omnetpp.ned.model.NedTreeSerializer;
+import org.omnetpp.ned.model.NedTreeUtil;
+import org.omnetpp.ned.model.RecordingNedErrorStore;
+import org.omnetpp.ned.model.ex.MsgFileElementEx;
+import org.omnetpp.ned.model.ex.NedFileElementEx;
+import org.omnetpp.ned.model.interfaces.INedTypeResolver;
+
+/**
+ * Persistent cache of parsed NED and MSG files, so that files that have not
+ * changed since the last session need not be parsed again. There is one cache
+ * entry per file, keyed by the workspace path; an entry is used only if the
+ * hash of the file contents and the parser version (NedTreeUtil.PARSER_VERSION
+ * and the given version string) match the ones it was created with. Entries
+ * store the tree and the syntax problems in the format of NedTreeSerializer.
+ *
+ * Entries of removed files should be dropped with forget(); prune() removes
+ * the ones that are obsolete for other reasons (e.g. files deleted while
+ * the IDE was not running).
+ *
+ * The methods may be called from several threads concurrently, for different files.
+ */
+public class NedParseCache {
+    private static final int MAGIC = 0x4e454443; // "NEDC"
+
+    private final File directory;
+    private final String parserVersion;
+
+    /**
+     * Creates a cache that stores its entries in the given directory. The parser
+     * version should change whenever the parser may produce different trees.
+     */
+    public NedParseCache(File directory, String parserVersion) {
+        this.directory = directory;
+        this.parserVersion = parserVersion;
+    }
+
+    /**
+     * Returns the tree of the given NED file like NedTreeUtil.parseNedFile(), either
+     * from the cache or by parsing it (and then storing it in the cache).
+     */
+    public NedFileElementEx parseNedFile(IFile file, INedErrorStore errors, INedTypeResolver resolver) {
+        File osFile = file.getLocation().toFile();
+        String path = file.getFullPath().toString();
+        byte[] hash = hashFile(osFile);
+        if (hash != null) {
+            INedElement tree = load(path, hash, resolver, errors);
+            if (tree instanceof NedFileElementEx)
+                return (NedFileElementEx)tree;
+        }
+
+        RecordingNedErrorStore parseErrors = new RecordingNedErrorStore();
+        NedFileElementEx tree = NedTreeUtil.parseNedFile(osFile.getPath(), parseErrors, path, resolver);
+        parseErrors.replay(errors);
+
+        // only store if the file did not change while we were parsing it
+        if (hash != null && Arrays.equals(hash, hashFile(osFile)))
+            store(path, hash, tree, parseErrors);
+        return tree;
+    }
+
+    /**
+     * Returns the tree of the given MSG file like NedTreeUtil.parseMsgSource(), either
+     * from the cache or by parsing the given source (and then storing it in the cache).
+     */
+    public MsgFileElementEx parseMsgSource(IFile file, String source, INedErrorStore errors) {
+        String path = file.getFullPath().toString();
+        byte[] hash = hash(source.getBytes(StandardCharsets.UTF_8));
+        INedElement tree = load(path, hash, null, errors);
+        if (tree instanceof MsgFileElementEx)
+            return (MsgFileElementEx)tree;
+
+        RecordingNedErrorStore parseErrors = new RecordingNedErrorStore();
+        MsgFileElementEx msgTree = NedTreeUtil.parseMsgSource(source, parseErrors, file.toString());
+        parseErrors.replay(errors);
+        store(path, hash, msgTree, parseErrors);
+        return msgTree;
+    }
+
+    /**
+     * Returns the tree from the cache entry of the given file if it was created from
+     * the same contents with the same parser, otherwise null.
+     */
+    private INedElement load(String path, byte[] hash, INedTypeResolver resolver, INedErrorStore errors) {
+        File entryFile = getEntryFile(path);
+        if (!entryFile.isFile())
+            return null;
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(entryFile.toPath())));
+            if (!isCurrentHeader(in) || !in.readUTF().equals(path))
+                return null;
+            byte[] entryHash = new byte[in.readUnsignedByte()];
+            in.readFully(entryHash);
+            if (!Arrays.equals(hash, entryHash))
+                return null;
+
+            // add the problems only if the whole entry could be read
+            RecordingNedErrorStore entryErrors = new RecordingNedErrorStore();
+            INedElement tree = NedTreeSerializer.read(in, resolver, entryErrors);
+            entryErrors.replay(errors);
+            return tree;
+        }
+        catch (IOException | RuntimeException e) {
+            Debug.println("NedParseCache: cannot read entry for " + path + ": " + e);
+            entryFile.delete();
+            return null;
+        }
+    }
+
+    private void store(String path, byte[] hash, INedElement tree, RecordingNedErrorStore errors) {
+        File entryFile = getEntryFile(path);
+        File tempFile = new File(entryFile.getPath() + "." + Thread.currentThread().getId() + ".tmp");
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeInt(NedTreeSerializer.FORMAT_VERSION);
+            out.writeInt(NedTreeUtil.PARSER_VERSION);
+            out.writeUTF(parserVersion);
+            out.writeUTF(path);
+            out.writeByte(hash.length);
+            out.write(hash);
+            NedTreeSerializer.write(tree, errors, out);
+            out.flush();
+
+            directory.mkdirs();
+            Files.write(tempFile.toPath(), bytes.toByteArray());
+            Files.move(tempFile.toPath(), entryFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException | RuntimeException e) {
+            Debug.println("NedParseCache: cannot write entry for " + path + ": " + e);
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * Reads the part of the entry header before the path, and returns true if
+     * the entry was written by this version of the cache and the parser.
+     */
+    private boolean isCurrentHeader(DataInputStream in) throws IOException {
+        return in.readInt() == MAGIC && in.readInt() == NedTreeSerializer.FORMAT_VERSION &&
+                in.readInt() == NedTreeUtil.PARSER_VERSION && in.readUTF().equals(parserVersion);
+    }
+
+    /**
+     * Removes the cache entry of the given file. To be called when the file is
+     * removed (or renamed, which is removal under the old name).
+     */
+    public void forget(IFile file) {
+        getEntryFile(file.getFullPath().toString()).delete();
+    }
+
+    /**
+     * Removes the entries that were written by other versions of the parser, or
+     * belong to files that no longer exist in the workspace, and the temp files
+     * left behind by interrupted writes. May be slow; call it in the background.
+     */
+    public void prune(IWorkspaceRoot workspaceRoot) {
+        File[] entryFiles = directory.listFiles();
+        if (entryFiles == null)
+            return;
+        for (File entryFile : entryFiles) {
+            boolean obsolete;
+            if (entryFile.getName().endsWith(".tmp"))
+                obsolete = System.currentTimeMillis() - entryFile.lastModified() > 3600*1000; // not being written right now
+            else {
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(entryFile)))) {
+                    obsolete = !isCurrentHeader(in) || !workspaceRoot.getFile(new Path(in.readUTF())).exists();
+                }
+                catch (IOException | RuntimeException e) {
+                    obsolete = true;
+                }
+            }
+            if (obsolete)
+                entryFile.delete();
+        }
+    }
+
+    private File getEntryFile(String path) {
+        return new File(directory, toHex(hash(path.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    private static byte[] hashFile(File file) {
+        try {
+            return hash(Files.readAllBytes(file.toPath()));
+        }
+        catch (IOException e) {
+            return null; // let the parser report the problem
+        }
+    }
+
+    private static byte[] hash(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-1").digest(data);
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e); // every Java platform must support SHA-1
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder result = new StringBuilder();
+        for (byte b : bytes)
+            result.append(String.format("%02x", b));
+        return result.toString();
+    }
+}
@@ -9,8 +9,17 @@ package org.omnetpp.ned.core;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IMarker;
@@ -38,22 +47,32 @@ import org.omnetpp.common.project.ProjectUtils;
 import org.omnetpp.common.util.DelayedJob;
 import org.omnetpp.common.util.StringUtils;
 import org.omnetpp.ned.model.INedElement;
+import org.omnetpp.ned.model.INedErrorStore;
 import org.omnetpp.ned.model.NedElement;
 import org.omnetpp.ned.model.NedTreeDifferenceUtils;
 import org.omnetpp.ned.model.NedTreeUtil;
+import org.omnetpp.ned.model.RecordingNedErrorStore;
 import org.omnetpp.ned.model.ex.CompoundModuleElementEx;
 import org.omnetpp.ned.model.ex.NedElementFactoryEx;
 import org.omnetpp.ned.model.ex.NedFileElementEx;
 import org.omnetpp.ned.model.interfaces.INedTypeElement;
 import org.omnetpp.ned.model.interfaces.INedTypeResolver;
+import org.omnetpp.ned.model.interfaces.ISubmoduleOrConnection;
 import org.omnetpp.ned.model.notification.INedChangeListener;
 import org.omnetpp.ned.model.notification.NedBeginModelChangeEvent;
 import org.omnetpp.ned.model.notification.NedChangeListenerList;
 import org.omnetpp.ned.model.notification.NedEndModelChangeEvent;
 import org.omnetpp.ned.model.notification.NedFileRemovedEvent;
 import org.omnetpp.ned.model.notification.NedModelChangeEvent;
+import org.omnetpp.ned.model.notification.NedModelDeltaEvent;
 import org.omnetpp.ned.model.notification.NedModelEvent;
 import org.omnetpp.ned.model.notification.NedStructuralChangeEvent;
+import org.omnetpp.ned.model.pojo.ConnectionGroupElement;
+import org.omnetpp.ned.model.pojo.ConnectionsElement;
+import org.omnetpp.ned.model.pojo.ExtendsElement;
+import org.omnetpp.ned.model.pojo.InterfaceNameElement;
+import org.omnetpp.ned.model.pojo.SubmodulesElement;
+import org.omnetpp.ned.model.pojo.TypesElement;
 
 /**
  * Parses all NED files in the workspace and makes them available for other
@@ -79,6 +98,16 @@ public class NedResources extends NedTypeResolver implements INedResources, IRes
     // DO NOT SET THIS DIRECTLY! Use invalidate().
     private boolean needsRehash = false;
 
+    // whether the next rehash must rebuild all tables, or only update the names declared in changedFiles
+    private boolean needsFullRehash = false;
+    private final Set<IFile> changedFiles = new HashSet<IFile>();
+
+    // reverse dependency graph for invalidating type info objects: the types (toplevel and inner)
+    // that refer to a type with the given simple name as base type, interface, submodule or channel
+    // type; and the references of the types in each file. Updated on rehash.
+    private final Map<String, Set<INedTypeElement>> typeDependents = new HashMap<String, Set<INedTypeElement>>();
+    private final Map<IFile, Map<INedTypeElement, Set<String>>> fileTypeReferences = new HashMap<IFile, Map<INedTypeElement, Set<String>>>();
+
     // For debugging: We increment this counter whenever a rehash occurs. Checks can be made
     // to assert that the function is not called unnecessarily
     private int debugRehashCounter = 0;
@@ -89,6 +118,25 @@ public class NedResources extends NedTypeResolver implements INedResources, IRes
     // can be used for computations in a background thread without locking NedResources
     private ImmutableNedTypeResolver immutableCopy = null;
 
+    // the last immutable copy that became obsolete; its unchanged trees may be reused by the next copy
+    private ImmutableNedTypeResolver obsoleteImmutableCopy = null;
+
+    // for reusing trees of immutable copies: incremented on every model change; the value at
+    // the last change of each file, and at the last change that cannot be attributed to a file
+    private long modelChangeCounter = 0;
+    private final Map<IFile, Long> fileChangeCounters = new HashMap<IFile, Long>();
+    private long unattributedChangeCounter = 0;
+
+    // nesting depth of begin/end notifications, and the changes recorded since the outermost
+    // begin (or the last unbatched change) for the next NedModelDeltaEvent
+    private int batchDepth = 0;
+    private int pendingNumChanges = 0;
+    private final Set<INedElement> pendingChangedElements = new LinkedHashSet<INedElement>();
+    private final Set<IFile> pendingChangedFiles = new LinkedHashSet<IFile>();
+    private final Set<IFile> pendingRemovedFiles = new LinkedHashSet<IFile>();
+    private final Set<String> pendingTypeNames = new HashSet<String>();
+    private boolean pendingFullChange = false;
+
     // caches the result of expression parsing
     private Map<String,INedElement> expressionCache = new HashMap<String, INedElement>();
     private static final INedElement BOGUS_EXPRESSION = NedElementFactoryEx.getInstance().createElement(INedElement.NED_UNKNOWN); // special value to signal syntax error
@@ -252,9 +300,27 @@ public class NedResources extends NedTypeResolver implements INedResources, IRes
         // parse the NED file and put it into the hash table
         NedMarkerErrorStore errorStore = new NedMarkerErrorStore(markerSync, NEDSYNTAXPROBLEM_MARKERID);
         errorStore.setFile(file);
-        NedFileElementEx tree = NedTreeUtil.parseNedFile(file.getLocation().toOSString(), errorStore, file.getFullPath().toString(), this);
+        NedFileElementEx tree = parseNedFile(file, errorStore);
+        installNedFile(file, tree);
+    }
+
+    /**
+     * Parses the given NED file into a detached tree. Does not access the tables
+     * of NedResources, so it may be called from any thread without locking.
+     * The tree is taken from the persistent parse cache if the file is unchanged.
+     */
+    private NedFileElementEx parseNedFile(IFile file, INedErrorStore errorStore) {
+        NedParseCache parseCache = NedResourcesPlugin.getParseCache();
+        NedFileElementEx tree = parseCache != null ? parseCache.parseNedFile(file, errorStore, this) :
+            NedTreeUtil.parseNedFile(file.getLocation().toOSString(), errorStore, file.getFullPath().toString(), this);
         Assert.isNotNull(tree);
+        return tree;
+    }
 
+    /**
+     * Internal: stores the tree of a NED file just read from the disk.
+     */
+    protected synchronized void installNedFile(IFile file, NedFileElementEx tree) {
         // only store the file if its declared package is not excluded -- that would lead to thrashing, see bug #518
         // (this can only happen to top package.ned files that *define* their own package, for other files
         // we won't get invoked in the first place)
@@ -277,7 +343,7 @@ public class NedResources extends NedTypeResolver implements INedResources, IRes
         if (isSourceFolderPackageNedFile(file))
             rebuildProjectsTable();
 
-        invalidate();
+        invalidate(file);
     }
 
     /**
@@ -289,6 +355,12 @@ public class NedResources extends NedTypeResolver implements INedResources, IRes
         sync.runAsWorkspaceJob();
     }
 
+    private static void forgetParseCacheEntry(IFile file) {
+        NedParseCache parseCache = NedResourcesPlugin.getParseCache();
+        if (parseCache != null)
+            parseCache.forget(file);
+    }
+
     protected synchronized void doForgetNedFile(IFile file, ProblemMarkerSynchronizer sync) {
         if (nedFiles.containsKey(file)) {
             // remove our model change listener from the file
@@ -298,7 +370,7 @@ public class NedResources extends NedTypeResolver implements INedResources, IRes
             // unregister
             nedFiles.remove(file);
             nedElementFiles.remove(nedFileElement);
-            invalidate();
+            invalidate(file);
 
             // if this was a package.ned, expected package names might have changed
             if (isSourceFolderPackageNedFile(file))
@@ -318,11 +390,11 @@ public class NedResources extends NedTypeResolver implements INedResources, IRes
         Assert.isTrue(!connectCount.containsKey(file), "cannot replace the tree while an editor is open");
 
         NedFileElementEx oldTree = nedFiles.get(file);
-        // if the new tree has changed, we have to rehash everything
+        // if the new tree has changed, we have to rehash
         if (oldTree == null || !NedTreeUtil.isNedTreeEqual(oldTree, tree)) {
-            invalidate();
             nedFiles.put(file, tree);
             nedElementFiles.put(tree, file);
+            invalidate(file);
             // add ourselves to the tree root as a listener
             tree.addNedChangeListener(nedModelChangeListener);
             // remove ourselves from the old tree which is no longer used
@@ -344,7 +416,23 @@ public class NedResources extends NedTypeResolver implements INedResources, IRes
         needsRehash = false;
         debugRehashCounter++;
 
-        internalRehash();
+        if (needsFullRehash) {
+            internalRehash();
+            typeDependents.clear();
+            fileTypeReferences.clear();
+            for (IFile file : nedFiles.keySet())
+                addTypeReferences(file);
+        }
+        else {
+            internalRehash(changedFiles);
+            for (IFile file : changedFiles) {
+                removeTypeReferences(file);
+                if (nedFiles.containsKey(file))
+                    addTypeReferences(file);
+            }
+        }
+        needsFullRehash = false;
+        changedFiles.clear();
 
         // schedule a validation
         nedValidationStarterJob.restartTimer();
@@ -353,6 +441,7 @@ public class NedResources extends NedTypeResolver implements INedResources, IRes
     public synchronized void invalidate() {
         lastChangeSerial++;
         needsRehash = true;
+        needsFullRehash = true;
         nedTypeLookupCache.clear();
         nedLikeTypeLookupCache.clear();
 
@@ -361,6 +450,122 @@ public class NedResources extends NedTypeResolver implements INedResources, IRes
             invalidateTypeInfo(file);
     }
 
+    /**
+     * Like invalidate(), for a change confined to the given NED file (edit, add, remove).
+     * Only the type info objects of the file and of the types that directly or indirectly
+     * refer to its types are invalidated, and the next rehash only updates the names
+     * declared in the file.
+     *
+     * The dependent types get invalidateInherited(), which also discards their local
+     * data that was determined by lookups (interfaces, used types).
+     *
+     * Note: types whose inherited members were computed since the last rehash are in
+     * the dependency graph, because computing them involves lookups, and lookups rehash.
+     */
+    protected synchronized void invalidate(IFile file) {
+        lastChangeSerial++;
+        needsRehash = true;
+        changedFiles.add(file);
+        nedTypeLookupCache.clear();
+        nedLikeTypeLookupCache.clear();
+
+        // the types of the file, and the names it declared at the last rehash and declares now
+        Set<String> names = new HashSet<String>();
+        if (fileTypeNames.containsKey(file))
+            for (String qualifiedName : fileTypeNames.get(file))
+                names.add(qualifiedName.substring(qualifiedName.lastIndexOf('.') + 1));
+        NedFileElementEx fileElement = nedFiles.get(file);
+        if (fileElement != null) {
+            invalidateTypeInfo(fileElement);
+            for (INedElement child : fileElement)
+                if (child instanceof INedTypeElement)
+                    names.add(((INedTypeElement)child).getName());
+        }
+
+        // invalidate the types that depend on them, transitively
+        List<String> queue = new ArrayList<String>(names);
+        while (!queue.isEmpty()) {
+            Set<INedTypeElement> dependents = typeDependents.get(queue.remove(queue.size()-1));
+            if (dependents != null) {
+                for (INedTypeElement dependent : dependents) {
+                    dependent.getNedTypeInfo().invalidateInherited();
+                    if (names.add(dependent.getName()))
+                        queue.add(dependent.getName());
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the types of the given file (toplevel and inner) to the dependency graph.
+     */
+    private void addTypeReferences(IFile file) {
+        Map<INedTypeElement, Set<String>> references = new HashMap<INedTypeElement, Set<String>>();
+        collectTypeReferences(nedFiles.get(file), references);
+        fileTypeReferences.put(file, references);
+        for (INedTypeElement typeElement : references.keySet()) {
+            for (String name : references.get(typeElement)) {
+                if (!typeDependents.containsKey(name))
+                    typeDependents.put(name, new HashSet<INedTypeElement>());
+                typeDependents.get(name).add(typeElement);
+            }
+        }
+    }
+
+    private void removeTypeReferences(IFile file) {
+        Map<INedTypeElement, Set<String>> references = fileTypeReferences.remove(file);
+        if (references == null)
+            return;
+        for (INedTypeElement typeElement : references.keySet()) {
+            for (String name : references.get(typeElement)) {
+                Set<INedTypeElement> dependents = typeDependents.get(name);
+                dependents.remove(typeElement);
+                if (dependents.isEmpty())
+                    typeDependents.remove(name);
+            }
+        }
+    }
+
+    /**
+     * Collects the simple names of the types referred to by each type under the given
+     * element: base types, interfaces, submodule and connection types.
+     */
+    static void collectTypeReferences(INedElement parent, Map<INedTypeElement, Set<String>> result) {
+        for (INedElement element : parent) {
+            if (element instanceof INedTypeElement) {
+                Set<String> names = new HashSet<String>();
+                for (INedElement child : element) {
+                    if (child instanceof ExtendsElement)
+                        addSimpleName(((ExtendsElement)child).getName(), names);
+                    else if (child instanceof InterfaceNameElement)
+                        addSimpleName(((InterfaceNameElement)child).getName(), names);
+                    else if (child instanceof SubmodulesElement || child instanceof ConnectionsElement)
+                        collectSubmoduleAndConnectionTypes(child, names);
+                    else if (child instanceof TypesElement)
+                        collectTypeReferences(child, result); // inner types
+                }
+                result.put((INedTypeElement)element, names);
+            }
+        }
+    }
+
+    private static void collectSubmoduleAndConnectionTypes(INedElement parent, Set<String> names) {
+        for (INedElement element : parent) {
+            if (element instanceof ISubmoduleOrConnection) {
+                addSimpleName(((ISubmoduleOrConnection)element).getType(), names);
+                addSimpleName(((ISubmoduleOrConnection)element).getLikeType(), names);
+            }
+            else if (element instanceof ConnectionGroupElement) {
+                collectSubmoduleAndConnectionTypes(element, names);
+            }
+        }
+    }
+
+    private static void addSimpleName(String typeName, Set<String> names) {
+        if (!StringUtils.isEmpty(typeName))
+            names.add(typeName.substring(typeName.lastIndexOf('.') + 1));
+    }
+
     protected void rehash() {
         invalidate();
         rehashIfNeeded();
@@ -497,29 +702,122 @@ public class NedResources extends NedTypeResolver implements INedResources, IRes
      * This should be run on startup and after rebuildProjectsTable();
      * individual file changes are handled by loadNedFile() calls from the
      * workspace listener.
+     *
+     * Files are parsed in parallel into detached trees, without locking
+     * NedResources; then the trees are stored while holding the lock, followed
+     * by a single rehash.
      */
-    public synchronized void readMissingNedFiles() {
+    public void readMissingNedFiles() {
+        List<IFile> files;
+        try {
+            files = collectMissingNedFiles();
+        }
+        catch (CoreException e) {
+            NedResourcesPlugin.logError("Error during workspace refresh: ",e);
+            files = new ArrayList<IFile>();
+        }
+        List<ParsedNedFile> parsedFiles = parseNedFiles(files);
+        installMissingNedFiles(parsedFiles);
+    }
+
+    // a NED file parsed in the background, with its syntax errors to be turned into markers
+    private static class ParsedNedFile {
+        IFile file;
+        NedFileElementEx tree;
+        RecordingNedErrorStore errors;
+    }
+
+    private synchronized List<IFile> collectMissingNedFiles() throws CoreException {
+        final List<IFile> files = new ArrayList<IFile>();
+        IWorkspaceRoot workspaceRoot = ResourcesPlugin.getWorkspace().getRoot();
+        workspaceRoot.accept(new IResourceVisitor() {
+            public boolean visit(IResource resource) {
+                if (!nedFiles.containsKey(resource) && isNedFile(resource))
+                    files.add((IFile)resource);
+                return true;
+            }
+        });
+        return files;
+    }
+
+    /**
+     * Parses the given files on a pool of worker threads. Files that fail to
+     * parse with an exception are logged and left out of the result.
+     */
+    private List<ParsedNedFile> parseNedFiles(List<IFile> files) {
+        List<ParsedNedFile> result = new ArrayList<ParsedNedFile>();
+        if (files.isEmpty())
+            return result;
+
+        long startMillis = System.currentTimeMillis();
+        int numThreads = Math.min(Runtime.getRuntime().availableProcessors(), files.size());
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "NED parser");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            List<Future<ParsedNedFile>> futures = new ArrayList<Future<ParsedNedFile>>();
+            for (final IFile file : files) {
+                futures.add(executor.submit(new Callable<ParsedNedFile>() {
+                    public ParsedNedFile call() {
+                        if (debug)
+                            Debug.println("reading from disk: " + file.toString());
+                        ParsedNedFile parsedFile = new ParsedNedFile();
+                        parsedFile.file = file;
+                        parsedFile.errors = new RecordingNedErrorStore();
+                        parsedFile.tree = parseNedFile(file, parsedFile.errors);
+                        return parsedFile;
+                    }
+                }));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    result.add(futures.get(i).get());
+                }
+                catch (ExecutionException e) {
+                    NedResourcesPlugin.logError("Error reading NED file " + files.get(i).getFullPath() + ": ", e.getCause());
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        if (debug)
+            Debug.println("parsed " + result.size() + " NED files in " + (System.currentTimeMillis() - startMillis) + "ms on " + numThreads + " threads");
+        return result;
+    }
+
+    /**
+     * Stores the trees parsed by readMissingNedFiles(), skipping files that have
+     * been loaded, opened or removed meanwhile, then rehashes.
+     */
+    private synchronized void installMissingNedFiles(List<ParsedNedFile> parsedFiles) {
         try {
             // disable all ned model notifications until all files have been processed
             nedModelChangeNotificationDisabled = true;
             debugRehashCounter = 0;
 
-            // read NED files that are not yet loaded
-            final ProblemMarkerSynchronizer sync = new ProblemMarkerSynchronizer();
-            IWorkspaceRoot workspaceRoot = ResourcesPlugin.getWorkspace().getRoot();
-            workspaceRoot.accept(new IResourceVisitor() {
-                public boolean visit(IResource resource) {
-                    if (!nedFiles.containsKey(resource) && isNedFile(resource))
-                        doReadNedFile((IFile)resource, sync);
-                    return true;
-                }
-            });
+            ProblemMarkerSynchronizer sync = new ProblemMarkerSynchronizer();
+            for (ParsedNedFile parsedFile : parsedFiles) {
+                IFile file = parsedFile.file;
+                if (nedFiles.containsKey(file) || hasConnectedEditor(file) || !file.exists() || !isNedFile(file))
+                    continue;
+                NedMarkerErrorStore errorStore = new NedMarkerErrorStore(sync, NEDSYNTAXPROBLEM_MARKERID);
+                errorStore.setFile(file);
+                parsedFile.errors.replay(errorStore);
+                installNedFile(file, parsedFile.tree);
+            }
             sync.runAsWorkspaceJob();
             rehashIfNeeded();
         }
-        catch (CoreException e) {
-            NedResourcesPlugin.logError("Error during workspace refresh: ",e);
-        } finally {
+        finally {
             nedModelChangeNotificationDisabled = false;
             Assert.isTrue(debugRehashCounter <= 1, "Too many rehash operations during readMissingNedFiles()");
             nedModelChanged(new NedModelChangeEvent(null));  // "everything changed"
@@ -527,11 +825,76 @@ public class NedResources extends NedTypeResolver implements INedResources, IRes
     }
 
     public synchronized INedTypeResolver getImmutableCopy() {
-        if (immutableCopy == null)
-            immutableCopy = new ImmutableNedTypeResolver(this);
+        ImmutableNedTypeResolver copy = getCurrentImmutableCopy();
+        copy.pin(); // we don't know when the caller stops using it
+        return copy;
+    }
+
+    public synchronized INedTypeResolver acquireImmutableCopy() {
+        ImmutableNedTypeResolver copy = getCurrentImmutableCopy();
+        copy.acquire();
+        return copy;
+    }
+
+    public synchronized void releaseImmutableCopy(INedTypeResolver copy) {
+        ((ImmutableNedTypeResolver)copy).release();
+    }
+
+    private ImmutableNedTypeResolver getCurrentImmutableCopy() {
+        if (immutableCopy == null) {
+            immutableCopy = createImmutableCopy();
+            immutableCopy.setChangeCounters(new HashMap<IFile, Long>(fileChangeCounters), unattributedChangeCounter);
+        }
         return immutableCopy;
     }
 
+    /**
+     * Creates a new immutable copy. If the last obsolete copy is no longer in use,
+     * the trees of the files that have not changed since it was made are taken over
+     * from it, and only the changed files are cloned.
+     */
+    private ImmutableNedTypeResolver createImmutableCopy() {
+        ImmutableNedTypeResolver donor = obsoleteImmutableCopy;
+        if (donor == null || !donor.isRecyclable() || unattributedChangeCounter > donor.getChangeCounter())
+            return new ImmutableNedTypeResolver(this, modelChangeCounter);
+
+        Set<IFile> unchangedFiles = new HashSet<IFile>();
+        for (IFile file : nedFiles.keySet()) {
+            NedFileElementEx donorTree = donor.nedFiles.get(file);
+            Long fileChangeCounter = fileChangeCounters.get(file);
+            if (donorTree != null && donorTree.getOriginal() == nedFiles.get(file) && (fileChangeCounter == null || fileChangeCounter <= donor.getChangeCounter()))
+                unchangedFiles.add(file);
+        }
+        obsoleteImmutableCopy = null;
+        if (debug)
+            Debug.println("immutable copy: reusing " + unchangedFiles.size() + " of " + nedFiles.size() + " NED file trees");
+        return new ImmutableNedTypeResolver(this, modelChangeCounter, donor, unchangedFiles);
+    }
+
+    /**
+     * Invalidates the immutable copy, and records which file has changed.
+     */
+    private synchronized void immutableCopyInvalidated(NedModelChangeEvent event) {
+        if (immutableCopy != null) {
+            obsoleteImmutableCopy = immutableCopy;
+            immutableCopy = null;
+        }
+
+        modelChangeCounter++;
+        if (event instanceof NedFileRemovedEvent) {
+            fileChangeCounters.remove(((NedFileRemovedEvent)event).getFile());
+        }
+        else {
+            INedElement source = event.getSource();
+            NedFileElementEx fileElement = source == null ? null : source.getContainingNedFileElement();
+            IFile file = fileElement == null ? null : nedElementFiles.get(fileElement);
+            if (file != null)
+                fileChangeCounters.put(file, modelChangeCounter);
+            else
+                unattributedChangeCounter = modelChangeCounter;
+        }
+    }
+
     public synchronized boolean isImmutableCopyUpToDate(INedTypeResolver copy) {
         return immutableCopy == copy;
     }
@@ -554,7 +917,24 @@ public class NedResources extends NedTypeResolver implements INedResources, IRes
      */
     protected void nedModelChanged(NedModelEvent event) {
         if (event instanceof NedModelChangeEvent)
-            immutableCopy = null; // invalidate
+            immutableCopyInvalidated((NedModelChangeEvent)event);
+
+        // count begin/end even while notifications are disabled, otherwise a pair that
+        // straddles that period would leave batchDepth off (and delta events stopped)
+        NedModelDeltaEvent deltaEvent = null;
+        if (event instanceof NedBeginModelChangeEvent || event instanceof NedEndModelChangeEvent) {
+            synchronized (this) {
+                // begin/end may come from NedResources (source==null) or from a tree
+                if (event instanceof NedBeginModelChangeEvent)
+                    batchDepth++;
+                else if (batchDepth > 0)
+                    batchDepth--;
+                else
+                    Debug.println("NedResources: begin/end notification mismatch");
+                if (batchDepth == 0 && pendingNumChanges > 0 && !nedModelChangeNotificationDisabled)
+                    deltaEvent = createDeltaEvent(); // otherwise the changes go into the next delta
+            }
+        }
 
         if (nedModelChangeNotificationDisabled)
             return;
@@ -562,21 +942,103 @@ public class NedResources extends NedTypeResolver implements INedResources, IRes
         if (event instanceof NedModelChangeEvent) {
             INedElement source = ((NedModelChangeEvent)event).getSource();
             Assert.isTrue(source==null || refactoringInProgress || source instanceof NedFileElementEx || hasConnectedEditor(getNedFile(source.getContainingNedFileElement())), "NED trees not opened in any editor must NOT be changed");
-            invalidate();
-            nedValidationStarterJob.restartTimer(); //FIXME obey begin/end notifications too!
+            synchronized (this) {
+                IFile file = event instanceof NedFileRemovedEvent ? ((NedFileRemovedEvent)event).getFile() :
+                    source == null ? null : nedElementFiles.get(source.getContainingNedFileElement());
+                recordChange(event, file);
+                if (file != null)
+                    invalidate(file);
+                else
+                    invalidate();
+                if (batchDepth == 0)
+                    deltaEvent = createDeltaEvent();
+            }
         }
 
+        // validate once per batch, not on every change inside it
+        if (deltaEvent != null)
+            nedValidationStarterJob.restartTimer();
+
         // notify generic listeners (like NedFileEditParts who refresh themselves
         // in response to this notification)
         // long startMillis = System.currentTimeMillis();
 
-        if (nedModelChangeListenerList != null)
+        if (nedModelChangeListenerList != null) {
             nedModelChangeListenerList.fireModelChanged(event);
+            if (deltaEvent != null)
+                nedModelChangeListenerList.fireModelChanged(deltaEvent);
+        }
 
         // long dt = System.currentTimeMillis() - startMillis;
         // Debug.println("visual notification took " + dt + "ms");
     }
 
+    /**
+     * Records a change for the next NedModelDeltaEvent; file is the NED file
+     * the change belongs to, or null if unknown.
+     */
+    private void recordChange(NedModelEvent event, IFile file) {
+        pendingNumChanges++;
+        if (event.getSource() != null)
+            pendingChangedElements.add(event.getSource());
+        if (file == null)
+            pendingFullChange = true;
+        else if (pendingChangedFiles.add(file) && fileTypeNames.containsKey(file))
+            pendingTypeNames.addAll(fileTypeNames.get(file)); // the names declared before the changes
+        if (event instanceof NedFileRemovedEvent)
+            pendingRemovedFiles.add(file);
+    }
+
+    /**
+     * Summarizes the recorded changes in a NedModelDeltaEvent, and starts recording anew.
+     */
+    private NedModelDeltaEvent createDeltaEvent() {
+        Set<String> affectedTypeNames = new HashSet<String>();
+        if (!pendingFullChange) {
+            // types currently declared in the changed files
+            affectedTypeNames.addAll(pendingTypeNames);
+            for (IFile file : pendingChangedFiles)
+                if (nedFiles.containsKey(file))
+                    for (INedElement child : nedFiles.get(file))
+                        if (child instanceof INedTypeElement)
+                            affectedTypeNames.add(((INedTypeElement)child).getNedTypeInfo().getFullyQualifiedName());
+
+            // types that refer to them, transitively (the dependency graph is up to
+            // date for the other files, and the changed files are included anyway)
+            Set<String> names = new HashSet<String>();
+            for (String qualifiedName : affectedTypeNames)
+                names.add(qualifiedName.substring(qualifiedName.lastIndexOf('.') + 1));
+            List<String> queue = new ArrayList<String>(names);
+            while (!queue.isEmpty()) {
+                Set<INedTypeElement> dependents = typeDependents.get(queue.remove(queue.size()-1));
+                if (dependents != null) {
+                    for (INedTypeElement dependent : dependents) {
+                        if (!nedElementFiles.containsKey(dependent.getContainingNedFileElement()))
+                            continue; // no longer in a stored tree
+                        INedTypeElement toplevelType = dependent;
+                        while (toplevelType.getEnclosingTypeElement() != null)
+                            toplevelType = toplevelType.getEnclosingTypeElement();
+                        affectedTypeNames.add(toplevelType.getNedTypeInfo().getFullyQualifiedName());
+                        if (names.add(dependent.getName()))
+                            queue.add(dependent.getName());
+                    }
+                }
+            }
+        }
+
+        NedModelDeltaEvent event = new NedModelDeltaEvent(new LinkedHashSet<INedElement>(pendingChangedElements),
+                new LinkedHashSet<IFile>(pendingChangedFiles), new LinkedHashSet<IFile>(pendingRemovedFiles),
+                affectedTypeNames, pendingFullChange, pendingNumChanges);
+
+        pendingNumChanges = 0;
+        pendingChangedElements.clear();
+        pendingChangedFiles.clear();
+        pendingRemovedFiles.clear();
+        pendingTypeNames.clear();
+        pendingFullChange = false;
+        return event;
+    }
+
     /**
      * Synchronize the plugin with the resources in the workspace
      */
@@ -595,6 +1057,7 @@ public class NedResources extends NedTypeResolver implements INedResources, IRes
                         switch (delta.getKind()) {
                         case IResourceDelta.REMOVED:
                             doForgetNedFile(file, sync); // includes rebuildProjectsTable() if needed
+                            forgetParseCacheEntry(file);
                             break;
                         case IResourceDelta.ADDED:
                             doReadNedFile(file, sync); // includes rebuildProjectsTable() if needed
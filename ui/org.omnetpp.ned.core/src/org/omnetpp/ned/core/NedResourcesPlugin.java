@@ -8,9 +8,13 @@
 package org.omnetpp.ned.core;
 
 import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.Assert;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.dialogs.MessageDialog;
 import org.eclipse.jface.resource.ImageDescriptor;
 import org.eclipse.swt.widgets.Display;
@@ -19,8 +23,11 @@ import org.eclipse.ui.PartInitException;
 import org.eclipse.ui.plugin.AbstractUIPlugin;
 import org.omnetpp.common.editor.EditorUtil;
 import org.omnetpp.ned.model.INedElement;
+import org.omnetpp.ned.model.NedTreeUtil;
 import org.omnetpp.ned.model.interfaces.INedTypeInfo;
+import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
+import org.osgi.framework.FrameworkUtil;
 
 /**
  * Activator for the plug-in.
@@ -36,6 +43,8 @@ public class NedResourcesPlugin extends AbstractUIPlugin {
 
     private NedSourceFoldersEditingManager nedSourceFoldersEditingManager = new NedSourceFoldersEditingManager();
 
+    private NedParseCache parseCache;
+
     /**
      * The constructor.
      */
@@ -50,6 +59,26 @@ public class NedResourcesPlugin extends AbstractUIPlugin {
     public void start(BundleContext context) throws Exception {
         super.start(context);
         PLUGIN_ID = getBundle().getSymbolicName();
+
+        // the parser is in the native library, and the conversion to Java trees is in the NED model plug-in
+        String parserVersion = getBundleVersion(Platform.getBundle("org.omnetpp.ide.nativelibs")) + "/" + getBundleVersion(FrameworkUtil.getBundle(NedTreeUtil.class));
+        parseCache = new NedParseCache(getStateLocation().append("parsecache").toFile(), parserVersion);
+
+        // drop entries of earlier parser versions and of files deleted since the last session
+        Job pruneJob = new Job("Pruning NED parse cache") {
+            @Override
+            protected IStatus run(IProgressMonitor monitor) {
+                parseCache.prune(ResourcesPlugin.getWorkspace().getRoot());
+                return Status.OK_STATUS;
+            }
+        };
+        pruneJob.setPriority(Job.DECORATE);
+        pruneJob.setSystem(true);
+        pruneJob.schedule();
+    }
+
+    private static String getBundleVersion(Bundle bundle) {
+        return bundle == null ? "unknown" : bundle.getVersion().toString();
     }
 
     /**
@@ -85,6 +114,14 @@ public class NedResourcesPlugin extends AbstractUIPlugin {
         return MsgResources.getInstance();
     }
 
+    /**
+     * Returns the persistent cache of parsed NED and MSG files, or null if the
+     * plug-in is not running.
+     */
+    public static NedParseCache getParseCache() {
+        return plugin == null ? null : plugin.parseCache;
+    }
+
     /**
      * When more than one property pages edit the ".nedfolders" file, they can
      * communicate via NedSourceFoldersEditingManager, i.e. can edit the same
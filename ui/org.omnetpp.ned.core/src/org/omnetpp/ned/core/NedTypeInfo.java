@@ -9,12 +9,15 @@ package org.omnetpp.ned.core;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.eclipse.core.resources.IFile;
@@ -63,41 +66,111 @@ public class NedTypeInfo implements INedTypeInfo, NedElementTags, NedElementCons
 
     protected String fullyQualifiedName; // computed on demand
 
-    // local members
-    protected boolean needsRefreshLocal;
-    protected INedTypeElement extendsType;
-    protected Set<INedTypeElement> localInterfaces = new HashSet<INedTypeElement>();
-    protected Map<String, Map<String, PropertyElementEx>> localProperties = new LinkedHashMap<String, Map<String, PropertyElementEx>>();
-    protected Map<String, ParamElementEx> localParams = new LinkedHashMap<String, ParamElementEx>();
-    protected Map<String, ParamElementEx> localParamDecls = new LinkedHashMap<String, ParamElementEx>();
-    protected Map<String, ParamElementEx> localParamValues = new LinkedHashMap<String, ParamElementEx>();
-    protected Map<String, GateElementEx> localGateDecls = new LinkedHashMap<String, GateElementEx>();
-    protected Map<String, GateElementEx> localGateSizes = new LinkedHashMap<String, GateElementEx>();
-    protected Map<String, INedTypeElement> localInnerTypes = new LinkedHashMap<String, INedTypeElement>();
-    protected Map<String, SubmoduleElementEx> localSubmodules = new LinkedHashMap<String, SubmoduleElementEx>();
-    protected Map<String, ConnectionElementEx> localNamedConnections = new LinkedHashMap<String, ConnectionElementEx>();
-    protected HashSet<INedTypeElement> localUsedTypes;
-
-    // sum of all "local" stuff
-    protected Map<String, INedElement> localMembers = new LinkedHashMap<String, INedElement>();
-
-    // local plus inherited
-    protected boolean needsRefreshInherited; //XXX may be replaced with inheritedRefreshSerial, see INedTypeResolver.getLastChangeSerial()
-    protected List<INedTypeInfo> extendsChain = null;
-    protected Set<INedTypeElement> allInterfaces = new HashSet<INedTypeElement>();
-    protected Map<String, Map<String, PropertyElementEx>> allProperties = new LinkedHashMap<String, Map<String, PropertyElementEx>>();
-    protected Map<String, ParamElementEx> allParamDecls = new LinkedHashMap<String, ParamElementEx>();
-    protected Map<String, ParamElementEx> allParamValues = new LinkedHashMap<String, ParamElementEx>();
-    protected Map<String, GateElementEx> allGates = new LinkedHashMap<String, GateElementEx>();
-    protected Map<String, GateElementEx> allGateSizes = new LinkedHashMap<String, GateElementEx>();
-    protected Map<String, INedTypeElement> allInnerTypes = new LinkedHashMap<String, INedTypeElement>();
-    protected Map<String, SubmoduleElementEx> allSubmodules = new LinkedHashMap<String, SubmoduleElementEx>();
-    protected Map<String, ConnectionElementEx> allNamedConnections = new LinkedHashMap<String, ConnectionElementEx>();
-    protected HashSet<INedTypeElement> allUsedTypes;
-
-    // sum of all local+inherited stuff
-    protected Map<String, INedElement> allMembers = new LinkedHashMap<String, INedElement>();
+    // member kinds: indices into the member tables
+    protected static final int PROPERTIES = 0;
+    protected static final int PARAMS = 1;
+    protected static final int PARAM_DECLS = 2;
+    protected static final int PARAM_VALUES = 3;
+    protected static final int GATE_DECLS = 4;
+    protected static final int GATE_SIZES = 5;
+    protected static final int INNER_TYPES = 6;
+    protected static final int SUBMODULES = 7;
+    protected static final int NAMED_CONNECTIONS = 8;
+    protected static final int MEMBERS = 9; // sum of params decls, gate decls, submodules, named connections and inner types
+    protected static final int NUM_KINDS = 10;
 
+    /**
+     * The local members of the type, as collected from its declaration without
+     * lookups. Immutable once built, so it can be read without locking.
+     */
+    protected static class LocalMembers {
+        final long generation;
+        final Map<String, ?>[] tables;
+
+        LocalMembers(long generation, Map<String, ?>[] tables) {
+            this.generation = generation;
+            this.tables = tables;
+        }
+    }
+
+    /**
+     * The local data of the type that is determined by lookups (the interfaces
+     * and the used types), so it must be rebuilt whenever the inherited members
+     * are, i.e. also when other types change. Immutable once built (apart from
+     * the lazily computed used types).
+     */
+    protected static class ResolvedLocalMembers {
+        final long generation;
+        final Set<INedTypeElement> interfaces;
+        volatile Set<INedTypeElement> usedTypes; // computed on demand
+
+        ResolvedLocalMembers(long generation, Set<INedTypeElement> interfaces) {
+            this.generation = generation;
+            this.interfaces = Collections.unmodifiableSet(interfaces);
+        }
+    }
+
+    /**
+     * The local plus inherited members of the type. The tables of the members are
+     * merged from the local members of the ancestors on demand, per member kind,
+     * and are immutable once published.
+     */
+    protected static class InheritedMembers {
+        final long generation;
+        final List<INedTypeInfo> extendsChain;
+        final INedTypeElement extendsType;
+        final Set<INedTypeElement> interfaces;
+        final LocalMembers[] ancestors; // starting from the root, so that later assignments override earlier ones
+        final AtomicReferenceArray<Map<String, ?>> tables;
+        volatile Set<INedTypeElement> usedTypes; // computed on demand
+
+        InheritedMembers(long generation, List<INedTypeInfo> extendsChain, Set<INedTypeElement> interfaces, LocalMembers[] ancestors) {
+            this(generation, Collections.unmodifiableList(extendsChain), Collections.unmodifiableSet(interfaces), ancestors,
+                    new AtomicReferenceArray<Map<String, ?>>(NUM_KINDS), null);
+        }
+
+        private InheritedMembers(long generation, List<INedTypeInfo> extendsChain, Set<INedTypeElement> interfaces, LocalMembers[] ancestors,
+                AtomicReferenceArray<Map<String, ?>> tables, Set<INedTypeElement> usedTypes) {
+            this.generation = generation;
+            this.extendsChain = extendsChain;
+            this.extendsType = extendsChain.size() >= 2 ? extendsChain.get(1).getNedElement() : null;
+            this.interfaces = interfaces;
+            this.ancestors = ancestors;
+            this.tables = tables;
+            this.usedTypes = usedTypes;
+        }
+
+        /**
+         * Returns the same members as valid in a new generation, sharing the tables built so far.
+         * The used types are not shared, because the used types of the ancestors are determined
+         * by lookups, and may have changed even if their local members did not.
+         */
+        InheritedMembers withGeneration(long generation) {
+            return new InheritedMembers(generation, extendsChain, interfaces, ancestors, tables, null);
+        }
+
+        Map<String, ?> getTable(int kind) {
+            Map<String, ?> table = tables.get(kind);
+            if (table == null) {
+                Map<String, Object> merged = new LinkedHashMap<String, Object>();
+                for (LocalMembers ancestor : ancestors)
+                    merged.putAll(ancestor.tables[kind]);
+                table = Collections.unmodifiableMap(merged);
+                if (!tables.compareAndSet(kind, null, table))
+                    table = tables.get(kind); // another thread was faster; use the same object
+            }
+            return table;
+        }
+    }
+
+    // the member tables, and their generations which are incremented on invalidation:
+    // a table is valid if it was built in the current generation. The resolved local
+    // members belong to the inherited generation, because they depend on lookups too.
+    protected final AtomicLong localGeneration = new AtomicLong();
+    protected final AtomicLong inheritedGeneration = new AtomicLong();
+    protected volatile LocalMembers localMembers;
+    protected volatile ResolvedLocalMembers resolvedLocalMembers;
+    protected volatile InheritedMembers inheritedMembers;
 
     // for local use
     interface IPredicate {
@@ -121,8 +194,6 @@ public class NedTypeInfo implements INedTypeInfo, NedElementTags, NedElementCons
 
         // the inherited and local members will be collected on demand
         fullyQualifiedName = null;
-        needsRefreshLocal = true;
-        needsRefreshInherited = true;
     }
 
     /**
@@ -219,7 +290,7 @@ public class NedTypeInfo implements INedTypeInfo, NedElementTags, NedElementCons
                 (tagCode1 == NED_COMPOUND_MODULE && tagCode2 == NED_SIMPLE_MODULE);
     }
 
-    protected Set<INedTypeElement> resolveInterfaces() {
+    protected Set<INedTypeElement> resolveInterfaces(List<INedTypeInfo> extendsChain) {
         Set<INedTypeElement> interfaceElements = new HashSet<INedTypeElement>();
         Stack<INedTypeElement> remainingElements = new Stack<INedTypeElement>();
         for (INedTypeInfo typeInfo : extendsChain)
@@ -239,59 +310,38 @@ public class NedTypeInfo implements INedTypeInfo, NedElementTags, NedElementCons
     }
 
     /**
-     * Refresh tables of local members
+     * Returns the table of local members, building it if needed.
      */
-    protected void refreshLocalMembersIfNeeded() {
-        if (!needsRefreshLocal)
-            return;
+    protected LocalMembers getLocalMembersTable() {
+        LocalMembers members = localMembers;
+        long generation = localGeneration.get();
+        if (members == null || members.generation != generation) {
+            members = buildLocalMembers(generation);
+            localMembers = members; // if invalidated meanwhile, it will be rebuilt at the next access
+        }
+        return members;
+    }
 
+    /**
+     * Collects the local members from the type declaration.
+     */
+    @SuppressWarnings("unchecked")
+    protected LocalMembers buildLocalMembers(long generation) {
         //long startMillis = System.currentTimeMillis();
 
         ++debugRefreshLocalCount;
         // Debug.println("NedTypeInfo for "+getName()+" localRefresh: " + refreshLocalCount);
 
-        // clear tables before collecting members
-        localInterfaces.clear();
-        localProperties.clear();
-        localParams.clear();
-        localParamDecls.clear();
-        localParamValues.clear();
-        localGateDecls.clear();
-        localGateSizes.clear();
-        localSubmodules.clear();
-        localNamedConnections.clear();
-        localInnerTypes.clear();
-        localMembers.clear();
-
-        INedTypeLookupContext parentContext = getNedElement().getParentLookupContext();
-
-        // collect local interfaces:
-        if (getNedElement() instanceof IInterfaceTypeElement) {
-            // interfaces *extend* other interfaces
-            for (INedElement child : getNedElement()) {
-                if (child instanceof ExtendsElement) {
-                    String extendsName = ((ExtendsElement)child).getName();
-                    INedTypeInfo extendsTypeInfo = getResolver().lookupNedType(extendsName, parentContext);
-                    if (extendsTypeInfo != null)
-                        localInterfaces.add(extendsTypeInfo.getNedElement());
-                    else
-                        Debug.println("WARNING: NedTypeInfo: Cannot resolve base type " + extendsName + " for " + getName() + " at " + child.getSourceLocation());
-                }
-            }
-        }
-        else {
-            // modules & channels *implement* interfaces ("like")
-            for (INedElement child : getNedElement()) {
-                if (child instanceof InterfaceNameElement) {
-                    String interfaceName = ((InterfaceNameElement)child).getName();
-                    INedTypeInfo interfaceTypeInfo = getResolver().lookupNedType(interfaceName, parentContext);
-                    if (interfaceTypeInfo != null)
-                        localInterfaces.add(interfaceTypeInfo.getNedElement());
-                    else
-                        Debug.println("WARNING: NedTypeInfo: Cannot resolve interface name " + interfaceName + " for " + getName() + " at " + child.getSourceLocation());
-                }
-            }
-        }
+        Map<String, Map<String, PropertyElementEx>> localProperties = new LinkedHashMap<String, Map<String, PropertyElementEx>>();
+        Map<String, ParamElementEx> localParams = new LinkedHashMap<String, ParamElementEx>();
+        Map<String, ParamElementEx> localParamDecls = new LinkedHashMap<String, ParamElementEx>();
+        Map<String, ParamElementEx> localParamValues = new LinkedHashMap<String, ParamElementEx>();
+        Map<String, GateElementEx> localGateDecls = new LinkedHashMap<String, GateElementEx>();
+        Map<String, GateElementEx> localGateSizes = new LinkedHashMap<String, GateElementEx>();
+        Map<String, INedTypeElement> localInnerTypes = new LinkedHashMap<String, INedTypeElement>();
+        Map<String, SubmoduleElementEx> localSubmodules = new LinkedHashMap<String, SubmoduleElementEx>();
+        Map<String, ConnectionElementEx> localNamedConnections = new LinkedHashMap<String, ConnectionElementEx>();
+        Map<String, INedElement> localMembers = new LinkedHashMap<String, INedElement>();
 
         // collect members from component declaration
         NedElementUtilEx.collectProperties(componentNode, localProperties);
@@ -336,79 +386,137 @@ public class NedTypeInfo implements INedTypeInfo, NedElementTags, NedElementCons
         localMembers.putAll(localNamedConnections);
         localMembers.putAll(localInnerTypes);
 
-        needsRefreshLocal = false;
+        Map<String, ?>[] tables = new Map[NUM_KINDS];
+        tables[PROPERTIES] = Collections.unmodifiableMap(localProperties);
+        tables[PARAMS] = Collections.unmodifiableMap(localParams);
+        tables[PARAM_DECLS] = Collections.unmodifiableMap(localParamDecls);
+        tables[PARAM_VALUES] = Collections.unmodifiableMap(localParamValues);
+        tables[GATE_DECLS] = Collections.unmodifiableMap(localGateDecls);
+        tables[GATE_SIZES] = Collections.unmodifiableMap(localGateSizes);
+        tables[INNER_TYPES] = Collections.unmodifiableMap(localInnerTypes);
+        tables[SUBMODULES] = Collections.unmodifiableMap(localSubmodules);
+        tables[NAMED_CONNECTIONS] = Collections.unmodifiableMap(localNamedConnections);
+        tables[MEMBERS] = Collections.unmodifiableMap(localMembers);
 
         //long dt = System.currentTimeMillis() - startMillis;
         //Debug.println("typeInfo " + getName() + " refreshLocalMembers(): " + dt + "ms");
+
+        return new LocalMembers(generation, tables);
     }
 
     /**
-     * Collect all inherited parameters, gates, properties, submodules, named connections, etc.
+     * Returns the local data determined by lookups, building it if needed.
      */
-    protected void refreshInheritedMembersIfNeeded() {
-        if (!needsRefreshInherited)
-            return;
-
-        long startMillis = System.currentTimeMillis();
+    protected ResolvedLocalMembers getResolvedLocalMembers() {
+        ResolvedLocalMembers members = resolvedLocalMembers;
+        long generation = inheritedGeneration.get();
+        if (members == null || members.generation != generation) {
+            members = new ResolvedLocalMembers(generation, resolveLocalInterfaces());
+            resolvedLocalMembers = members; // if invalidated meanwhile, it will be rebuilt at the next access
+        }
+        return members;
+    }
 
-        ++debugRefreshInheritedCount;
+    /**
+     * Looks up the interfaces the type extends (for interfaces) or implements (for modules and channels).
+     */
+    protected Set<INedTypeElement> resolveLocalInterfaces() {
+        Set<INedTypeElement> localInterfaces = new HashSet<INedTypeElement>();
+        INedTypeLookupContext parentContext = getNedElement().getParentLookupContext();
 
-        if (debug)
-            Debug.println("NedTypeInfo for "+getName()+" refreshInherited: " + debugRefreshInheritedCount);
+        if (getNedElement() instanceof IInterfaceTypeElement) {
+            // interfaces *extend* other interfaces
+            for (INedElement child : getNedElement()) {
+                if (child instanceof ExtendsElement) {
+                    String extendsName = ((ExtendsElement)child).getName();
+                    INedTypeInfo extendsTypeInfo = getResolver().lookupNedType(extendsName, parentContext);
+                    if (extendsTypeInfo != null)
+                        localInterfaces.add(extendsTypeInfo.getNedElement());
+                    else
+                        Debug.println("WARNING: NedTypeInfo: Cannot resolve base type " + extendsName + " for " + getName() + " at " + child.getSourceLocation());
+                }
+            }
+        }
+        else {
+            // modules & channels *implement* interfaces ("like")
+            for (INedElement child : getNedElement()) {
+                if (child instanceof InterfaceNameElement) {
+                    String interfaceName = ((InterfaceNameElement)child).getName();
+                    INedTypeInfo interfaceTypeInfo = getResolver().lookupNedType(interfaceName, parentContext);
+                    if (interfaceTypeInfo != null)
+                        localInterfaces.add(interfaceTypeInfo.getNedElement());
+                    else
+                        Debug.println("WARNING: NedTypeInfo: Cannot resolve interface name " + interfaceName + " for " + getName() + " at " + child.getSourceLocation());
+                }
+            }
+        }
+        return localInterfaces;
+    }
 
-        // first wee need our local members updated
-        if (needsRefreshLocal)
-            refreshLocalMembersIfNeeded();
+    /**
+     * Returns the table of local plus inherited members, building it if needed.
+     * If the extends chain (or for interfaces, the set of base interfaces) and
+     * the local members of the ancestors are the same as when the previous table
+     * was built, the previous table is reused.
+     */
+    protected InheritedMembers getInheritedMembersTable() {
+        InheritedMembers members = inheritedMembers;
+        long generation = inheritedGeneration.get();
+        if (members != null && members.generation == generation)
+            return members;
 
-        // determine extends chain
-        extendsChain = resolveExtendsChain();
-        extendsType = extendsChain.size() >= 2 ? extendsChain.get(1).getNedElement() : null;
+        long startMillis = System.currentTimeMillis();
 
-        allInterfaces = resolveInterfaces();
+        // determine extends chain and interfaces
+        List<INedTypeInfo> extendsChain = resolveExtendsChain();
+        Set<INedTypeElement> interfaces = resolveInterfaces(extendsChain);
         if (debug)
-            Debug.println("NedTypeInfo for " + getName() + ": has the following interfaces: " + allInterfaces + " and extends chain: " + extendsChain);
-
-        allProperties.clear();
-        allParamDecls.clear();
-        allParamValues.clear();
-        allGates.clear();
-        allGateSizes.clear();
-        allInnerTypes.clear();
-        allSubmodules.clear();
-        allNamedConnections.clear();
-        allMembers.clear();
-
-        // collect all inherited members (from the extends chain; or for interfaces, from all base interfaces)
-        INedTypeInfo[] ancestors;
+            Debug.println("NedTypeInfo for " + getName() + ": has the following interfaces: " + interfaces + " and extends chain: " + extendsChain);
+
+        // the types to inherit members from (from the extends chain; or for interfaces, from all base interfaces)
+        INedTypeInfo[] ancestorTypes;
         if (componentNode instanceof IInterfaceTypeElement) {
-            ancestors = new INedTypeInfo[allInterfaces.size()];
+            ancestorTypes = new INedTypeInfo[interfaces.size()];
             int i = 0;
-            for (INedTypeElement element : allInterfaces)
-                ancestors[i++] = element.getNedTypeInfo();
+            for (INedTypeElement element : interfaces)
+                ancestorTypes[i++] = element.getNedTypeInfo();
         }
         else {
-            ancestors = extendsChain.toArray(new INedTypeInfo[]{});
-            ArrayUtils.reverse(ancestors);  // we want to start from the root, so for allParamValues and allGateSizes we end up with the *latest* assignments
+            ancestorTypes = extendsChain.toArray(new INedTypeInfo[]{});
+            ArrayUtils.reverse(ancestorTypes);  // we want to start from the root, so for param values and gate sizes we end up with the *latest* assignments
+        }
+        LocalMembers[] ancestors = new LocalMembers[ancestorTypes.length];
+        for (int i = 0; i < ancestorTypes.length; i++) {
+            Assert.isTrue(ancestorTypes[i] instanceof NedTypeInfo);
+            ancestors[i] = ((NedTypeInfo)ancestorTypes[i]).getLocalMembersTable();
         }
 
-        for (INedTypeInfo typeInfo : ancestors) {
-            Assert.isTrue(typeInfo instanceof NedTypeInfo);
-            NedTypeInfo component = (NedTypeInfo)typeInfo;
-            allProperties.putAll(component.getLocalProperties());
-            allParamDecls.putAll(component.getLocalParamDeclarations());
-            allParamValues.putAll(component.getLocalParamAssignments());
-            allGates.putAll(component.getLocalGateDeclarations());
-            allGateSizes.putAll(component.getLocalGateSizes());
-            allInnerTypes.putAll(component.getLocalInnerTypes());
-            allSubmodules.putAll(component.getLocalSubmodules());
-            allNamedConnections.putAll(component.getLocalNamedConnections());
-            allMembers.putAll(component.getLocalMembers());
+        if (members != null && members.extendsChain.equals(extendsChain) && members.interfaces.equals(interfaces) && Arrays.equals(members.ancestors, ancestors)) {
+            // nothing we inherit from has changed (LocalMembers compares by identity; the
+            // lookup-dependent parts were compared above as the extends chain and the interfaces)
+            members = members.withGeneration(generation);
+        }
+        else {
+            ++debugRefreshInheritedCount;
+            if (debug)
+                Debug.println("NedTypeInfo for "+getName()+" refreshInherited: " + debugRefreshInheritedCount);
+            members = new InheritedMembers(generation, extendsChain, interfaces, ancestors);
         }
+        inheritedMembers = members; // if invalidated meanwhile, it will be rebuilt at the next access
 
         if (debug)
             Debug.println("typeInfo " + getName() + " refreshInherited(): " + (System.currentTimeMillis() - startMillis) + "ms");
+        return members;
+    }
+
+    @SuppressWarnings("unchecked")
+    protected <T> Map<String, T> getLocalTable(int kind) {
+        return (Map<String, T>) getLocalMembersTable().tables[kind];
+    }
 
-        needsRefreshInherited = false;
+    @SuppressWarnings("unchecked")
+    protected <T> Map<String, T> getInheritedTable(int kind) {
+        return (Map<String, T>) getInheritedMembersTable().getTable(kind);
     }
 
     public void invalidate() {
@@ -416,10 +524,8 @@ public class NedTypeInfo implements INedTypeInfo, NedElementTags, NedElementCons
             Debug.println(getName() +  ": invalidated *all* members (local+inherited)");
 
         fullyQualifiedName = null;
-        needsRefreshLocal = true;
-        needsRefreshInherited = true;
-        localUsedTypes = null;
-        allUsedTypes = null;
+        localGeneration.incrementAndGet();
+        inheritedGeneration.incrementAndGet();
     }
 
     public void invalidateInherited() {
@@ -427,8 +533,7 @@ public class NedTypeInfo implements INedTypeInfo, NedElementTags, NedElementCons
             Debug.println(getName() +  ": invalidated inherited members");
 
         fullyQualifiedName = null;
-        needsRefreshInherited = true;
-        allUsedTypes = null;
+        inheritedGeneration.incrementAndGet();
     }
 
     public String getName() {
@@ -502,38 +607,31 @@ public class NedTypeInfo implements INedTypeInfo, NedElementTags, NedElementCons
     }
 
     public INedTypeElement getSuperType() {
-        refreshInheritedMembersIfNeeded();
-        return extendsType;
+        return getInheritedMembersTable().extendsType;
     }
 
     public List<INedTypeInfo> getInheritanceChain() {
-        refreshInheritedMembersIfNeeded();
-        return extendsChain;
+        return getInheritedMembersTable().extendsChain;
     }
 
     public Set<INedTypeElement> getLocalInterfaces() {
-        refreshLocalMembersIfNeeded();
-        return localInterfaces;
+        return getResolvedLocalMembers().interfaces;
     }
 
     public Map<String, ParamElementEx> getLocalParamDeclarations() {
-        refreshLocalMembersIfNeeded();
-        return localParamDecls;
+        return getLocalTable(PARAM_DECLS);
     }
 
     public Map<String, ParamElementEx> getLocalParamAssignments() {
-        refreshLocalMembersIfNeeded();
-        return localParamValues;
+        return getLocalTable(PARAM_VALUES);
     }
 
     public Map<String, ParamElementEx> getLocalParams() {
-        refreshLocalMembersIfNeeded();
-        return localParams;
+        return getLocalTable(PARAMS);
     }
 
     public Map<String, Map<String, PropertyElementEx>> getLocalProperties() {
-        refreshLocalMembersIfNeeded();
-        return localProperties;
+        return getLocalTable(PROPERTIES);
     }
 
     public PropertyElementEx getLocalProperty(String name, String index) {
@@ -545,63 +643,54 @@ public class NedTypeInfo implements INedTypeInfo, NedElementTags, NedElementCons
     }
 
     public Map<String, GateElementEx> getLocalGateDeclarations() {
-        refreshLocalMembersIfNeeded();
-        return localGateDecls;
+        return getLocalTable(GATE_DECLS);
     }
 
     public Map<String, GateElementEx> getLocalGateSizes() {
-        refreshLocalMembersIfNeeded();
-        return localGateSizes;
+        return getLocalTable(GATE_SIZES);
     }
 
     public Map<String,INedTypeElement> getLocalInnerTypes() {
-        refreshLocalMembersIfNeeded();
-        return localInnerTypes;
+        return getLocalTable(INNER_TYPES);
     }
 
     public Map<String, SubmoduleElementEx> getLocalSubmodules() {
-        refreshLocalMembersIfNeeded();
-        return localSubmodules;
+        return getLocalTable(SUBMODULES);
     }
 
     public Map<String, ConnectionElementEx> getLocalNamedConnections() {
-        refreshLocalMembersIfNeeded();
-        return localNamedConnections;
+        return getLocalTable(NAMED_CONNECTIONS);
     }
 
     public Map<String,INedElement> getLocalMembers() {
-        refreshLocalMembersIfNeeded();
-        return localMembers;
+        return getLocalTable(MEMBERS);
     }
 
     public Set<INedTypeElement> getLocalUsedTypes() {
-        if (localUsedTypes == null) {
-            localUsedTypes = new HashSet<INedTypeElement>();
-            refreshLocalMembersIfNeeded();
-            collectTypesInCompoundModule(localUsedTypes);
+        ResolvedLocalMembers members = getResolvedLocalMembers();
+        Set<INedTypeElement> usedTypes = members.usedTypes;
+        if (usedTypes == null) {
+            usedTypes = new HashSet<INedTypeElement>();
+            collectTypesInCompoundModule(usedTypes);
+            members.usedTypes = usedTypes = Collections.unmodifiableSet(usedTypes);
         }
-
-        return localUsedTypes;
+        return usedTypes;
     }
 
     public Set<INedTypeElement> getInterfaces() {
-        refreshInheritedMembersIfNeeded();
-        return allInterfaces;
+        return getInheritedMembersTable().interfaces;
     }
 
     public Map<String, ParamElementEx> getParamDeclarations() {
-        refreshInheritedMembersIfNeeded();
-        return allParamDecls;
+        return getInheritedTable(PARAM_DECLS);
     }
 
     public Map<String, ParamElementEx> getParamAssignments() {
-        refreshInheritedMembersIfNeeded();
-        return allParamValues;
+        return getInheritedTable(PARAM_VALUES);
     }
 
     public Map<String, Map<String, PropertyElementEx>> getProperties() {
-        refreshInheritedMembersIfNeeded();
-        return allProperties;
+        return getInheritedTable(PROPERTIES);
     }
 
     public PropertyElementEx getProperty(String name, String index) {
@@ -613,49 +702,42 @@ public class NedTypeInfo implements INedTypeInfo, NedElementTags, NedElementCons
     }
 
     public Map<String, GateElementEx> getGateDeclarations() {
-        refreshInheritedMembersIfNeeded();
-        return allGates;
+        return getInheritedTable(GATE_DECLS);
     }
 
     public Map<String, GateElementEx> getGateSizes() {
-        refreshInheritedMembersIfNeeded();
-        return allGateSizes;
+        return getInheritedTable(GATE_SIZES);
     }
 
     public Map<String, INedTypeElement> getInnerTypes() {
-        refreshInheritedMembersIfNeeded();
-        return allInnerTypes;
+        return getInheritedTable(INNER_TYPES);
     }
 
     public Map<String, SubmoduleElementEx> getSubmodules() {
-        refreshInheritedMembersIfNeeded();
-        return allSubmodules;
+        return getInheritedTable(SUBMODULES);
     }
 
     public Map<String, ConnectionElementEx> getNamedConnections() {
-        refreshInheritedMembersIfNeeded();
-        return allNamedConnections;
+        return getInheritedTable(NAMED_CONNECTIONS);
     }
 
     public Map<String, INedElement> getMembers() {
-        refreshInheritedMembersIfNeeded();
-        return allMembers;
+        return getInheritedTable(MEMBERS);
     }
 
     public Set<INedTypeElement> getUsedTypes() {
-        if (allUsedTypes == null) {
-            allUsedTypes = new HashSet<INedTypeElement>();
-            refreshInheritedMembersIfNeeded();
-            INedTypeInfo[] forwardExtendsChain = extendsChain.toArray(new INedTypeInfo[]{});
-            ArrayUtils.reverse(forwardExtendsChain);
-            for (INedTypeInfo typeInfo : forwardExtendsChain) {
+        InheritedMembers members = getInheritedMembersTable();
+        Set<INedTypeElement> usedTypes = members.usedTypes;
+        if (usedTypes == null) {
+            usedTypes = new HashSet<INedTypeElement>();
+            for (INedTypeInfo typeInfo : members.extendsChain) {
                 Assert.isTrue(typeInfo instanceof NedTypeInfo);
                 NedTypeInfo component = (NedTypeInfo)typeInfo;
-                allUsedTypes.addAll(component.getLocalUsedTypes());
+                usedTypes.addAll(component.getLocalUsedTypes());
             }
+            members.usedTypes = usedTypes = Collections.unmodifiableSet(usedTypes);
         }
-
-        return allUsedTypes;
+        return usedTypes;
     }
 
     public List<ParamElementEx> getParameterInheritanceChain(String parameterName) {
@@ -698,20 +780,22 @@ public class NedTypeInfo implements INedTypeInfo, NedElementTags, NedElementCons
 
     public void debugDump() {
         Debug.println("NedTypeInfo: " + getNedElement().toString() + " debugId=" + debugId);
-        if (needsRefreshInherited || needsRefreshLocal)
+        LocalMembers local = localMembers;
+        InheritedMembers inherited = inheritedMembers;
+        if (local == null || local.generation != localGeneration.get() || inherited == null || inherited.generation != inheritedGeneration.get())
             Debug.println(" currently invalid (needs refresh)");
         Debug.println("  extends chain: " + StringUtils.join(getInheritanceChain(), ", "));
-        Debug.println("  local interfaces: " + StringUtils.join(localInterfaces, ", "));
-        Debug.println("  all interfaces: " + StringUtils.join(allInterfaces, ", "));
-        Debug.println("  local gates: " + StringUtils.join(localGateDecls.keySet(), ", "));
-        Debug.println("  all gates: " + StringUtils.join(allGates.keySet(), ", "));
-        Debug.println("  local parameter declarations: " + StringUtils.join(localParamDecls.keySet(), ", "));
-        Debug.println("  all parameter declarations: " + StringUtils.join(allParamDecls.keySet(), ", "));
-        Debug.println("  local properties: " + StringUtils.join(localProperties.keySet(), ", "));
-        Debug.println("  all properties: " + StringUtils.join(allProperties.keySet(), ", "));
-        Debug.println("  local submodules: " + StringUtils.join(localSubmodules.keySet(), ", "));
-        Debug.println("  all submodules: " + StringUtils.join(allSubmodules.keySet(), ", "));
-        Debug.println("  local named connections: " + StringUtils.join(localNamedConnections.keySet(), ", "));
-        Debug.println("  all named connections: " + StringUtils.join(allNamedConnections.keySet(), ", "));
+        Debug.println("  local interfaces: " + StringUtils.join(getLocalInterfaces(), ", "));
+        Debug.println("  all interfaces: " + StringUtils.join(getInterfaces(), ", "));
+        Debug.println("  local gates: " + StringUtils.join(getLocalGateDeclarations().keySet(), ", "));
+        Debug.println("  all gates: " + StringUtils.join(getGateDeclarations().keySet(), ", "));
+        Debug.println("  local parameter declarations: " + StringUtils.join(getLocalParamDeclarations().keySet(), ", "));
+        Debug.println("  all parameter declarations: " + StringUtils.join(getParamDeclarations().keySet(), ", "));
+        Debug.println("  local properties: " + StringUtils.join(getLocalProperties().keySet(), ", "));
+        Debug.println("  all properties: " + StringUtils.join(getProperties().keySet(), ", "));
+        Debug.println("  local submodules: " + StringUtils.join(getLocalSubmodules().keySet(), ", "));
+        Debug.println("  all submodules: " + StringUtils.join(getSubmodules().keySet(), ", "));
+        Debug.println("  local named connections: " + StringUtils.join(getLocalNamedConnections().keySet(), ", "));
+        Debug.println("  all named connections: " + StringUtils.join(getNamedConnections().keySet(), ", "));
     }
 }
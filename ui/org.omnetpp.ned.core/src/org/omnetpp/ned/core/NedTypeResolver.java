@@ -55,6 +55,12 @@ public class NedTypeResolver implements INedTypeResolver {
     // file element to contain built-in declarations (does not correspond to any physical file)
     protected NedFileElementEx builtInDeclarationsFile;
 
+    // fully qualified names of the toplevel types in each file, as of the last rehash
+    protected final Map<IFile, List<String>> fileTypeNames = new HashMap<IFile, List<String>>();
+
+    // files that declare a toplevel type with the given fully qualified name (inverse of fileTypeNames)
+    protected final Map<String, Set<IFile>> typeNameFiles = new HashMap<String, Set<IFile>>();
+
     protected static class ProjectData {
         // NED Source Folders for the project (contents of the .nedfolders file)
         IContainer[] nedSourceFolders;
@@ -97,16 +103,40 @@ public class NedTypeResolver implements INedTypeResolver {
      * Cloning constructor, for getImmutableCopy()
      */
     protected NedTypeResolver(NedTypeResolver other) {
-        // clone NED file parse trees
-        for (IFile file : other.nedFiles.keySet())
-            nedFiles.put(file, (NedFileElementEx)other.nedFiles.get(file).deepDup(this, true, true));
+        this(other, null, null);
+    }
+
+    /**
+     * Cloning constructor that takes over the trees of the given files (and the
+     * built-in declarations) from an earlier clone of the same resolver instead
+     * of cloning them again. The caller guarantees that these files have not
+     * changed since the donor was made; the donor must not be used afterwards.
+     */
+    protected NedTypeResolver(NedTypeResolver other, NedTypeResolver donor, Set<IFile> unchangedFiles) {
+        // clone NED file parse trees, or take them over from the donor
+        for (IFile file : other.nedFiles.keySet()) {
+            if (donor != null && unchangedFiles.contains(file)) {
+                NedFileElementEx fileElement = donor.nedFiles.get(file);
+                NedElementUtilEx.setResolver(fileElement, this);
+                nedFiles.put(file, fileElement);
+            }
+            else {
+                nedFiles.put(file, (NedFileElementEx)other.nedFiles.get(file).deepDup(this, true, true));
+            }
+        }
 
         // fill in reverse mapping
         for (Map.Entry<IFile, NedFileElementEx> entry : nedFiles.entrySet())
             nedElementFiles.put(entry.getValue(), entry.getKey());
 
         // clone other fields (note: no need to clone nedTypeLookupCache)
-        builtInDeclarationsFile = (NedFileElementEx) other.builtInDeclarationsFile.deepDup(this, true, true);
+        if (donor != null) {
+            builtInDeclarationsFile = donor.builtInDeclarationsFile;
+            NedElementUtilEx.setResolver(builtInDeclarationsFile, this);
+        }
+        else {
+            builtInDeclarationsFile = (NedFileElementEx) other.builtInDeclarationsFile.deepDup(this, true, true);
+        }
         lastChangeSerial = other.lastChangeSerial;
 
         // clone projects table
@@ -126,6 +156,12 @@ public class NedTypeResolver implements INedTypeResolver {
     protected void internalRehash() {
         long startMillis = System.currentTimeMillis();
 
+        // index the toplevel types of each file
+        fileTypeNames.clear();
+        typeNameFiles.clear();
+        for (IFile file : nedFiles.keySet())
+            indexFile(file);
+
         // clear tables and re-register built-in declarations for all projects
         for (ProjectData projectData : projects.values()) {
             projectData.components.clear();
@@ -192,6 +228,122 @@ public class NedTypeResolver implements INedTypeResolver {
 
     }
 
+    /**
+     * Updates the tables after the given files have been changed, added or removed,
+     * without touching the types declared in other files: only the names that were
+     * or are declared in the given files are re-registered, in the projects that
+     * see those files. Project data (NED source folders, references, etc.) must
+     * not have changed since the last rehash.
+     */
+    protected void internalRehash(Collection<IFile> changedFiles) {
+        long startMillis = System.currentTimeMillis();
+
+        // update the index, and collect the affected names in each project
+        Map<IProject, Set<String>> affectedNames = new HashMap<IProject, Set<String>>();
+        for (IFile file : changedFiles) {
+            Set<String> names = new HashSet<String>(unindexFile(file));
+            if (nedFiles.containsKey(file))
+                names.addAll(indexFile(file));
+            for (IProject project : projects.keySet()) {
+                if (isVisibleIn(file, project)) {
+                    if (!affectedNames.containsKey(project))
+                        affectedNames.put(project, new HashSet<String>());
+                    affectedNames.get(project).addAll(names);
+                }
+            }
+        }
+
+        // re-register the affected names
+        int count = 0;
+        for (IProject project : affectedNames.keySet()) {
+            for (String name : affectedNames.get(project)) {
+                registerTypeName(project, name);
+                count++;
+            }
+        }
+
+        if (debug) {
+            long dt = System.currentTimeMillis() - startMillis;
+            Debug.println("incremental rehash(): " + dt + "ms, " + changedFiles.size() + " changed files, " + count + " names updated");
+        }
+    }
+
+    /**
+     * Registers the given toplevel type name in the tables of the project from scratch,
+     * from the built-in declarations and the files that declare the name.
+     */
+    protected void registerTypeName(IProject project, String qualifiedName) {
+        ProjectData projectData = projects.get(project);
+        projectData.components.remove(qualifiedName);
+        projectData.duplicates.remove(qualifiedName);
+        projectData.reservedNames.remove(qualifiedName);
+
+        // collect declarations; like internalRehash(), list a built-in type after the others
+        List<INedTypeElement> declarations = new ArrayList<INedTypeElement>();
+        if (typeNameFiles.containsKey(qualifiedName)) {
+            for (IFile file : typeNameFiles.get(qualifiedName)) {
+                if (isVisibleIn(file, project)) {
+                    for (INedElement child : nedFiles.get(file))
+                        if (child instanceof INedTypeElement && qualifiedName.equals(((INedTypeElement)child).getNedTypeInfo().getFullyQualifiedName()))
+                            declarations.add((INedTypeElement)child);
+                }
+            }
+        }
+        for (INedElement child : builtInDeclarationsFile)
+            if (child instanceof INedTypeElement && qualifiedName.equals(((INedTypeElement)child).getNedTypeInfo().getFullyQualifiedName()))
+                declarations.add((INedTypeElement)child);
+
+        if (declarations.size() == 1)
+            projectData.components.put(qualifiedName, declarations.get(0).getNedTypeInfo());
+        else if (declarations.size() > 1)
+            projectData.duplicates.put(qualifiedName, declarations);
+        if (!declarations.isEmpty())
+            projectData.reservedNames.add(qualifiedName);
+    }
+
+    /**
+     * Adds the toplevel types of the given file to fileTypeNames and typeNameFiles,
+     * and returns their fully qualified names.
+     */
+    protected List<String> indexFile(IFile file) {
+        List<String> names = new ArrayList<String>();
+        for (INedElement child : nedFiles.get(file))
+            if (child instanceof INedTypeElement)
+                names.add(((INedTypeElement)child).getNedTypeInfo().getFullyQualifiedName());
+        fileTypeNames.put(file, names);
+        for (String name : names) {
+            if (!typeNameFiles.containsKey(name))
+                typeNameFiles.put(name, new HashSet<IFile>());
+            typeNameFiles.get(name).add(file);
+        }
+        return names;
+    }
+
+    /**
+     * Removes the given file from fileTypeNames and typeNameFiles, and returns the
+     * fully qualified names of its toplevel types as of the last rehash.
+     */
+    protected List<String> unindexFile(IFile file) {
+        List<String> names = fileTypeNames.remove(file);
+        if (names == null)
+            return new ArrayList<String>();
+        for (String name : names) {
+            Set<IFile> files = typeNameFiles.get(name);
+            files.remove(file);
+            if (files.isEmpty())
+                typeNameFiles.remove(name);
+        }
+        return names;
+    }
+
+    /**
+     * Whether types in the given file are visible in the given project, i.e. the file
+     * is in the project or in a project it references.
+     */
+    protected boolean isVisibleIn(IFile file, IProject project) {
+        return file.getProject().equals(project) || ArrayUtils.contains(projects.get(project).referencedProjects, file.getProject());
+    }
+
     /**
      * Create channel and interface types that are predefined in NED.
      */
@@ -1,5 +1,20 @@
 package org.omnetpp.ned.core;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
@@ -8,19 +23,41 @@ import org.eclipse.core.runtime.jobs.Job;
 import org.omnetpp.common.Debug;
 import org.omnetpp.common.markers.ProblemMarkerSynchronizer;
 import org.omnetpp.ned.model.INedElement;
+import org.omnetpp.ned.model.RecordingNedErrorStore;
+import org.omnetpp.ned.model.ex.CompoundModuleElementEx;
 import org.omnetpp.ned.model.ex.NedFileElementEx;
+import org.omnetpp.ned.model.ex.SubmoduleElementEx;
+import org.omnetpp.ned.model.interfaces.INedTypeElement;
+import org.omnetpp.ned.model.interfaces.INedTypeInfo;
 import org.omnetpp.ned.model.interfaces.INedTypeResolver;
+import org.omnetpp.ned.model.pojo.TypesElement;
 
 
 /**
  * Validates all NED files for consistency (no such parameter/gate/module-type, redeclarations,
  * duplicate types, cycles in the inheritance chain, etc). All consistency problem markers
  * (NEDCONSISTENCYPROBLEM_MARKERID) are managed within this job.
+ *
+ * Files are validated in parallel. The problems found in each file are kept
+ * together with a fingerprint of the inputs of the validation, so only the files
+ * whose inputs have changed need to be validated again in the next run (or in
+ * the retry after the NED trees have changed under us).
  */
 public class NedValidationJob extends Job {
     private boolean validateOpenNedFilesOnly = false; //TODO such preference might be useful for netbooks
     private int retryCount = 0;
 
+    // validation results of the files, reused while their fingerprint is unchanged
+    private Map<IFile, ValidationResult> resultCache = new HashMap<IFile, ValidationResult>();
+
+    // the NED files at the last run
+    private Set<IFile> lastNedFiles = new HashSet<IFile>();
+
+    private static class ValidationResult {
+        String fingerprint;
+        RecordingNedErrorStore errors;
+    }
+
     public NedValidationJob() {
         super("Checking NED files...");
     }
@@ -59,7 +96,16 @@ public class NedValidationJob extends Job {
         monitor.beginTask(getName(), numWorkUnits);
 
         // we'll analyze an immutable copy, so that NedResources doesn't need to be locked
-        INedTypeResolver immutableResolver = nedResources.getImmutableCopy();
+        INedTypeResolver immutableResolver = nedResources.acquireImmutableCopy();
+        try {
+            return validate(nedResources, immutableResolver, monitor, startTime);
+        }
+        finally {
+            nedResources.releaseImmutableCopy(immutableResolver);
+        }
+    }
+
+    private boolean validate(INedResources nedResources, INedTypeResolver immutableResolver, IProgressMonitor monitor, long startTime) {
         monitor.worked(1);
 
         ProblemMarkerSynchronizer markerSync = new ProblemMarkerSynchronizer(INedTypeResolver.NEDCONSISTENCYPROBLEM_MARKERID);
@@ -72,21 +118,35 @@ public class NedValidationJob extends Job {
         immutableResolver.addErrorsForDuplicates(errorStore);
         monitor.worked(1);
 
-        // validate all files
-        for (IFile file : immutableResolver.getNedFiles()) {
+        // forget all results if a file was removed, as we don't know which files depended on it
+        Set<IFile> nedFiles = immutableResolver.getNedFiles();
+        if (!nedFiles.containsAll(lastNedFiles))
+            resultCache.clear();
+        lastNedFiles = new HashSet<IFile>(nedFiles);
+
+        // validate the files whose inputs have changed since their cached result
+        Map<IFile, String> fingerprints = computeFingerprints(immutableResolver);
+        List<IFile> filesToValidate = new ArrayList<IFile>();
+        for (IFile file : nedFiles) {
+            ValidationResult result = resultCache.get(file);
+            if (result == null || fingerprints == null || !result.fingerprint.equals(fingerprints.get(file)))
+                filesToValidate.add(file);
+        }
+        monitor.worked(nedFiles.size() - filesToValidate.size());
+        Debug.println("NED validation job: validating " + filesToValidate.size() + " of " + nedFiles.size() + " files");
+        if (!validateFiles(filesToValidate, fingerprints, nedResources, immutableResolver, monitor, startTime))
+            return false;
+
+        // collect the problems of all files
+        for (IFile file : nedFiles) {
             NedFileElementEx nedFileElement = immutableResolver.getNedFileElement(file);
             errorStore.setFile(file);
-            new NedValidator(immutableResolver, file.getProject(), errorStore).validate(nedFileElement);
-            monitor.worked(1);
-
-            if (!nedResources.isImmutableCopyUpToDate(immutableResolver)) {
-                Debug.println("NED validation job: NED trees changed meanwhile, abandoning after " + (System.currentTimeMillis()-startTime) + "ms of work");
-                return false;
-            }
-            if (monitor.isCanceled()) {
-                Debug.println("NED validation job: cancelled after " + (System.currentTimeMillis()-startTime) + "ms of work");
-                return false;
-            }
+            ValidationResult result = resultCache.get(file);
+            RecordingNedErrorStore errors = new RecordingNedErrorStore();
+            if (!result.errors.replay(errors, nedFileElement))
+                errors = validateFile(file, immutableResolver); // elements not found by id; should not happen with an unchanged fingerprint
+            result.errors = errors; // refer to the elements of the current trees only
+            errors.replay(errorStore);
         }
 
         // lock NedResources while we copy marker severities onto NED trees in it
@@ -123,6 +183,209 @@ public class NedValidationJob extends Job {
         }
     }
 
+    /**
+     * Validates the given files, on a thread pool if there are several of them, and stores
+     * the results in the cache. Returns false if the NED trees changed meanwhile or the job
+     * was cancelled.
+     */
+    private boolean validateFiles(List<IFile> files, Map<IFile, String> fingerprints, INedResources nedResources, final INedTypeResolver immutableResolver, IProgressMonitor monitor, long startTime) {
+        int numThreads = Math.min(Runtime.getRuntime().availableProcessors(), files.size());
+        if (numThreads <= 1) {
+            for (IFile file : files)
+                if (!storeResult(file, validateFile(file, immutableResolver), fingerprints, nedResources, immutableResolver, monitor, startTime))
+                    return false;
+            return true;
+        }
+
+        prepareForConcurrentAccess(immutableResolver);
+
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "NED validator");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        final AtomicBoolean abandoned = new AtomicBoolean(false);
+        try {
+            List<Future<RecordingNedErrorStore>> futures = new ArrayList<Future<RecordingNedErrorStore>>();
+            for (final IFile file : files) {
+                futures.add(executor.submit(new Callable<RecordingNedErrorStore>() {
+                    public RecordingNedErrorStore call() {
+                        return abandoned.get() ? null : validateFile(file, immutableResolver);
+                    }
+                }));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                if (!storeResult(files.get(i), getResult(futures.get(i)), fingerprints, nedResources, immutableResolver, monitor, startTime)) {
+                    abandoned.set(true);
+                    return false;
+                }
+            }
+            return true;
+        }
+        finally {
+            // wait for the running tasks, as the immutable copy must not be used after it has been released
+            executor.shutdownNow();
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    if (executor.awaitTermination(1, TimeUnit.SECONDS))
+                        break;
+                }
+                catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    private static RecordingNedErrorStore validateFile(IFile file, INedTypeResolver immutableResolver) {
+        RecordingNedErrorStore errors = new RecordingNedErrorStore();
+        new NedValidator(immutableResolver, file.getProject(), errors).validate(immutableResolver.getNedFileElement(file));
+        return errors;
+    }
+
+    /**
+     * Caches the validation result of the file. Returns false if validation should
+     * be abandoned because the NED trees changed meanwhile or the job was cancelled.
+     */
+    private boolean storeResult(IFile file, RecordingNedErrorStore errors, Map<IFile, String> fingerprints, INedResources nedResources, INedTypeResolver immutableResolver, IProgressMonitor monitor, long startTime) {
+        ValidationResult result = new ValidationResult();
+        result.fingerprint = fingerprints == null ? "" : fingerprints.get(file);
+        result.errors = errors;
+        resultCache.put(file, result);
+        monitor.worked(1);
+
+        if (!nedResources.isImmutableCopyUpToDate(immutableResolver)) {
+            Debug.println("NED validation job: NED trees changed meanwhile, abandoning after " + (System.currentTimeMillis()-startTime) + "ms of work");
+            return false;
+        }
+        if (monitor.isCanceled()) {
+            Debug.println("NED validation job: cancelled after " + (System.currentTimeMillis()-startTime) + "ms of work");
+            return false;
+        }
+        return true;
+    }
+
+    private static RecordingNedErrorStore getResult(Future<RecordingNedErrorStore> future) {
+        // Note: we let exceptions terminate the job, like in the single-threaded case
+        while (true) {
+            try {
+                return future.get();
+            }
+            catch (InterruptedException e) {
+                // the job is stopped via the progress monitor, not by interrupting it
+            }
+            catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException)
+                    throw (RuntimeException)e.getCause();
+                if (e.getCause() instanceof Error)
+                    throw (Error)e.getCause();
+                throw new RuntimeException(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Computes a fingerprint of the inputs of the validation of each file: it changes
+     * when the file changes, or a file that declares a type with the same simple name
+     * as one used in it (transitively), or any package.ned file, or something that
+     * cannot be attributed to a file. Returns null if no change counters are available.
+     */
+    private static Map<IFile, String> computeFingerprints(INedTypeResolver resolver) {
+        if (!(resolver instanceof ImmutableNedTypeResolver))
+            return null;
+        ImmutableNedTypeResolver immutableResolver = (ImmutableNedTypeResolver)resolver;
+        Set<IFile> files = immutableResolver.getNedFiles();
+
+        // collect the type names declared and used in each file
+        Map<String, List<IFile>> declaringFiles = new HashMap<String, List<IFile>>();
+        Map<IFile, Set<String>> usedNames = new HashMap<IFile, Set<String>>();
+        Map<IFile, Long> counters = new HashMap<IFile, Long>();
+        long packageCounter = 0;
+        for (IFile file : files) {
+            Map<INedTypeElement, Set<String>> references = new HashMap<INedTypeElement, Set<String>>();
+            NedResources.collectTypeReferences(immutableResolver.getNedFileElement(file), references);
+            Set<String> names = new HashSet<String>();
+            for (INedTypeElement typeElement : references.keySet()) {
+                names.addAll(references.get(typeElement));
+                if (!declaringFiles.containsKey(typeElement.getName()))
+                    declaringFiles.put(typeElement.getName(), new ArrayList<IFile>());
+                declaringFiles.get(typeElement.getName()).add(file);
+            }
+            usedNames.put(file, names);
+
+            long counter = immutableResolver.getFileChangeCounter(file);
+            counters.put(file, counter);
+            if (file.getName().equals(INedTypeResolver.PACKAGE_NED_FILENAME))
+                packageCounter = Math.max(packageCounter, counter);
+        }
+
+        Map<IFile, Set<IFile>> dependencies = new HashMap<IFile, Set<IFile>>();
+        for (IFile file : files) {
+            Set<IFile> fileDependencies = new HashSet<IFile>();
+            for (String name : usedNames.get(file))
+                if (declaringFiles.containsKey(name))
+                    fileDependencies.addAll(declaringFiles.get(name));
+            fileDependencies.remove(file);
+            dependencies.put(file, fileDependencies);
+        }
+
+        // propagate the latest change counters along the dependencies; iterate, as there may be cycles
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (IFile file : files) {
+                for (IFile dependency : dependencies.get(file)) {
+                    if (counters.get(dependency) > counters.get(file)) {
+                        counters.put(file, counters.get(dependency));
+                        changed = true;
+                    }
+                }
+            }
+        }
+
+        Map<IFile, String> result = new HashMap<IFile, String>();
+        String prefix = immutableResolver.getUnattributedChangeCounter() + "/" + packageCounter + "/";
+        for (IFile file : files)
+            result.put(file, prefix + counters.get(file));
+        return result;
+    }
+
+    /**
+     * Fills the lazily computed data of the type infos and elements in advance,
+     * so that the validator threads only read them. (The member tables of type
+     * infos could be built concurrently, but building them involves lookups, and
+     * the lookup caches of the resolver and the caches of elements are not thread-safe.)
+     */
+    private static void prepareForConcurrentAccess(INedTypeResolver resolver) {
+        for (IFile file : resolver.getNedFiles())
+            prepareForConcurrentAccess(resolver.getNedFileElement(file));
+    }
+
+    private static void prepareForConcurrentAccess(INedElement parent) {
+        for (INedElement element : parent) {
+            if (element instanceof INedTypeElement) {
+                INedTypeInfo typeInfo = ((INedTypeElement)element).getNedTypeInfo();
+                typeInfo.getFullyQualifiedName();
+                typeInfo.getMembers();
+                typeInfo.getUsedTypes();
+                if (element instanceof CompoundModuleElementEx) {
+                    ((CompoundModuleElementEx)element).getSrcConnections(); // fills the connection cache
+                    for (SubmoduleElementEx submodule : typeInfo.getLocalSubmodules().values())
+                        submodule.getNedTypeInfo();
+                }
+                prepareForConcurrentAccess(element);
+            }
+            else if (element instanceof TypesElement) {
+                prepareForConcurrentAccess(element); // inner types
+            }
+        }
+    }
+
     private void clearConsistencyProblemSeverities(INedTypeResolver resolver) {
         for (IFile file : resolver.getNedFiles())
             resolver.getNedFileElement(file).clearConsistencyProblemMarkerSeverities();
@@ -22,6 +22,7 @@ import org.omnetpp.ned.model.interfaces.INedTypeInfo;
 import org.omnetpp.ned.model.interfaces.INedTypeResolver;
 import org.omnetpp.ned.model.interfaces.INedTypeResolver.IPredicate;
 import org.omnetpp.ned.model.notification.INedChangeListener;
+import org.omnetpp.ned.model.notification.NedModelDeltaEvent;
 import org.omnetpp.ned.model.notification.NedModelEvent;
 import org.omnetpp.ned.model.ui.NedModelLabelProvider;
 
@@ -55,7 +56,8 @@ public class NedTypeSelectionDialog extends ElementListSelectionDialog {
 
     INedChangeListener nedChangeListener = new INedChangeListener() {
         public void modelChanged(NedModelEvent event) {
-            dialogUpdater.restartTimer();
+            if (event instanceof NedModelDeltaEvent)
+                dialogUpdater.restartTimer();
         }
     };
 
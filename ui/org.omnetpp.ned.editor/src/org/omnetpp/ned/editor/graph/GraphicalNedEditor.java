@@ -146,6 +146,7 @@ import org.omnetpp.ned.model.notification.NedBeginModelChangeEvent;
 import org.omnetpp.ned.model.notification.NedEndModelChangeEvent;
 import org.omnetpp.ned.model.notification.NedFileRemovedEvent;
 import org.omnetpp.ned.model.notification.NedModelChangeEvent;
+import org.omnetpp.ned.model.notification.NedModelDeltaEvent;
 import org.omnetpp.ned.model.notification.NedModelEvent;
 import org.omnetpp.ned.model.pojo.SubmoduleElement;
 import org.omnetpp.ned.model.ui.NedModelLabelProvider;
@@ -660,6 +661,10 @@ public class GraphicalNedEditor
         if (event instanceof NedFileRemovedEvent && ((NedFileRemovedEvent)event).getFile().equals(getFile()))
             return;
 
+        // we count begin/end notifications ourselves, the summary of the changes is of no use here
+        if (event instanceof NedModelDeltaEvent)
+            return;
+
         // ignore event when closing the editor and the file has already been removed from the NEDResources
         if (!NedResourcesPlugin.getNedResources().containsNedFileElement(getFile()))
             return;
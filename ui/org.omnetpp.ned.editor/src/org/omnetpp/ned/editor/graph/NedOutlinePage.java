@@ -41,6 +41,8 @@ import org.omnetpp.ned.editor.NedEditor;
 import org.omnetpp.ned.editor.graph.actions.GNedContextMenuProvider;
 import org.omnetpp.ned.editor.graph.parts.outline.NedTreeEditPartFactory;
 import org.omnetpp.ned.model.notification.INedChangeListener;
+import org.omnetpp.ned.model.notification.NedMarkerChangeEvent;
+import org.omnetpp.ned.model.notification.NedModelDeltaEvent;
 import org.omnetpp.ned.model.notification.NedModelEvent;
 
 /**
@@ -130,6 +132,10 @@ class NedOutlinePage extends ContentOutlinePage implements INedChangeListener, I
     }
 
     public void modelChanged(NedModelEvent event) {
+        // refresh once per batch of changes (the delta event), and on marker changes
+        if (!(event instanceof NedModelDeltaEvent) && !(event instanceof NedMarkerChangeEvent))
+            return;
+
         if (Display.getCurrent() != null) {
             refresh();
         }
@@ -360,6 +360,12 @@ foreach $element (@elements)
             print JAVA "        $varnames[$i] = val;\n";
             print JAVA "        fireAttributeChanged($attnameconsts[$i], val, oldVal);\n";
             print JAVA "    }\n\n";
+        } elsif ($argtypes[$i] eq "String") {
+            print JAVA "    public void set$ucvarnames[$i]($argtypes[$i] val) {\n";
+            print JAVA "        $argtypes[$i] oldVal = $varnames[$i];\n";
+            print JAVA "        $varnames[$i] = internAttributeValue(val);\n";
+            print JAVA "        fireAttributeChanged($attnameconsts[$i], val, oldVal);\n";
+            print JAVA "    }\n\n";
         } else {
             print JAVA "    public void set$ucvarnames[$i]($argtypes[$i] val) {\n";
             print JAVA "        $argtypes[$i] oldVal = $varnames[$i];\n";
@@ -11,6 +11,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.runtime.Assert;
@@ -48,7 +49,10 @@ import org.omnetpp.ned.model.ui.NedModelLabelProvider;
  */
 public abstract class NedElement extends PlatformObject implements INedElement, INedModelProvider
 {
-    private static final int SEVERITY_INVALID = Integer.MIN_VALUE;
+    private static final byte SEVERITY_INVALID = Byte.MIN_VALUE;
+
+    // attribute values up to this length are interned, see internAttributeValue()
+    private static final int MAX_INTERNED_LENGTH = 100;
 
     private long id;
     private String sourceFileName;
@@ -63,15 +67,16 @@ public abstract class NedElement extends PlatformObject implements INedElement,
     private int numChildren = 0;
     private INedElement[] cachedChildArray;
     private INedElement original;
-    private static long lastid;
+    private static final AtomicLong lastid = new AtomicLong(); // elements may be created by parsers in several threads
 
     // store maximum severity of error markers associated with this element.
     // "syntax": NEDSYNTAXPROBLEM_MARKERID; "consistency": NEDCONSISTENCYPROBLEM_MARKERID;
-    // "local": this NedElement; "cumulated": this element and its subtree
-    private int syntaxProblemMaxLocalSeverity = SEVERITY_NONE;
-    private int consistencyProblemMaxLocalSeverity = SEVERITY_NONE;
-    private int syntaxProblemMaxCumulatedSeverity = SEVERITY_INVALID;
-    private int consistencyProblemMaxCumulatedSeverity = SEVERITY_INVALID;
+    // "local": this NedElement; "cumulated": this element and its subtree.
+    // Stored in bytes, as there are a lot of elements and severities are small numbers.
+    private byte syntaxProblemMaxLocalSeverity = SEVERITY_NONE;
+    private byte consistencyProblemMaxLocalSeverity = SEVERITY_NONE;
+    private byte syntaxProblemMaxCumulatedSeverity = SEVERITY_INVALID;
+    private byte consistencyProblemMaxCumulatedSeverity = SEVERITY_INVALID;
 
     private transient NedChangeListenerList listeners = null;
 
@@ -104,6 +109,16 @@ public abstract class NedElement extends PlatformObject implements INedElement,
         };
     }
 
+    /**
+     * Used by the generated setters of string attributes. Values that are not too
+     * long (names, types, expressions, etc) are interned, so that equal values in
+     * different elements and files (and in the immutable copies of the trees)
+     * share the same String instance.
+     */
+    protected static String internAttributeValue(String value) {
+        return value == null || value.length() > MAX_INTERNED_LENGTH ? value : value.intern();
+    }
+
     protected static boolean stringToBool(String s) {
         if (s.equals("true"))
             return true;
@@ -200,7 +215,7 @@ public abstract class NedElement extends PlatformObject implements INedElement,
      * Constructor
      */
     public NedElement() {
-        id = ++lastid;
+        id = lastid.incrementAndGet();
     }
 
     /**
@@ -233,7 +248,7 @@ public abstract class NedElement extends PlatformObject implements INedElement,
     }
 
     public void setSourceLocation(String fileName, int lineNumber) {
-        sourceFileName = fileName;
+        sourceFileName = fileName == null ? null : fileName.intern(); // shared by all elements of the file
         sourceLineNumber = lineNumber;
     }
 
@@ -691,28 +706,28 @@ public abstract class NedElement extends PlatformObject implements INedElement,
 
     public void syntaxProblemMarkerAdded(int severity) {
         if (syntaxProblemMaxLocalSeverity < severity) {
-            syntaxProblemMaxLocalSeverity = severity;
+            syntaxProblemMaxLocalSeverity = (byte)severity;
             fireModelEvent(new NedMarkerChangeEvent(this));
         }
     }
 
     public void consistencyProblemMarkerAdded(int severity) {
         if (consistencyProblemMaxLocalSeverity < severity) {
-            consistencyProblemMaxLocalSeverity = severity;
+            consistencyProblemMaxLocalSeverity = (byte)severity;
             fireModelEvent(new NedMarkerChangeEvent(this));
         }
     }
 
     public void setSyntaxProblemMaxLocalSeverity(int severity) {
         if (syntaxProblemMaxLocalSeverity != severity) {
-            syntaxProblemMaxLocalSeverity = severity;
+            syntaxProblemMaxLocalSeverity = (byte)severity;
             fireModelEvent(new NedMarkerChangeEvent(this));
         }
     }
 
     public void setConsistencyProblemMaxLocalSeverity(int severity) {
         if (consistencyProblemMaxLocalSeverity != severity) {
-            consistencyProblemMaxLocalSeverity = severity;
+            consistencyProblemMaxLocalSeverity = (byte)severity;
             fireModelEvent(new NedMarkerChangeEvent(this));
         }
     }
@@ -756,8 +771,8 @@ public abstract class NedElement extends PlatformObject implements INedElement,
             syntaxSeverity = Math.max(syntaxSeverity, child.getSyntaxProblemMaxCumulatedSeverity());
             consistencySeverity = Math.max(consistencySeverity, child.getConsistencyProblemMaxCumulatedSeverity());
         }
-        syntaxProblemMaxCumulatedSeverity = syntaxSeverity;
-        consistencyProblemMaxCumulatedSeverity = consistencySeverity;
+        syntaxProblemMaxCumulatedSeverity = (byte)syntaxSeverity;
+        consistencyProblemMaxCumulatedSeverity = (byte)consistencySeverity;
     }
 
     // For debugging purposes only
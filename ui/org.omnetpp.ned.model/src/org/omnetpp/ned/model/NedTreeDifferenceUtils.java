@@ -11,7 +11,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 
 import org.apache.commons.lang3.ObjectUtils;
@@ -42,41 +44,97 @@ public class NedTreeDifferenceUtils {
         public void replaceAttribute(INedElement element, String name, String value);
     }
 
+    /**
+     * Computes the differences between the two trees, and reports them to the applier
+     * as changes that turn the original tree into the target tree.
+     *
+     * Subtrees are compared by hashes first (see SubtreeHashes), so identical subtrees
+     * are skipped without visiting them, and subtrees that only differ in source
+     * locations are synchronized without aligning their children. The children of
+     * other elements are aligned by their keys (tag and name; see NedElementChildrenComparator)
+     * after stripping the common prefix and suffix, so the cost is mostly proportional
+     * to the size of the changes, apart from hashing the trees.
+     */
     public static void applyTreeDifferences(INedElement original, INedElement target, IApplier applier) {
+        applyTreeDifferences(original, target, applier, new SubtreeHashes());
+    }
+
+    private static void applyTreeDifferences(INedElement original, INedElement target, IApplier applier, SubtreeHashes hashes) {
+        long[] originalHashes = hashes.get(original);
+        long[] targetHashes = hashes.get(target);
+        if (originalHashes[SubtreeHashes.FULL] == targetHashes[SubtreeHashes.FULL])
+            return; // identical, including source locations and problem severities
+
         applier.replaceNonAttributeData(original, target.getSourceFileName(), target.getSourceLineNumber(), target.getSourceRegion(),
                 target.getSyntaxProblemMaxLocalSeverity(), target.getConsistencyProblemMaxLocalSeverity());
 
+        if (originalHashes[SubtreeHashes.CONTENT] == targetHashes[SubtreeHashes.CONTENT] && original.getNumChildren() == target.getNumChildren()) {
+            // same attributes and children, only source locations etc differ (e.g. lines inserted above)
+            for (int i = 0; i < original.getNumChildren(); i++)
+                applyTreeDifferences(original.getChild(i), target.getChild(i), applier, hashes);
+            return;
+        }
+
         applyAttributeDifferences(original, target, applier);
 
-        NedElementChildrenComparator comparatorOriginal = new NedElementChildrenComparator(original);
-        NedElementChildrenComparator comparatorTarget = new NedElementChildrenComparator(target);
-        List<RangeDifference> differences = Arrays.asList(RangeDifferencer.findRanges(comparatorOriginal, comparatorTarget));
-
-        Collections.sort(differences, new Comparator<RangeDifference>() {
-            public int compare(RangeDifference o1, RangeDifference o2) {
-                return o1.leftStart() - o2.leftStart();
-            }}
-        );
-
-        int offset = 0;
-        for (RangeDifference difference : differences) {
-            int leftStart = difference.leftStart();
-            int leftEnd = difference.leftEnd();
-            int rightStart = difference.rightStart();
-            int rightEnd = difference.rightEnd();
-
-            if (difference.kind() == RangeDifference.NOCHANGE || (difference.leftLength() == 0 && difference.rightLength() == 0 && difference.ancestorLength() == 0)) {
-                for (int i = leftStart; i < leftEnd; i++)
-                    applyTreeDifferences(original.getChild(i) , target.getChild(rightStart + i - leftStart), applier);
+        // strip the common prefix and suffix of corresponding children
+        int originalEnd = original.getNumChildren();
+        int targetEnd = target.getNumChildren();
+        int start = 0;
+        while (start < originalEnd && start < targetEnd && NedElementChildrenComparator.correspond(original.getChild(start), target.getChild(start)))
+            start++;
+        int suffixLength = 0;
+        while (start < originalEnd - suffixLength && start < targetEnd - suffixLength &&
+                NedElementChildrenComparator.correspond(original.getChild(originalEnd - suffixLength - 1), target.getChild(targetEnd - suffixLength - 1)))
+            suffixLength++;
+        originalEnd -= suffixLength;
+        targetEnd -= suffixLength;
+
+        // synchronize the common prefix, then the middle part, then the common suffix
+        for (int i = 0; i < start; i++)
+            applyTreeDifferences(original.getChild(i), target.getChild(i), applier, hashes);
+
+        if (start == originalEnd || start == targetEnd) {
+            // pure insertion or removal (or nothing)
+            if (start != originalEnd || start != targetEnd) {
+                INedElement[] replacement = new NedElementChildrenComparator(target, start, targetEnd).getElementRange(0, targetEnd - start);
+                applier.replaceElements(original, start, originalEnd, 0, replacement);
             }
-            else if (difference.kind() == RangeDifference.CHANGE) {
-                INedElement[] replacement = comparatorTarget.getElementRange(rightStart, rightEnd);
-                applier.replaceElements(original, leftStart, leftEnd, offset, replacement);
-                offset += difference.rightLength() - difference.leftLength();
+        }
+        else {
+            NedElementChildrenComparator comparatorOriginal = new NedElementChildrenComparator(original, start, originalEnd);
+            NedElementChildrenComparator comparatorTarget = new NedElementChildrenComparator(target, start, targetEnd);
+            List<RangeDifference> differences = Arrays.asList(RangeDifferencer.findRanges(comparatorOriginal, comparatorTarget));
+
+            Collections.sort(differences, new Comparator<RangeDifference>() {
+                public int compare(RangeDifference o1, RangeDifference o2) {
+                    return o1.leftStart() - o2.leftStart();
+                }}
+            );
+
+            int offset = 0;
+            for (RangeDifference difference : differences) {
+                int leftStart = difference.leftStart();
+                int leftEnd = difference.leftEnd();
+                int rightStart = difference.rightStart();
+                int rightEnd = difference.rightEnd();
+
+                if (difference.kind() == RangeDifference.NOCHANGE || (difference.leftLength() == 0 && difference.rightLength() == 0 && difference.ancestorLength() == 0)) {
+                    for (int i = leftStart; i < leftEnd; i++)
+                        applyTreeDifferences(comparatorOriginal.getElementAt(i), comparatorTarget.getElementAt(rightStart + i - leftStart), applier, hashes);
+                }
+                else if (difference.kind() == RangeDifference.CHANGE) {
+                    INedElement[] replacement = comparatorTarget.getElementRange(rightStart, rightEnd);
+                    applier.replaceElements(original, start + leftStart, start + leftEnd, offset, replacement);
+                    offset += difference.rightLength() - difference.leftLength();
+                }
+                else
+                    throw new RuntimeException("Unknown difference kind");
             }
-            else
-                throw new RuntimeException("Unknown difference kind");
         }
+
+        for (int i = 0; i < suffixLength; i++)
+            applyTreeDifferences(original.getChild(originalEnd + i), target.getChild(targetEnd + i), applier, hashes);
     }
 
     private static void applyAttributeDifferences(INedElement original, INedElement target, IApplier applier) {
@@ -168,18 +226,33 @@ public class NedTreeDifferenceUtils {
     }
 }
 
+/**
+ * Compares a range of the children of an element with those of another element.
+ */
 class NedElementChildrenComparator implements IRangeComparator {
     private INedElement parent;
+    private int start;
+    private int end;
 
     public NedElementChildrenComparator(INedElement parent) {
+        this(parent, 0, parent.getNumChildren());
+    }
+
+    public NedElementChildrenComparator(INedElement parent, int start, int end) {
         this.parent = parent;
+        this.start = start;
+        this.end = end;
     }
 
     public int getRangeCount() {
-        return parent.getNumChildren();
+        return end - start;
     }
 
     public boolean rangesEqual(int thisIndex, IRangeComparator other, int otherIndex) {
+        return correspond(getElementAt(thisIndex), ((NedElementChildrenComparator)other).getElementAt(otherIndex));
+    }
+
+    public static boolean correspond(INedElement thisElement, INedElement otherElement) {
         // NOTE: In this tree diff algorithm, we return true iff two the nodes are
         // the same type AND we want to synchronize them by changing differing attributes
         // and recursively synchronizing child elements. I.e. this is the case when the
@@ -187,9 +260,6 @@ class NedElementChildrenComparator implements IRangeComparator {
         // vector size etc and contents: we return true.  If we just want one to be thrown
         // out and simply replaced by the other, we return false.
         //
-        INedElement thisElement = getElementAt(thisIndex);
-        INedElement otherElement = ((NedElementChildrenComparator)other).getElementAt(otherIndex);
-
         if (thisElement == null || otherElement == null || thisElement.getTagCode() != otherElement.getTagCode())
             return false;
 
@@ -215,13 +285,13 @@ class NedElementChildrenComparator implements IRangeComparator {
         }
     }
 
-    private String getConnectionId(ConnectionElement connection) {
+    private static String getConnectionId(ConnectionElement connection) {
         return connection.getSrcModule() + connection.getSrcGate() + connection.getSrcGateIndex() +
             connection.getDestModule() + connection.getDestGate() + connection.getDestGateIndex();
     }
 
     public INedElement getElementAt(int index) {
-        return parent.getChild(index);
+        return parent.getChild(start + index);
     }
 
     public INedElement[] getElementRange(int start, int end) {
@@ -236,6 +306,69 @@ class NedElementChildrenComparator implements IRangeComparator {
     }
 }
 
+/**
+ * Computes and caches hashes of subtrees bottom-up (Merkle-style), so that equal
+ * subtrees can be recognized without comparing them element by element. There are
+ * two hashes per element: CONTENT covers the tags and attributes in the subtree,
+ * and FULL also covers the source locations and the problem severities, i.e.
+ * everything the tree diff synchronizes.
+ */
+class SubtreeHashes {
+    public static final int CONTENT = 0;
+    public static final int FULL = 1;
+
+    private final Map<INedElement, long[]> hashes = new IdentityHashMap<INedElement, long[]>();
+
+    public long[] get(INedElement element) {
+        long[] result = hashes.get(element);
+        if (result == null) {
+            long content = element.getTagCode();
+            for (int i = 0; i < element.getNumAttributes(); i++)
+                content = combine(content, hash(element.getAttribute(i)));
+
+            long full = combine(content, hash(element.getSourceFileName()));
+            full = combine(full, element.getSourceLineNumber());
+            NedSourceRegion region = element.getSourceRegion();
+            if (region != null) {
+                full = combine(full, region.getStartLine());
+                full = combine(full, region.getStartColumn());
+                full = combine(full, region.getEndLine());
+                full = combine(full, region.getEndColumn());
+            }
+            full = combine(full, element.getSyntaxProblemMaxLocalSeverity());
+            full = combine(full, element.getConsistencyProblemMaxLocalSeverity());
+
+            content = combine(content, element.getNumChildren());
+            for (INedElement child : element) {
+                long[] childHashes = get(child);
+                content = combine(content, childHashes[CONTENT]);
+                full = combine(full, childHashes[FULL]);
+            }
+            result = new long[] { content, full };
+            hashes.put(element, result);
+        }
+        return result;
+    }
+
+    private static long hash(String string) {
+        if (string == null)
+            return 0x5bd1e9955bd1e995L;
+        long h = 0xcbf29ce484222325L; // 64-bit FNV-1a
+        for (int i = 0; i < string.length(); i++)
+            h = (h ^ string.charAt(i)) * 0x100000001b3L;
+        return h;
+    }
+
+    private static long combine(long h, long value) {
+        // mix the value (splitmix64 finalizer), so that similar values give unrelated hashes
+        long z = value + 0x9e3779b97f4a7c15L;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        z = z ^ (z >>> 31);
+        return h * 0x9e3779b97f4a7c15L + z;
+    }
+}
+
 class NedTreeDifferenceTest {
     private static Random random = new Random(1);
 
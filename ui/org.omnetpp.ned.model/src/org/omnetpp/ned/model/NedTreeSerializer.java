@@ -0,0 +1,181 @@
+/*--------------------------------------------------------------*
+  Copyright (C) 2006-2015 OpenSim Ltd.
+
+  This file is distributed WITHOUT ANY WARRANTY. See the file
+  'License' for details on this and other legal matters.
+*--------------------------------------------------------------*/
+
+package org.omnetpp.ned.model;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.omnetpp.ned.model.ex.NedElementFactoryEx;
+import org.omnetpp.ned.model.interfaces.INedTypeResolver;
+
+/**
+ * Compact binary serialization of NED and MSG trees, together with the problems
+ * recorded while parsing them. Stores the tag, attributes, source location and
+ * source region of every element (comments are elements too). Strings are stored
+ * once in a string table, and numbers as variable-length integers.
+ *
+ * Element ids are not stored: elements get new ids when read back.
+ */
+public class NedTreeSerializer {
+    /**
+     * Changes whenever the format changes.
+     */
+    public static final int FORMAT_VERSION = 1;
+
+    /**
+     * Writes the tree and the problems recorded for it. The context elements of
+     * the problems are expected to be in the tree; if not, the problem is put on
+     * the tree root.
+     */
+    public static void write(INedElement tree, RecordingNedErrorStore errors, DataOutput out) throws IOException {
+        // string table
+        Map<String, Integer> strings = new LinkedHashMap<String, Integer>();
+        collectStrings(tree, strings);
+        for (RecordingNedErrorStore.Problem problem : errors.getProblems())
+            addString(problem.message, strings);
+        writeVarInt(out, strings.size());
+        for (String string : strings.keySet()) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(out, bytes.length);
+            out.write(bytes);
+        }
+
+        // elements in preorder
+        Map<INedElement, Integer> indices = new HashMap<INedElement, Integer>();
+        writeElement(tree, strings, indices, out);
+
+        // problems
+        List<RecordingNedErrorStore.Problem> problems = errors.getProblems();
+        writeVarInt(out, problems.size());
+        for (RecordingNedErrorStore.Problem problem : problems) {
+            Integer index = indices.get(problem.context);
+            writeVarInt(out, problem.severity);
+            writeVarInt(out, index == null ? 0 : index);
+            writeVarInt(out, problem.line);
+            writeVarInt(out, strings.get(problem.message));
+        }
+    }
+
+    /**
+     * Reads back a tree written by write(), and adds the problems to the given error store.
+     * The resolver is stored in the NED elements that need one; pass null for MSG trees.
+     */
+    public static INedElement read(DataInput in, INedTypeResolver resolver, INedErrorStore errors) throws IOException {
+        int numStrings = readVarInt(in);
+        String[] strings = new String[numStrings];
+        for (int i = 0; i < numStrings; i++) {
+            byte[] bytes = new byte[readVarInt(in)];
+            in.readFully(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        List<INedElement> elements = new ArrayList<INedElement>();
+        INedElement tree = readElement(null, resolver, strings, elements, in);
+
+        int numProblems = readVarInt(in);
+        for (int i = 0; i < numProblems; i++) {
+            int severity = readVarInt(in);
+            INedElement context = elements.get(readVarInt(in));
+            int line = readVarInt(in);
+            errors.add(severity, context, line, strings[readVarInt(in)]);
+        }
+        return tree;
+    }
+
+    private static void collectStrings(INedElement element, Map<String, Integer> strings) {
+        for (int i = 0; i < element.getNumAttributes(); i++)
+            addString(element.getAttribute(i), strings);
+        addString(element.getSourceFileName(), strings);
+        for (INedElement child : element)
+            collectStrings(child, strings);
+    }
+
+    private static void addString(String string, Map<String, Integer> strings) {
+        if (string != null && !strings.containsKey(string))
+            strings.put(string, strings.size());
+    }
+
+    private static int stringIndex(String string, Map<String, Integer> strings) {
+        return string == null ? 0 : strings.get(string) + 1; // 0 stands for null
+    }
+
+    private static void writeElement(INedElement element, Map<String, Integer> strings, Map<INedElement, Integer> indices, DataOutput out) throws IOException {
+        indices.put(element, indices.size());
+        writeVarInt(out, element.getTagCode());
+        int numAttributes = element.getNumAttributes();
+        writeVarInt(out, numAttributes);
+        for (int i = 0; i < numAttributes; i++)
+            writeVarInt(out, stringIndex(element.getAttribute(i), strings));
+        writeVarInt(out, stringIndex(element.getSourceFileName(), strings));
+        writeVarInt(out, element.getSourceLineNumber());
+        NedSourceRegion region = element.getSourceRegion();
+        if (region == null)
+            writeVarInt(out, 0);
+        else {
+            writeVarInt(out, region.getStartLine());
+            writeVarInt(out, region.getStartColumn());
+            writeVarInt(out, region.getEndLine());
+            writeVarInt(out, region.getEndColumn());
+        }
+        writeVarInt(out, element.getNumChildren());
+        for (INedElement child : element)
+            writeElement(child, strings, indices, out);
+    }
+
+    private static INedElement readElement(INedElement parent, INedTypeResolver resolver, String[] strings, List<INedElement> elements, DataInput in) throws IOException {
+        INedElement element = NedElementFactoryEx.getInstance().createElement(resolver, readVarInt(in), parent);
+        elements.add(element);
+        int numAttributes = readVarInt(in);
+        if (numAttributes != element.getNumAttributes())
+            throw new IOException("Attribute count mismatch for element " + element.getTagName());
+        for (int i = 0; i < numAttributes; i++)
+            element.setAttribute(i, readString(in, strings));
+        String sourceFileName = readString(in, strings);
+        element.setSourceLocation(sourceFileName, readVarInt(in));
+        int startLine = readVarInt(in);
+        if (startLine != 0)
+            element.setSourceRegion(new NedSourceRegion(startLine, readVarInt(in), readVarInt(in), readVarInt(in)));
+        int numChildren = readVarInt(in);
+        for (int i = 0; i < numChildren; i++)
+            readElement(element, resolver, strings, elements, in);
+        return element;
+    }
+
+    private static String readString(DataInput in, String[] strings) throws IOException {
+        int index = readVarInt(in);
+        return index == 0 ? null : strings[index - 1];
+    }
+
+    private static void writeVarInt(DataOutput out, int value) throws IOException {
+        // zigzag encoding, so that small negative numbers (e.g. severities) are short as well
+        int v = (value << 1) ^ (value >> 31);
+        while ((v & ~0x7f) != 0) {
+            out.writeByte((v & 0x7f) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+
+    private static int readVarInt(DataInput in) throws IOException {
+        int v = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0)
+                return (v >>> 1) ^ -(v & 1);
+        }
+        throw new IOException("Malformed variable-length integer");
+    }
+}
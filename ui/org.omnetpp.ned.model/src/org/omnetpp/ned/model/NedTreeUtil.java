@@ -55,6 +55,14 @@ import org.omnetpp.ned.model.pojo.StructElement;
  * @author rhornig, andras
  */
 public class NedTreeUtil {
+    /**
+     * Changes whenever the parser or the conversion to NedElement trees changes
+     * so that parsing may produce different trees (or problems). Persistent caches
+     * of parse results use it to discard their old entries; bundle versions are
+     * not enough for that, as they do not change between development builds.
+     */
+    public static final int PARSER_VERSION = 1;
+
     /**
      * Generate NED code from the given NedElement tree. The root node
      * does not have to be NedFileElement, any subtree can be converted
@@ -113,8 +121,10 @@ public class NedTreeUtil {
      * and source location attributes. Callers should check ErrorStore to determine
      * whether a parse error occurred. All errors produced here will be syntax errors
      * (see NEDSYNTAXPROBLEM_MARKERID).
+     *
+     * May be called from several threads concurrently, see parseNedText().
      */
-    public static synchronized NedFileElementEx parseNedFile(String filesystemFilename, INedErrorStore errors, String displayFilename, INedTypeResolver resolver) {
+    public static NedFileElementEx parseNedFile(String filesystemFilename, INedErrorStore errors, String displayFilename, INedTypeResolver resolver) {
         return doParseNedSource(null, filesystemFilename, errors, displayFilename, resolver);
     }
 
@@ -125,12 +135,17 @@ public class NedTreeUtil {
      * and source location attributes. Callers should check INedErrorStore to determine
      * whether a parse error occurred. All errors produced here will be syntax errors
      * (see NEDSYNTAXPROBLEM_MARKERID).
+     *
+     * May be called from several threads concurrently: every call uses its own
+     * parser, native error store and native tree, which are deleted before the
+     * method returns (the native parser keeps its state in thread-local storage).
+     * The passed error store and resolver must be safe to use from the calling thread.
      */
-    public static synchronized NedFileElementEx parseNedText(String source, INedErrorStore errors, String displayFilename, INedTypeResolver resolver) {
+    public static NedFileElementEx parseNedText(String source, INedErrorStore errors, String displayFilename, INedTypeResolver resolver) {
         return doParseNedSource(source, null, errors, displayFilename, resolver);
     }
 
-    private static synchronized NedFileElementEx doParseNedSource(String source, String filesystemFilename, INedErrorStore errors, String displayFilename, INedTypeResolver resolver) {
+    private static NedFileElementEx doParseNedSource(String source, String filesystemFilename, INedErrorStore errors, String displayFilename, INedTypeResolver resolver) {
         Assert.isTrue(displayFilename != null);
         ASTNode swigTree = null;
         try {
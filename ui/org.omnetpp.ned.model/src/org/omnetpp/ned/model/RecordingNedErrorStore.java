@@ -0,0 +1,90 @@
+/*--------------------------------------------------------------*
+  Copyright (C) 2006-2015 OpenSim Ltd.
+
+  This file is distributed WITHOUT ANY WARRANTY. See the file
+  'License' for details on this and other legal matters.
+*--------------------------------------------------------------*/
+
+package org.omnetpp.ned.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.resources.IFile;
+
+/**
+ * An error store that records the problems, so that they can be replayed
+ * into another error store later. Useful for parsing in a background thread
+ * when the final error store (e.g. one that creates markers) must not be
+ * accessed from there.
+ */
+public class RecordingNedErrorStore extends AbstractNedErrorStore {
+    static class Problem {
+        int severity;
+        INedElement context;
+        int line;
+        String message;
+    }
+
+    private List<Problem> problems = new ArrayList<Problem>();
+
+    public void setFile(IFile file) {
+        // the file is specified on the target error store
+    }
+
+    public void add(int severity, INedElement context, int line, String message) {
+        Problem problem = new Problem();
+        problem.severity = severity;
+        problem.context = context;
+        problem.line = line;
+        problem.message = message;
+        problems.add(problem);
+    }
+
+    public int getNumProblems() {
+        return problems.size();
+    }
+
+    List<Problem> getProblems() {
+        return problems;
+    }
+
+    /**
+     * Adds the recorded problems to the given error store, in the original order.
+     */
+    public void replay(INedErrorStore errors) {
+        for (Problem problem : problems)
+            errors.add(problem.severity, problem.context, problem.line, problem.message);
+    }
+
+    /**
+     * Like replay(), but reports the problems on the elements with the same ids
+     * (see INedElement.getId()) in the given tree, e.g. in a copy of the tree the
+     * problems were recorded on. Returns false without adding anything if some
+     * element has no counterpart in the tree.
+     */
+    public boolean replay(INedErrorStore errors, INedElement tree) {
+        Map<Long, INedElement> elementsById = new HashMap<Long, INedElement>();
+        collectElements(tree, elementsById);
+        List<INedElement> contexts = new ArrayList<INedElement>();
+        for (Problem problem : problems) {
+            INedElement context = elementsById.get(problem.context.getId());
+            if (context == null)
+                return false;
+            contexts.add(context);
+        }
+        for (int i = 0; i < problems.size(); i++) {
+            Problem problem = problems.get(i);
+            errors.add(problem.severity, contexts.get(i), problem.line, problem.message);
+        }
+        return true;
+    }
+
+    private static void collectElements(INedElement parent, Map<Long, INedElement> result) {
+        result.put(parent.getId(), parent);
+        for (INedElement child : parent)
+            collectElements(child, result);
+    }
+}
@@ -54,6 +54,11 @@ public class ChannelElementEx extends ChannelElement implements IChannelKindType
         return resolver;
     }
 
+    void setResolver(INedTypeResolver resolver) {
+        Assert.isNotNull(resolver, "This NED element type needs a resolver");
+        this.resolver = resolver;
+    }
+
     public INedTypeInfo getNedTypeInfo() {
         return typeInfo;
     }
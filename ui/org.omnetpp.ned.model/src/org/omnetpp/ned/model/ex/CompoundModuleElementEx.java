@@ -73,6 +73,13 @@ public class CompoundModuleElementEx extends CompoundModuleElement implements IM
         return resolver;
     }
 
+    void setResolver(INedTypeResolver resolver) {
+        Assert.isNotNull(resolver, "This NED element type needs a resolver");
+        this.resolver = resolver;
+        cacheUpdateSerial = -1;
+        localSrcConnCache = localDestConnCache = null;
+    }
+
     @Override
     public String getReadableTagName() {
         if (isNetwork())
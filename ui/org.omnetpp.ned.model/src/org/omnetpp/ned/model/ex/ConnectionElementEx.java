@@ -52,6 +52,11 @@ public class ConnectionElementEx extends ConnectionElement implements ISubmodule
         return resolver;
     }
 
+    void setResolver(INedTypeResolver resolver) {
+        Assert.isNotNull(resolver, "This NED element type needs a resolver");
+        this.resolver = resolver;
+    }
+
     public IConnectableElement getSrcModuleRef() {
         return resolveConnectedModule(getSrcModule());
     }
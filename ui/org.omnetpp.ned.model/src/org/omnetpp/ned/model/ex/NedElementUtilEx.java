@@ -34,6 +34,7 @@ import org.omnetpp.ned.model.interfaces.ISubmoduleOrConnection;
 import org.omnetpp.ned.model.pojo.CommentElement;
 import org.omnetpp.ned.model.pojo.CompoundModuleElement;
 import org.omnetpp.ned.model.pojo.ConnectionGroupElement;
+import org.omnetpp.ned.model.pojo.ConnectionsElement;
 import org.omnetpp.ned.model.pojo.ExtendsElement;
 import org.omnetpp.ned.model.pojo.ImportElement;
 import org.omnetpp.ned.model.pojo.LiteralElement;
@@ -43,6 +44,8 @@ import org.omnetpp.ned.model.pojo.PackageElement;
 import org.omnetpp.ned.model.pojo.ParametersElement;
 import org.omnetpp.ned.model.pojo.PropertyElement;
 import org.omnetpp.ned.model.pojo.PropertyKeyElement;
+import org.omnetpp.ned.model.pojo.SubmodulesElement;
+import org.omnetpp.ned.model.pojo.TypesElement;
 
 /**
  * A collection of utility functions for manipulating NedElement trees
@@ -668,5 +671,44 @@ public class NedElementUtilEx implements NedElementTags, NedElementConstants {
         return result;
     }
 
+    /**
+     * Moves the given tree over to another resolver: elements that know their
+     * resolver will return the given one, and the type info objects of the NED
+     * types in the tree are invalidated, because their cached members may refer
+     * to elements of the old resolver. Used for sharing unchanged NED file trees
+     * between immutable copies of the NED resources; the tree must not be used
+     * with the old resolver afterwards.
+     *
+     * Only the elements that may contain elements with a resolver are visited
+     * (files, compound modules and their types, submodules and connections
+     * sections), not parameters, gates, properties and expressions.
+     */
+    public static void setResolver(INedElement tree, INedTypeResolver resolver) {
+        if (tree instanceof NedFileElementEx)
+            ((NedFileElementEx)tree).setResolver(resolver);
+        else if (tree instanceof CompoundModuleElementEx)
+            ((CompoundModuleElementEx)tree).setResolver(resolver);
+        else if (tree instanceof SimpleModuleElementEx)
+            ((SimpleModuleElementEx)tree).setResolver(resolver);
+        else if (tree instanceof ModuleInterfaceElementEx)
+            ((ModuleInterfaceElementEx)tree).setResolver(resolver);
+        else if (tree instanceof ChannelElementEx)
+            ((ChannelElementEx)tree).setResolver(resolver);
+        else if (tree instanceof ChannelInterfaceElementEx)
+            ((ChannelInterfaceElementEx)tree).setResolver(resolver);
+        else if (tree instanceof SubmoduleElementEx)
+            ((SubmoduleElementEx)tree).setResolver(resolver);
+        else if (tree instanceof ConnectionElementEx)
+            ((ConnectionElementEx)tree).setResolver(resolver);
+
+        if (tree instanceof INedTypeElement)
+            ((INedTypeElement)tree).getNedTypeInfo().invalidate();
+
+        if (tree instanceof NedFileElementEx || tree instanceof CompoundModuleElementEx || tree instanceof TypesElement ||
+                tree instanceof SubmodulesElement || tree instanceof ConnectionsElement || tree instanceof ConnectionGroupElement)
+            for (INedElement child : tree)
+                setResolver(child, resolver);
+    }
+
 
 }
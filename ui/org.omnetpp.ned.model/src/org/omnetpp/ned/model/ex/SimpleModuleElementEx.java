@@ -56,6 +56,11 @@ public class SimpleModuleElementEx extends SimpleModuleElement implements IModul
         return resolver;
     }
 
+    void setResolver(INedTypeResolver resolver) {
+        Assert.isNotNull(resolver, "This NED element type needs a resolver");
+        this.resolver = resolver;
+    }
+
     public INedTypeInfo getNedTypeInfo() {
         return typeInfo;
     }
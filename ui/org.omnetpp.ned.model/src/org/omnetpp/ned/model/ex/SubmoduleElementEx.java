@@ -71,6 +71,13 @@ public class SubmoduleElementEx extends SubmoduleElement
         return resolver;
     }
 
+    void setResolver(INedTypeResolver resolver) {
+        Assert.isNotNull(resolver, "This NED element type needs a resolver");
+        this.resolver = resolver;
+        cachedTypeInfo = null;
+        cachedTypeInfoSerial = 0;
+    }
+
     public String getNameWithIndex() {
         String result = getName();
         if (getVectorSize() != null && !"".equals(getVectorSize()))
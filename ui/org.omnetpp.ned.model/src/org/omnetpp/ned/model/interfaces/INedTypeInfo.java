@@ -97,7 +97,9 @@ public interface INedTypeInfo extends INedChangeListener {
 
     /**
      * Causes information about inherited members to be discarded, and later
-     * re-built on demand.
+     * re-built on demand. This includes every local information that is
+     * determined by type lookups (interfaces, used types), so it must be called
+     * when the types this type refers to may have changed.
      */
     public void invalidateInherited();
 
@@ -0,0 +1,104 @@
+/*--------------------------------------------------------------*
+  Copyright (C) 2006-2015 OpenSim Ltd.
+
+  This file is distributed WITHOUT ANY WARRANTY. See the file
+  'License' for details on this and other legal matters.
+*--------------------------------------------------------------*/
+
+package org.omnetpp.ned.model.notification;
+
+import java.util.Collections;
+import java.util.Set;
+
+import org.eclipse.core.resources.IFile;
+import org.omnetpp.ned.model.INedElement;
+
+/**
+ * Summarizes the model changes of a begin/end batch, or of a single change
+ * that was made outside any batch. It is fired once, after the change events
+ * it summarizes (and after the outermost NedEndModelChangeEvent). Listeners
+ * that only need to know what has changed, and not how, should react to this
+ * event and ignore the individual NedModelChangeEvents.
+ *
+ * The element set is coalesced: every element that was the source of a change
+ * event occurs in it once, regardless of the number of changes. It may contain
+ * elements that have been removed from the tree since. A full change means that
+ * some change could not be attributed to a file (e.g. project changes); then
+ * anything may have changed, and the sets are not exhaustive.
+ */
+public class NedModelDeltaEvent extends NedModelEvent {
+    protected Set<INedElement> changedElements;
+    protected Set<IFile> changedFiles;
+    protected Set<IFile> removedFiles;
+    protected Set<String> affectedTypeNames;
+    protected boolean fullChange;
+    protected int numChanges;
+
+    public NedModelDeltaEvent(Set<INedElement> changedElements, Set<IFile> changedFiles, Set<IFile> removedFiles,
+            Set<String> affectedTypeNames, boolean fullChange, int numChanges) {
+        super(null);
+        this.changedElements = Collections.unmodifiableSet(changedElements);
+        this.changedFiles = Collections.unmodifiableSet(changedFiles);
+        this.removedFiles = Collections.unmodifiableSet(removedFiles);
+        this.affectedTypeNames = Collections.unmodifiableSet(affectedTypeNames);
+        this.fullChange = fullChange;
+        this.numChanges = numChanges;
+    }
+
+    /**
+     * Returns the elements that were the source of change events.
+     */
+    public Set<INedElement> getChangedElements() {
+        return changedElements;
+    }
+
+    /**
+     * Returns the NED files whose trees have changed, including removed files.
+     */
+    public Set<IFile> getChangedFiles() {
+        return changedFiles;
+    }
+
+    /**
+     * Returns the NED files that were removed from NEDResources.
+     */
+    public Set<IFile> getRemovedFiles() {
+        return removedFiles;
+    }
+
+    /**
+     * Returns the fully qualified names of the types that were declared (before or
+     * after the changes) in the changed files, and of the types that directly or
+     * indirectly refer to them (as base type, interface, submodule or channel type).
+     */
+    public Set<String> getAffectedTypeNames() {
+        return affectedTypeNames;
+    }
+
+    /**
+     * Returns true if some change could not be attributed to a file, so anything
+     * may have changed.
+     */
+    public boolean isFullChange() {
+        return fullChange;
+    }
+
+    /**
+     * Returns the number of change events summarized by this event.
+     */
+    public int getNumChanges() {
+        return numChanges;
+    }
+
+    /**
+     * Returns true if the given file may have been affected by the changes.
+     */
+    public boolean affects(IFile file) {
+        return fullChange || changedFiles.contains(file);
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + " " + numChanges + " changes in " + changedFiles.size() + " files" + (fullChange ? " (full change)" : "");
+    }
+}
@@ -44,6 +44,7 @@ public class Activator extends Plugin {
      * @see org.eclipse.core.runtime.Plugin#stop(org.osgi.framework.BundleContext)
      */
     public void stop(BundleContext context) throws Exception {
+        VectorFileIndexingService.shutdown();
         plugin = null;
         super.stop(context);
     }
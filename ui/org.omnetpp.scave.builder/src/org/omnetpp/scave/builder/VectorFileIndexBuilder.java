@@ -11,9 +11,9 @@ import static org.omnetpp.scave.common.IndexFileUtils.getVectorFileFor;
 import static org.omnetpp.scave.common.IndexFileUtils.isExistingVectorFile;
 import static org.omnetpp.scave.common.IndexFileUtils.isIndexFile;
 import static org.omnetpp.scave.common.IndexFileUtils.isIndexFileUpToDate;
-import static org.omnetpp.scave.common.IndexFileUtils.performIndexing;
 
-import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -27,8 +27,6 @@ import org.eclipse.core.resources.IResourceVisitor;
 import org.eclipse.core.resources.IncrementalProjectBuilder;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
-import org.eclipse.core.runtime.OperationCanceledException;
-import org.eclipse.core.runtime.SubProgressMonitor;
 
 public class VectorFileIndexBuilder extends IncrementalProjectBuilder {
 
@@ -97,38 +95,17 @@ public class VectorFileIndexBuilder extends IncrementalProjectBuilder {
         doBuild(monitor);
     }
 
+    /**
+     * Hands over the collected files to the indexing service, which indexes
+     * them in the background, in parallel.
+     */
     protected void doBuild(IProgressMonitor monitor) {
-        try {
-            monitor.beginTask("Indexing vector files", filesToBeIndexed.size());
-
-            IFile file;
-            while ((file = filesToBeIndexed.peek()) != null) {
-                if (monitor.isCanceled())
-                    throw new OperationCanceledException();
-                if (isInterrupted())
-                    break;
-
-                file = filesToBeIndexed.poll();
-                monitor.subTask("Indexing "+file.getName());
-                try {
-                    File path = file.getLocation().toFile();
-                    if (path.exists() && isExistingVectorFile(file) && !isIndexFileUpToDate(file))
-                    {
-                        IProgressMonitor subMonitor = new SubProgressMonitor(monitor, 1);
-                        performIndexing(file, subMonitor);
-                        if (subMonitor.isCanceled())
-                            throw new OperationCanceledException();
-                    }
-                }
-                catch (Exception e) {
-                    Activator.logError(e);
-                    monitor.worked(1);
-                }
-            }
-        }
-        finally {
-            monitor.done();
-        }
+        List<IFile> files = new ArrayList<>();
+        IFile file;
+        while ((file = filesToBeIndexed.poll()) != null)
+            files.add(file);
+        VectorFileIndexingService.getInstance().requestIndexing(files);
+        monitor.done();
     }
 
     protected boolean toBeIndexed(IFile file) {
@@ -0,0 +1,307 @@
+/*--------------------------------------------------------------*
+  Copyright (C) 2006-2015 OpenSim Ltd.
+
+  This file is distributed WITHOUT ANY WARRANTY. See the file
+  'License' for details on this and other legal matters.
+*--------------------------------------------------------------*/
+
+package org.omnetpp.scave.builder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.omnetpp.common.Debug;
+import org.omnetpp.scave.common.IndexFileUtils;
+import org.omnetpp.scave.engine.VectorFileIndexer;
+
+/**
+ * Generates vector file indices in the background, on a pool of worker threads.
+ *
+ * Requests are queued by priority: files needed by an open analysis (HIGH)
+ * are indexed before files reported by the builder (NORMAL). Requesting a
+ * file that is already queued does not create a new task, but raises the
+ * priority of the queued one if needed. Files reported via requestIndexing()
+ * are collected for a short while before being queued, so that vector files
+ * that are being written by a running simulation are not indexed repeatedly.
+ *
+ * Throughput, queue length and estimated remaining time can be queried with
+ * getStatistics().
+ */
+public class VectorFileIndexingService {
+    public static final int HIGH = 0;
+    public static final int NORMAL = 1;
+
+    // indexing is mostly I/O bound; more threads than this would only cause disk contention
+    private static final int MAX_THREADS = 4;
+    private static final long DEBOUNCE_MILLIS = 2000;
+
+    private static VectorFileIndexingService instance;
+
+    private final ThreadPoolExecutor executor;
+    private final Map<String,Task> tasks = new HashMap<>(); // queued or running tasks, by file location
+    private final Set<IFile> pendingFiles = new LinkedHashSet<>(); // reported by requestIndexing(), not yet queued
+    private final Job debounceJob;
+    private long sequence = 0;
+
+    // statistics
+    private long busySince = 0; // start of the current busy period (0 if idle)
+    private long bytesIndexedSinceBusy = 0;
+    private long bytesQueued = 0;
+    private int numFilesIndexed = 0;
+
+    /**
+     * Immutable snapshot of the service's state.
+     */
+    public static class Statistics {
+        public final int queueLength;      // number of files waiting to be indexed
+        public final int activeCount;      // number of files being indexed
+        public final long bytesRemaining;  // total size of queued and in-progress files
+        public final double bytesPerSecond; // throughput in the current busy period, or 0 if unknown
+        public final int numFilesIndexed;  // since startup
+
+        Statistics(int queueLength, int activeCount, long bytesRemaining, double bytesPerSecond, int numFilesIndexed) {
+            this.queueLength = queueLength;
+            this.activeCount = activeCount;
+            this.bytesRemaining = bytesRemaining;
+            this.bytesPerSecond = bytesPerSecond;
+            this.numFilesIndexed = numFilesIndexed;
+        }
+
+        public boolean isIdle() {
+            return queueLength == 0 && activeCount == 0;
+        }
+
+        /**
+         * Returns the estimated time until the queue is empty in seconds,
+         * or -1 if it cannot be estimated yet.
+         */
+        public double getEstimatedSecondsRemaining() {
+            return bytesPerSecond > 0 ? bytesRemaining / bytesPerSecond : isIdle() ? 0 : -1;
+        }
+    }
+
+    private class Task implements Runnable, Comparable<Task> {
+        final String fileLocation;
+        final IFile file; // may be null if the file is not in the workspace
+        final long size;
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        final NullProgressMonitor monitor = new NullProgressMonitor(); // for cancellation
+        int priority;
+        long seq;
+
+        Task(String fileLocation, IFile file, int priority) {
+            this.fileLocation = fileLocation;
+            this.file = file;
+            this.size = new File(fileLocation).length();
+            this.priority = priority;
+            this.seq = sequence++;
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            return priority != other.priority ? Integer.compare(priority, other.priority) : Long.compare(seq, other.seq);
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (!monitor.isCanceled() && !IndexFileUtils.isIndexFileUpToDate(fileLocation))
+                    generateIndex(this);
+            }
+            finally {
+                taskFinished(this);
+                future.complete(null);
+            }
+        }
+    }
+
+    /**
+     * Returns the shared instance, creating it on first invocation.
+     */
+    public static synchronized VectorFileIndexingService getInstance() {
+        if (instance == null)
+            instance = new VectorFileIndexingService();
+        return instance;
+    }
+
+    /**
+     * Stops the shared instance (if exists); queued tasks are discarded,
+     * and running ones are asked to stop.
+     */
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            instance.dispose();
+            instance = null;
+        }
+    }
+
+    protected VectorFileIndexingService() {
+        int numThreads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), MAX_THREADS));
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = (runnable) -> {
+            Thread thread = new Thread(runnable, "Vector file indexer #" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        };
+        executor = new ThreadPoolExecutor(numThreads, numThreads, 10, TimeUnit.SECONDS, new PriorityBlockingQueue<Runnable>(), threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+
+        debounceJob = new Job("Queueing vector files for indexing") {
+            @Override
+            protected IStatus run(IProgressMonitor monitor) {
+                List<IFile> files;
+                synchronized (VectorFileIndexingService.this) {
+                    files = new ArrayList<>(pendingFiles);
+                    pendingFiles.clear();
+                }
+                for (IFile file : files)
+                    if (file.exists() && file.getLocation() != null)
+                        submit(file.getLocation().toOSString(), file, NORMAL);
+                return Status.OK_STATUS;
+            }
+        };
+        debounceJob.setSystem(true);
+    }
+
+    protected void dispose() {
+        debounceJob.cancel();
+        synchronized (this) {
+            for (Task task : tasks.values()) {
+                task.monitor.setCanceled(true);
+                task.future.cancel(false);
+            }
+            tasks.clear();
+            pendingFiles.clear();
+        }
+        executor.shutdownNow();
+    }
+
+    /**
+     * Reports vector files whose index may need to be (re)generated. The files
+     * are queued with NORMAL priority after no more files have been reported
+     * for a short while.
+     */
+    public void requestIndexing(Collection<IFile> files) {
+        if (files.isEmpty())
+            return;
+        synchronized (this) {
+            pendingFiles.addAll(files);
+        }
+        debounceJob.cancel();
+        debounceJob.schedule(DEBOUNCE_MILLIS);
+    }
+
+    /**
+     * Queues the given workspace vector file for indexing, and returns a future
+     * that completes when the index file is up to date (or indexing failed,
+     * in which case a problem marker is added to the file).
+     */
+    public CompletableFuture<Void> submit(IFile file, int priority) {
+        return submit(file.getLocation().toOSString(), file, priority);
+    }
+
+    /**
+     * Queues the vector file at the given file system location for indexing.
+     * The file does not need to be in the workspace. See submit(IFile, int).
+     */
+    public CompletableFuture<Void> submit(String fileLocation, int priority) {
+        return submit(fileLocation, findWorkspaceFile(fileLocation), priority);
+    }
+
+    protected synchronized CompletableFuture<Void> submit(String fileLocation, IFile file, int priority) {
+        if (executor.isShutdown())
+            return CompletableFuture.completedFuture(null);
+
+        Task task = tasks.get(fileLocation);
+        if (task != null) {
+            // already queued or running; raise its priority if it is still in the queue
+            if (priority < task.priority && executor.remove(task)) {
+                task.priority = priority;
+                task.seq = sequence++;
+                executor.execute(task);
+            }
+            return task.future;
+        }
+
+        task = new Task(fileLocation, file, priority);
+        tasks.put(fileLocation, task);
+        if (busySince == 0) {
+            busySince = System.currentTimeMillis();
+            bytesIndexedSinceBusy = 0;
+        }
+        bytesQueued += task.size;
+        executor.execute(task);
+        return task.future;
+    }
+
+    protected synchronized void taskFinished(Task task) {
+        if (tasks.get(task.fileLocation) == task)
+            tasks.remove(task.fileLocation);
+        bytesQueued -= task.size;
+        bytesIndexedSinceBusy += task.size;
+        numFilesIndexed++;
+        if (tasks.isEmpty())
+            busySince = 0;
+    }
+
+    protected void generateIndex(Task task) {
+        if (task.file != null && task.file.exists()) {
+            IndexFileUtils.performIndexing(task.file, task.monitor); // also adds markers on error
+        }
+        else {
+            try {
+                long startTime = System.currentTimeMillis();
+                new VectorFileIndexer().generateIndex(task.fileLocation, task.monitor);
+                Debug.println("finished indexing " + task.fileLocation + ", " + (System.currentTimeMillis()-startTime) + "ms");
+            }
+            catch (Throwable e) {
+                Activator.logError("Cannot create index file for: " + task.fileLocation, e);
+            }
+        }
+    }
+
+    protected static IFile findWorkspaceFile(String fileLocation) {
+        IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+        IPath location = new Path(fileLocation);
+        IFile[] files = root.findFilesForLocationURI(location.toFile().toURI());
+        return files.length > 0 ? files[0] : null;
+    }
+
+    /**
+     * Returns true if the given file is queued or being indexed.
+     */
+    public synchronized boolean isQueued(String fileLocation) {
+        return tasks.containsKey(fileLocation);
+    }
+
+    public synchronized Statistics getStatistics() {
+        int queueLength = executor.getQueue().size();
+        int activeCount = Math.max(0, tasks.size() - queueLength);
+        double elapsedSeconds = busySince == 0 ? 0 : (System.currentTimeMillis() - busySince) / 1000.0;
+        double bytesPerSecond = elapsedSeconds > 0 && bytesIndexedSinceBusy > 0 ? bytesIndexedSinceBusy / elapsedSeconds : 0;
+        return new Statistics(queueLength, activeCount, bytesQueued, bytesPerSecond, numFilesIndexed);
+    }
+}
@@ -86,10 +86,54 @@ class PythonEntryPoint(object):
             "print": print,
             "exit": sys.exit
         }
+        # state to be restored by reset()
+        self.initialWorkingDir = os.getcwd()
+        self.initialSysPath = list(sys.path)
+        self.initialRcParams = mpl.rcParams.copy()
 
     def check(self):
         return True
 
+    def warmUp(self):
+        # Pre-import the modules used by most chart scripts, so a pooled process
+        # can start executing a chart script right away. Note that ideplot
+        # and utils must not be imported here, because ideplot selects its
+        # implementation at import time, based on Gateway.chart_plotter.
+        import scipy.stats
+        from omnetpp.scave import results, chart, vectorops
+        return True
+
+    def reset(self):
+        """
+        Restores the state of the process (as far as practical) for executing
+        another chart script: closes all figures, restores the Matplotlib rcParams,
+        the working directory and sys.path, unloads modules loaded from the
+        directories added to sys.path, and clears the execution context and the
+        Java object references.
+        """
+        plt.close("all")
+        mpl.rcParams.clear()
+        mpl.rcParams.update(self.initialRcParams)
+        os.chdir(self.initialWorkingDir)
+
+        addedDirs = [os.path.abspath(d) + os.sep for d in sys.path if d and d not in self.initialSysPath]
+        sys.path[:] = self.initialSysPath
+        for name, module in list(sys.modules.items()):
+            file = getattr(module, "__file__", None)
+            if file and os.path.abspath(file).startswith(tuple(addedDirs)):
+                del sys.modules[name]
+
+        self.execContext = {
+            "print": print,
+            "exit": sys.exit
+        }
+        Gateway.chart_provider = None
+        Gateway.results_provider = None
+        Gateway.widget_provider = None
+        Gateway.chart_plotter = None
+        Gateway.warning_annotator = None
+        return True
+
     def setResultsProvider(self, results_provider):
         Gateway.results_provider = results_provider
 
@@ -29,6 +29,19 @@ public interface IPythonEntryPoint {
      */
     boolean check();
 
+    /**
+     * Pre-imports the Python modules commonly used by chart scripts, so that
+     * a pooled process can execute the first chart script without delay.
+     */
+    boolean warmUp();
+
+    /**
+     * Restores the state of the Python process (working directory, sys.path,
+     * execution context, open figures, etc.), so that it can be reused for
+     * executing another chart script.
+     */
+    boolean reset();
+
     /**
      * Sets the result provider of the associated Python process to
      * resultsProvider. A result provider is needed by the omnetpp.scave.results
@@ -12,9 +12,23 @@ import java.io.IOException;
 import java.net.InetAddress;
 import java.net.URISyntaxException;
 import java.security.SecureRandom;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
 import java.util.Map;
-
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.omnetpp.common.Debug;
 
 import py4j.ClientServer;
@@ -22,50 +36,253 @@ import py4j.ClientServer;
 /**
  * This class keeps a (configurable) number of PythonProcess instances in a pool,
  * ready to use. Each of them is a running python3 interpreter process, with a
- * Py4J connection to it. This was added to reduce the latency of repeated chart
- * script executions.
+ * Py4J connection to it, and with the commonly used Python modules already
+ * imported. This was added to reduce the latency of repeated chart script
+ * executions.
+ *
+ * The pool keeps at least minIdle processes ready, and when there are more
+ * requests waiting than that, it starts additional processes in parallel, up
+ * to maxProcesses (counting the idle and starting ones). Requests are served
+ * in FIFO order. Processes obtained from the pool belong to the caller; they
+ * may be killed after use, or returned to the pool with releaseProcess(),
+ * which reuses them for up to maxUsesPerProcess chart scripts.
  */
 public class PythonProcessPool {
-    private boolean shouldSetOmnetppMplBackend = true;
-    private ArrayList<PythonProcess> availableProcesses = new ArrayList<PythonProcess>();
+    private static final long POLL_MILLIS = 100;
+
+    private final int minIdle;
+    private final int maxProcesses;
+    private final boolean shouldSetOmnetppMplBackend;
+    private int maxUsesPerProcess = 1;
+
+    // all guarded by "this"
+    private final Deque<PythonProcess> idleProcesses = new ArrayDeque<>();
+    private final Deque<CompletableFuture<PythonProcess>> waiters = new ArrayDeque<>();
+    private int numStarting = 0;
     private String errorMessage = null;
-    private boolean threadExit = false;
-    private Thread launcherThread;
+    private boolean disposed = false;
+
+    private final Map<PythonProcess,Integer> useCounts = new ConcurrentHashMap<>(); // of live processes that were released at least once
+    private final ExecutorService launcher;
 
     public PythonProcessPool() {
         this(1);
     }
 
     public PythonProcessPool(int N) {
+        this(N, N, true);
+    }
 
-        launcherThread = new Thread(() -> {
-            while (!threadExit) {
-                if (availableProcesses.size() < N) {
-                    try {
-                        availableProcesses.add(createProcess());
-                    }
-                    catch (IOException e) {
-                        errorMessage = e.getMessage();
-                        threadExit = true;
-                    }
-                    if (PythonProcess.debug)
-                        Debug.println("We have " + availableProcesses.size() + " processes.");
-                }
-                try {
-                    Thread.sleep(1000);
+    /**
+     * Creates a pool that keeps minIdle processes ready, and starts at most
+     * maxProcesses processes at a time to serve waiting requests. If
+     * shouldSetOmnetppMplBackend is false, the processes use the "agg"
+     * Matplotlib backend instead of the IDE's own (for exporting charts).
+     */
+    public PythonProcessPool(int minIdle, int maxProcesses, boolean shouldSetOmnetppMplBackend) {
+        this.minIdle = minIdle;
+        this.maxProcesses = Math.max(1, Math.max(minIdle, maxProcesses));
+        this.shouldSetOmnetppMplBackend = shouldSetOmnetppMplBackend;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        launcher = Executors.newCachedThreadPool((runnable) -> {
+            Thread thread = new Thread(runnable, "PythonProcessPool launcher #" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        replenish();
+    }
+
+    /**
+     * Sets how many chart scripts a process returned via releaseProcess()
+     * may execute before it is discarded. The default is 1 (no reuse).
+     */
+    public void setMaxUsesPerProcess(int maxUsesPerProcess) {
+        this.maxUsesPerProcess = maxUsesPerProcess;
+    }
+
+    /**
+     * Starts new processes if there are fewer idle and starting processes
+     * than needed (minIdle, or the number of waiting requests).
+     */
+    private synchronized void replenish() {
+        if (disposed)
+            return;
+        idleProcesses.removeIf((process) -> !process.isAlive());
+        useCounts.keySet().removeIf((process) -> !process.isAlive()); // also the ones killed by their users
+        // after a failed launch, only start processes for actual requests, until one succeeds
+        int target = Math.min(maxProcesses, Math.max(errorMessage != null ? 0 : minIdle, waiters.size()));
+        while (idleProcesses.size() + numStarting < target) {
+            numStarting++;
+            launcher.execute(this::launchProcess);
+        }
+    }
+
+    private void launchProcess() {
+        PythonProcess process = null;
+        try {
+            process = createProcess();
+            if (!process.getEntryPoint().warmUp())
+                throw new IOException("Python process could not be initialized");
+        }
+        catch (Exception e) {
+            if (process != null)
+                process.kill();
+            process = null;
+            String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            List<CompletableFuture<PythonProcess>> failedWaiters;
+            synchronized (this) {
+                errorMessage = message;
+                failedWaiters = new ArrayList<>(waiters);
+                waiters.clear();
+            }
+            // let the current waiters know about the error; later requests will try again
+            for (CompletableFuture<PythonProcess> waiter : failedWaiters)
+                waiter.completeExceptionally(new RuntimeException(message));
+        }
+        finally {
+            synchronized (this) {
+                numStarting--;
+            }
+        }
+
+        if (process != null)
+            addIdleProcess(process);
+        else
+            replenish(); // for requests that arrived while this launch was failing
+    }
+
+    private void addIdleProcess(PythonProcess process) {
+        boolean keep;
+        synchronized (this) {
+            keep = !disposed;
+            if (keep) {
+                idleProcesses.add(process);
+                errorMessage = null;
+            }
+        }
+        if (!keep) {
+            useCounts.remove(process);
+            process.kill();
+        }
+        else if (PythonProcess.debug)
+            Debug.println("Python process " + process.getProcess().pid() + " is ready");
+        dispatch();
+    }
+
+    /**
+     * Hands out idle processes to waiting requests, in FIFO order.
+     */
+    private void dispatch() {
+        List<Runnable> completions = new ArrayList<>(); // done outside the lock, as they may run callbacks
+        synchronized (this) {
+            while (!waiters.isEmpty()) {
+                if (waiters.peek().isDone()) {
+                    waiters.poll(); // cancelled
+                    continue;
                 }
-                catch (InterruptedException e) {
-                    // need to create a process right away - most likely
+                PythonProcess process = idleProcesses.poll();
+                if (process == null)
+                    break;
+                if (!process.isAlive()) {
+                    useCounts.remove(process);
+                    continue; // died while idle
                 }
+                CompletableFuture<PythonProcess> waiter = waiters.poll();
+                completions.add(() -> {
+                    if (!waiter.complete(process))
+                        addIdleProcess(process); // cancelled meanwhile
+                });
             }
-        });
+        }
+        for (Runnable completion : completions)
+            completion.run();
+        replenish();
+    }
 
-        launcherThread.setDaemon(true);
-        launcherThread.start();
+    /**
+     * Requests a process from the pool, without blocking. The returned future
+     * completes when a process becomes available, or completes exceptionally
+     * if starting a process for it fails. Cancelling the future withdraws the request.
+     */
+    public CompletableFuture<PythonProcess> requestProcess() {
+        CompletableFuture<PythonProcess> future = new CompletableFuture<>();
+        synchronized (this) {
+            if (disposed) {
+                future.completeExceptionally(new IllegalStateException("Python process pool already disposed"));
+                return future;
+            }
+            waiters.add(future);
+        }
+        dispatch();
+        return future;
     }
 
-    public void setShouldSetOmnetppMplBackend(boolean value) {
-        this.shouldSetOmnetppMplBackend = value;
+    /**
+     * Returns a process from the pool, waiting until one is available.
+     */
+    public PythonProcess getProcess() {
+        return getProcess(null);
+    }
+
+    /**
+     * Returns a process from the pool, waiting until one is available.
+     * Throws OperationCanceledException if the monitor is canceled or the thread
+     * is interrupted while waiting (the interrupt flag is kept set).
+     */
+    public PythonProcess getProcess(IProgressMonitor monitor) {
+        CompletableFuture<PythonProcess> future = requestProcess();
+        while (true) {
+            if (monitor != null && monitor.isCanceled()) {
+                future.cancel(false);
+                throw new OperationCanceledException();
+            }
+            try {
+                return future.get(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            }
+            catch (TimeoutException e) {
+                // check for cancellation, and wait again
+            }
+            catch (InterruptedException e) {
+                future.cancel(false);
+                Thread.currentThread().interrupt();
+                throw new OperationCanceledException();
+            }
+            catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof RuntimeException ? (RuntimeException)cause : new RuntimeException(cause);
+            }
+            catch (CancellationException e) {
+                throw new OperationCanceledException();
+            }
+        }
+    }
+
+    /**
+     * Returns a process obtained from this pool after the caller is done with
+     * it. The process is reset and reused if it is healthy and has not yet
+     * reached maxUsesPerProcess; otherwise it is killed. The caller must not
+     * use the process afterwards.
+     */
+    public void releaseProcess(PythonProcess process) {
+        int uses = useCounts.merge(process, 1, Integer::sum);
+        boolean reuse = uses < maxUsesPerProcess && process.isAlive() && !process.isKilledByUs() && !process.getInterruptedFlag().getFlag();
+        if (reuse) {
+            try {
+                reuse = process.getEntryPoint().reset() && process.getEntryPoint().check();
+            }
+            catch (Exception e) {
+                reuse = false;
+            }
+        }
+        if (reuse)
+            addIdleProcess(process);
+        else {
+            useCounts.remove(process);
+            process.kill();
+            replenish();
+        }
     }
 
     private PythonProcess createProcess() throws IOException {
@@ -150,27 +367,20 @@ public class PythonProcessPool {
     }
 
     public void dispose() {
-        threadExit = true;
-        launcherThread.interrupt();
-        for (PythonProcess pr : availableProcesses)
-            pr.kill();
-        availableProcesses.clear();
-    }
-
-    public PythonProcess getProcess() {
-
-        while (availableProcesses.isEmpty()) {
-            launcherThread.interrupt();
-            // TODO: make sure to wait for a process to become available
-
-            if (errorMessage != null)
-                throw new RuntimeException(errorMessage);
+        List<PythonProcess> processes;
+        List<CompletableFuture<PythonProcess>> pendingWaiters;
+        synchronized (this) {
+            disposed = true;
+            processes = new ArrayList<>(idleProcesses);
+            idleProcesses.clear();
+            pendingWaiters = new ArrayList<>(waiters);
+            waiters.clear();
         }
-
-        PythonProcess pr = availableProcesses.remove(0);
-        // waking up the launcher to replenish the supply of processes
-        launcherThread.interrupt();
-
-        return pr;
+        launcher.shutdown();
+        for (CompletableFuture<PythonProcess> waiter : pendingWaiters)
+            waiter.completeExceptionally(new IllegalStateException("Python process pool disposed"));
+        for (PythonProcess pr : processes)
+            pr.kill();
+        useCounts.clear();
     }
 }
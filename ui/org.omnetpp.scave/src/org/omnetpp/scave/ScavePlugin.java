@@ -25,6 +25,7 @@ import org.eclipse.ui.ISharedImages;
 import org.eclipse.ui.PlatformUI;
 import org.eclipse.ui.plugin.AbstractUIPlugin;
 import org.omnetpp.common.Debug;
+import org.omnetpp.scave.preferences.ScavePreferenceConstants;
 import org.omnetpp.scave.pychart.PythonProcessPool;
 import org.osgi.framework.BundleContext;
 import org.python.pydev.ast.interpreter_managers.InterpreterInfo;
@@ -179,6 +180,18 @@ public class ScavePlugin extends AbstractUIPlugin {
         return plugin;
     }
 
+    /**
+     * Returns the directory of the persistent result file cache (see ResultFileCache
+     * in the native code), or null if caching is turned off in the preferences.
+     * The directory is in the plug-in state location, so it is shared by all
+     * analysis files in the workspace.
+     */
+    public String getResultFileCacheDirectory() {
+        if (!getPreferenceStore().getBoolean(ScavePreferenceConstants.USE_RESULT_FILE_CACHE))
+            return null;
+        return getStateLocation().append("resultcache").toOSString();
+    }
+
     /**
      * Returns an image descriptor for the image file at the given
      * plug-in relative path
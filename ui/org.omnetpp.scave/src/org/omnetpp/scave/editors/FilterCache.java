@@ -3,13 +3,20 @@ package org.omnetpp.scave.editors;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.omnetpp.scave.engine.FilterEngine;
 import org.omnetpp.scave.engine.IDList;
+import org.omnetpp.scave.engine.InterruptedFlag;
 import org.omnetpp.scave.engine.ResultFileManager;
 import org.omnetpp.scave.model2.ScaveModelUtil;
 
 /**
  * Result filtering cache for methods of ResultProvider.
  *
+ * Besides the explicitly stored filter results, it maintains a FilterEngine
+ * per result type combination, which caches the results of subexpressions,
+ * so refined or partially matching filter expressions can be evaluated
+ * incrementally.
+ *
  * @author andras
  */
 public class FilterCache {
@@ -50,6 +57,7 @@ public class FilterCache {
     }
 
     private Map<Key,IDList> filterCache = new HashMap<>();
+    private Map<Key,FilterEngine> filterEngines = new HashMap<>(); // keys have empty filterExpression
 
     public FilterCache(ResultFileManager manager) {
         this.manager = manager;
@@ -58,21 +66,48 @@ public class FilterCache {
 
     private void checkSerial() {
         if (currentSerial != manager.getSerial()) {
-            filterCache.clear();
+            clear();
             currentSerial = manager.getSerial();
         }
     }
 
-    public IDList getFilterResult(int resultTypes, String filterExpression, boolean includeFields) {
+    public synchronized IDList getFilterResult(int resultTypes, String filterExpression, boolean includeFields) {
         checkSerial();
         return filterCache.get(new Key(resultTypes, filterExpression, includeFields));
     }
 
+    /**
+     * Returns the results of the given types that match the filter expression.
+     * Returns the stored result if there is one, otherwise evaluates the filter
+     * using the cached results of the subexpressions where possible.
+     */
+    public IDList filter(int resultTypes, String filterExpression, boolean includeFields, InterruptedFlag interrupted) {
+        return ResultFileManager.callWithReadLock(manager, () -> {
+            synchronized (this) {
+                checkSerial();
+                IDList result = filterCache.get(new Key(resultTypes, filterExpression, includeFields));
+                if (result != null)
+                    return result;
+                Key engineKey = new Key(resultTypes, "", includeFields);
+                FilterEngine engine = filterEngines.get(engineKey);
+                if (engine == null) {
+                    IDList universe = manager.getAllItems(engineKey.includeFields).filterByTypes(resultTypes);
+                    filterEngines.put(engineKey, engine = new FilterEngine(manager, universe));
+                }
+                return engine.filter(filterExpression, -1, interrupted);
+            }
+        });
+    }
+
+    public IDList filter(int resultTypes, String filterExpression, InterruptedFlag interrupted) {
+        return filter(resultTypes, filterExpression, false, interrupted);
+    }
+
     public IDList getFilterResult(int resultTypes, String filterExpression) {
         return getFilterResult(resultTypes, filterExpression, false);
     }
 
-    public void putFilterResult(int resultTypes, String filterExpression, boolean includeFields, IDList result) {
+    public synchronized void putFilterResult(int resultTypes, String filterExpression, boolean includeFields, IDList result) {
         checkSerial();
         filterCache.put(new Key(resultTypes, filterExpression, includeFields), result);
     }
@@ -81,8 +116,11 @@ public class FilterCache {
         putFilterResult(resultTypes, filterExpression, false, result);
     }
 
-    public void clear() {
+    public synchronized void clear() {
         filterCache.clear();
+        for (FilterEngine engine : filterEngines.values())
+            engine.delete();
+        filterEngines.clear();
     }
 
 }
@@ -14,6 +14,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 import org.eclipse.core.resources.IContainer;
@@ -40,6 +45,8 @@ import org.omnetpp.common.ui.TimeTriggeredProgressMonitorDialog2;
 import org.omnetpp.common.util.DisplayUtils;
 import org.omnetpp.common.util.StringUtils;
 import org.omnetpp.scave.ScavePlugin;
+import org.omnetpp.scave.builder.VectorFileIndexingService;
+import org.omnetpp.scave.common.IndexFileUtils;
 import org.omnetpp.scave.common.ScaveMarkers;
 import org.omnetpp.scave.engine.InterruptedFlag;
 import org.omnetpp.scave.engine.ResultFile;
@@ -142,6 +149,9 @@ public class ResultFilesTracker implements IModelChangeListener {
         if (reload)
             manager.clear();
 
+        String cacheDirectory = ScavePlugin.getDefault().getResultFileCacheDirectory();
+        manager.setCacheDirectory(cacheDirectory == null ? "" : cacheDirectory);
+
         SubMonitor subMonitor = SubMonitor.convert(monitor, 100);
 
         Map<String, Map<String, String>> files = new LinkedHashMap<>(); //TODO we could use a flat list of structs -- would be easier to understand
@@ -153,6 +163,10 @@ public class ResultFilesTracker implements IModelChangeListener {
                 files.put(input.getName(), collectResultFiles(input.getName(), anfFolder));
         });
 
+        Debug.time("Indexing vector files", debug, 1, () -> {
+            indexVectorFiles(files, subMonitor.split(30), interruptedFlag);
+        });
+
         Debug.time("Loading files", debug, 1, () -> {
             int numFiles = files.values().stream().collect(Collectors.summingInt((map) -> map.size()));
             subMonitor.setTaskName("Loading " + StringUtils.formatCounted(numFiles, "file"));
@@ -219,6 +233,44 @@ public class ResultFilesTracker implements IModelChangeListener {
     }
 
 
+    /**
+     * Ensures that the given vector files have up-to-date indices before loading.
+     * Instead of letting loadFile() index them one by one, indexing is done by
+     * the indexing service in parallel, with priority over background indexing.
+     */
+    protected void indexVectorFiles(Map<String, Map<String, String>> files, IProgressMonitor monitor, InterruptedFlag interruptedFlag) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        VectorFileIndexingService service = VectorFileIndexingService.getInstance();
+        for (Map<String,String> pathToLocation : files.values())
+            for (String fileLocation : pathToLocation.values())
+                if (IndexFileUtils.isExistingVectorFile(fileLocation) && !IndexFileUtils.isIndexFileUpToDate(fileLocation))
+                    futures.add(service.submit(fileLocation, VectorFileIndexingService.HIGH));
+        if (futures.isEmpty())
+            return;
+
+        SubMonitor subMonitor = SubMonitor.convert(monitor, "Indexing " + StringUtils.formatCounted(futures.size(), "vector file"), futures.size());
+        int numDone = 0;
+        while (numDone < futures.size()) {
+            if (monitor.isCanceled() || interruptedFlag.getFlag())
+                return; // indexing continues in the background
+            try {
+                futures.get(numDone).get(100, TimeUnit.MILLISECONDS);
+            }
+            catch (TimeoutException e) {
+                continue;
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return; // like cancellation
+            }
+            catch (ExecutionException | CancellationException e) {
+                // ignore: errors are reported as markers, and loadFile() will retry indexing
+            }
+            numDone++;
+            subMonitor.worked(1);
+        }
+    }
+
     protected Map<String, String> collectResultFiles(String input, IContainer anfFolder) {
         Map<String,String> filesToLoad = new LinkedHashMap<>();  // workspacePath -> filesystemPath
 
@@ -163,9 +163,7 @@ public class ResultsProvider implements IScaveResultsPickleProvider {
         Key key = new Key("getResultsPickle", filterExpression, rowTypes, omitUnusedColumns, includeFieldsAsScalars, simTimeStart, simTimeEnd);
         List<String> names = memoize(key, (PicklerFunctionVec) () -> {
             int allTypes = ResultFileManager.PARAMETER | ResultFileManager.SCALAR | ResultFileManager.VECTOR | ResultFileManager.STATISTICS | ResultFileManager.HISTOGRAM;
-            IDList idList = filterCache.getFilterResult(allTypes, filterExpression, includeFieldsAsScalars);
-            if (idList == null)
-                idList = manager.filterIDList(manager.getAllItems(includeFieldsAsScalars), filterExpression); // no need to cache, as result will be (likely) memoized
+            IDList idList = filterCache.filter(allTypes, filterExpression, includeFieldsAsScalars, interrupted);
             return pickler.getCsvResultsPickle(idList, toStringVector(rowTypes), omitUnusedColumns, simTimeStart, simTimeEnd);
         });
         return names;
@@ -175,9 +173,7 @@ public class ResultsProvider implements IScaveResultsPickleProvider {
     public String getParamValuesPickle(String filterExpression, boolean includeAttrs) throws PickleException, IOException {
         Key key = new Key("getParamValuesPickle", filterExpression, includeAttrs);
         return memoize(key, () -> {
-            IDList idList = filterCache.getFilterResult(ResultFileManager.PARAMETER, filterExpression);
-            if (idList == null)
-                idList = manager.filterIDList(manager.getAllParameters(), filterExpression); // no need to cache, as result will be (likely) memoized
+            IDList idList = filterCache.filter(ResultFileManager.PARAMETER, filterExpression, interrupted);
             return pickler.getParamValuesPickle(idList, includeAttrs);
         });
     }
@@ -186,9 +182,7 @@ public class ResultsProvider implements IScaveResultsPickleProvider {
     public String getScalarsPickle(String filterExpression, boolean includeAttrs, boolean includeFields) throws PickleException, IOException {
         Key key = new Key("getScalarsPickle", filterExpression, includeAttrs, includeFields);
         return memoize(key, () -> {
-            IDList idList = filterCache.getFilterResult(ResultFileManager.SCALAR, filterExpression, includeFields);
-            if (idList == null)
-                idList = manager.filterIDList(manager.getAllScalars(includeFields), filterExpression, -1, interrupted); // no need to cache, as result will be (likely) memoized
+            IDList idList = filterCache.filter(ResultFileManager.SCALAR, filterExpression, includeFields, interrupted);
             return pickler.getScalarsPickle(idList, includeAttrs);
         });
     }
@@ -197,9 +191,7 @@ public class ResultsProvider implements IScaveResultsPickleProvider {
     public List<String> getVectorsPickle(String filterExpression, boolean includeAttrs, double simTimeStart, double simTimeEnd) throws PickleException, IOException {
         Key key = new Key("getVectorsPickle", filterExpression, includeAttrs, simTimeStart, simTimeEnd);
         List<String> names = memoize(key, (PicklerFunctionVec) () -> {
-            IDList idList = filterCache.getFilterResult(ResultFileManager.VECTOR, filterExpression);
-            if (idList == null)
-                idList = manager.filterIDList(manager.getAllVectors(), filterExpression, -1, interrupted); // no need to cache, as result will be (likely) memoized
+            IDList idList = filterCache.filter(ResultFileManager.VECTOR, filterExpression, interrupted);
             return pickler.getVectorsPickle(idList, includeAttrs, simTimeStart, simTimeEnd);
         });
         return names;
@@ -213,7 +205,7 @@ public class ResultsProvider implements IScaveResultsPickleProvider {
             if (idList != null)
                     idList = idList.filterByTypes(ResultFileManager.STATISTICS);
             if (idList == null)
-                idList = manager.filterIDList(manager.getAllStatistics(), filterExpression, -1, interrupted); // no need to cache, as result will be (likely) memoized
+                idList = filterCache.filter(ResultFileManager.STATISTICS, filterExpression, interrupted);
             return pickler.getStatisticsPickle(idList, includeAttrs);
         });
     }
@@ -226,7 +218,7 @@ public class ResultsProvider implements IScaveResultsPickleProvider {
             if (idList != null)
                 idList = idList.filterByTypes(ResultFileManager.HISTOGRAM);
             if (idList == null)
-                idList = manager.filterIDList(manager.getAllHistograms(), filterExpression, -1, interrupted); // no need to cache, as result will be (likely) memoized
+                idList = filterCache.filter(ResultFileManager.HISTOGRAM, filterExpression, interrupted);
             return pickler.getHistogramsPickle(idList, includeAttrs);
         });
     }
@@ -0,0 +1,245 @@
+/*--------------------------------------------------------------*
+  Copyright (C) 2006-2015 OpenSim Ltd.
+
+  This file is distributed WITHOUT ANY WARRANTY. See the file
+  'License' for details on this and other legal matters.
+*--------------------------------------------------------------*/
+
+package org.omnetpp.scave.editors.datatable;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.omnetpp.common.Debug;
+import org.omnetpp.scave.engine.FileRun;
+import org.omnetpp.scave.engine.FileRunList;
+import org.omnetpp.scave.engine.ResultFile;
+import org.omnetpp.scave.engine.ResultFileManager;
+import org.omnetpp.scave.engine.ResultItemColumns;
+import org.omnetpp.scave.engine.Run;
+import org.omnetpp.scave.engine.Scave;
+
+/**
+ * Java-side columnar snapshot of the contents of a ResultFileManager,
+ * for the Browse Data pages. Module names, result names, file names, run
+ * names and run attributes are dictionary-encoded into int columns, and
+ * scalar values are stored in a double column, so that tree grouping and
+ * table cell rendering can be done without a JNI call per result item.
+ *
+ * Item-level columns are indexed by row; use getRow() to map an ID to a row.
+ * Run-level columns are indexed by the FileRun id encoded in the item ID
+ * (see getFileRunId()). A snapshot is immutable; use getInstance() to obtain
+ * an up-to-date one, which is rebuilt when the manager's serial changes.
+ */
+public class ColumnarResults {
+    public static final int NONE = -1; // code of a missing string
+
+    // run-level string columns
+    public static final int FILE = 0;
+    public static final int DIRECTORY = 1;
+    public static final int RUN = 2;
+    public static final int EXPERIMENT = 3;
+    public static final int MEASUREMENT = 4;
+    public static final int REPLICATION = 5;
+    public static final int CONFIGNAME = 6;
+    public static final int RUNNUMBER = 7;
+    private static final String[] RUN_ATTRIBUTES = { Scave.EXPERIMENT, Scave.MEASUREMENT, Scave.REPLICATION, Scave.CONFIGNAME, Scave.RUNNUMBER };
+    private static final int NUM_RUN_COLUMNS = 8;
+
+    // ID layout, as defined by the engine
+    private static final int FILERUNID_SHIFT = ResultFileManager.FILERUNID_SHIFT;
+    private static final long FILERUNID_MASK = (1L << ResultFileManager.FILERUNID_BITS) - 1;
+
+    private static final Map<ResultFileManager, ColumnarResults> instances = new WeakHashMap<>();
+
+    private final int serial;
+
+    // item-level columns, sorted by ID
+    private final long[] ids;
+    private final int[] moduleCodes;
+    private final int[] nameCodes;
+    private final double[] values;
+    private final String[] moduleDictionary;
+    private final String[] nameDictionary;
+
+    // run-level columns, indexed by [column][fileRunId]
+    private final int[][] runColumns = new int[NUM_RUN_COLUMNS][];
+    private final String[] runDictionary;
+
+    /**
+     * Returns the columnar snapshot of the given manager's contents, building
+     * it if there is none yet or if the manager's contents have changed since.
+     */
+    public static ColumnarResults getInstance(ResultFileManager manager) {
+        return ResultFileManager.callWithReadLock(manager, () -> {
+            synchronized (instances) {
+                ColumnarResults columns = instances.get(manager);
+                if (columns == null || columns.serial != manager.getSerial()) {
+                    columns = Debug.timed("Building columnar results", 10, () -> new ColumnarResults(manager));
+                    instances.put(manager, columns);
+                }
+                return columns;
+            }
+        });
+    }
+
+    /**
+     * Builds the snapshot. The caller must hold the manager's read lock.
+     */
+    protected ColumnarResults(ResultFileManager manager) {
+        serial = manager.getSerial();
+
+        ResultItemColumns itemColumns = new ResultItemColumns(manager, manager.getAllItems(true));
+        try {
+            ids = itemColumns.getIDs().toLongArray();
+            moduleCodes = itemColumns.getModuleCodes().toArray();
+            nameCodes = itemColumns.getNameCodes().toArray();
+            values = itemColumns.getValues().toArray();
+            moduleDictionary = itemColumns.getModuleDictionary().toArray();
+            nameDictionary = itemColumns.getNameDictionary().toArray();
+        }
+        finally {
+            itemColumns.delete();
+        }
+
+        Map<String, Integer> runCodes = new HashMap<>();
+        Map<Run, int[]> runAttributeCodes = new HashMap<>();
+        FileRunList fileRuns = manager.getFileRuns();
+        int numFileRuns = (int)fileRuns.size();
+        for (int column = 0; column < NUM_RUN_COLUMNS; column++) {
+            runColumns[column] = new int[numFileRuns];
+            Arrays.fill(runColumns[column], NONE);
+        }
+        for (int i = 0; i < numFileRuns; i++) {
+            FileRun fileRun = fileRuns.get(i);
+            if (fileRun == null)
+                continue; // unloaded
+            ResultFile file = fileRun.getFile();
+            Run run = fileRun.getRun();
+            runColumns[FILE][i] = encode(file.getFileName(), runCodes);
+            runColumns[DIRECTORY][i] = encode(file.getDirectory(), runCodes);
+            int[] attributeCodes = runAttributeCodes.get(run);
+            if (attributeCodes == null) {
+                attributeCodes = new int[1 + RUN_ATTRIBUTES.length];
+                attributeCodes[0] = encode(run.getRunName(), runCodes);
+                for (int j = 0; j < RUN_ATTRIBUTES.length; j++)
+                    attributeCodes[j+1] = encode(run.getAttribute(RUN_ATTRIBUTES[j]), runCodes);
+                runAttributeCodes.put(run, attributeCodes);
+            }
+            for (int j = 0; j < attributeCodes.length; j++)
+                runColumns[RUN + j][i] = attributeCodes[j];
+        }
+        runDictionary = new String[runCodes.size()];
+        for (Map.Entry<String, Integer> entry : runCodes.entrySet())
+            runDictionary[entry.getValue()] = entry.getKey();
+    }
+
+    private static int encode(String value, Map<String, Integer> codes) {
+        if (value == null)
+            return NONE;
+        Integer code = codes.get(value);
+        if (code == null)
+            codes.put(value, code = codes.size());
+        return code;
+    }
+
+    public int getSerial() {
+        return serial;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Returns the row of the given result item, or -1 if it is not part
+     * of the snapshot.
+     */
+    public int getRow(long id) {
+        int row = Arrays.binarySearch(ids, id);
+        return row >= 0 ? row : -1;
+    }
+
+    public long getID(int row) {
+        return ids[row];
+    }
+
+    public int getModuleCode(int row) {
+        return moduleCodes[row];
+    }
+
+    public int getNameCode(int row) {
+        return nameCodes[row];
+    }
+
+    /**
+     * Returns the value of the scalar in the given row, or NaN if the
+     * item is not a scalar.
+     */
+    public double getValue(int row) {
+        return values[row];
+    }
+
+    public String getModuleName(int row) {
+        return moduleDictionary[moduleCodes[row]];
+    }
+
+    public String getName(int row) {
+        return nameDictionary[nameCodes[row]];
+    }
+
+    public int getNumModuleCodes() {
+        return moduleDictionary.length;
+    }
+
+    public int getNumNameCodes() {
+        return nameDictionary.length;
+    }
+
+    public String getModuleNameForCode(int code) {
+        return moduleDictionary[code];
+    }
+
+    public String getNameForCode(int code) {
+        return nameDictionary[code];
+    }
+
+    /**
+     * Returns the FileRun id encoded in the given result item ID; this is
+     * the index into the run-level columns.
+     */
+    public static int getFileRunId(long id) {
+        return (int)((id >>> FILERUNID_SHIFT) & FILERUNID_MASK);
+    }
+
+    public int getNumFileRuns() {
+        return runColumns[FILE].length;
+    }
+
+    /**
+     * Returns the code of a run-level string (one of FILE, DIRECTORY, RUN,
+     * EXPERIMENT, etc.) for the given FileRun, or NONE if it is missing.
+     */
+    public int getRunColumnCode(int column, int fileRunId) {
+        int[] codes = runColumns[column];
+        return fileRunId < codes.length ? codes[fileRunId] : NONE;
+    }
+
+    /**
+     * Returns the value of a run-level string (one of FILE, DIRECTORY, RUN,
+     * EXPERIMENT, etc.) for the given result item, or null if it is missing.
+     */
+    public String getRunColumnValue(int column, long id) {
+        return getRunStringForCode(getRunColumnCode(column, getFileRunId(id)));
+    }
+
+    public int getNumRunStringCodes() {
+        return runDictionary.length;
+    }
+
+    public String getRunStringForCode(int code) {
+        return code == NONE ? null : runDictionary[code];
+    }
+}
@@ -194,6 +194,7 @@ public class DataTable extends LargeTable implements IDataControl {
 
     private PanelType type;
     private ResultFileManagerEx manager;
+    private ColumnarResults columns; // snapshot for fast access to string columns; check serial before use
     private IDList idList = new IDList();
     private boolean numberFormattingEnabled = true;
     private int numericPrecision = 6;
@@ -287,6 +288,7 @@ public class DataTable extends LargeTable implements IDataControl {
 
     public void setResultFileManager(ResultFileManagerEx manager) {
         this.manager = manager;
+        this.columns = null;
     }
 
     public ResultFileManagerEx getResultFileManager() {
@@ -774,6 +776,10 @@ public class DataTable extends LargeTable implements IDataControl {
         try {
             // Note: code very similar to ResultItemPropertySource -- make them common?
             long id = idList.get(row);
+            StyledString columnValue = getCellValueFromColumns(id, column);
+            if (columnValue != null)
+                return columnValue;
+
             ResultItem result = manager.getItem(id);
 
             String unit = result.getAttribute("unit");
@@ -781,56 +787,6 @@ public class DataTable extends LargeTable implements IDataControl {
                 unit = null;
 
             switch (column) {
-            case COL_DIRECTORY:
-                return new StyledString(result.getFile().getDirectory());
-            case COL_FILE:
-                return new StyledString(result.getFile().getFileName());
-            case COL_CONFIG: {
-                String config = result.getFileRun().getRun().getAttribute(Scave.CONFIGNAME);
-                return config != null ? new StyledString(config) : NA;
-            }
-            case COL_RUNNUMBER: {
-                String runNumber = result.getFileRun().getRun().getAttribute(Scave.RUNNUMBER);
-                return runNumber != null ? new StyledString(runNumber) : NA;
-            }
-            case COL_RUN_ID:
-                return new StyledString(result.getFileRun().getRun().getRunName());
-            case COL_MODULE: {
-                String name = result.getModuleName();
-                if (!showNetworkNames) {
-                    int index = name.indexOf('.');
-                    return new StyledString(name.substring(index+1));
-                }
-                StyledString styledString = new StyledString(name);
-                if (colorNetworkNames) {
-                    int index = name.indexOf('.');
-                    if (index != -1)
-                        styledString.setStyle(0, index, GREYED_OUT_STYLER);
-                }
-                return styledString;
-            }
-            case COL_NAME: {
-                String name = result.getName();
-                StyledString styledString = new StyledString(name);
-                if (colorResultSuffixes) {
-                    int index = name.lastIndexOf(':');
-                    if (index != -1)
-                        styledString.setStyle(index, name.length() - index, GREYED_OUT_STYLER);
-                }
-                return styledString;
-            }
-            case COL_EXPERIMENT: {
-                String experiment = result.getFileRun().getRun().getAttribute(Scave.EXPERIMENT);
-                return experiment != null ? new StyledString(experiment) : NA;
-            }
-            case COL_MEASUREMENT: {
-                String measurement = result.getFileRun().getRun().getAttribute(Scave.MEASUREMENT);
-                return measurement != null ? new StyledString(measurement) : NA;
-            }
-            case COL_REPLICATION: {
-                String replication = result.getFileRun().getRun().getAttribute(Scave.REPLICATION);
-                return replication != null ? new StyledString(replication) : NA;
-            }
             case COL_PARAM_VALUE: {
                 ParameterResult parameter = (ParameterResult)result;
                 String value = parameter.getValue();
@@ -967,6 +923,71 @@ public class DataTable extends LargeTable implements IDataControl {
         return new StyledString("");
     }
 
+    /**
+     * Returns the value of string-valued columns from the columnar snapshot of
+     * the results, which is much faster than going through the ResultItem.
+     * Returns null for other columns.
+     */
+    protected StyledString getCellValueFromColumns(long id, ColumnRole column) {
+        if (columns == null || columns.getSerial() != manager.getSerial())
+            columns = ColumnarResults.getInstance(manager);
+
+        switch (column) {
+        case COL_DIRECTORY:
+            return new StyledString(columns.getRunColumnValue(ColumnarResults.DIRECTORY, id));
+        case COL_FILE:
+            return new StyledString(columns.getRunColumnValue(ColumnarResults.FILE, id));
+        case COL_RUN_ID:
+            return new StyledString(columns.getRunColumnValue(ColumnarResults.RUN, id));
+        case COL_CONFIG:
+            return toStyledStringOrNA(columns.getRunColumnValue(ColumnarResults.CONFIGNAME, id));
+        case COL_RUNNUMBER:
+            return toStyledStringOrNA(columns.getRunColumnValue(ColumnarResults.RUNNUMBER, id));
+        case COL_EXPERIMENT:
+            return toStyledStringOrNA(columns.getRunColumnValue(ColumnarResults.EXPERIMENT, id));
+        case COL_MEASUREMENT:
+            return toStyledStringOrNA(columns.getRunColumnValue(ColumnarResults.MEASUREMENT, id));
+        case COL_REPLICATION:
+            return toStyledStringOrNA(columns.getRunColumnValue(ColumnarResults.REPLICATION, id));
+        case COL_MODULE: {
+            int row = columns.getRow(id);
+            if (row == -1)
+                return null;
+            String name = columns.getModuleName(row);
+            if (!showNetworkNames) {
+                int index = name.indexOf('.');
+                return new StyledString(name.substring(index+1));
+            }
+            StyledString styledString = new StyledString(name);
+            if (colorNetworkNames) {
+                int index = name.indexOf('.');
+                if (index != -1)
+                    styledString.setStyle(0, index, GREYED_OUT_STYLER);
+            }
+            return styledString;
+        }
+        case COL_NAME: {
+            int row = columns.getRow(id);
+            if (row == -1)
+                return null;
+            String name = columns.getName(row);
+            StyledString styledString = new StyledString(name);
+            if (colorResultSuffixes) {
+                int index = name.lastIndexOf(':');
+                if (index != -1)
+                    styledString.setStyle(index, name.length() - index, GREYED_OUT_STYLER);
+            }
+            return styledString;
+        }
+        default:
+            return null;
+        }
+    }
+
+    private static StyledString toStyledStringOrNA(String value) {
+        return value != null ? new StyledString(value) : NA;
+    }
+
     protected StyledString formatNumber(ResultItem resultItem, String column, double d, String unit, GC gc, int width) {
         if (width == 0) // note: width=-1 means "measure optimal width"
             return new StyledString("");
@@ -269,30 +269,18 @@ public class DataTreeContentProvider {
                 }
             });
         }
+        else if (nextLevelClass.equals(ModulePathNode.class) || nextLevelClass.equals(ModuleNameNode.class) ||
+                nextLevelClass.equals(FileNameRunIdNode.class) || (nextLevelClass.equals(ResultItemNode.class) && collector)) {
+            // classify by dictionary codes from the columnar snapshot, without JNI calls per ID
+            nodeIdsMap.putAll(Debug.timed("Classifying IDs by code", 1, () -> sortIdListToChildNodesByCode(path, idList, nextLevelClass)));
+        }
         else {
             // filter individual IDs
             for (int i = 0; i < idCount; i++) {
                 long id = idList.get(i);
                 MatchContext matchContext = new MatchContext(manager, id);
-                if (nextLevelClass.equals(FileNameRunIdNode.class)) // this one should be done by partitioning by FileRuns, but we don't care, this isn't a very useful classification
-                    add(nodeIdsMap, new FileNameRunIdNode(matchContext.getResultFile().getFileName(), matchContext.getRun().getRunName()), id);
-                else if (nextLevelClass.equals(ModuleNameNode.class)) {
-                    String moduleName = matchContext.getResultItem().getModuleName();
-                    String modulePrefix = getModulePrefix(path, null);
-                    if (moduleName.startsWith(modulePrefix)) {
-                        String remainingName = StringUtils.removeStart(StringUtils.removeStart(moduleName, modulePrefix), ".");
-                        String name = StringUtils.substringBefore(remainingName, ".");
-                        add(nodeIdsMap, new ModuleNameNode(StringUtils.isEmpty(name) ? "." : name, !remainingName.contains(".")), id);
-                    }
-                }
-                else if (nextLevelClass.equals(ModulePathNode.class))
-                    add(nodeIdsMap, new ModulePathNode(matchContext.getResultItem().getModuleName()), id);
-                else if (nextLevelClass.equals(ResultItemNode.class)) {
-                    if (collector)
-                        add(nodeIdsMap, new ResultItemNode(manager, -1, matchContext.getResultItem().getName()), id);
-                    else
-                        add(nodeIdsMap, new ResultItemNode(manager, id, null), id);
-                }
+                if (nextLevelClass.equals(ResultItemNode.class))
+                    add(nodeIdsMap, new ResultItemNode(manager, id, null), id); // collector case is classified by code above
                 else if (nextLevelClass.equals(ResultItemFieldOrAttributeNode.class)) {
                     ResultItem resultItem = matchContext.getResultItem();
                     ResultItem.DataType type = resultItem.getDataType();
@@ -379,6 +367,82 @@ public class DataTreeContentProvider {
         return nodeIdsMap;
     }
 
+    protected Map<Node, IDListBuffer> sortIdListToChildNodesByCode(List<Node> path, IDList idList, Class<? extends Node> nextLevelClass) {
+        ColumnarResults columns = ColumnarResults.getInstance(manager);
+        boolean byFileRun = nextLevelClass.equals(FileNameRunIdNode.class);
+        boolean byName = nextLevelClass.equals(ResultItemNode.class);
+        String modulePrefix = nextLevelClass.equals(ModuleNameNode.class) ? getModulePrefix(path, null) : null;
+
+        // assign each ID to a group; codes are mapped to groups (child nodes) on first encounter
+        long[] ids = idList.toLongArray();
+        int[] groupOfId = new int[ids.length];
+        int numCodes = byFileRun ? columns.getNumFileRuns() : byName ? columns.getNumNameCodes() : columns.getNumModuleCodes();
+        int[] groupOfCode = new int[numCodes];
+        Arrays.fill(groupOfCode, -2); // -2: not yet seen, -1: no child node for this code
+        Map<Node,Integer> groups = new LinkedHashMap<>(); // preserve insertion order of children
+        for (int i = 0; i < ids.length; i++) {
+            long id = ids[i];
+            int code;
+            if (byFileRun)
+                code = ColumnarResults.getFileRunId(id);
+            else {
+                int row = columns.getRow(id);
+                Assert.isTrue(row != -1);
+                code = byName ? columns.getNameCode(row) : columns.getModuleCode(row);
+            }
+            int group = groupOfCode[code];
+            if (group == -2) {
+                Node node = createChildNodeForCode(columns, nextLevelClass, code, modulePrefix);
+                group = node == null ? -1 : groups.computeIfAbsent(node, n -> groups.size());
+                groupOfCode[code] = group;
+            }
+            groupOfId[i] = group;
+        }
+
+        // collect the IDs of each group into arrays, and transfer them in bulk
+        int numGroups = groups.size();
+        int[] groupSizes = new int[numGroups];
+        for (int group : groupOfId)
+            if (group >= 0)
+                groupSizes[group]++;
+        long[][] groupIds = new long[numGroups][];
+        for (int group = 0; group < numGroups; group++)
+            groupIds[group] = new long[groupSizes[group]];
+        int[] fill = new int[numGroups];
+        for (int i = 0; i < ids.length; i++) {
+            int group = groupOfId[i];
+            if (group >= 0)
+                groupIds[group][fill[group]++] = ids[i];
+        }
+
+        Map<Node,IDListBuffer> nodeIdsMap = new LinkedHashMap<>();
+        for (Map.Entry<Node,Integer> entry : groups.entrySet()) {
+            IDListBuffer buffer = new IDListBuffer();
+            buffer.append(groupIds[entry.getValue()]);
+            nodeIdsMap.put(entry.getKey(), buffer);
+        }
+        return nodeIdsMap;
+    }
+
+    private Node createChildNodeForCode(ColumnarResults columns, Class<? extends Node> nextLevelClass, int code, String modulePrefix) {
+        if (nextLevelClass.equals(FileNameRunIdNode.class))
+            return new FileNameRunIdNode(columns.getRunStringForCode(columns.getRunColumnCode(ColumnarResults.FILE, code)), columns.getRunStringForCode(columns.getRunColumnCode(ColumnarResults.RUN, code)));
+        else if (nextLevelClass.equals(ModulePathNode.class))
+            return new ModulePathNode(columns.getModuleNameForCode(code));
+        else if (nextLevelClass.equals(ResultItemNode.class))
+            return new ResultItemNode(manager, -1, columns.getNameForCode(code));
+        else if (nextLevelClass.equals(ModuleNameNode.class)) {
+            String moduleName = columns.getModuleNameForCode(code);
+            if (!moduleName.startsWith(modulePrefix))
+                return null;
+            String remainingName = StringUtils.removeStart(StringUtils.removeStart(moduleName, modulePrefix), ".");
+            String name = StringUtils.substringBefore(remainingName, ".");
+            return new ModuleNameNode(StringUtils.isEmpty(name) ? "." : name, !remainingName.contains("."));
+        }
+        else
+            throw new IllegalArgumentException();
+    }
+
     private static void add(Map<Node,IDListBuffer> map, Node key, long value) {
         IDListBuffer ids = map.get(key);
         if (ids == null)
@@ -27,6 +27,7 @@ import org.omnetpp.common.Debug;
 import org.omnetpp.common.ui.FilterCombo;
 import org.omnetpp.common.ui.FocusManager;
 import org.omnetpp.common.ui.IHasFocusManager;
+import org.omnetpp.scave.engine.FilterEngine;
 import org.omnetpp.scave.engine.IDList;
 import org.omnetpp.scave.engine.ResultFileManager;
 import org.omnetpp.scave.engineext.ResultFileManagerEx;
@@ -58,6 +59,8 @@ public class FilteredDataPanel extends Composite implements IHasFocusManager {
     private FocusManager focusManager;
     private int itemLimit = 100_000_000; // some sensible limit to the number of data items displayed, may be important with DataTree which isn't O(1)
     private Map<String,IDList> filterCache = new LinkedHashMap<>(); // keep order so we can discard oldest entries
+    private FilterEngine filterEngine; // filters idlist, caching subexpression results; created on demand
+    private int filterEngineSerial;
     private FilterHintsCache filterHintsCache = new FilterHintsCache();
 
     public FilteredDataPanel(Composite parent, int style, PanelType type) {
@@ -65,6 +68,7 @@ public class FilteredDataPanel extends Composite implements IHasFocusManager {
         this.type = type;
         initialize(type);
         configureFilterBar();
+        addDisposeListener(e -> discardFilterEngine());
     }
 
     public FilterBar getFilterPanel() {
@@ -80,6 +84,7 @@ public class FilteredDataPanel extends Composite implements IHasFocusManager {
         this.idlist = idlist;
         if (changed) {
             filterCache.clear();
+            discardFilterEngine();
             filterBar.getFilterExpressionProposalProvider().setIDList(dataControl.getResultFileManager(), idlist);
             runFilter();
         }
@@ -104,6 +109,7 @@ public class FilteredDataPanel extends Composite implements IHasFocusManager {
 
     public void setResultFileManager(ResultFileManagerEx manager) {
         dataControl.setResultFileManager(manager);
+        discardFilterEngine();
     }
 
     public ResultFileManager getResultFileManager() {
@@ -236,7 +242,8 @@ public class FilteredDataPanel extends Composite implements IHasFocusManager {
         else if (filterString != null) {
             if (filterCache.containsKey(filterString))
                 return filterCache.get(filterString);
-            IDList filtered = Debug.timed("ResultFileManager.filterIDList", 1, () -> manager.filterIDList(idlist, filterString, itemLimit));
+            FilterEngine engine = getFilterEngine(manager);
+            IDList filtered = Debug.timed("FilterEngine.filter", 1, () -> engine.filter(filterString, itemLimit));
             filterCache.put(filterString, filtered);
             if (filterCache.size() > 10)
                 filterCache.remove(filterCache.keySet().iterator().next()); // drop first element
@@ -250,6 +257,23 @@ public class FilteredDataPanel extends Composite implements IHasFocusManager {
         }
     }
 
+    protected FilterEngine getFilterEngine(ResultFileManager manager) {
+        if (filterEngine != null && filterEngineSerial != manager.getSerial())
+            discardFilterEngine();
+        if (filterEngine == null) {
+            filterEngine = new FilterEngine(manager, idlist);
+            filterEngineSerial = manager.getSerial();
+        }
+        return filterEngine;
+    }
+
+    protected void discardFilterEngine() {
+        if (filterEngine != null) {
+            filterEngine.delete();
+            filterEngine = null;
+        }
+    }
+
     public String getFilter() {
         return filterBar.getFilter();
     }
@@ -51,6 +51,7 @@ import org.omnetpp.scave.pychart.PythonProcessPool;
 public class ChartExport {
 
     private static final String CONSOLE_MARKER_ATTRIBUTE_KEY = "FOR_CHART_EXPORT";
+    private static final int MAX_CHARTS_PER_PROCESS = 20; // in batch export, processes are reused for this many charts
 
     private static class Context {
         public Context(Map<String, String> extraProperties, File chartsDir, ResultFileManager manager, MemoizationCache memoizationCache, FilterCache filterCache, boolean stopOnError, int numConcurrentProcesses) {
@@ -74,23 +75,33 @@ public class ChartExport {
     protected static class ChartExportJob extends Job {
         private Chart chart;
         private Context context;
+        private PythonProcessPool sharedProcessPool; // may be null
 
-        public ChartExportJob(Chart chart, Context context) {
+        public ChartExportJob(Chart chart, Context context, PythonProcessPool sharedProcessPool) {
             super("Exporting chart '" + chart.getName() + "'");
             this.chart = chart;
             this.context = context;
+            this.sharedProcessPool = sharedProcessPool;
         }
 
         @Override
         protected IStatus run(final IProgressMonitor monitor) {
             try {
                 ResultFileManager.runWithReadLock(context.manager, () -> {
-                    PythonProcessPool processPool = new PythonProcessPool(1);
-                    processPool.setShouldSetOmnetppMplBackend(false);
-                    runChartScript(chart, processPool, context, monitor);
+                    PythonProcessPool processPool = sharedProcessPool != null ? sharedProcessPool : new PythonProcessPool(1, 1, false);
+                    try {
+                        runChartScript(chart, processPool, context, monitor);
+                    }
+                    finally {
+                        if (processPool != sharedProcessPool)
+                            processPool.dispose();
+                    }
                 });
                 return Status.OK_STATUS;
             }
+            catch (OperationCanceledException e) {
+                return Status.CANCEL_STATUS;
+            }
             catch (RuntimeException e) {
                 return ScavePlugin.getErrorStatus(0, "Failed to export chart", e);
             }
@@ -118,9 +129,12 @@ public class ChartExport {
                     return numberOfCanceledJobs > 0 || (context.stopOnError && numberOfFailedJobs > 0);
                 }
             };
+            // one pool for all charts, with as many warm processes as the jobs can use at a time
+            PythonProcessPool processPool = new PythonProcessPool(context.numConcurrentProcesses, context.numConcurrentProcesses, false);
+            processPool.setMaxUsesPerProcess(MAX_CHARTS_PER_PROCESS);
             for (Chart chart : charts) {
                 chart = (Chart)chart.dup(); // since job runs in another thread, and we don't want locking
-                Job job1 = new ChartExportJob(chart, context);
+                Job job1 = new ChartExportJob(chart, context, processPool);
                 job1.setJobGroup(jobGroup);
                 job1.setPriority(Job.BUILD);
                 job1.setSystem(false);
@@ -134,6 +148,9 @@ public class ChartExport {
                 jobGroup.cancel();
                 return Status.CANCEL_STATUS;
             }
+            finally {
+                processPool.dispose();
+            }
             return Status.OK_STATUS;
         }
 
@@ -141,7 +158,7 @@ public class ChartExport {
 
     protected static void startExportJob(Chart chart, Context context) {
         chart = (Chart)chart.dup(); // since job runs in another thread, and we don't want locking
-        Job job = new ChartExportJob(chart, context);
+        Job job = new ChartExportJob(chart, context, null);
         job.setPriority(Job.BUILD);
         job.setSystem(false);
         job.setUser(true);
@@ -221,7 +238,7 @@ public class ChartExport {
         IOConsoleOutputStream errorStream = console.newOutputStream();
         errorStream.setColor(new Color(Display.getCurrent(), 220, 10, 10));
 
-        PythonProcess proc = processPool.getProcess();
+        PythonProcess proc = processPool.getProcess(monitor);
 
         IOutputListener outputListener = (output, err) -> {
             try {
@@ -244,6 +261,7 @@ public class ChartExport {
         final Thread waitingThread = Thread.currentThread();
 
         final boolean[] executionDone = new boolean[] { false };
+        final boolean[] executionFailed = new boolean[] { false };
         Runnable runAfterDone = () -> {
             executionDone[0] = true;
             waitingThread.interrupt();
@@ -255,6 +273,7 @@ public class ChartExport {
             } catch (IOException e1) {
                 ScavePlugin.logError(e);
             }
+            executionFailed[0] = true;
             executionDone[0] = true;
             waitingThread.interrupt();
         };
@@ -276,8 +295,13 @@ public class ChartExport {
             }
         }
 
-        proc.kill();
-        processPool.dispose();
+        proc.outputMonitoringThread.removeOutputListener(outputListener);
+        proc.errorMonitoringThread.removeOutputListener(outputListener);
+
+        if (executionDone[0] && !executionFailed[0])
+            processPool.releaseProcess(proc); // may be reused for the next chart
+        else
+            proc.kill();
     }
 
 }
@@ -0,0 +1,96 @@
+/*--------------------------------------------------------------*
+  Copyright (C) 2006-2015 OpenSim Ltd.
+
+  This file is distributed WITHOUT ANY WARRANTY. See the file
+  'License' for details on this and other legal matters.
+*--------------------------------------------------------------*/
+
+package org.omnetpp.scave.views;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.layout.GridLayout;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.ui.part.ViewPart;
+import org.omnetpp.scave.builder.VectorFileIndexingService;
+import org.omnetpp.scave.builder.VectorFileIndexingService.Statistics;
+
+/**
+ * Displays the state of the background vector file indexing service:
+ * queue length, throughput and estimated remaining time.
+ */
+public class VectorIndexingView extends ViewPart {
+    public static final String ID = "org.omnetpp.scave.VectorIndexingView";
+
+    private static final int REFRESH_MILLIS = 500;
+
+    private Composite panel;
+    private Label statusLabel;
+    private Label queueLabel;
+    private Label throughputLabel;
+    private Label etaLabel;
+    private Label indexedLabel;
+
+    private Runnable refreshTask = new Runnable() {
+        @Override
+        public void run() {
+            if (panel == null || panel.isDisposed())
+                return;
+            refresh();
+            panel.getDisplay().timerExec(REFRESH_MILLIS, this);
+        }
+    };
+
+    @Override
+    public void createPartControl(Composite parent) {
+        panel = new Composite(parent, SWT.NONE);
+        panel.setLayout(new GridLayout(2, false));
+        statusLabel = createRow("Status:");
+        queueLabel = createRow("Files queued:");
+        throughputLabel = createRow("Throughput:");
+        etaLabel = createRow("Time remaining:");
+        indexedLabel = createRow("Files indexed:");
+        refresh();
+        panel.getDisplay().timerExec(REFRESH_MILLIS, refreshTask);
+    }
+
+    private Label createRow(String title) {
+        new Label(panel, SWT.NONE).setText(title);
+        Label label = new Label(panel, SWT.NONE);
+        label.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false));
+        return label;
+    }
+
+    protected void refresh() {
+        Statistics stats = VectorFileIndexingService.getInstance().getStatistics();
+        statusLabel.setText(stats.isIdle() ? "Idle" : "Indexing " + stats.activeCount + " file(s)");
+        queueLabel.setText(stats.queueLength + " (" + formatMegabytes(stats.bytesRemaining) + " remaining)");
+        throughputLabel.setText(stats.bytesPerSecond > 0 ? String.format("%.1f MB/s", stats.bytesPerSecond / 1e6) : "n/a");
+        double eta = stats.getEstimatedSecondsRemaining();
+        etaLabel.setText(eta < 0 ? "n/a" : formatSeconds(eta));
+        indexedLabel.setText(String.valueOf(stats.numFilesIndexed));
+        panel.layout();
+    }
+
+    private static String formatMegabytes(long bytes) {
+        return String.format("%.1f MB", bytes / 1e6);
+    }
+
+    private static String formatSeconds(double seconds) {
+        long s = Math.round(seconds);
+        return s < 60 ? s + "s" : s < 3600 ? (s / 60) + "m " + (s % 60) + "s" : (s / 3600) + "h " + (s % 3600 / 60) + "m";
+    }
+
+    @Override
+    public void setFocus() {
+        panel.setFocus();
+    }
+
+    @Override
+    public void dispose() {
+        if (panel != null && !panel.isDisposed())
+            panel.getDisplay().timerExec(-1, refreshTask);
+        super.dispose();
+    }
+}
@@ -0,0 +1,77 @@
+/*--------------------------------------------------------------*
+  Copyright (C) 2006-2015 OpenSim Ltd.
+
+  This file is distributed WITHOUT ANY WARRANTY. See the file
+  'License' for details on this and other legal matters.
+*--------------------------------------------------------------*/
+
+package org.omnetpp.test.unit.ned;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+import org.omnetpp.ned.model.INedElement;
+import org.omnetpp.ned.model.ex.NedElementFactoryEx;
+import org.omnetpp.ned.model.interfaces.INedTypeResolver;
+import org.omnetpp.ned.model.pojo.CommentElement;
+import org.omnetpp.ned.model.pojo.NedElementTags;
+import org.omnetpp.ned.model.pojo.ParamElement;
+
+/**
+ * Checks that NED elements share the String instances of equal attribute values
+ * and file names, like the ones created by the parser (which returns a new String
+ * for every attribute), and that long values are not interned.
+ */
+public class NedElementInterningTest extends TestCase {
+    @Test
+    public void testAttributeValuesShared() {
+        INedTypeResolver resolver = NedTestUtils.createDummyResolver();
+        ParamElement param1 = createParam(resolver, "queueLength", "default(100)");
+        ParamElement param2 = createParam(resolver, "queueLength", "default(100)");
+        assertSame(param1.getName(), param2.getName());
+        assertSame(param1.getValue(), param2.getValue());
+
+        // also via the generic setter used by the parser and the serializer
+        INedElement param3 = NedElementFactoryEx.getInstance().createElement(resolver, NedElementTags.NED_PARAM, null);
+        for (int i = 0; i < param3.getNumAttributes(); i++)
+            param3.setAttribute(i, new String(param1.getAttribute(i)));
+        for (int i = 0; i < param3.getNumAttributes(); i++)
+            assertSame(param1.getAttribute(i), param3.getAttribute(i));
+
+        // and in copies
+        assertSame(param1.getName(), ((ParamElement)param1.deepDup(resolver, true, true)).getName());
+    }
+
+    @Test
+    public void testLongValuesNotShared() {
+        INedTypeResolver resolver = NedTestUtils.createDummyResolver();
+        StringBuilder content = new StringBuilder("//");
+        while (content.length() <= 100)
+            content.append(" long comment");
+        CommentElement comment1 = (CommentElement)NedElementFactoryEx.getInstance().createElement(resolver, NedElementTags.NED_COMMENT, null);
+        CommentElement comment2 = (CommentElement)NedElementFactoryEx.getInstance().createElement(resolver, NedElementTags.NED_COMMENT, null);
+        comment1.setContent(content.toString());
+        comment2.setContent(new String(content.toString()));
+        assertEquals(comment1.getContent(), comment2.getContent());
+        assertNotSame(comment1.getContent(), comment2.getContent());
+    }
+
+    @Test
+    public void testSourceFileNameShared() {
+        INedTypeResolver resolver = NedTestUtils.createDummyResolver();
+        ParamElement param1 = createParam(resolver, "delay", null);
+        ParamElement param2 = createParam(resolver, "enabled", null);
+        param1.setSourceLocation(new String("/project/src/Node.ned"), 5);
+        param2.setSourceLocation(new String("/project/src/Node.ned"), 6);
+        assertSame(param1.getSourceFileName(), param2.getSourceFileName());
+        assertEquals("/project/src/Node.ned:6", param2.getSourceLocation());
+    }
+
+    private static ParamElement createParam(INedTypeResolver resolver, String name, String value) {
+        ParamElement param = (ParamElement)NedElementFactoryEx.getInstance().createElement(resolver, NedElementTags.NED_PARAM, null);
+        param.setName(new String(name));
+        if (value != null)
+            param.setValue(new String(value));
+        return param;
+    }
+}
@@ -0,0 +1,43 @@
+/*--------------------------------------------------------------*
+  Copyright (C) 2006-2015 OpenSim Ltd.
+
+  This file is distributed WITHOUT ANY WARRANTY. See the file
+  'License' for details on this and other legal matters.
+*--------------------------------------------------------------*/
+
+package org.omnetpp.test.unit.ned;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import org.omnetpp.ned.model.interfaces.INedTypeResolver;
+
+/**
+ * Helpers shared by the NED model tests.
+ */
+public class NedTestUtils {
+    /**
+     * Returns a resolver that does not support any operation, except that it
+     * creates no type info (null) for the type elements. The parser and the
+     * serializer only store the resolver in the elements they create, so this
+     * is enough for tests that do not look up types.
+     */
+    public static INedTypeResolver createDummyResolver() {
+        return (INedTypeResolver) Proxy.newProxyInstance(INedTypeResolver.class.getClassLoader(),
+                new Class<?>[] { INedTypeResolver.class },
+                new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if (method.getName().equals("equals"))
+                            return proxy == args[0];
+                        if (method.getName().equals("hashCode"))
+                            return System.identityHashCode(proxy);
+                        if (method.getName().equals("toString"))
+                            return "dummy resolver";
+                        if (method.getName().equals("createTypeInfoFor"))
+                            return null; // called from the constructors of type elements
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
@@ -0,0 +1,108 @@
+/*--------------------------------------------------------------*
+  Copyright (C) 2006-2015 OpenSim Ltd.
+
+  This file is distributed WITHOUT ANY WARRANTY. See the file
+  'License' for details on this and other legal matters.
+*--------------------------------------------------------------*/
+
+package org.omnetpp.test.unit.ned;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+import org.omnetpp.ned.model.INedElement;
+import org.omnetpp.ned.model.NedTreeDifferenceUtils;
+import org.omnetpp.ned.model.NedTreeUtil;
+import org.omnetpp.ned.model.RecordingNedErrorStore;
+import org.omnetpp.ned.model.interfaces.INedTypeResolver;
+
+/**
+ * Applies the differences between the trees of two versions of a NED source to
+ * the tree of the first one, and checks that it becomes equal to the second one,
+ * source locations included.
+ */
+public class NedTreeDifferenceUtilsTest extends TestCase {
+    private static final String NED_SOURCE =
+        "package org.example;\n" +
+        "\n" +
+        "simple Node\n" +
+        "{\n" +
+        "    parameters:\n" +
+        "        double delay @unit(s) = default(1ms);\n" +
+        "        int queueLength = default(100);\n" +
+        "    gates:\n" +
+        "        inout port[];\n" +
+        "}\n" +
+        "\n" +
+        "network Net\n" +
+        "{\n" +
+        "    submodules:\n" +
+        "        a: Node;\n" +
+        "        b: Node;\n" +
+        "        c: Node;\n" +
+        "    connections:\n" +
+        "        a.port++ <--> b.port++;\n" +
+        "        b.port++ <--> c.port++;\n" +
+        "}\n";
+
+    @Test
+    public void testNoChange() {
+        NedTreeDifferenceUtils.Applier applier = checkDifferences(NED_SOURCE, NED_SOURCE);
+        assertFalse(applier.hasDifferences());
+    }
+
+    @Test
+    public void testLinesInsertedAbove() {
+        checkDifferences(NED_SOURCE, "// banner\n\n" + NED_SOURCE);
+    }
+
+    @Test
+    public void testAttributeChange() {
+        checkDifferences(NED_SOURCE, NED_SOURCE.replace("default(100)", "default(200)"));
+    }
+
+    @Test
+    public void testElementRenamed() {
+        checkDifferences(NED_SOURCE, NED_SOURCE.replace("b: Node;", "x: Node;").replace("b.port", "x.port"));
+    }
+
+    @Test
+    public void testElementInserted() {
+        checkDifferences(NED_SOURCE, NED_SOURCE.replace("        c: Node;\n", "        c: Node;\n        d: Node;\n"));
+        checkDifferences(NED_SOURCE, NED_SOURCE.replace("network Net", "simple Other\n{\n}\n\nnetwork Net"));
+    }
+
+    @Test
+    public void testElementRemoved() {
+        checkDifferences(NED_SOURCE, NED_SOURCE.replace("        int queueLength = default(100);\n", ""));
+        checkDifferences(NED_SOURCE, NED_SOURCE.replace("        b.port++ <--> c.port++;\n", ""));
+    }
+
+    private static NedTreeDifferenceUtils.Applier checkDifferences(String originalSource, String targetSource) {
+        INedTypeResolver resolver = NedTestUtils.createDummyResolver();
+        INedElement original = parse(originalSource, resolver);
+        NedTreeDifferenceUtils.Applier applier = new NedTreeDifferenceUtils.Applier();
+        NedTreeDifferenceUtils.applyTreeDifferences(original, parse(targetSource, resolver), applier);
+        applier.apply();
+
+        INedElement expected = parse(targetSource, resolver);
+        assertTrue(NedTreeUtil.isNedTreeEqual(expected, original));
+        checkSourceLocations(expected, original);
+        return applier;
+    }
+
+    private static INedElement parse(String source, INedTypeResolver resolver) {
+        RecordingNedErrorStore errors = new RecordingNedErrorStore();
+        INedElement tree = NedTreeUtil.parseNedText(source, errors, "test.ned", resolver);
+        assertEquals(0, errors.getNumProblems());
+        return tree;
+    }
+
+    private static void checkSourceLocations(INedElement element, INedElement otherElement) {
+        assertEquals(element.getSourceLocation(), otherElement.getSourceLocation());
+        assertEquals(element.getSourceRegion(), otherElement.getSourceRegion());
+        assertEquals(element.getNumChildren(), otherElement.getNumChildren());
+        for (int i = 0; i < element.getNumChildren(); i++)
+            checkSourceLocations(element.getChild(i), otherElement.getChild(i));
+    }
+}
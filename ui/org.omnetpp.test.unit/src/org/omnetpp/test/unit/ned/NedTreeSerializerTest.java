@@ -0,0 +1,113 @@
+/*--------------------------------------------------------------*
+  Copyright (C) 2006-2015 OpenSim Ltd.
+
+  This file is distributed WITHOUT ANY WARRANTY. See the file
+  'License' for details on this and other legal matters.
+*--------------------------------------------------------------*/
+
+package org.omnetpp.test.unit.ned;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+import org.omnetpp.ned.model.INedElement;
+import org.omnetpp.ned.model.NedTreeSerializer;
+import org.omnetpp.ned.model.NedTreeUtil;
+import org.omnetpp.ned.model.RecordingNedErrorStore;
+import org.omnetpp.ned.model.interfaces.INedTypeLookupContext;
+import org.omnetpp.ned.model.interfaces.INedTypeResolver;
+
+/**
+ * Writes parsed NED and MSG trees with NedTreeSerializer, reads them back,
+ * and checks that the trees and the problems are the same.
+ */
+public class NedTreeSerializerTest extends TestCase {
+    private static final String NED_SOURCE =
+        "package org.example;\n" +
+        "\n" +
+        "// A simple module\n" +
+        "simple Node\n" +
+        "{\n" +
+        "    parameters:\n" +
+        "        double delay @unit(s) = default(1ms); // right comment\n" +
+        "        @display(\"i=block/routing\");\n" +
+        "    gates:\n" +
+        "        inout port[];\n" +
+        "}\n" +
+        "\n" +
+        "network Net\n" +
+        "{\n" +
+        "    submodules:\n" +
+        "        node[3]: Node;\n" +
+        "    connections:\n" +
+        "        for i=0..1 {\n" +
+        "            node[i].port++ <--> { delay = 10ms; } <--> node[i+1].port++;\n" +
+        "        }\n" +
+        "}\n";
+
+    private static final String BROKEN_NED_SOURCE =
+        "simple Broken\n" +
+        "{\n" +
+        "    parameters:\n" +
+        "        int x = ;\n" +
+        "}\n" +
+        "network\n";
+
+    private static final String MSG_SOURCE =
+        "namespace example;\n" +
+        "\n" +
+        "enum Kind { DATA = 1; ACK = 2; }\n" +
+        "\n" +
+        "packet DataPacket\n" +
+        "{\n" +
+        "    int kind @enum(Kind);\n" +
+        "    string payload;\n" +
+        "    double timestamps[];\n" +
+        "}\n";
+
+    @Test
+    public void testNedTree() throws IOException {
+        checkRoundTrip(NedTreeUtil.parseNedText(NED_SOURCE, new RecordingNedErrorStore(), "test.ned", NedTestUtils.createDummyResolver()), new RecordingNedErrorStore());
+    }
+
+    @Test
+    public void testNedTreeWithProblems() throws IOException {
+        RecordingNedErrorStore errors = new RecordingNedErrorStore();
+        INedElement tree = NedTreeUtil.parseNedText(BROKEN_NED_SOURCE, errors, "broken.ned", NedTestUtils.createDummyResolver());
+        assertTrue(errors.getNumProblems() > 0);
+        checkRoundTrip(tree, errors);
+    }
+
+    @Test
+    public void testMsgTree() throws IOException {
+        RecordingNedErrorStore errors = new RecordingNedErrorStore();
+        checkRoundTrip(NedTreeUtil.parseMsgSource(MSG_SOURCE, errors, "test.msg"), errors);
+    }
+
+    private static void checkRoundTrip(INedElement tree, RecordingNedErrorStore errors) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        NedTreeSerializer.write(tree, errors, new DataOutputStream(bytes));
+
+        RecordingNedErrorStore readErrors = new RecordingNedErrorStore();
+        INedTypeResolver resolver = tree instanceof INedTypeLookupContext ? ((INedTypeLookupContext)tree).getResolver() : null;
+        INedElement readTree = NedTreeSerializer.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), resolver, readErrors);
+
+        assertTrue(NedTreeUtil.isNedTreeEqual(tree, readTree));
+        assertEquals(errors.getNumProblems(), readErrors.getNumProblems());
+        checkSourceLocations(tree, readTree);
+    }
+
+    private static void checkSourceLocations(INedElement element, INedElement readElement) {
+        assertEquals(element.getSourceLocation(), readElement.getSourceLocation());
+        assertEquals(element.getSourceRegion(), readElement.getSourceRegion());
+        assertEquals(element.getNumChildren(), readElement.getNumChildren());
+        for (int i = 0; i < element.getNumChildren(); i++)
+            checkSourceLocations(element.getChild(i), readElement.getChild(i));
+    }
+}
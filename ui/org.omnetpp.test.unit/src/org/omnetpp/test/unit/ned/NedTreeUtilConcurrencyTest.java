@@ -0,0 +1,192 @@
+/*--------------------------------------------------------------*
+  Copyright (C) 2006-2015 OpenSim Ltd.
+
+  This file is distributed WITHOUT ANY WARRANTY. See the file
+  'License' for details on this and other legal matters.
+*--------------------------------------------------------------*/
+
+package org.omnetpp.test.unit.ned;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+import org.omnetpp.ned.model.NedTreeUtil;
+import org.omnetpp.ned.model.RecordingNedErrorStore;
+import org.omnetpp.ned.model.ex.NedFileElementEx;
+import org.omnetpp.ned.model.interfaces.INedTypeResolver;
+
+/**
+ * Parses the same NED sources from several threads at the same time, and
+ * checks that every thread gets the same trees and the same number of
+ * problems as a single-threaded parse.
+ */
+public class NedTreeUtilConcurrencyTest extends TestCase {
+    private static final int NUM_THREADS = 8;
+    private static final int ROUNDS = 25;
+
+    private static final String[] SOURCES = {
+        "package org.example.tictoc;\n" +
+        "\n" +
+        "simple Txc\n" +
+        "{\n" +
+        "    parameters:\n" +
+        "        bool sendInitialMessage = default(false);\n" +
+        "        volatile double delayTime @unit(s) = default(exponential(1s));\n" +
+        "        @display(\"i=block/routing\");\n" +
+        "    gates:\n" +
+        "        input in[];\n" +
+        "        output out[];\n" +
+        "}\n" +
+        "\n" +
+        "network Tictoc\n" +
+        "{\n" +
+        "    parameters:\n" +
+        "        int n = default(6);\n" +
+        "    types:\n" +
+        "        channel Channel extends ned.DelayChannel {\n" +
+        "            delay = 100ms;\n" +
+        "        }\n" +
+        "    submodules:\n" +
+        "        tic[n]: Txc {\n" +
+        "            sendInitialMessage = (index == 0);\n" +
+        "        }\n" +
+        "    connections allowunconnected:\n" +
+        "        for i=0..n-2 {\n" +
+        "            tic[i].out++ --> Channel --> tic[i+1].in++;\n" +
+        "            tic[i].in++ <-- Channel <-- tic[i+1].out++;\n" +
+        "        }\n" +
+        "}\n",
+
+        "package org.example.aloha;\n" +
+        "\n" +
+        "import org.example.tictoc.*;\n" +
+        "\n" +
+        "moduleinterface IHost\n" +
+        "{\n" +
+        "    parameters:\n" +
+        "        double x @unit(m);\n" +
+        "        double y @unit(m);\n" +
+        "}\n" +
+        "\n" +
+        "simple Host like IHost\n" +
+        "{\n" +
+        "    parameters:\n" +
+        "        double x @unit(m);\n" +
+        "        double y @unit(m);\n" +
+        "        double txRate @unit(bps);\n" +
+        "        volatile int pkLenBits @unit(b);\n" +
+        "        @signal[state](type=\"long\");\n" +
+        "        @statistic[radioState](source=\"state\"; title=\"Radio state\"; record=vector);\n" +
+        "}\n" +
+        "\n" +
+        "network Aloha\n" +
+        "{\n" +
+        "    parameters:\n" +
+        "        int numHosts;\n" +
+        "        string hostType = default(\"Host\");\n" +
+        "    submodules:\n" +
+        "        server: Server;\n" +
+        "        host[numHosts]: <hostType> like IHost {\n" +
+        "            x = uniform(0m, 1000m);\n" +
+        "            y = uniform(0m, 1000m);\n" +
+        "        }\n" +
+        "}\n",
+
+        "//\n" +
+        "// A queueing network with a source, a queue and a sink.\n" +
+        "//\n" +
+        "module Queueing\n" +
+        "{\n" +
+        "    parameters:\n" +
+        "        @display(\"bgb=400,200\");\n" +
+        "    gates:\n" +
+        "        inout g @loose;\n" +
+        "    submodules:\n" +
+        "        source: Source {\n" +
+        "            @display(\"p=50,100\");\n" +
+        "        }\n" +
+        "        queue: Queue if sizeof(g) > 0 {\n" +
+        "            capacity = 10;\n" +
+        "        }\n" +
+        "        sink: Sink;\n" +
+        "    connections:\n" +
+        "        source.out --> { delay = 1ms; datarate = 1Mbps; } --> queue.in++;\n" +
+        "        queue.out --> sink.in++ if true;\n" +
+        "        g <--> queue.g$o;\n" +
+        "}\n",
+
+        // syntax errors: the trees are repaired, and problems are reported
+        "simple Broken\n" +
+        "{\n" +
+        "    parameters:\n" +
+        "        int x = ;\n" +
+        "    gates:\n" +
+        "        input in[\n" +
+        "}\n" +
+        "network\n",
+    };
+
+    private static class ParseResult {
+        NedFileElementEx tree;
+        int numProblems;
+    }
+
+    @Test
+    public void testConcurrentParsing() throws Exception {
+        final INedTypeResolver resolver = NedTestUtils.createDummyResolver();
+
+        // reference results, parsed in one thread
+        final List<ParseResult> expected = new ArrayList<ParseResult>();
+        for (int i = 0; i < SOURCES.length; i++)
+            expected.add(parse(i, resolver));
+
+        ExecutorService executor = Executors.newFixedThreadPool(NUM_THREADS);
+        try {
+            List<Future<String>> futures = new ArrayList<Future<String>>();
+            for (int t = 0; t < NUM_THREADS; t++) {
+                final long seed = t;
+                futures.add(executor.submit(new Callable<String>() {
+                    public String call() {
+                        // parse every source several times, in a different order in each thread
+                        List<Integer> order = new ArrayList<Integer>();
+                        for (int round = 0; round < ROUNDS; round++)
+                            for (int i = 0; i < SOURCES.length; i++)
+                                order.add(i);
+                        Collections.shuffle(order, new Random(seed));
+                        for (int i : order) {
+                            ParseResult result = parse(i, resolver);
+                            if (result.numProblems != expected.get(i).numProblems)
+                                return "source " + i + ": " + result.numProblems + " problems instead of " + expected.get(i).numProblems;
+                            if (!NedTreeUtil.isNedTreeEqual(result.tree, expected.get(i).tree))
+                                return "source " + i + ": different tree";
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<String> future : futures)
+                assertNull(future.get());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static ParseResult parse(int index, INedTypeResolver resolver) {
+        RecordingNedErrorStore errors = new RecordingNedErrorStore();
+        ParseResult result = new ParseResult();
+        result.tree = NedTreeUtil.parseNedText(SOURCES[index], errors, "source" + index + ".ned", resolver);
+        result.numProblems = errors.getNumProblems();
+        assertNotNull(result.tree);
+        return result;
+    }
+}